@@ -0,0 +1,388 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Misst Durchsatz und Allokation der einzelnen Phasen von Parser, Breitenberechnung, Prüfung und Anzeige.
+ * <p>
+ * Die Messung folgt dem Muster von JMH: Jede Phase läuft zuerst einige Aufwärmrunden und dann mehrere
+ * Messrunden fester Dauer; berichtet werden Operationen pro Sekunde mit Standardabweichung sowie die je Operation
+ * und je Sekunde allokierten Bytes, wie sie der GC-Profiler von JMH als gc.alloc.rate.norm und gc.alloc.rate
+ * ausgibt. JMH selbst lässt sich nicht verwenden, weil es keine Benchmarks im Standardpaket erlaubt und alle
+ * Klassen des Programms dort liegen.
+ * <p>
+ * Aufruf über das Maven-Profil {@code bench}, etwa
+ * {@code mvn -Pbench verify -Dbench.sizes=1000,1000000,10000000 -Dbench.phases=parse,analyze}.
+ * Gesteuert wird über Systemeigenschaften:
+ * <ul>
+ *   <li>bench.shapes: Baumformen aus samples, balanced2, balanced3, chain, star, random, fanout7</li>
+ *   <li>bench.sizes: Knotenzahlen der erzeugten Formen</li>
+ *   <li>bench.phases: zu messende Phasen, siehe {@link #phases()}</li>
+ *   <li>bench.warmup, bench.iterations, bench.time: Anzahl der Aufwärm- und Messrunden und deren Dauer in ms</li>
+ *   <li>bench.samples: Verzeichnis der Beispielbäume</li>
+ *   <li>bench.displayWidth: größte Gesamtbreite, bis zu der die Anzeige gemessen wird</li>
+ * </ul>
+ */
+public final class TreeBenchmark {
+    /** Ziel der Anzeige, das alle Zeichen verwirft. */
+    private static final PrintStream NULL_SINK = new PrintStream(OutputStream.nullOutputStream());
+    /** Größte Gesamtbreite, bis zu der die Anzeige gemessen wird. */
+    private static final int DISPLAY_WIDTH = Integer.getInteger("bench.displayWidth", 4096);
+    /** Senke für Ergebnisse, damit der JIT-Compiler die gemessenen Aufrufe nicht entfernt. */
+    private static volatile Object sink;
+
+    /** Die Bean für die Allokation des aktuellen Threads. */
+    private final com.sun.management.ThreadMXBean threads;
+    /** Anzahl der Aufwärmrunden. */
+    private final int warmup;
+    /** Anzahl der Messrunden. */
+    private final int iterations;
+    /** Dauer einer Runde in Millisekunden. */
+    private final long roundMillis;
+
+    /**
+     * Erstellt den Benchmark mit den Einstellungen aus den Systemeigenschaften.
+     */
+    private TreeBenchmark() {
+        this.threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        this.warmup = Integer.getInteger("bench.warmup", 3);
+        this.iterations = Integer.getInteger("bench.iterations", 5);
+        this.roundMillis = Long.getLong("bench.time", 500);
+    }
+
+    /**
+     * Startet alle ausgewählten Messungen.
+     * @param args wird nicht verwendet; die Einstellungen kommen aus den Systemeigenschaften
+     * @throws IOException wenn die Beispielbäume nicht gelesen werden können.
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> shapeNames = list("bench.shapes", "samples,balanced2,balanced3,chain,star,random");
+        List<String> phaseNames = list("bench.phases", String.join(",", phases().keySet()));
+        int[] sizes = list("bench.sizes", "1000,100000").stream().mapToInt(Integer::parseInt).toArray();
+
+        List<TreeShapes.Shape> shapes = new ArrayList<>();
+        for (String name : shapeNames) {
+            shapes.addAll(createShapes(name, sizes));
+        }
+
+        TreeBenchmark benchmark = new TreeBenchmark();
+        System.out.println(String.format(Locale.ROOT, "%-24s %-14s %10s %14s %12s %14s %12s",
+                "Phase", "Form", "Knoten", "ops/s", "± ops/s", "B/op", "MB/s alloc"));
+        for (String phaseName : phaseNames) {
+            Function<TreeShapes.Shape, Supplier<Object>> phase = phases().get(phaseName);
+            if (phase == null) {
+                throw new IllegalArgumentException("Unbekannte Phase: " + phaseName);
+            }
+            for (TreeShapes.Shape shape : shapes) {
+                benchmark.run(phaseName, shape, phase);
+            }
+        }
+    }
+
+    /**
+     * Gibt alle Phasen zurück. Jede Phase bereitet für eine Form ihre Eingaben außerhalb der Messung vor und
+     * liefert die zu messende Operation, oder null, wenn die Phase für die Form nicht sinnvoll ist.
+     * @return die Phasen nach Namen
+     */
+    static Map<String, Function<TreeShapes.Shape, Supplier<Object>>> phases() {
+        Map<String, Function<TreeShapes.Shape, Supplier<Object>>> phases = new LinkedHashMap<>();
+        phases.put("parse", shape -> () -> new TreeParser().parse(shape.getText()));
+        phases.put("parseCompact", shape -> () -> new TreeParser().parseCompact(shape.getText()));
+        phases.put("analyze", shape -> {
+            Node root = new TreeParser().parse(shape.getText());
+            return () -> new WidthAndDepthCalculator().analyze(root);
+        });
+        phases.put("analyzeCompact", shape -> {
+            CompactTree tree = new TreeParser().parseCompact(shape.getText());
+            return () -> new WidthAndDepthCalculator().analyze(tree);
+        });
+        phases.put("calculateTotalWidth", shape -> {
+            Node root = new TreeParser().parse(shape.getText());
+            return () -> new WidthAndDepthCalculator().calculateTotalWidth(root);
+        });
+        phases.put("totalWidthCompact", shape -> {
+            CompactTree tree = new TreeParser().parseCompact(shape.getText());
+            return () -> new ParallelTreeAnalyzer().analyze(tree).getTotalWidth();
+        });
+        phases.put("assignWidthsAndDepths", shape -> {
+            Node root = new TreeParser().parse(shape.getText());
+            BigInteger totalWidth = new WidthAndDepthCalculator().calculateTotalWidth(root);
+            return () -> {
+                new WidthAndDepthCalculator().assignWidthsAndDepths(root, totalWidth);
+                return root;
+            };
+        });
+        phases.put("getLeafWidths", shape -> {
+            Node root = new TreeParser().parse(shape.getText());
+            return () -> new WidthAndDepthCalculator().getLeafWidths(root);
+        });
+        phases.put("getLeafDepths", shape -> {
+            Node root = new TreeParser().parse(shape.getText());
+            return () -> new WidthAndDepthCalculator().getLeafDepths(root);
+        });
+        phases.put("checkLeafSequence", shape -> {
+            LeafSequence leaves = new WidthAndDepthCalculator().analyze(new TreeParser().parse(shape.getText()))
+                    .getLeaves();
+            return () -> {
+                WidthAndDepthCalculator calculator = new WidthAndDepthCalculator();
+                return calculator.isDenominatorPalindrome(leaves) && calculator.isConstantDepthSum(leaves);
+            };
+        });
+        phases.put("checkLists", shape -> {
+            Node root = new TreeParser().parse(shape.getText());
+            WidthAndDepthCalculator calculator = new WidthAndDepthCalculator();
+            List<BigInteger> widths = calculator.getLeafWidths(root);
+            List<Integer> depths = calculator.getLeafDepths(root);
+            return () -> calculator.isWidthPalindrome(widths) && calculator.isConstantDepthSum(depths);
+        });
+        phases.put("display", shape -> {
+            Node root = new TreeParser().parse(shape.getText());
+            TreeAnalysis analysis = new WidthAndDepthCalculator().analyze(root);
+            if (analysis.getTotalWidth().compareTo(BigInteger.valueOf(DISPLAY_WIDTH)) > 0) {
+                return null;
+            }
+            return () -> {
+                new TreeDisplay(NULL_SINK).display(root, analysis);
+                return root;
+            };
+        });
+        phases.put("checkLines", shape -> {
+            // Die Form so oft je Zeile wiederholt, bis etwa 1 MB zusammenkommt
+            byte[] line = (shape.getText() + "\n").getBytes(StandardCharsets.US_ASCII);
+            int copies = Math.max(1, (1 << 20) / line.length);
+            byte[] input = new byte[copies * line.length];
+            for (int i = 0; i < copies; i++) {
+                System.arraycopy(line, 0, input, i * line.length, line.length);
+            }
+            LineChecker checker = new LineChecker(LineChecker.Format.TSV);
+            return () -> {
+                try {
+                    checker.check(Channels.newChannel(new ByteArrayInputStream(input)), "bench", NULL_SINK);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return checker;
+            };
+        });
+        phases.put("parseTextFile", shape -> parseFile(shape, false));
+        phases.put("parseBinaryFile", shape -> parseFile(shape, true));
+        phases.put("treeChecker", shape -> {
+            TreeChecker checker = new TreeChecker();
+            return () -> checker.check(shape.getText());
+        });
+        phases.put("treeCheckerFast", shape -> {
+            TreeChecker checker = new TreeChecker(false);
+            return () -> checker.check(shape.getText());
+        });
+        phases.put("hashPrecheck", shape -> {
+            HashPrecheck precheck = new HashPrecheck();
+            String text = shape.getText();
+            return () -> {
+                precheck.reset();
+                for (int i = 0; i < text.length(); i++) {
+                    char c = text.charAt(i);
+                    if (c == '(') {
+                        precheck.open();
+                    } else if (c == ')') {
+                        precheck.close();
+                    }
+                }
+                precheck.finish();
+                return precheck.getMismatch();
+            };
+        });
+        phases.put("incremental", shape -> {
+            Node root = new TreeParser().parse(shape.getText());
+            return () -> grow(root);
+        });
+        return phases;
+    }
+
+    /**
+     * Schreibt eine Form in eine temporäre Text- oder Binärdatei und liefert das kompakte Parsen dieser Datei.
+     * @param shape  die Form
+     * @param binary true für das Binärformat des {@link BinaryTreeFile}, false für Text
+     * @return die zu messende Operation
+     */
+    private static Supplier<Object> parseFile(TreeShapes.Shape shape, boolean binary) {
+        try {
+            Path text = Files.createTempFile("bench", ".txt");
+            text.toFile().deleteOnExit();
+            Files.write(text, shape.getText().getBytes(StandardCharsets.US_ASCII));
+            Path file = text;
+            if (binary) {
+                file = Files.createTempFile("bench", ".bin");
+                file.toFile().deleteOnExit();
+                BinaryTreeFile.toBinary(text, file, false);
+            }
+            Path input = file;
+            return () -> {
+                try {
+                    return new TreeParser().parseCompact(input);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Baut einen Baum Knoten für Knoten mit dem {@link IncrementalChecker} nach und prüft nach jedem Schritt.
+     * @param original der nachzubauende Baum
+     * @return der Prüfer des nachgebauten Baumes
+     */
+    private static IncrementalChecker grow(Node original) {
+        Node copy = new Node();
+        IncrementalChecker checker = new IncrementalChecker(copy);
+        Deque<Node[]> stack = new ArrayDeque<>();
+        stack.push(new Node[] {original, copy});
+        while (!stack.isEmpty()) {
+            Node[] pair = stack.pop();
+            for (Node child : pair[0].getChildren()) {
+                Node childCopy = new Node();
+                checker.addChild(pair[1], childCopy);
+                checker.isDrehfreudig();
+                stack.push(new Node[] {child, childCopy});
+            }
+        }
+        return checker;
+    }
+
+    /**
+     * Misst eine Phase für eine Form und gibt eine Ergebniszeile aus.
+     * @param phaseName der Name der Phase
+     * @param shape     die Form
+     * @param phase     die Phase
+     */
+    private void run(String phaseName, TreeShapes.Shape shape, Function<TreeShapes.Shape, Supplier<Object>> phase) {
+        Supplier<Object> operation = phase.apply(shape);
+        if (operation == null) {
+            return;
+        }
+        for (int i = 0; i < warmup; i++) {
+            round(operation);
+        }
+
+        System.gc();
+        double[] throughput = new double[iterations];
+        long totalOps = 0;
+        long totalBytes = 0;
+        long totalNanos = 0;
+        for (int i = 0; i < iterations; i++) {
+            long[] round = round(operation);
+            throughput[i] = round[0] * 1e9 / round[1];
+            totalOps += round[0];
+            totalNanos += round[1];
+            totalBytes += round[2];
+        }
+
+        double mean = Arrays.stream(throughput).average().orElse(0);
+        double variance = Arrays.stream(throughput).map(t -> (t - mean) * (t - mean)).sum()
+                / Math.max(1, iterations - 1);
+        System.out.println(String.format(Locale.ROOT, "%-24s %-14s %10d %14.3f %12.3f %14.0f %12.1f",
+                phaseName, shape.getName(), shape.nodeCount(), mean, Math.sqrt(variance),
+                (double) totalBytes / totalOps, totalBytes * 1e9 / totalNanos / (1 << 20)));
+    }
+
+    /**
+     * Führt eine Runde aus: die Operation wird wiederholt, bis die Rundendauer erreicht ist, mindestens einmal.
+     * @param operation die zu messende Operation
+     * @return Anzahl der Operationen, verstrichene Nanosekunden und allokierte Bytes
+     */
+    private long[] round(Supplier<Object> operation) {
+        long thread = Thread.currentThread().getId();
+        long deadline = roundMillis * 1_000_000;
+        long ops = 0;
+        long bytesBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            sink = operation.get();
+            ops++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < deadline);
+        long bytes = threads.getThreadAllocatedBytes(thread) - bytesBefore;
+        sink = null;
+        return new long[] {ops, elapsed, bytes};
+    }
+
+    /**
+     * Erzeugt die Formen zu einem Namen, bei erzeugten Formen je eine pro Knotenzahl.
+     * @param name  der Name der Form
+     * @param sizes die Knotenzahlen
+     * @return die Formen
+     * @throws IOException wenn die Beispielbäume nicht gelesen werden können.
+     */
+    private static List<TreeShapes.Shape> createShapes(String name, int[] sizes) throws IOException {
+        if (name.equals("samples")) {
+            return TreeShapes.samples(Paths.get(System.getProperty("bench.samples", "docs/aufgaben")));
+        }
+        List<TreeShapes.Shape> shapes = new ArrayList<>();
+        for (int size : sizes) {
+            switch (name) {
+                case "balanced2":
+                    shapes.add(TreeShapes.balanced(2, size));
+                    break;
+                case "balanced3":
+                    shapes.add(TreeShapes.balanced(3, size));
+                    break;
+                case "chain":
+                    shapes.add(TreeShapes.chain(size));
+                    break;
+                case "star":
+                    shapes.add(TreeShapes.star(size));
+                    break;
+                case "random":
+                    shapes.add(TreeShapes.random(size, 42));
+                    break;
+                case "fanout7":
+                    shapes.add(TreeShapes.randomFanOut(size, 7, 42));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unbekannte Baumform: " + name);
+            }
+        }
+        return shapes;
+    }
+
+    /**
+     * Liest eine kommagetrennte Liste aus einer Systemeigenschaft.
+     * @param property     der Name der Eigenschaft
+     * @param defaultValue der Wert, wenn die Eigenschaft fehlt oder leer ist
+     * @return die Einträge der Liste
+     */
+    private static List<String> list(String property, String defaultValue) {
+        String value = System.getProperty(property, "");
+        if (value.isBlank()) {
+            value = defaultValue;
+        }
+        List<String> entries = new ArrayList<>();
+        for (String entry : value.split(",")) {
+            if (!entry.isBlank()) {
+                entries.add(entry.trim());
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,201 @@
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Erzeugt Bäume in Klammernotation für die Benchmarks.
+ * Alle Formen werden direkt als Text erzeugt, damit auch Bäume mit 10^7 Knoten ohne Umweg über Node-Objekte
+ * entstehen.
+ */
+final class TreeShapes {
+
+    /**
+     * Ein benannter Baum in Klammernotation.
+     */
+    static final class Shape {
+        /** Die Bezeichnung in der Ausgabe. */
+        private final String name;
+        /** Der Baum in Klammernotation. */
+        private final String text;
+
+        /**
+         * Erstellt eine benannte Form.
+         * @param name die Bezeichnung in der Ausgabe
+         * @param text der Baum in Klammernotation
+         */
+        Shape(String name, String text) {
+            this.name = name;
+            this.text = text;
+        }
+
+        /**
+         * Gibt die Bezeichnung zurück.
+         * @return die Bezeichnung
+         */
+        String getName() {
+            return name;
+        }
+
+        /**
+         * Gibt den Baum in Klammernotation zurück.
+         * @return der Baumtext
+         */
+        String getText() {
+            return text;
+        }
+
+        /**
+         * Gibt die Knotenzahl zurück.
+         * @return die Anzahl der öffnenden Klammern
+         */
+        int nodeCount() {
+            return text.length() / 2;
+        }
+    }
+
+    /**
+     * Privater Konstruktor, um die Instanziierung dieser Utility-Klasse zu verhindern.
+     */
+    private TreeShapes() {
+        // Diese Klasse sollte nicht instanziiert werden.
+    }
+
+    /**
+     * Liest die Beispielbäume aus einem Verzeichnis, sortiert nach Dateinamen.
+     * @param dir das Verzeichnis mit den .txt-Dateien
+     * @return die Beispielbäume, leer wenn das Verzeichnis fehlt
+     * @throws IOException wenn eine Datei nicht gelesen werden kann.
+     */
+    static List<Shape> samples(Path dir) throws IOException {
+        List<Shape> shapes = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return shapes;
+        }
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(dir)) {
+            paths.filter(p -> p.toString().endsWith(".txt")).sorted().forEach(files::add);
+        }
+        for (Path file : files) {
+            String text = new String(Files.readAllBytes(file), Charset.defaultCharset()).trim();
+            String name = file.getFileName().toString();
+            shapes.add(new Shape(name.substring(0, name.length() - ".txt".length()), text));
+        }
+        return shapes;
+    }
+
+    /**
+     * Erzeugt einen vollständigen k-nären Baum mit höchstens n Knoten und größtmöglicher Tiefe.
+     * @param k die Kinderzahl jedes inneren Knotens, mindestens 2
+     * @param n die obere Grenze der Knotenzahl
+     * @return der Baum
+     */
+    static Shape balanced(int k, int n) {
+        String text = "()";
+        long nodes = 1;
+        long levelNodes = 1;
+        while (nodes + levelNodes * k <= n) {
+            levelNodes *= k;
+            nodes += levelNodes;
+            text = "(" + text.repeat(k) + ")";
+        }
+        return new Shape("balanced" + k, text);
+    }
+
+    /**
+     * Erzeugt eine Kette aus n Knoten, also einen Baum der Tiefe n mit einem einzigen Blatt.
+     * @param n die Knotenzahl
+     * @return der Baum
+     */
+    static Shape chain(int n) {
+        return new Shape("chain", "(".repeat(n) + ")".repeat(n));
+    }
+
+    /**
+     * Erzeugt einen Stern, also einen Wurzelknoten mit n - 1 Blättern.
+     * @param n die Knotenzahl
+     * @return der Baum
+     */
+    static Shape star(int n) {
+        return new Shape("star", "(" + "()".repeat(n - 1) + ")");
+    }
+
+    /**
+     * Erzeugt einen zufälligen Baum mit n Knoten. Vor jedem neuen Knoten werden zufällig viele offene Knoten
+     * geschlossen, sodass Breite und Tiefe gemischt auftreten.
+     * @param n    die Knotenzahl
+     * @param seed der Startwert des Zufallsgenerators, damit Läufe vergleichbar bleiben
+     * @return der Baum
+     */
+    static Shape random(int n, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder(2 * n);
+        int open = 0;
+        for (int i = 0; i < n; i++) {
+            if (open > 1) {
+                int close = Math.min(open - 1, (int) (-Math.log(1 - random.nextDouble()) * 1.2));
+                sb.append(")".repeat(close));
+                open -= close;
+            }
+            sb.append('(');
+            open++;
+        }
+        sb.append(")".repeat(open));
+        return new Shape("random", sb.toString());
+    }
+
+    /**
+     * Erzeugt einen zufälligen Baum mit n Knoten, dessen Knoten jeweils zwischen 0 und maxChildren Kinder haben.
+     * Die Kinderzahlen werden Ebene für Ebene gezogen, sodass der Baum logarithmisch tief bleibt. Weil die
+     * Pfadnenner viele verschiedene Primfaktoren sammeln, passt das kgV bei maxChildren = 7 ab etwa 10^6 Knoten
+     * nicht mehr in einen long, während die einzelnen Pfadnenner es noch tun.
+     * @param n           die Knotenzahl
+     * @param maxChildren die größte Kinderzahl
+     * @param seed        der Startwert des Zufallsgenerators, damit Läufe vergleichbar bleiben
+     * @return der Baum
+     */
+    static Shape randomFanOut(int n, int maxChildren, long seed) {
+        Random random = new Random(seed);
+        // Kinderzahlen in Breitenordnung; die Kinder eines Knotens folgen ab firstChild aufeinander
+        int[] childCounts = new int[n];
+        int[] firstChild = new int[n];
+        int nodes = 1;
+        for (int node = 0; node < nodes; node++) {
+            int count = Math.min(random.nextInt(maxChildren + 1), n - nodes);
+            if (count == 0 && node == nodes - 1 && nodes < n) {
+                // Der letzte offene Knoten darf den Baum nicht vor n Knoten beenden
+                count = 1;
+            }
+            childCounts[node] = count;
+            firstChild[node] = nodes;
+            nodes += count;
+        }
+
+        StringBuilder sb = new StringBuilder(2 * n);
+        int[] stack = new int[n];
+        int[] next = new int[n];
+        int top = 0;
+        sb.append('(');
+        stack[top] = 0;
+        next[top] = 0;
+        top++;
+        while (top > 0) {
+            int node = stack[top - 1];
+            if (next[top - 1] == childCounts[node]) {
+                sb.append(')');
+                top--;
+                continue;
+            }
+            int child = firstChild[node] + next[top - 1]++;
+            sb.append('(');
+            stack[top] = child;
+            next[top] = 0;
+            top++;
+        }
+        return new Shape("fanout" + maxChildren, sb.toString());
+    }
+}
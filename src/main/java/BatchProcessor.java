@@ -0,0 +1,258 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Verarbeitet eine Liste von Dateien nebenläufig auf einem Thread-Pool fester Größe. Der Pool wird je Aufruf von
+ * {@link #run} angelegt, oder er wird wie im {@link CheckerServer} von allen Anfragen geteilt und nur übergeben.
+ * <p>
+ * Jede Datei schreibt ihre Ausgabe und ihre Fehlermeldungen in eigene Puffer. Die Puffer werden in der
+ * Reihenfolge der Eingabeliste ausgegeben, sodass die Ausgabe dieselbe ist wie bei der Verarbeitung
+ * nacheinander. Damit fertige, aber noch nicht ausgegebene Dateien den Speicher nicht füllen, sind höchstens
+ * {@value #WINDOW_FACTOR}-mal so viele Dateien in Arbeit wie Threads. Zum Schluss wird eine Zusammenfassung
+ * mit Durchsatz und Fehlerzahl ausgegeben, mit --stats außerdem die {@link PhaseStats} aller Dateien.
+ */
+public class BatchProcessor {
+    /** Wie viele Dateien je Thread höchstens gleichzeitig in Arbeit oder gepuffert sind. */
+    private static final int WINDOW_FACTOR = 4;
+
+    /** Das Ergebnis der Verarbeitung einer Datei. */
+    public enum Outcome {
+        /** Der Baum ist drehfreudig. */
+        DREHFREUDIG,
+        /** Der Baum ist nicht drehfreudig. */
+        NICHT_DREHFREUDIG,
+        /** Die Datei konnte nicht gelesen werden oder enthält keinen gültigen Baum. */
+        FEHLER
+    }
+
+    /** Die Kommandozeilenoptionen, mit denen jede Datei verarbeitet wird. */
+    private final CheckerOptions options;
+    /** Die Anzahl der gleichzeitig verarbeiteten Dateien. */
+    private final int parallelism;
+    /** Der gemeinsame Ergebnis-Cache aller Dateien, oder null ohne Cache. */
+    private final ResultCache cache;
+    /** Die Statistik der Phasen aller Dateien, oder null ohne --stats. */
+    private final PhaseStats stats;
+    /** Der gemeinsame Pool, oder null, wenn jeder Aufruf von {@link #run} einen eigenen anlegt. */
+    private final ExecutorService executor;
+
+    /**
+     * Erstellt einen BatchProcessor mit der Parallelität aus den Optionen.
+     * @param options die Kommandozeilenoptionen
+     */
+    public BatchProcessor(CheckerOptions options) {
+        this(options, null);
+    }
+
+    /**
+     * Erstellt einen BatchProcessor, der die Dateien auf einem gemeinsamen Pool verarbeitet. Der Pool wird nicht
+     * beendet; die Optionen bestimmen nur, wie viele Dateien gleichzeitig in Arbeit sind.
+     * @param options  die Kommandozeilenoptionen
+     * @param executor der gemeinsame Pool, oder null für einen eigenen Pool je Aufruf von {@link #run}
+     */
+    public BatchProcessor(CheckerOptions options, ExecutorService executor) {
+        this.options = options;
+        this.parallelism = options.getJobs();
+        this.cache = options.getCacheDirectory() != null
+                ? new ResultCache(Paths.get(options.getCacheDirectory()))
+                : null;
+        this.stats = options.isStats() ? new PhaseStats() : null;
+        this.executor = executor;
+    }
+
+    /**
+     * Verarbeitet alle Dateien und gibt ihre Ergebnisse in der Reihenfolge der Liste aus.
+     * @param filenames die Namen der zu verarbeitenden Dateien
+     * @param labels    die Bezeichnungen der Dateien in der Ausgabe, in derselben Reihenfolge
+     * @param out       der Strom für die Ausgabe
+     * @param err       der Strom für Fehlermeldungen
+     */
+    public void run(List<String> filenames, List<String> labels, PrintStream out, PrintStream err) {
+        long start = System.nanoTime();
+        int[] counts = new int[Outcome.values().length];
+        long bytes = 0;
+
+        if (parallelism == 1 || filenames.size() == 1) {
+            // Ohne Nebenläufigkeit direkt schreiben, ohne Umweg über Puffer
+            for (int i = 0; i < filenames.size(); i++) {
+                bytes += new File(filenames.get(i)).length();
+                try {
+                    counts[process(filenames.get(i), labels.get(i), out, err).ordinal()]++;
+                } catch (Error e) {
+                    // Wie in emit: ein Error, etwa ein OutOfMemoryError, ist ein Fehler dieser Datei
+                    reportUnexpected(filenames.get(i), e, counts, err);
+                }
+            }
+        } else {
+            ExecutorService pool = executor != null ? executor : newPool(parallelism);
+            Deque<Future<FileResult>> pending = new ArrayDeque<>();
+            try {
+                int window = parallelism * WINDOW_FACTOR;
+                int emitted = 0;
+                for (int i = 0; i < filenames.size(); i++) {
+                    if (pending.size() == window) {
+                        bytes += emit(pending.poll(), filenames.get(emitted++), counts, out, err);
+                    }
+                    String filename = filenames.get(i);
+                    String label = labels.get(i);
+                    pending.add(pool.submit(() -> processBuffered(filename, label)));
+                }
+                while (!pending.isEmpty()) {
+                    bytes += emit(pending.poll(), filenames.get(emitted++), counts, out, err);
+                }
+            } finally {
+                // Nach einem Abbruch laufen im gemeinsamen Pool keine Dateien dieses Aufrufs weiter
+                for (Future<FileResult> future : pending) {
+                    future.cancel(true);
+                }
+                if (pool != executor) {
+                    pool.shutdownNow();
+                }
+            }
+        }
+
+        printSummary(filenames.size(), counts, bytes, System.nanoTime() - start, out);
+        if (stats != null) {
+            stats.print(out);
+        }
+    }
+
+    /**
+     * Erstellt einen Pool fester Größe aus Daemon-Threads.
+     * @param threads die Anzahl der Threads
+     * @return der Pool
+     */
+    static ExecutorService newPool(int threads) {
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "drehfreudig-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Verarbeitet eine Datei mit Überschrift.
+     * @param filename der Name der Datei
+     * @param label    die Bezeichnung der Datei in der Überschrift
+     * @param out      der Strom für die Ausgabe
+     * @param err      der Strom für Fehlermeldungen
+     * @return das Ergebnis der Prüfung
+     */
+    private Outcome process(String filename, String label, PrintStream out, PrintStream err) {
+        out.println("\n=== Verarbeite " + label + " ===");
+        return DrehfreudigChecker.processFile(filename, options, cache, stats, out, err);
+    }
+
+    /**
+     * Verarbeitet eine Datei in eigene Puffer für Ausgabe und Fehlermeldungen.
+     * @param filename der Name der Datei
+     * @param label    die Bezeichnung der Datei in der Überschrift
+     * @return das Ergebnis mit den gepufferten Ausgaben
+     */
+    private FileResult processBuffered(String filename, String label) {
+        ByteArrayOutputStream outBuffer = new ByteArrayOutputStream();
+        ByteArrayOutputStream errBuffer = new ByteArrayOutputStream();
+        Outcome outcome;
+        try (PrintStream out = new PrintStream(outBuffer); PrintStream err = new PrintStream(errBuffer)) {
+            outcome = process(filename, label, out, err);
+        }
+        return new FileResult(outcome, new File(filename).length(), outBuffer, errBuffer);
+    }
+
+    /**
+     * Wartet auf das Ergebnis einer Datei, gibt ihre Puffer aus und zählt ihr Ergebnis.
+     * Ein Error in der Verarbeitung, etwa ein OutOfMemoryError, wird als Fehler der Datei gemeldet.
+     * @param future   das ausstehende Ergebnis
+     * @param filename der Name der Datei
+     * @param counts   die Zähler je Ergebnis
+     * @param out      der Strom für die Ausgabe
+     * @param err      der Strom für Fehlermeldungen
+     * @return die Größe der Datei in Bytes
+     */
+    private long emit(Future<FileResult> future, String filename, int[] counts, PrintStream out, PrintStream err) {
+        FileResult result;
+        try {
+            result = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Verarbeitung unterbrochen.", e);
+        } catch (ExecutionException e) {
+            reportUnexpected(filename, e.getCause(), counts, err);
+            return 0;
+        }
+        out.write(result.out.toByteArray(), 0, result.out.size());
+        out.flush();
+        err.write(result.err.toByteArray(), 0, result.err.size());
+        err.flush();
+        counts[result.outcome.ordinal()]++;
+        return result.fileSize;
+    }
+
+    /**
+     * Meldet einen unerwarteten Fehler bei der Verarbeitung einer Datei und zählt die Datei als Fehler.
+     * @param filename der Name der Datei
+     * @param cause    der Fehler
+     * @param counts   die Zähler je Ergebnis
+     * @param err      der Strom für Fehlermeldungen
+     */
+    private static void reportUnexpected(String filename, Throwable cause, int[] counts, PrintStream err) {
+        err.println("Ein unerwarteter Fehler ist bei der Verarbeitung von '" + filename + "' aufgetreten: " + cause);
+        counts[Outcome.FEHLER.ordinal()]++;
+    }
+
+    /**
+     * Gibt die Zusammenfassung über alle Dateien aus.
+     * @param files   die Anzahl der Dateien
+     * @param counts  die Zähler je Ergebnis
+     * @param bytes   die Summe der Dateigrößen
+     * @param nanos   die verstrichene Zeit in Nanosekunden
+     * @param out     der Strom für die Ausgabe
+     */
+    private void printSummary(int files, int[] counts, long bytes, long nanos, PrintStream out) {
+        double seconds = Math.max(nanos, 1) / 1e9;
+        out.println(String.format(Locale.ROOT,
+                "%n=== Zusammenfassung: %d Dateien, %d drehfreudig, %d nicht drehfreudig, %d Fehler"
+                        + " in %d ms (%.1f Dateien/s, %.1f MB/s, %d Threads) ===",
+                files, counts[Outcome.DREHFREUDIG.ordinal()], counts[Outcome.NICHT_DREHFREUDIG.ordinal()],
+                counts[Outcome.FEHLER.ordinal()], nanos / 1_000_000, files / seconds,
+                bytes / seconds / (1 << 20), Math.min(parallelism, Math.max(files, 1))));
+    }
+
+    /**
+     * Das gepufferte Ergebnis einer Datei.
+     */
+    private static class FileResult {
+        /** Das Ergebnis der Prüfung. */
+        private final Outcome outcome;
+        /** Die Größe der Datei in Bytes. */
+        private final long fileSize;
+        /** Die gepufferte Ausgabe. */
+        private final ByteArrayOutputStream out;
+        /** Die gepufferten Fehlermeldungen. */
+        private final ByteArrayOutputStream err;
+
+        /**
+         * Erstellt ein gepuffertes Ergebnis.
+         * @param outcome  das Ergebnis der Prüfung
+         * @param fileSize die Größe der Datei in Bytes
+         * @param out      die gepufferte Ausgabe
+         * @param err      die gepufferten Fehlermeldungen
+         */
+        FileResult(Outcome outcome, long fileSize, ByteArrayOutputStream out, ByteArrayOutputStream err) {
+            this.outcome = outcome;
+            this.fileSize = fileSize;
+            this.out = out;
+            this.err = err;
+        }
+    }
+}
@@ -0,0 +1,526 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Liest und schreibt das kompakte Binärformat für Bäume, in dem jede Klammer genau ein Bit belegt.
+ * <p>
+ * Eine Binärdatei beginnt mit einem Kopf in Little-Endian-Byteordnung:
+ * <pre>
+ *  0  4 Bytes  Kennung "DRBT"
+ *  4  1 Byte   Formatversion ({@value #VERSION})
+ *  5  1 Byte   Flags; Bit 0 gesetzt, wenn die Gesamtbreite mitgespeichert ist
+ *  6  2 Bytes  reserviert, 0
+ *  8  8 Bytes  Knotenzahl n
+ * 16  4 Bytes  größte Tiefe
+ * 20  4 Bytes  Länge der Gesamtbreite in Bytes, 0 ohne Gesamtbreite
+ * 24           Gesamtbreite als vorzeichenbehaftete Big-Endian-Zahl wie bei {@link BigInteger#toByteArray()}
+ * </pre>
+ * Danach folgen, auf 8 Bytes ausgerichtet, die 2n Klammern als Bitfolge in 64-Bit-Wörtern: Bit i eines Wortes
+ * (vom niederwertigsten an gezählt) ist die Klammer 64 * Wort + i, 1 für eine öffnende und 0 für eine schließende.
+ * Ungenutzte Bits des letzten Wortes sind 0. Gegenüber dem Text ohne Zeilenumbrüche ist die Datei damit rund
+ * achtmal kleiner; geparst wird sie von {@link TreeParser#parseCompact(Path)} und {@link TreeParser#parseDag(Path)}.
+ */
+public class BinaryTreeFile {
+    /** Die Kennung am Anfang jeder Binärdatei. */
+    private static final byte[] MAGIC = {'D', 'R', 'B', 'T'};
+    /** Die unterstützte Formatversion. */
+    static final int VERSION = 1;
+    /** Flag für eine mitgespeicherte Gesamtbreite. */
+    private static final int FLAG_TOTAL_WIDTH = 1;
+    /** Größe des Kopfes ohne Gesamtbreite in Bytes. */
+    private static final int HEADER_SIZE = 24;
+    /** Größe der Schreibpuffer in Bytes. */
+    private static final int BUFFER_SIZE = 1 << 20;
+    /** Textdarstellung der 8 Klammern je Bytewert als 8 ASCII-Zeichen in Little-Endian-Reihenfolge. */
+    private static final long[] BRACKETS = new long[256];
+
+    static {
+        for (int value = 0; value < 256; value++) {
+            long chars = 0;
+            for (int bit = 7; bit >= 0; bit--) {
+                chars = (chars << 8) | (((value >>> bit) & 1) != 0 ? '(' : ')');
+            }
+            BRACKETS[value] = chars;
+        }
+    }
+
+    /**
+     * Der Kopf einer Binärdatei.
+     */
+    static class Header {
+        /** Die Knotenzahl. */
+        private final long nodeCount;
+        /** Die größte Tiefe, wobei der Wurzelknoten die Tiefe 1 hat. */
+        private final int maxDepth;
+        /** Die mitgespeicherte Gesamtbreite, oder null. */
+        private final BigInteger totalWidth;
+        /** Der Beginn der Bitfolge in der Datei. */
+        private final long dataOffset;
+
+        /**
+         * Erstellt einen Kopf.
+         * @param nodeCount  die Knotenzahl
+         * @param maxDepth   die größte Tiefe
+         * @param totalWidth die Gesamtbreite, oder null
+         * @param dataOffset der Beginn der Bitfolge in der Datei
+         */
+        Header(long nodeCount, int maxDepth, BigInteger totalWidth, long dataOffset) {
+            this.nodeCount = nodeCount;
+            this.maxDepth = maxDepth;
+            this.totalWidth = totalWidth;
+            this.dataOffset = dataOffset;
+        }
+
+        /**
+         * Gibt die Knotenzahl zurück.
+         * @return die Knotenzahl
+         */
+        long getNodeCount() {
+            return nodeCount;
+        }
+
+        /**
+         * Gibt die größte Tiefe zurück.
+         * @return die größte Tiefe
+         */
+        int getMaxDepth() {
+            return maxDepth;
+        }
+
+        /**
+         * Gibt die mitgespeicherte Gesamtbreite zurück.
+         * @return die Gesamtbreite, oder null, wenn sie nicht gespeichert ist
+         */
+        BigInteger getTotalWidth() {
+            return totalWidth;
+        }
+
+        /**
+         * Gibt den Beginn der Bitfolge in der Datei zurück.
+         * @return der Abstand vom Dateianfang in Bytes, immer ein Vielfaches von 8
+         */
+        long getDataOffset() {
+            return dataOffset;
+        }
+
+        /**
+         * Gibt die Anzahl der Bits der Bitfolge zurück.
+         * @return zwei Bits je Knoten
+         */
+        long getBitCount() {
+            return 2 * nodeCount;
+        }
+    }
+
+    /**
+     * Schreibt Klammerereignisse als Bitfolge in eine Datei und prüft dabei die Klammerstruktur wie der
+     * {@link CompactTree.Builder}. Der Kopf wird erst von {@link #finish()} geschrieben, weil Knotenzahl und
+     * Tiefe vorher nicht bekannt sind.
+     */
+    static class Writer implements TreeParser.Sink {
+        /** Der Kanal der Zieldatei. */
+        private final FileChannel channel;
+        /** Die mitzuspeichernde Gesamtbreite als Bytes, leer ohne Gesamtbreite. */
+        private final byte[] totalWidth;
+        /** Der Schreibpuffer für fertige Wörter. */
+        private final ByteBuffer buffer;
+        /** Das aktuelle, noch unvollständige Wort. */
+        private long word;
+        /** Die Anzahl der Bits im aktuellen Wort. */
+        private int bits;
+        /** Die Anzahl der bisher geöffneten Knoten. */
+        private long nodeCount;
+        /** Die Anzahl der offenen Knoten. */
+        private int depth;
+        /** Die größte bisher erreichte Tiefe. */
+        private int maxDepth;
+
+        /**
+         * Erstellt einen Writer, der ab dem Ende des Kopfes in den Kanal schreibt.
+         * @param channel    der Kanal der Zieldatei; er wird nicht geschlossen
+         * @param totalWidth die mitzuspeichernde Gesamtbreite, oder null
+         * @throws IOException wenn die Position nicht gesetzt werden kann.
+         */
+        Writer(FileChannel channel, BigInteger totalWidth) throws IOException {
+            this.channel = channel;
+            this.totalWidth = totalWidth == null ? new byte[0] : totalWidth.toByteArray();
+            this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.truncate(0);
+            channel.position(dataOffset(this.totalWidth.length));
+        }
+
+        /**
+         * Verarbeitet eine öffnende Klammer.
+         * @throws IllegalArgumentException wenn nach dem Wurzelknoten ein weiterer Baum beginnt.
+         */
+        @Override
+        public void open() {
+            if (depth == 0 && nodeCount > 0) {
+                throw new IllegalArgumentException("Ungültige Baumstruktur: Mehr als ein Wurzelknoten.");
+            }
+            nodeCount++;
+            depth++;
+            if (depth > maxDepth) {
+                maxDepth = depth;
+            }
+            word |= 1L << bits;
+            advance();
+        }
+
+        /**
+         * Verarbeitet eine schließende Klammer.
+         * @throws IllegalArgumentException wenn kein Knoten mehr offen ist.
+         */
+        @Override
+        public void close() {
+            if (depth == 0) {
+                throw new IllegalArgumentException("Ungültige Baumstruktur: Zu viele schließende Klammern.");
+            }
+            depth--;
+            advance();
+        }
+
+        /**
+         * Rückt um ein Bit vor und legt ein volles Wort im Schreibpuffer ab.
+         */
+        private void advance() {
+            if (++bits == Long.SIZE) {
+                buffer.putLong(word);
+                word = 0;
+                bits = 0;
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+            }
+        }
+
+        /**
+         * Schreibt den Schreibpuffer in den Kanal.
+         */
+        private void flush() {
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Schreibt das letzte Wort und den Kopf.
+         * @return die Knotenzahl
+         * @throws IOException wenn die Datei nicht geschrieben werden kann.
+         * @throws IllegalArgumentException wenn noch Knoten offen sind oder keine Klammer gelesen wurde.
+         */
+        long finish() throws IOException {
+            if (depth != 0) {
+                throw new IllegalArgumentException("Ungültige Baumstruktur: Zu viele öffnende Klammern.");
+            }
+            if (nodeCount == 0) {
+                throw new IllegalArgumentException("Die Datei ist leer oder enthält keine Baumstruktur.");
+            }
+            if (bits > 0) {
+                buffer.putLong(word);
+            }
+            flush();
+
+            ByteBuffer header = ByteBuffer.allocate((int) dataOffset(totalWidth.length)).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(MAGIC)
+                    .put((byte) VERSION)
+                    .put((byte) (totalWidth.length > 0 ? FLAG_TOTAL_WIDTH : 0))
+                    .putShort((short) 0)
+                    .putLong(nodeCount)
+                    .putInt(maxDepth)
+                    .putInt(totalWidth.length)
+                    .put(totalWidth);
+            header.clear();
+            long position = 0;
+            while (header.hasRemaining()) {
+                position += channel.write(header, position);
+            }
+            return nodeCount;
+        }
+    }
+
+    /**
+     * Nicht instanziierbar; alle Methoden sind statisch.
+     */
+    private BinaryTreeFile() {}
+
+    /**
+     * Konvertiert zwischen Text und Binärformat; die Richtung ergibt sich aus der Eingabedatei.
+     * @param args die Kommandozeilenargumente
+     */
+    public static void main(String[] args) {
+        boolean withTotalWidth = false;
+        int first = 0;
+        if (args.length > 0 && args[0].equals("--lcm")) {
+            withTotalWidth = true;
+            first = 1;
+        }
+        if (args.length - first != 2) {
+            System.err.println(usage());
+            return;
+        }
+
+        Path input = Paths.get(args[first]);
+        Path output = Paths.get(args[first + 1]);
+        try {
+            long start = System.nanoTime();
+            long nodeCount;
+            if (isBinary(input)) {
+                nodeCount = toText(input, output);
+            } else {
+                nodeCount = toBinary(input, output, withTotalWidth);
+            }
+            System.out.println(input + " -> " + output + ": " + nodeCount + " Knoten, "
+                    + input.toFile().length() + " -> " + output.toFile().length() + " Bytes in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (IOException e) {
+            System.err.println("Fehler beim Konvertieren von '" + input + "': " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Fehler in der Eingabe für Datei '" + input + "': " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gibt eine Beschreibung der Kommandozeile zurück.
+     * @return der Hilfetext
+     */
+    public static String usage() {
+        return "Verwendung: java BinaryTreeFile [--lcm] <Eingabedatei> <Ausgabedatei>\n"
+                + "Eine Textdatei wird ins Binärformat konvertiert, eine Binärdatei zurück in Text.\n"
+                + "Optionen:\n"
+                + "  --lcm  die Gesamtbreite (kgV der Pfadnenner) im Kopf der Binärdatei mitspeichern";
+    }
+
+    /**
+     * Prüft, ob eine Datei mit der Kennung des Binärformats beginnt.
+     * @param file die zu prüfende Datei
+     * @return true für eine Binärdatei, sonst false
+     * @throws IOException wenn die Datei nicht gelesen werden kann.
+     */
+    public static boolean isBinary(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return isBinary(channel);
+        }
+    }
+
+    /**
+     * Konvertiert eine Textdatei ins Binärformat. Gelesen wird wie beim Parsen: alle Bytes außer Klammern werden
+     * ignoriert, und eine komprimierte Textdatei wird entpackt.
+     * @param text           die Textdatei
+     * @param binary         die zu schreibende Binärdatei
+     * @param withTotalWidth true, um die Gesamtbreite zu berechnen und im Kopf mitzuspeichern
+     * @return die Knotenzahl
+     * @throws IOException wenn eine der Dateien nicht gelesen oder geschrieben werden kann.
+     * @throws IllegalArgumentException wenn die Klammerstruktur ungültig ist oder mehr als einen Baum enthält.
+     */
+    public static long toBinary(Path text, Path binary, boolean withTotalWidth) throws IOException {
+        BigInteger totalWidth = null;
+        if (withTotalWidth) {
+            CompactTree tree = new TreeParser().parseCompact(text);
+            if (tree == null) {
+                throw new IllegalArgumentException("Die Datei ist leer oder enthält keine Baumstruktur.");
+            }
+            totalWidth = new ParallelTreeAnalyzer().analyze(tree).getTotalWidth();
+        }
+
+        try (FileChannel out = FileChannel.open(binary, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            Writer writer = new Writer(out, totalWidth);
+            try {
+                new TreeParser().feed(text, writer);
+                return writer.finish();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Konvertiert eine Binärdatei zurück in eine Textdatei mit dem Baum auf einer Zeile.
+     * @param binary die Binärdatei
+     * @param text   die zu schreibende Textdatei
+     * @return die Knotenzahl
+     * @throws IOException wenn eine der Dateien nicht gelesen oder geschrieben werden kann.
+     * @throws IllegalArgumentException wenn die Binärdatei ungültig ist.
+     */
+    public static long toText(Path binary, Path text) throws IOException {
+        try (FileChannel in = FileChannel.open(binary, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(text, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            Header header = readHeader(in);
+            if (header == null) {
+                throw new IllegalArgumentException("Die Datei ist keine Binärdatei.");
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            long remaining = header.getBitCount();
+            for (long position = header.getDataOffset(); remaining > 0; position += TreeParser.MAP_CHUNK_SIZE) {
+                LongBuffer words = map(in, header, position);
+                while (words.hasRemaining() && remaining > 0) {
+                    long word = words.get();
+                    int bits = (int) Math.min(Long.SIZE, remaining);
+                    for (int shift = 0; shift < bits; shift += 8) {
+                        int count = Math.min(8, bits - shift);
+                        long chars = BRACKETS[(int) (word >>> shift) & 0xFF];
+                        if (count == 8) {
+                            buffer.putLong(chars);
+                        } else {
+                            for (int i = 0; i < count; i++) {
+                                buffer.put((byte) (chars >>> (8 * i)));
+                            }
+                        }
+                    }
+                    remaining -= bits;
+                    if (buffer.remaining() < Long.SIZE * 8) {
+                        write(out, buffer);
+                    }
+                }
+            }
+            buffer.put(System.lineSeparator().getBytes(StandardCharsets.US_ASCII));
+            write(out, buffer);
+            return header.getNodeCount();
+        }
+    }
+
+    /**
+     * Liest den Kopf einer Binärdatei.
+     * @param file die zu lesende Datei
+     * @return der Kopf, oder null, wenn die Datei nicht mit der Kennung des Binärformats beginnt
+     * @throws IOException wenn die Datei nicht gelesen werden kann.
+     * @throws IllegalArgumentException wenn der Kopf ungültig ist oder die Bitfolge nicht vollständig ist.
+     */
+    static Header readHeader(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return readHeader(channel);
+        }
+    }
+
+    /**
+     * Liest den Kopf einer Binärdatei.
+     * @param channel der Kanal der Datei
+     * @return der Kopf, oder null, wenn die Datei nicht mit der Kennung des Binärformats beginnt
+     * @throws IOException wenn die Datei nicht gelesen werden kann.
+     * @throws IllegalArgumentException wenn der Kopf ungültig ist oder die Bitfolge nicht vollständig ist.
+     */
+    static Header readHeader(FileChannel channel) throws IOException {
+        if (!isBinary(channel)) {
+            return null;
+        }
+        ByteBuffer fixed = read(channel, 0, HEADER_SIZE);
+        int version = fixed.get(4);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Nicht unterstützte Version des Binärformats: " + version);
+        }
+        int flags = fixed.get(5);
+        long nodeCount = fixed.getLong(8);
+        int maxDepth = fixed.getInt(16);
+        int widthLength = fixed.getInt(20);
+        if (nodeCount < 1 || maxDepth < 1 || maxDepth > nodeCount || widthLength < 0
+                || ((flags & FLAG_TOTAL_WIDTH) != 0) != (widthLength > 0)) {
+            throw new IllegalArgumentException("Ungültiger Kopf der Binärdatei.");
+        }
+
+        BigInteger totalWidth = null;
+        if (widthLength > 0) {
+            byte[] bytes = new byte[widthLength];
+            read(channel, HEADER_SIZE, widthLength).get(bytes);
+            totalWidth = new BigInteger(bytes);
+        }
+        Header header = new Header(nodeCount, maxDepth, totalWidth, dataOffset(widthLength));
+        long words = (header.getBitCount() + Long.SIZE - 1) / Long.SIZE;
+        if (channel.size() < header.getDataOffset() + words * Long.BYTES) {
+            throw new IllegalArgumentException("Die Binärdatei ist unvollständig.");
+        }
+        return header;
+    }
+
+    /**
+     * Blendet einen Abschnitt der Bitfolge als Folge von Wörtern ein.
+     * @param channel  der Kanal der Datei
+     * @param header   der Kopf der Datei
+     * @param position der Beginn des Abschnitts in der Datei, ein Vielfaches von 8
+     * @return die Wörter des Abschnitts, höchstens {@link TreeParser#MAP_CHUNK_SIZE} Bytes
+     * @throws IOException wenn die Datei nicht eingeblendet werden kann.
+     */
+    static LongBuffer map(FileChannel channel, Header header, long position) throws IOException {
+        long end = header.getDataOffset() + (header.getBitCount() + Long.SIZE - 1) / Long.SIZE * Long.BYTES;
+        MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                Math.min(TreeParser.MAP_CHUNK_SIZE, end - position));
+        return chunk.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+    }
+
+    /**
+     * Prüft, ob ein Kanal mit der Kennung des Binärformats beginnt. Die Position des Kanals bleibt unverändert.
+     * @param channel der Kanal der Datei
+     * @return true für eine Binärdatei, sonst false
+     * @throws IOException wenn die Datei nicht gelesen werden kann.
+     */
+    static boolean isBinary(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            return false;
+        }
+        ByteBuffer start = read(channel, 0, MAGIC.length);
+        for (byte b : MAGIC) {
+            if (start.get() != b) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Liest einen Abschnitt einer Datei vollständig.
+     * @param channel  der Kanal der Datei
+     * @param position der Beginn des Abschnitts
+     * @param length   die Länge des Abschnitts
+     * @return der gelesene Abschnitt in Little-Endian-Byteordnung, bereit zum Lesen
+     * @throws IOException wenn die Datei nicht gelesen werden kann oder zu kurz ist.
+     */
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, position + bytes.position()) < 0) {
+                throw new IllegalArgumentException("Die Binärdatei ist unvollständig.");
+            }
+        }
+        bytes.flip();
+        return bytes;
+    }
+
+    /**
+     * Schreibt einen Puffer vollständig in einen Kanal und leert ihn.
+     * @param channel der Zielkanal
+     * @param buffer  der Puffer
+     * @throws IOException wenn nicht geschrieben werden kann.
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Berechnet den auf 8 Bytes ausgerichteten Beginn der Bitfolge.
+     * @param widthLength die Länge der Gesamtbreite in Bytes
+     * @return der Abstand vom Dateianfang in Bytes
+     */
+    private static long dataOffset(int widthLength) {
+        return (HEADER_SIZE + widthLength + Long.BYTES - 1L) / Long.BYTES * Long.BYTES;
+    }
+}
@@ -0,0 +1,96 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Schlanker Client für den {@link CheckerServer}: Er nimmt dieselben Argumente wie der {@link DrehfreudigChecker},
+ * schickt sie mit dem aktuellen Verzeichnis an den Server und gibt dessen Ausgabe und Fehlermeldungen aus.
+ * Ohne Dateinamen wird der Baum von der Standardeingabe gelesen und mitgeschickt; der Server prüft ihn mit allen
+ * Optionen wie eine Datei. Nur {@code --watch} ist über den Server nicht möglich.
+ * <p>
+ * Der Client verbindet sich nur mit einem Socket, der dem eigenen Benutzer gehört, damit ein Server eines anderen
+ * Benutzers unter demselben Pfad weder Arbeitsverzeichnis und Argumente erhält noch Ergebnisse unterschieben kann.
+ */
+public class CheckerClient {
+    /**
+     * Nicht instanziierbar; alle Methoden sind statisch.
+     */
+    private CheckerClient() {}
+
+    /**
+     * Schickt eine Anfrage an den Server.
+     * @param args die Kommandozeilenargumente
+     */
+    public static void main(String[] args) {
+        String socket = null;
+        List<String> checkerArgs = new ArrayList<>();
+        UnixDomainSocketAddress address;
+        CheckerOptions options;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--socket":
+                        socket = CheckerServer.value(args, ++i, "Option --socket erwartet einen Pfad.");
+                        break;
+                    default:
+                        checkerArgs.add(args[i]);
+                }
+            }
+            address = CheckerServer.address(socket);
+            options = CheckerOptions.parse(checkerArgs.toArray(new String[0]));
+            if (options.isWatch()) {
+                throw new IllegalArgumentException("Die Option --watch wird vom Server nicht unterstützt; "
+                        + "Verzeichnisse überwacht java DrehfreudigChecker --watch.");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(usage());
+            return;
+        }
+
+        try {
+            UserPrincipal user = address.getPath().getFileSystem().getUserPrincipalLookupService()
+                    .lookupPrincipalByName(System.getProperty("user.name"));
+            if (Files.exists(address.getPath()) && !Files.getOwner(address.getPath()).equals(user)) {
+                System.err.println("Der Socket " + address + " gehört einem anderen Benutzer.");
+                return;
+            }
+        } catch (IOException e) {
+            System.err.println("Fehler beim Prüfen des Sockets " + address + ": " + e.getMessage());
+            return;
+        }
+
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            byte[] input = options.getFiles().isEmpty() ? System.in.readAllBytes() : null;
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            CheckerServer.writeRequest(out, Paths.get("").toAbsolutePath().toString(),
+                    checkerArgs.toArray(new String[0]), input);
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            CheckerServer.readResponse(in, System.out, System.err);
+        } catch (IOException e) {
+            System.err.println("Fehler bei der Verbindung zum Server unter " + address + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gibt eine Beschreibung der Kommandozeile zurück.
+     * @return der Hilfetext
+     */
+    public static String usage() {
+        return "Verwendung: java CheckerClient [--socket PATH] [Optionen] [dateiname1] [dateiname2] ...\n"
+                + "Ohne Dateinamen wird der Baum von der Standardeingabe gelesen.\n"
+                + "  --socket PATH  Unix-Domain-Socket des Servers (Standard: " + CheckerServer.DEFAULT_SOCKET + ")\n"
+                + CheckerOptions.usage();
+    }
+}
@@ -0,0 +1,359 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hält die Kommandozeilenoptionen des DrehfreudigChecker.
+ * Alle Argumente, die mit "--" beginnen, sind Optionen; die übrigen sind Dateinamen.
+ */
+public class CheckerOptions {
+    /** Ob nur anhand der Blattnenner entschieden wird, ohne Blattbreiten zu berechnen. */
+    private boolean fast;
+    /** Ob der Baum kompakt in Arrays statt als Node-Objekte gespeichert wird. */
+    private boolean compact;
+    /** Ob im Streaming-Verfahren ohne Baum im Speicher geprüft wird. */
+    private boolean stream;
+    /** Ob gleich aufgebaute Teilbäume nur einmal gespeichert und analysiert werden. */
+    private boolean dag;
+    /** Wie die Hash-Vorprüfung verwendet wird, oder null ohne Vorprüfung. */
+    private HashPrecheck.Mode hashMode;
+    /** Ob jede Datei viele Bäume enthält, die zeilenweise als Datensätze ausgegeben werden. */
+    private boolean lines;
+    /** Das Format der Datensätze im zeilenweisen Modus. */
+    private LineChecker.Format format;
+    /** Ob drehfreudige Bäume visualisiert werden. */
+    private boolean display;
+    /** Die Anzahl der gleichzeitig verarbeiteten Dateien. */
+    private int jobs;
+    /** Die Spaltenzahl der skalierten Visualisierung, 0 für die exakte Darstellung. */
+    private int columns;
+    /** Das Verzeichnis für SVG-Bilder drehfreudiger Bäume, oder null, wenn keine erzeugt werden. */
+    private String svgDirectory;
+    /** Das Verzeichnis des Ergebnis-Caches, oder null ohne Cache. */
+    private String cacheDirectory;
+    /** Ob Laufzeit und Allokation je Phase gemessen und ausgegeben werden. */
+    private boolean stats;
+    /** Ob die Verzeichnisse überwacht und neue oder geänderte Dateien geprüft werden. */
+    private boolean watch;
+    /** Die zu verarbeitenden Dateinamen. */
+    private final List<String> files;
+
+    /**
+     * Erstellt Optionen mit den Standardwerten.
+     */
+    public CheckerOptions() {
+        this.fast = false;
+        this.compact = false;
+        this.stream = false;
+        this.dag = false;
+        this.hashMode = null;
+        this.lines = false;
+        this.format = LineChecker.Format.TSV;
+        this.display = true;
+        this.jobs = Runtime.getRuntime().availableProcessors();
+        this.columns = 0;
+        this.svgDirectory = null;
+        this.cacheDirectory = null;
+        this.stats = false;
+        this.watch = false;
+        this.files = new ArrayList<>();
+    }
+
+    /**
+     * Liest die Optionen aus den Kommandozeilenargumenten.
+     *
+     * @param args die Kommandozeilenargumente
+     * @return die gelesenen Optionen
+     * @throws IllegalArgumentException wenn eine unbekannte Option oder ein ungültiger Optionswert angegeben ist.
+     */
+    public static CheckerOptions parse(String[] args) {
+        CheckerOptions options = new CheckerOptions();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--fast":
+                    options.fast = true;
+                    break;
+                case "--compact":
+                    options.compact = true;
+                    break;
+                case "--stream":
+                    options.stream = true;
+                    break;
+                case "--dag":
+                    options.dag = true;
+                    break;
+                case "--hash":
+                    if (i + 1 == args.length) {
+                        throw new IllegalArgumentException("Option --hash erwartet exact oder only.");
+                    }
+                    options.hashMode = parseHashMode(args[++i]);
+                    break;
+                case "--lines":
+                    options.lines = true;
+                    break;
+                case "--format":
+                    if (i + 1 == args.length) {
+                        throw new IllegalArgumentException("Option --format erwartet tsv oder json.");
+                    }
+                    options.format = parseFormat(args[++i]);
+                    break;
+                case "--no-display":
+                    options.display = false;
+                    break;
+                case "--jobs":
+                    if (i + 1 == args.length) {
+                        throw new IllegalArgumentException("Option --jobs erwartet eine Anzahl.");
+                    }
+                    options.jobs = parsePositive("--jobs", args[++i]);
+                    break;
+                case "--columns":
+                    if (i + 1 == args.length) {
+                        throw new IllegalArgumentException("Option --columns erwartet eine Anzahl.");
+                    }
+                    options.columns = parsePositive("--columns", args[++i]);
+                    break;
+                case "--svg":
+                    if (i + 1 == args.length) {
+                        throw new IllegalArgumentException("Option --svg erwartet ein Verzeichnis.");
+                    }
+                    options.svgDirectory = args[++i];
+                    break;
+                case "--watch":
+                    options.watch = true;
+                    break;
+                case "--stats":
+                    options.stats = true;
+                    break;
+                case "--cache":
+                    if (i + 1 == args.length) {
+                        throw new IllegalArgumentException("Option --cache erwartet ein Verzeichnis.");
+                    }
+                    options.cacheDirectory = args[++i];
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unbekannte Option: " + arg);
+                    }
+                    options.files.add(arg);
+            }
+        }
+        if (options.watch && options.lines) {
+            throw new IllegalArgumentException("Option --watch kann nicht mit --lines verwendet werden.");
+        }
+        return options;
+    }
+
+    /**
+     * Löst relative Dateinamen und Verzeichnisse gegen ein Arbeitsverzeichnis auf, etwa das eines Clients des
+     * {@link CheckerServer}.
+     * @param directory das Arbeitsverzeichnis
+     */
+    void resolve(Path directory) {
+        files.replaceAll(file -> directory.resolve(file).toString());
+        if (svgDirectory != null) {
+            svgDirectory = directory.resolve(svgDirectory).toString();
+        }
+        if (cacheDirectory != null) {
+            cacheDirectory = directory.resolve(cacheDirectory).toString();
+        }
+    }
+
+    /**
+     * Liest einen positiven ganzzahligen Optionswert.
+     * @param option der Name der Option für die Fehlermeldung
+     * @param value  der angegebene Wert
+     * @return der gelesene Wert
+     * @throws IllegalArgumentException wenn der Wert keine positive Zahl ist.
+     */
+    private static int parsePositive(String option, String value) {
+        int result;
+        try {
+            result = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            result = 0;
+        }
+        if (result < 1) {
+            throw new IllegalArgumentException("Ungültiger Wert für " + option + ": " + value);
+        }
+        return result;
+    }
+
+    /**
+     * Liest das Format der Datensätze.
+     * @param value der angegebene Wert
+     * @return das gelesene Format
+     * @throws IllegalArgumentException wenn der Wert weder tsv noch json ist.
+     */
+    private static LineChecker.Format parseFormat(String value) {
+        switch (value) {
+            case "tsv":
+                return LineChecker.Format.TSV;
+            case "json":
+                return LineChecker.Format.JSON;
+            default:
+                throw new IllegalArgumentException("Ungültiger Wert für --format: " + value);
+        }
+    }
+
+    /**
+     * Liest, wie die Hash-Vorprüfung verwendet wird.
+     * @param value der angegebene Wert
+     * @return die gelesene Verwendung
+     * @throws IllegalArgumentException wenn der Wert weder exact noch only ist.
+     */
+    private static HashPrecheck.Mode parseHashMode(String value) {
+        switch (value) {
+            case "exact":
+                return HashPrecheck.Mode.EXACT;
+            case "only":
+                return HashPrecheck.Mode.HASH_ONLY;
+            default:
+                throw new IllegalArgumentException("Ungültiger Wert für --hash: " + value);
+        }
+    }
+
+    /**
+     * Gibt eine Beschreibung aller Optionen zurück.
+     * @return der Hilfetext zu den Optionen
+     */
+    public static String usage() {
+        return "Optionen:\n"
+                + "  --fast        nur anhand der Blattnenner entscheiden, kgV nur für die Visualisierung berechnen\n"
+                + "  --compact     Datei eingeblendet lesen und Baum in kompakten Arrays statt als Node-Objekte speichern\n"
+                + "  --stream      in zwei Lesedurchläufen ohne Baum im Speicher prüfen, Abbruch beim ersten ungleichen Blattpaar\n"
+                + "  --dag         gleiche Teilbäume nur einmal speichern und analysieren, Prüfung über Hashes\n"
+                + "  --hash M      erst in einem Durchlauf über Hashes der Blattfolgen prüfen und ungleiche Bäume sofort\n"
+                + "                verwerfen; M = exact: übrige Bäume exakt prüfen, M = only: Ergebnis der Hashes übernehmen\n"
+                + "  --lines       jede Klammergruppe einer Zeile als eigenen Baum prüfen, ein Datensatz je Baum\n"
+                + "  --format F    Format der Datensätze mit --lines: tsv (Standard) oder json\n"
+                + "  --no-display  drehfreudige Bäume nicht visualisieren\n"
+                + "  --jobs N      N Dateien gleichzeitig verarbeiten (Standard: Anzahl der Prozessoren)\n"
+                + "  --columns N   skaliert auf N Spalten mit gedrehter Kopie visualisieren\n"
+                + "  --svg DIR     drehfreudige Bäume mit gedrehter Kopie als DIR/<Datei>.svg speichern\n"
+                + "  --cache DIR   Ergebnisse nach Bauminhalt in DIR speichern und bei unveränderten Bäumen wiederverwenden\n"
+                + "  --stats       Laufzeit und Allokation je Phase messen und als Histogramme ausgeben\n"
+                + "  --watch       die angegebenen Verzeichnisse (Standard: aufgaben) überwachen und neue oder geänderte\n"
+                + "                .txt-Dateien (auch .txt.gz, .txt.zst) prüfen, bis das Programm beendet wird";
+    }
+
+    /**
+     * Gibt zurück, ob nur anhand der Blattnenner entschieden wird.
+     * @return true im schnellen Modus
+     */
+    public boolean isFast() {
+        return fast;
+    }
+
+    /**
+     * Gibt zurück, ob der Baum kompakt gespeichert wird.
+     * @return true für die kompakte Darstellung
+     */
+    public boolean isCompact() {
+        return compact;
+    }
+
+    /**
+     * Gibt zurück, ob im Streaming-Verfahren geprüft wird.
+     * @return true im Streaming-Modus
+     */
+    public boolean isStream() {
+        return stream;
+    }
+
+    /**
+     * Gibt zurück, ob gleich aufgebaute Teilbäume nur einmal gespeichert und analysiert werden.
+     * @return true im DAG-Modus
+     */
+    public boolean isDag() {
+        return dag;
+    }
+
+    /**
+     * Gibt zurück, wie die Hash-Vorprüfung verwendet wird.
+     * @return die Verwendung, oder null ohne Vorprüfung
+     */
+    public HashPrecheck.Mode getHashMode() {
+        return hashMode;
+    }
+
+    /**
+     * Gibt zurück, ob jede Datei viele Bäume enthält, die zeilenweise geprüft werden.
+     * @return true im zeilenweisen Modus
+     */
+    public boolean isLines() {
+        return lines;
+    }
+
+    /**
+     * Gibt das Format der Datensätze im zeilenweisen Modus zurück.
+     * @return das Format
+     */
+    public LineChecker.Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Gibt zurück, ob drehfreudige Bäume visualisiert werden.
+     * @return true, wenn visualisiert wird
+     */
+    public boolean isDisplay() {
+        return display;
+    }
+
+    /**
+     * Gibt zurück, ob Verzeichnisse überwacht werden; die Dateinamen sind dann die Verzeichnisse.
+     * @return true mit --watch
+     */
+    public boolean isWatch() {
+        return watch;
+    }
+
+    /**
+     * Gibt zurück, ob Laufzeit und Allokation je Phase gemessen und ausgegeben werden.
+     * @return true mit --stats
+     */
+    public boolean isStats() {
+        return stats;
+    }
+
+    /**
+     * Gibt die Anzahl der gleichzeitig verarbeiteten Dateien zurück.
+     * @return die Parallelität, mindestens 1
+     */
+    public int getJobs() {
+        return jobs;
+    }
+
+    /**
+     * Gibt die Spaltenzahl der skalierten Visualisierung zurück.
+     * @return die Spaltenzahl, oder 0 für die exakte Darstellung
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Gibt das Verzeichnis für SVG-Bilder zurück.
+     * @return das Verzeichnis, oder null, wenn keine SVG-Bilder erzeugt werden
+     */
+    public String getSvgDirectory() {
+        return svgDirectory;
+    }
+
+    /**
+     * Gibt das Verzeichnis des Ergebnis-Caches zurück.
+     * @return das Verzeichnis, oder null ohne Cache
+     */
+    public String getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    /**
+     * Gibt die zu verarbeitenden Dateinamen zurück.
+     * @return die Dateinamen, leer wenn alle Dateien in aufgaben/ verarbeitet werden
+     */
+    public List<String> getFiles() {
+        return files;
+    }
+}
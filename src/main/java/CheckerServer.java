@@ -0,0 +1,528 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import jdk.net.ExtendedSocketOptions;
+import jdk.net.UnixDomainPrincipal;
+
+/**
+ * Hält die Prüfung in einer laufenden JVM bereit und beantwortet Anfragen des {@link CheckerClient} über einen
+ * Unix-Domain-Socket. JVM-Start, Klassenladen und das Aufwärmen des
+ * JIT-Compilers fallen so nur einmal beim Start des Servers an statt bei jedem Aufruf; vor der ersten Anfrage
+ * werden Parser, Berechnung und Anzeige mit einigen kleinen Bäumen aufgewärmt.
+ * <p>
+ * Der Server liest die Dateien einer Anfrage und schreibt die Ausgaben von --svg und --cache mit seinen eigenen
+ * Rechten. Er nimmt daher nur Verbindungen des Benutzers an, dem er gehört: Der Socket ist nur für diesen
+ * Benutzer les- und schreibbar, und bei jeder Verbindung werden zusätzlich die Anmeldedaten des Clients geprüft.
+ * Einen Netzwerk-Port, an dem sich jeder lokale Benutzer verbinden könnte, bietet der Server nicht an.
+ * <p>
+ * Jede Verbindung wird auf einem eigenen Thread bedient und kann mehrere Anfragen nacheinander stellen. Mehrere
+ * Dateien einer Anfrage verarbeitet der {@link BatchProcessor} auf einem Pool, den alle Anfragen teilen, sodass
+ * gleichzeitige Anfragen nicht mehr Threads belegen als der Rechner Prozessoren hat.
+ * Eine Anfrage besteht aus dem Arbeitsverzeichnis des Clients, den Argumenten wie für den
+ * {@link DrehfreudigChecker} und optional dem Baum selbst, etwa aus der Standardeingabe:
+ * <pre>
+ * UTF     Arbeitsverzeichnis
+ * int     Anzahl der Argumente, danach je Argument ein UTF
+ * int     Länge des Baumes in Bytes, oder -1, wenn die Dateien aus den Argumenten geprüft werden
+ * byte[]  der Baum
+ * </pre>
+ * Relative Dateinamen werden gegen das Arbeitsverzeichnis aufgelöst, die Dateien liest der Server selbst. Ein
+ * mitgesendeter Baum wird abschnittsweise in eine temporäre Datei geschrieben und mit allen Optionen genau wie
+ * eine Datei aus den Argumenten geprüft, auch zeilenweise, im Streaming-Modus oder komprimiert. Die Überwachung
+ * von Verzeichnissen läuft nur im {@link DrehfreudigChecker} selbst.
+ * <p>
+ * Die Antwort wird schon während der Prüfung in Abschnitten gesendet, sodass ihre Größe weder durch den Speicher
+ * des Servers noch durch die Länge eines Arrays begrenzt ist:
+ * <pre>
+ * byte    Kanal des Abschnitts: 1 für die Ausgabe, 2 für die Fehlermeldungen, 0 am Ende der Antwort
+ * int     Länge des Abschnitts in Bytes, höchstens 64 KiB; fehlt am Ende der Antwort
+ * byte[]  der Abschnitt
+ * </pre>
+ */
+public class CheckerServer {
+    /** Der Standard-Socket im temporären Verzeichnis. */
+    static final String DEFAULT_SOCKET = Paths.get(System.getProperty("java.io.tmpdir"), "drehfreudig.sock").toString();
+    /** Größte Anzahl an Argumenten einer Anfrage. */
+    private static final int MAX_ARGUMENTS = 1 << 16;
+    /** Größte Länge eines mitgesendeten Baumes in Bytes. */
+    private static final int MAX_INPUT = 1 << 30;
+    /** Größe der Abschnitte, in denen ein mitgesendeter Baum gelesen und in seine Datei geschrieben wird. */
+    private static final int CHUNK_SIZE = 1 << 16;
+    /** Kanal der Ausgabe in der Antwort. */
+    static final int OUT = 1;
+    /** Kanal der Fehlermeldungen in der Antwort. */
+    static final int ERR = 2;
+    /** Markiert das Ende einer Antwort. */
+    static final int END = 0;
+    /** Bezeichnung eines mitgesendeten Baumes in der Ausgabe. */
+    private static final String INPUT_LABEL = "Standardeingabe";
+    /** Standardzahl der Aufwärmrunden. */
+    private static final int DEFAULT_WARMUP = 20_000;
+    /** Kleine Bäume zum Aufwärmen, drehfreudige und nicht drehfreudige. */
+    private static final String[] WARMUP_TREES = {
+            "(()()())", "((()())(()()))", "(()(()())())", "((())())", "(()((()))())",
+            "((()()())(())(()()()))", "((()()()())(()()))", "(((()())()(()()))(()()(()())))"
+    };
+    /** Ziel der Ausgaben beim Aufwärmen. */
+    private static final PrintStream NULL_SINK = new PrintStream(OutputStream.nullOutputStream());
+
+    /** Der Kanal, auf dem Verbindungen angenommen werden. */
+    private final ServerSocketChannel server;
+    /** Die Adresse des Servers. */
+    private final UnixDomainSocketAddress address;
+    /** Der Benutzer, dem der Server gehört und dessen Verbindungen er annimmt. */
+    private final UserPrincipal owner;
+    /** Die Threads für die Verbindungen. */
+    private final ExecutorService workers;
+    /** Der gemeinsame Pool des {@link BatchProcessor} für die Dateien aller Anfragen. */
+    private final ExecutorService batchExecutor;
+
+    /**
+     * Öffnet den Server an der angegebenen Adresse. Ein verwaister Socket eines beendeten Servers wird ersetzt.
+     * Der neue Socket ist nur für den Benutzer des Servers les- und schreibbar.
+     * @param address der Unix-Domain-Socket
+     * @throws IOException wenn die Adresse nicht gebunden werden kann, etwa weil dort schon ein Server läuft.
+     */
+    public CheckerServer(UnixDomainSocketAddress address) throws IOException {
+        Path socket = address.getPath();
+        if (Files.exists(socket)) {
+            if (isRunning(address)) {
+                throw new IOException("Unter " + socket + " läuft bereits ein Server.");
+            }
+            Files.delete(socket);
+        }
+        this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        this.server.bind(address);
+        Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+        this.owner = Files.getOwner(socket);
+        this.address = address;
+        this.workers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "drehfreudig-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.batchExecutor = BatchProcessor.newPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Startet den Server.
+     * @param args die Kommandozeilenargumente
+     */
+    public static void main(String[] args) {
+        String socket = null;
+        int warmup = DEFAULT_WARMUP;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--socket":
+                        socket = value(args, ++i, "Option --socket erwartet einen Pfad.");
+                        break;
+                    case "--warmup":
+                        warmup = parseCount(value(args, ++i, "Option --warmup erwartet eine Anzahl."));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unbekannte Option: " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(usage());
+            return;
+        }
+
+        try {
+            CheckerServer server = new CheckerServer(address(socket));
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            long start = System.nanoTime();
+            warmUp(warmup);
+            System.out.println("Server bereit unter " + server.address + " (aufgewärmt in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms)");
+            server.serve();
+        } catch (IOException e) {
+            System.err.println("Fehler beim Starten des Servers: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gibt eine Beschreibung der Kommandozeile zurück.
+     * @return der Hilfetext
+     */
+    public static String usage() {
+        return "Verwendung: java CheckerServer [Optionen]\n"
+                + "Optionen:\n"
+                + "  --socket PATH  am Unix-Domain-Socket PATH lauschen (Standard: " + DEFAULT_SOCKET + ")\n"
+                + "  --warmup N     vor der ersten Anfrage N kleine Bäume prüfen (Standard: " + DEFAULT_WARMUP + ")";
+    }
+
+    /**
+     * Bestimmt die Adresse aus den Kommandozeilenoptionen.
+     * @param socket der Pfad des Unix-Domain-Sockets, oder null
+     * @return die Adresse; ohne Angabe der {@link #DEFAULT_SOCKET}
+     */
+    static UnixDomainSocketAddress address(String socket) {
+        return UnixDomainSocketAddress.of(socket != null ? socket : DEFAULT_SOCKET);
+    }
+
+    /**
+     * Liest den Wert einer Option.
+     * @param args    die Kommandozeilenargumente
+     * @param index   die Position des Wertes
+     * @param message die Fehlermeldung, wenn der Wert fehlt
+     * @return der Wert
+     * @throws IllegalArgumentException wenn der Wert fehlt.
+     */
+    static String value(String[] args, int index, String message) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(message);
+        }
+        return args[index];
+    }
+
+    /**
+     * Liest eine nicht negative Anzahl.
+     * @param value der angegebene Wert
+     * @return die Anzahl
+     * @throws IllegalArgumentException wenn der Wert keine nicht negative Zahl ist.
+     */
+    private static int parseCount(String value) {
+        try {
+            int count = Integer.parseInt(value);
+            if (count >= 0) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // unten gemeldet
+        }
+        throw new IllegalArgumentException("Ungültige Anzahl für --warmup: " + value);
+    }
+
+    /**
+     * Prüft, ob an einer Adresse ein Server Verbindungen annimmt.
+     * @param address die Adresse
+     * @return true, wenn eine Verbindung zustande kommt
+     */
+    private static boolean isRunning(UnixDomainSocketAddress address) {
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            return channel.isConnected();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Wärmt Parser, Berechnung und Anzeige mit kleinen Bäumen auf, damit schon die ersten Anfragen kompilierten
+     * Code ausführen. Die Bäume werden dafür einmal in temporäre Dateien geschrieben und auf demselben Weg wie
+     * die Dateien einer Anfrage geprüft.
+     * @param rounds die Anzahl der geprüften Bäume
+     * @throws IOException wenn die temporären Dateien nicht geschrieben werden können.
+     */
+    static void warmUp(int rounds) throws IOException {
+        CheckerOptions full = new CheckerOptions();
+        CheckerOptions fast = CheckerOptions.parse(new String[] {"--fast"});
+        Path directory = Files.createTempDirectory("drehfreudig-warmup-");
+        String[] files = new String[WARMUP_TREES.length];
+        try {
+            for (int i = 0; i < files.length; i++) {
+                files[i] = Files.writeString(directory.resolve("baum" + i + ".txt"), WARMUP_TREES[i]).toString();
+            }
+            for (int i = 0; i < rounds; i++) {
+                DrehfreudigChecker.processFile(files[i % files.length], i % 4 == 3 ? fast : full, null, null,
+                        NULL_SINK, NULL_SINK);
+            }
+        } finally {
+            for (String file : files) {
+                if (file != null) {
+                    Files.deleteIfExists(Paths.get(file));
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * Nimmt Verbindungen an, bis der Server geschlossen wird, und bedient jede auf einem eigenen Thread.
+     * Verbindungen anderer Benutzer werden sofort geschlossen.
+     * Auf Java 17 gibt es noch keine virtuellen Threads; die Threads werden daher in einem Pool wiederverwendet.
+     */
+    public void serve() {
+        while (server.isOpen()) {
+            try {
+                SocketChannel channel = server.accept();
+                UnixDomainPrincipal peer = channel.getOption(ExtendedSocketOptions.SO_PEERCRED);
+                if (!peer.user().equals(owner)) {
+                    System.err.println("Verbindung von Benutzer " + peer.user().getName() + " abgelehnt.");
+                    channel.close();
+                    continue;
+                }
+                workers.execute(() -> handle(channel));
+            } catch (IOException e) {
+                if (server.isOpen()) {
+                    System.err.println("Fehler beim Annehmen einer Verbindung: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Schließt den Server und entfernt seinen Unix-Domain-Socket. Laufende Anfragen werden nicht abgewartet.
+     */
+    public void close() {
+        try {
+            server.close();
+            Files.deleteIfExists(address.getPath());
+        } catch (IOException e) {
+            System.err.println("Fehler beim Schließen des Servers: " + e.getMessage());
+        }
+        workers.shutdownNow();
+        batchExecutor.shutdownNow();
+    }
+
+    /**
+     * Beantwortet alle Anfragen einer Verbindung, bis der Client sie schließt.
+     * @param channel die Verbindung
+     */
+    private void handle(SocketChannel channel) {
+        try (SocketChannel connection = channel) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(connection)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(connection)));
+            // Die Ströme werden für alle Anfragen der Verbindung wiederverwendet
+            PrintStream requestOut = new PrintStream(
+                    new BufferedOutputStream(new FrameOutputStream(out, OUT), CHUNK_SIZE));
+            PrintStream requestErr = new PrintStream(
+                    new BufferedOutputStream(new FrameOutputStream(out, ERR), CHUNK_SIZE));
+            byte[] chunk = new byte[CHUNK_SIZE];
+            while (true) {
+                String directory;
+                try {
+                    directory = in.readUTF();
+                } catch (EOFException e) {
+                    return;
+                }
+                int count = in.readInt();
+                if (count < 0 || count > MAX_ARGUMENTS) {
+                    throw new IOException("Ungültige Anzahl an Argumenten: " + count);
+                }
+                String[] args = new String[count];
+                for (int i = 0; i < count; i++) {
+                    args[i] = in.readUTF();
+                }
+                int length = in.readInt();
+                if (length < -1 || length > MAX_INPUT) {
+                    throw new IOException("Ungültige Länge der Eingabe: " + length);
+                }
+                Path input = length >= 0 ? spool(in, length, chunk) : null;
+
+                try {
+                    process(Paths.get(directory), args, input, batchExecutor, requestOut, requestErr);
+                } finally {
+                    if (input != null) {
+                        delete(input);
+                    }
+                }
+                // PrintStream verschluckt Schreibfehler; ein abgebrochener Client beendet so die Verbindung
+                if (requestOut.checkError() || requestErr.checkError()) {
+                    throw new IOException("Die Antwort konnte nicht gesendet werden.");
+                }
+                synchronized (out) {
+                    out.writeByte(END);
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Verbindung abgebrochen: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Liest einen mitgesendeten Baum abschnittsweise in eine Datei in einem eigenen temporären Verzeichnis. Der
+     * Speicher wird nicht nach der angekündigten Länge reserviert, sondern nur für einen Abschnitt.
+     * @param in     der Strom vom Client
+     * @param length die angekündigte Länge in Bytes
+     * @param chunk  der Puffer für einen Abschnitt
+     * @return die geschriebene Datei
+     * @throws IOException wenn nicht gelesen oder geschrieben werden kann oder der Strom vorzeitig endet.
+     */
+    private static Path spool(DataInputStream in, int length, byte[] chunk) throws IOException {
+        // Der Dateiname bestimmt den Namen eines SVG-Bildes
+        Path file = Files.createTempDirectory("drehfreudig-").resolve(INPUT_LABEL + ".txt");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (int remaining = length; remaining > 0; ) {
+                int read = in.read(chunk, 0, Math.min(chunk.length, remaining));
+                if (read < 0) {
+                    throw new EOFException("Die Eingabe endet vor der angekündigten Länge von " + length + " Bytes.");
+                }
+                out.write(chunk, 0, read);
+                remaining -= read;
+            }
+        } catch (IOException e) {
+            delete(file);
+            throw e;
+        }
+        return file;
+    }
+
+    /**
+     * Löscht die Datei eines mitgesendeten Baumes samt ihrem Verzeichnis.
+     * @param file die Datei
+     * @throws IOException wenn nicht gelöscht werden kann.
+     */
+    private static void delete(Path file) throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.getParent());
+    }
+
+    /**
+     * Bearbeitet eine Anfrage wie ein Aufruf des {@link DrehfreudigChecker} im Arbeitsverzeichnis des Clients.
+     * @param directory das Arbeitsverzeichnis des Clients
+     * @param args      die Argumente
+     * @param input     die Datei mit dem mitgesendeten Baum, oder null, wenn die Dateien aus den Argumenten geprüft
+     *                  werden
+     * @param executor  der gemeinsame Pool für die Dateien
+     * @param out       der Strom für die Ausgabe
+     * @param err       der Strom für Fehlermeldungen
+     */
+    static void process(Path directory, String[] args, Path input, ExecutorService executor, PrintStream out,
+                        PrintStream err) {
+        CheckerOptions options;
+        try {
+            options = CheckerOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(CheckerOptions.usage());
+            return;
+        }
+
+        if (options.isWatch()) {
+            err.println("Die Option --watch wird vom Server nicht unterstützt; "
+                    + "Verzeichnisse überwacht java DrehfreudigChecker --watch.");
+        } else if (input != null && !options.getFiles().isEmpty()) {
+            err.println("Dateinamen und mitgesendeter Baum schließen sich aus.");
+        } else if (input != null) {
+            options.resolve(directory);
+            DrehfreudigChecker.run(options, List.of(input.toString()), List.of(INPUT_LABEL), executor, out, err);
+        } else if (options.getFiles().isEmpty()) {
+            err.println("Keine Dateien angegeben.");
+        } else {
+            List<String> labels = new ArrayList<>(options.getFiles());
+            options.resolve(directory);
+            DrehfreudigChecker.run(options, options.getFiles(), labels, executor, out, err);
+        }
+    }
+
+    /**
+     * Schreibt eine Anfrage im Protokoll des Servers.
+     * @param out       der Strom zum Server
+     * @param directory das Arbeitsverzeichnis des Clients
+     * @param args      die Argumente
+     * @param input     der Baum, oder null, wenn die Dateien aus den Argumenten geprüft werden
+     * @throws IOException wenn nicht geschrieben werden kann.
+     */
+    static void writeRequest(DataOutputStream out, String directory, String[] args, byte[] input)
+            throws IOException {
+        out.writeUTF(directory);
+        out.writeInt(args.length);
+        for (String arg : args) {
+            out.writeUTF(arg);
+        }
+        if (input == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(input.length);
+            out.write(input);
+        }
+        out.flush();
+    }
+
+    /**
+     * Liest eine Antwort des Servers und schreibt ihre Abschnitte in die Ströme für Ausgabe und Fehlermeldungen,
+     * sobald sie ankommen.
+     * @param in  der Strom vom Server
+     * @param out der Strom für die Ausgabe
+     * @param err der Strom für die Fehlermeldungen
+     * @throws IOException wenn nicht gelesen werden kann oder die Antwort ungültig ist.
+     */
+    static void readResponse(DataInputStream in, OutputStream out, OutputStream err) throws IOException {
+        byte[] chunk = new byte[CHUNK_SIZE];
+        while (true) {
+            int channel = in.readUnsignedByte();
+            if (channel == END) {
+                return;
+            }
+            int length = in.readInt();
+            if (channel != OUT && channel != ERR || length < 0 || length > CHUNK_SIZE) {
+                throw new IOException("Ungültige Antwort des Servers.");
+            }
+            in.readFully(chunk, 0, length);
+            OutputStream target = channel == OUT ? out : err;
+            target.write(chunk, 0, length);
+            target.flush();
+        }
+    }
+
+    /**
+     * Schreibt alles, was in ihn geschrieben wird, als Abschnitte eines Kanals in die Antwort. Ausgabe und
+     * Fehlermeldungen teilen sich den Strom zum Client; jeder Abschnitt wird daher unter dessen Sperre
+     * geschrieben.
+     */
+    private static class FrameOutputStream extends OutputStream {
+        /** Der Strom zum Client. */
+        private final DataOutputStream out;
+        /** Der Kanal der Abschnitte. */
+        private final int channel;
+
+        /**
+         * Erstellt einen Strom für einen Kanal der Antwort.
+         * @param out     der Strom zum Client
+         * @param channel der Kanal, {@link #OUT} oder {@link #ERR}
+         */
+        FrameOutputStream(DataOutputStream out, int channel) {
+            this.out = out;
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            for (int written = 0; written < length; ) {
+                int size = Math.min(CHUNK_SIZE, length - written);
+                synchronized (out) {
+                    out.writeByte(channel);
+                    out.writeInt(size);
+                    out.write(bytes, offset + written, size);
+                }
+                written += size;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (out) {
+                out.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,292 @@
+import java.util.Arrays;
+
+/**
+ * Kompakte Baumdarstellung in primitiven Arrays, ohne ein Objekt pro Knoten.
+ * Die Knoten sind in Präordnung nummeriert, also in der Reihenfolge ihrer öffnenden Klammern; der Wurzelknoten
+ * hat die Nummer 0. Das erste Kind eines inneren Knotens i ist daher immer i + 1. Je Knoten werden nur
+ * Elternknoten, Kinderzahl und nächster Geschwisterknoten gespeichert (12 Byte statt eines Node mit ArrayList).
+ */
+public class CompactTree {
+    /** Der Elternknoten je Knoten, -1 für den Wurzelknoten. */
+    private final int[] parent;
+    /** Die Anzahl der Kinder je Knoten. */
+    private final int[] childCount;
+    /** Der nächste Geschwisterknoten je Knoten, -1 für das letzte Kind. */
+    private final int[] nextSibling;
+    /** Die Anzahl der Knoten. */
+    private final int size;
+
+    /**
+     * Erstellt einen Baum aus bereits gefüllten Arrays.
+     *
+     * @param parent      Elternknoten je Knoten
+     * @param childCount  Kinderzahl je Knoten
+     * @param nextSibling nächster Geschwisterknoten je Knoten
+     * @param size        Anzahl der Knoten
+     */
+    private CompactTree(int[] parent, int[] childCount, int[] nextSibling, int size) {
+        this.parent = parent;
+        this.childCount = childCount;
+        this.nextSibling = nextSibling;
+        this.size = size;
+    }
+
+    /**
+     * Gibt die Anzahl der Knoten zurück.
+     * @return die Knotenzahl
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gibt den Elternknoten zurück.
+     * @param node die Knotennummer
+     * @return die Nummer des Elternknotens, oder -1 für den Wurzelknoten
+     */
+    public int getParent(int node) {
+        return parent[node];
+    }
+
+    /**
+     * Gibt die Anzahl der Kinder zurück.
+     * @param node die Knotennummer
+     * @return die Kinderzahl
+     */
+    public int getChildCount(int node) {
+        return childCount[node];
+    }
+
+    /**
+     * Gibt das erste Kind zurück.
+     * @param node die Knotennummer
+     * @return die Nummer des ersten Kindes, oder -1 für ein Blatt
+     */
+    public int getFirstChild(int node) {
+        return childCount[node] > 0 ? node + 1 : -1;
+    }
+
+    /**
+     * Gibt den nächsten Geschwisterknoten zurück.
+     * @param node die Knotennummer
+     * @return die Nummer des nächsten Geschwisters, oder -1 für das letzte Kind
+     */
+    public int getNextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    /**
+     * Prüft, ob ein Knoten ein Blatt ist.
+     * @param node die Knotennummer
+     * @return true, wenn der Knoten ein Blatt ist, sonst false
+     */
+    public boolean isLeaf(int node) {
+        return childCount[node] == 0;
+    }
+
+    /**
+     * Baut den Baum als Node-Objekte auf, etwa für {@link TreeDisplay}.
+     * Gedacht für kleine Bäume; große Bäume sollten direkt in der kompakten Form analysiert werden.
+     *
+     * @return der Wurzelknoten, oder null für einen leeren Baum
+     */
+    public Node toNode() {
+        if (size == 0) {
+            return null;
+        }
+        Node[] nodes = new Node[size];
+        for (int i = 0; i < size; i++) {
+            nodes[i] = new Node();
+            if (parent[i] >= 0) {
+                // Kinder folgen in Präordnung ihrem Elternknoten, der daher schon existiert
+                nodes[parent[i]].addChild(nodes[i]);
+            }
+        }
+        return nodes[0];
+    }
+
+    /**
+     * Baut einen CompactTree aus den Ereignissen "Klammer auf" und "Klammer zu" auf.
+     * Der Builder hält nur den Pfad der offenen Knoten als Stapel, die Knotendaten landen direkt in den Arrays.
+     */
+    static class Builder implements TreeParser.Sink {
+        /** Anfangskapazität der Arrays. */
+        private static final int INITIAL_CAPACITY = 64;
+
+        /** Elternknoten je Knoten. */
+        private int[] parent;
+        /** Kinderzahl je Knoten. */
+        private int[] childCount;
+        /** Nächster Geschwisterknoten je Knoten. */
+        private int[] nextSibling;
+        /** Anzahl der bisher geöffneten Knoten. */
+        private int size;
+        /** Die noch offenen Knoten vom Wurzelknoten abwärts. */
+        private int[] open;
+        /** Das zuletzt angelegte Kind je offenem Knoten, -1 wenn noch keines existiert. */
+        private int[] lastChild;
+        /** Die Anzahl der offenen Knoten. */
+        private int depth;
+
+        /**
+         * Erstellt einen Builder für einen Baum mit ungefähr der angegebenen Knotenzahl.
+         * @param expectedSize geschätzte Knotenzahl, etwa die halbe Eingabelänge
+         */
+        Builder(int expectedSize) {
+            this(expectedSize, INITIAL_CAPACITY);
+        }
+
+        /**
+         * Erstellt einen Builder für einen Baum mit ungefähr der angegebenen Knotenzahl und Tiefe.
+         * @param expectedSize  geschätzte Knotenzahl
+         * @param expectedDepth geschätzte größte Tiefe
+         */
+        Builder(int expectedSize, int expectedDepth) {
+            int capacity = Math.max(INITIAL_CAPACITY, expectedSize);
+            this.parent = new int[capacity];
+            this.childCount = new int[capacity];
+            this.nextSibling = new int[capacity];
+            this.size = 0;
+            this.open = new int[Math.max(INITIAL_CAPACITY, expectedDepth)];
+            this.lastChild = new int[open.length];
+            this.depth = 0;
+        }
+
+        /**
+         * Verarbeitet eine öffnende Klammer.
+         * @throws IllegalArgumentException wenn nach dem Wurzelknoten ein weiterer Baum beginnt.
+         */
+        @Override
+        public void open() {
+            if (depth == 0 && size > 0) {
+                throw new IllegalArgumentException("Ungültige Baumstruktur: Mehr als ein Wurzelknoten.");
+            }
+            if (size == parent.length) {
+                int newCapacity = parent.length * 2;
+                parent = Arrays.copyOf(parent, newCapacity);
+                childCount = Arrays.copyOf(childCount, newCapacity);
+                nextSibling = Arrays.copyOf(nextSibling, newCapacity);
+            }
+            if (depth == open.length) {
+                open = Arrays.copyOf(open, depth * 2);
+                lastChild = Arrays.copyOf(lastChild, depth * 2);
+            }
+
+            int node = size++;
+            childCount[node] = 0;
+            nextSibling[node] = -1;
+            if (depth == 0) {
+                parent[node] = -1;
+            } else {
+                int p = open[depth - 1];
+                parent[node] = p;
+                childCount[p]++;
+                if (lastChild[depth - 1] >= 0) {
+                    nextSibling[lastChild[depth - 1]] = node;
+                }
+                lastChild[depth - 1] = node;
+            }
+            open[depth] = node;
+            lastChild[depth] = -1;
+            depth++;
+        }
+
+        /**
+         * Verarbeitet bis zu 64 Klammern aus einem Wort der Bitfolge einer Binärdatei, beginnend beim
+         * niederwertigsten Bit; 1 steht für eine öffnende, 0 für eine schließende Klammer. Läufe gleicher Bits werden
+         * über die Zahl der nachfolgenden Nullbits erkannt: ein Lauf öffnender Klammern ist eine Kette erster Kinder,
+         * ein Lauf schließender Klammern verringert nur die Tiefe.
+         * @param word  das Wort
+         * @param count die Anzahl der gültigen Bits des Wortes
+         * @throws IllegalArgumentException wenn die Klammerstruktur ungültig ist.
+         */
+        @Override
+        public void bits(long word, int count) {
+            int[] parent = this.parent;
+            int[] childCount = this.childCount;
+            int[] nextSibling = this.nextSibling;
+            int[] open = this.open;
+            int[] lastChild = this.lastChild;
+            int size = this.size;
+            int depth = this.depth;
+            while (true) {
+                int run = Math.min(Long.numberOfTrailingZeros(~word), count);
+                if (run > 0) {
+                    if (size + run > parent.length || depth + run > open.length || depth == 0 && size > 0) {
+                        // Zu kleine Arrays oder ungültige Struktur: Klammern einzeln verarbeiten
+                        this.size = size;
+                        this.depth = depth;
+                        TreeParser.Sink.super.bits(word, count);
+                        return;
+                    }
+                    int p = depth == 0 ? -1 : open[depth - 1];
+                    if (p >= 0) {
+                        childCount[p]++;
+                        int previous = lastChild[depth - 1];
+                        if (previous >= 0) {
+                            nextSibling[previous] = size;
+                        }
+                    }
+                    // Jeder Knoten der Kette hat seinen Nachfolger als einziges bisheriges Kind
+                    for (int end = size + run; size < end; size++) {
+                        parent[size] = p;
+                        childCount[size] = 1;
+                        nextSibling[size] = -1;
+                        if (depth > 0) {
+                            lastChild[depth - 1] = size;
+                        }
+                        open[depth++] = size;
+                        p = size;
+                    }
+                    childCount[p] = 0;
+                    lastChild[depth - 1] = -1;
+                }
+                if (run == count) {
+                    break;
+                }
+                word >>>= run;
+                count -= run;
+
+                run = Math.min(Long.numberOfTrailingZeros(word), count);
+                if (run > depth) {
+                    throw new IllegalArgumentException("Ungültige Baumstruktur: Zu viele schließende Klammern.");
+                }
+                depth -= run;
+                if (run == count) {
+                    break;
+                }
+                word >>>= run;
+                count -= run;
+            }
+            this.size = size;
+            this.depth = depth;
+        }
+
+        /**
+         * Verarbeitet eine schließende Klammer.
+         * @throws IllegalArgumentException wenn kein Knoten mehr offen ist.
+         */
+        @Override
+        public void close() {
+            if (depth == 0) {
+                throw new IllegalArgumentException("Ungültige Baumstruktur: Zu viele schließende Klammern.");
+            }
+            depth--;
+        }
+
+        /**
+         * Schließt den Aufbau ab.
+         * @return der fertige Baum, oder null, wenn keine Klammer gelesen wurde
+         * @throws IllegalArgumentException wenn noch Knoten offen sind.
+         */
+        CompactTree build() {
+            if (depth != 0) {
+                throw new IllegalArgumentException("Ungültige Baumstruktur: Zu viele öffnende Klammern.");
+            }
+            if (size == 0) {
+                return null;
+            }
+            return new CompactTree(parent, childCount, nextSibling, size);
+        }
+    }
+}
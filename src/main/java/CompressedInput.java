@@ -0,0 +1,396 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Öffnet Baumdateien, die mit gzip oder zstd komprimiert sind, als Bytekanal mit den entpackten Daten. Das
+ * Format wird an den ersten Bytes erkannt, nicht an der Dateiendung; unkomprimierte Dateien werden unverändert
+ * gelesen.
+ * <p>
+ * gzip wird mit einem {@link Inflater} direkt in den Puffer des Lesers entpackt, ohne Umweg über einen
+ * InputStream; mehrere aneinandergehängte gzip-Teile werden nacheinander gelesen und ihre Prüfsummen geprüft.
+ * Für zstd wird zstd-jni nur per Reflection geladen, damit der Kern ohne Abhängigkeiten auskommt; es wird mit
+ * dem Profil {@code mvn -Pzstd} in den Klassenpfad aufgenommen. In keinem Fall wird die entpackte Datei auf die
+ * Platte oder als Ganzes in den Speicher geschrieben.
+ */
+public class CompressedInput {
+    /** Größe des Puffers für die komprimierten Daten in Bytes. */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** Die Klasse des entpackenden Stroms von zstd-jni. */
+    private static final String ZSTD_INPUT_STREAM = "com.github.luben.zstd.ZstdInputStream";
+
+    /** Das Kompressionsformat einer Datei. */
+    public enum Codec {
+        /** Nicht komprimiert. */
+        NONE,
+        /** gzip, erkannt an den Bytes 1f 8b. */
+        GZIP,
+        /** zstd, erkannt an den Bytes 28 b5 2f fd. */
+        ZSTD
+    }
+
+    /**
+     * Nicht instanziierbar; alle Methoden sind statisch.
+     */
+    private CompressedInput() {}
+
+    /**
+     * Erkennt das Kompressionsformat einer Datei an ihren ersten Bytes.
+     * @param file die Datei
+     * @return das Format
+     * @throws IOException wenn die Datei nicht gelesen werden kann.
+     */
+    public static Codec detect(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return detect(channel);
+        }
+    }
+
+    /**
+     * Erkennt das Kompressionsformat eines Dateikanals an seinen ersten Bytes, ohne seine Position zu ändern.
+     * @param channel der Kanal
+     * @return das Format
+     * @throws IOException wenn der Kanal nicht gelesen werden kann.
+     */
+    public static Codec detect(FileChannel channel) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(4);
+        while (magic.hasRemaining() && channel.read(magic, magic.position()) > 0) {
+            // Lesen, bis die Kennung vollständig oder die Datei zu Ende ist
+        }
+        byte[] bytes = magic.array();
+        if (magic.position() >= 2 && bytes[0] == (byte) 0x1f && bytes[1] == (byte) 0x8b) {
+            return Codec.GZIP;
+        }
+        if (magic.position() == 4 && bytes[0] == (byte) 0x28 && bytes[1] == (byte) 0xb5
+                && bytes[2] == (byte) 0x2f && bytes[3] == (byte) 0xfd) {
+            return Codec.ZSTD;
+        }
+        return Codec.NONE;
+    }
+
+    /**
+     * Schätzt die entpackte Größe einer Datei wie {@link #sizeHint(FileChannel)}.
+     * @param file die Datei
+     * @return die geschätzte Größe in Bytes, oder -1, wenn sie unbekannt ist
+     * @throws IOException wenn die Datei nicht gelesen werden kann.
+     */
+    public static long sizeHint(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return sizeHint(channel);
+        }
+    }
+
+    /**
+     * Schätzt die entpackte Größe eines Dateikanals, ohne ihn zu entpacken. Bei gzip steht sie in den letzten
+     * vier Bytes, allerdings nur modulo 2^32 und bei mehreren Teilen nur für den letzten; sie taugt daher nur
+     * als Anfangsgröße für Puffer.
+     * @param channel der Dateikanal
+     * @return die geschätzte Größe in Bytes, oder -1, wenn sie unbekannt ist
+     * @throws IOException wenn der Kanal nicht gelesen werden kann.
+     */
+    public static long sizeHint(FileChannel channel) throws IOException {
+        Codec codec = detect(channel);
+        if (codec == Codec.NONE) {
+            return channel.size();
+        }
+        long size = channel.size();
+        if (codec != Codec.GZIP || size < 18) {
+            return -1;
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        while (trailer.hasRemaining()
+                && channel.read(trailer, size - 4 + trailer.position()) > 0) {
+            // Lesen, bis die Länge vollständig ist
+        }
+        return trailer.hasRemaining() ? -1 : Integer.toUnsignedLong(trailer.getInt(0));
+    }
+
+    /**
+     * Öffnet eine Datei als Kanal mit ihren entpackten Daten.
+     * @param file die Datei
+     * @return der Kanal; er schließt beim Schließen auch die Datei
+     * @throws IOException wenn die Datei nicht gelesen oder ihr Format nicht entpackt werden kann.
+     */
+    public static ReadableByteChannel open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return decompress(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gibt einen Kanal mit den entpackten Daten eines Dateikanals zurück, der am Anfang der Datei steht.
+     * @param channel der Dateikanal
+     * @return der Dateikanal selbst, wenn er nicht komprimiert ist, sonst ein entpackender Kanal, der beim
+     *         Schließen auch den Dateikanal schließt
+     * @throws IOException wenn der Kanal nicht gelesen oder sein Format nicht entpackt werden kann.
+     */
+    public static ReadableByteChannel decompress(FileChannel channel) throws IOException {
+        switch (detect(channel)) {
+            case GZIP:
+                return new GzipChannel(channel);
+            case ZSTD:
+                return zstd(channel);
+            default:
+                return channel;
+        }
+    }
+
+    /**
+     * Öffnet einen zstd-komprimierten Kanal mit zstd-jni, das per Reflection geladen wird.
+     * @param channel der Dateikanal
+     * @return der entpackende Kanal
+     * @throws IOException wenn zstd-jni fehlt oder die Daten nicht entpackt werden können.
+     */
+    private static ReadableByteChannel zstd(FileChannel channel) throws IOException {
+        Constructor<?> constructor = Zstd.CONSTRUCTOR;
+        if (constructor == null) {
+            throw new IOException("Für zstd-komprimierte Dateien wird zstd-jni im Klassenpfad benötigt"
+                    + " (mvn -Pzstd).");
+        }
+        try {
+            return Channels.newChannel((InputStream) constructor.newInstance(Channels.newInputStream(channel)));
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("zstd-Daten können nicht gelesen werden: " + e.getCause(), e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("zstd-jni kann nicht verwendet werden: " + e, e);
+        }
+    }
+
+    /**
+     * Hält den Konstruktor des zstd-Stroms, damit zstd-jni erst bei der ersten zstd-Datei gesucht wird.
+     */
+    private static class Zstd {
+        /** Der Konstruktor mit einem InputStream, oder null, wenn zstd-jni fehlt. */
+        static final Constructor<?> CONSTRUCTOR = find();
+
+        /**
+         * Sucht den Konstruktor des zstd-Stroms.
+         * @return der Konstruktor, oder null, wenn zstd-jni fehlt
+         */
+        private static Constructor<?> find() {
+            try {
+                return Class.forName(ZSTD_INPUT_STREAM).getConstructor(InputStream.class);
+            } catch (ReflectiveOperationException | LinkageError e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Entpackt gzip-Daten aus einem Kanal direkt in den Zielpuffer jedes Lesevorgangs. Der Kopf jedes gzip-Teils
+     * wird selbst gelesen, die Daten mit einem {@link Inflater} ohne eigenen Kopf entpackt; am Ende jedes Teils
+     * werden CRC-32 und Länge geprüft.
+     */
+    private static class GzipChannel implements ReadableByteChannel {
+        /** Die Kompressionsmethode deflate. */
+        private static final int DEFLATE = 8;
+        /** Flag für eine Prüfsumme des Kopfes. */
+        private static final int FHCRC = 2;
+        /** Flag für ein Zusatzfeld. */
+        private static final int FEXTRA = 4;
+        /** Flag für einen Dateinamen. */
+        private static final int FNAME = 8;
+        /** Flag für einen Kommentar. */
+        private static final int FCOMMENT = 16;
+
+        /** Der Kanal mit den komprimierten Daten. */
+        private final ReadableByteChannel source;
+        /** Die gelesenen, noch nicht entpackten Daten zwischen Position und Limit. */
+        private final ByteBuffer input;
+        /** Der Entpacker für die Daten eines Teils. */
+        private final Inflater inflater;
+        /** Die Prüfsumme der bisher entpackten Daten des aktuellen Teils. */
+        private final CRC32 crc;
+        /** Ob alle Teile gelesen sind. */
+        private boolean finished;
+
+        /**
+         * Erstellt den Kanal und liest den Kopf des ersten Teils.
+         * @param source der Kanal mit den komprimierten Daten
+         * @throws IOException wenn der Kopf fehlt oder ungültig ist.
+         */
+        GzipChannel(ReadableByteChannel source) throws IOException {
+            this.source = source;
+            this.input = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            this.inflater = new Inflater(true);
+            this.crc = new CRC32();
+            input.flip();
+            readHeader();
+        }
+
+        /**
+         * Entpackt Daten in den Zielpuffer.
+         * @param dst der Zielpuffer
+         * @return die Anzahl der entpackten Bytes, oder -1 am Ende der Daten
+         * @throws IOException wenn die Daten nicht gelesen werden können oder beschädigt sind.
+         */
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (finished) {
+                return -1;
+            }
+            int start = dst.position();
+            while (dst.position() == start && dst.hasRemaining()) {
+                if (inflater.finished()) {
+                    readTrailer();
+                    if (!input.hasRemaining() && !fill()) {
+                        finished = true;
+                        return -1;
+                    }
+                    readHeader();
+                    continue;
+                }
+                if (inflater.needsInput()) {
+                    if (!input.hasRemaining() && !fill()) {
+                        throw new EOFException("Unerwartetes Ende der gzip-Daten.");
+                    }
+                    inflater.setInput(input);
+                }
+                try {
+                    inflater.inflate(dst);
+                } catch (DataFormatException e) {
+                    throw new ZipException("Ungültige gzip-Daten: " + e.getMessage());
+                }
+                if (inflater.needsDictionary()) {
+                    throw new ZipException("Ungültige gzip-Daten: Wörterbuch erwartet.");
+                }
+            }
+            ByteBuffer produced = dst.duplicate();
+            produced.flip().position(start);
+            crc.update(produced);
+            return dst.position() - start;
+        }
+
+        /**
+         * Liest den Kopf eines gzip-Teils und bereitet das Entpacken seiner Daten vor.
+         * @throws IOException wenn der Kopf fehlt oder ungültig ist.
+         */
+        private void readHeader() throws IOException {
+            if (readByte() != 0x1f || readByte() != 0x8b) {
+                throw new ZipException("Ungültige gzip-Daten: Kennung fehlt.");
+            }
+            if (readByte() != DEFLATE) {
+                throw new ZipException("Ungültige gzip-Daten: Nicht unterstützte Kompressionsmethode.");
+            }
+            int flags = readByte();
+            // Änderungszeit, Kompressionsgrad und Betriebssystem
+            skip(6);
+            if ((flags & FEXTRA) != 0) {
+                skip(readByte() | readByte() << 8);
+            }
+            if ((flags & FNAME) != 0) {
+                while (readByte() != 0) {
+                    // Dateinamen überspringen
+                }
+            }
+            if ((flags & FCOMMENT) != 0) {
+                while (readByte() != 0) {
+                    // Kommentar überspringen
+                }
+            }
+            if ((flags & FHCRC) != 0) {
+                skip(2);
+            }
+            inflater.reset();
+            crc.reset();
+        }
+
+        /**
+         * Liest das Ende eines gzip-Teils und prüft Prüfsumme und Länge der entpackten Daten.
+         * @throws IOException wenn das Ende fehlt oder nicht zu den Daten passt.
+         */
+        private void readTrailer() throws IOException {
+            long expectedCrc = readInt();
+            long expectedSize = readInt();
+            if (expectedCrc != crc.getValue() || expectedSize != (inflater.getBytesWritten() & 0xffffffffL)) {
+                throw new ZipException("Beschädigte gzip-Daten: Prüfsumme oder Länge stimmt nicht.");
+            }
+        }
+
+        /**
+         * Liest eine vorzeichenlose 32-Bit-Zahl in Little-Endian.
+         * @return die Zahl
+         * @throws IOException wenn die Daten vorher enden.
+         */
+        private long readInt() throws IOException {
+            return readByte() | readByte() << 8 | readByte() << 16 | (long) readByte() << 24;
+        }
+
+        /**
+         * Überspringt Bytes der komprimierten Daten.
+         * @param count die Anzahl der Bytes
+         * @throws IOException wenn die Daten vorher enden.
+         */
+        private void skip(int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                readByte();
+            }
+        }
+
+        /**
+         * Liest ein Byte der komprimierten Daten.
+         * @return das Byte als Zahl von 0 bis 255
+         * @throws IOException wenn die Daten zu Ende sind.
+         */
+        private int readByte() throws IOException {
+            if (!input.hasRemaining() && !fill()) {
+                throw new EOFException("Unerwartetes Ende der gzip-Daten.");
+            }
+            return input.get() & 0xff;
+        }
+
+        /**
+         * Liest weitere komprimierte Daten in den Eingabepuffer.
+         * @return true, wenn danach Daten im Puffer sind, false am Ende des Kanals
+         * @throws IOException wenn der Kanal nicht gelesen werden kann.
+         */
+        private boolean fill() throws IOException {
+            input.compact();
+            int count;
+            do {
+                count = source.read(input);
+            } while (count == 0 && input.hasRemaining());
+            input.flip();
+            return input.hasRemaining();
+        }
+
+        /**
+         * Gibt zurück, ob der Kanal offen ist.
+         * @return true, solange der zugrunde liegende Kanal offen ist
+         */
+        @Override
+        public boolean isOpen() {
+            return source.isOpen();
+        }
+
+        /**
+         * Gibt den Entpacker frei und schließt den zugrunde liegenden Kanal.
+         * @throws IOException wenn der Kanal nicht geschlossen werden kann.
+         */
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            source.close();
+        }
+    }
+}
@@ -0,0 +1,258 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * Überwacht Verzeichnisse mit einem {@link WatchService} und prüft jede .txt-Datei, auch komprimiert als .txt.gz
+ * oder .txt.zst, die angelegt oder geändert wird, ohne die JVM neu zu starten. Beim Start werden einmal alle
+ * vorhandenen Dateien geprüft.
+ * <p>
+ * Ereignisse werden gesammelt, bis {@value #DEBOUNCE_MILLIS} ms lang keines mehr kommt, höchstens aber
+ * {@value #MAX_BATCH_MILLIS} ms lang; mehrere Ereignisse für dieselbe Datei ergeben dabei eine Prüfung. Dateien,
+ * deren Größe und Änderungszeit seit ihrer letzten Prüfung gleich geblieben sind, werden übersprungen. Die Dateien
+ * eines Stapels gehen an einen Thread-Pool fester Größe mit begrenzter Warteschlange; ist sie voll, prüft der
+ * überwachende Thread die Datei selbst und nimmt so lange keine Ereignisse an. Jedes Ergebnis wird ausgegeben,
+ * sobald es fertig ist, sodass die Reihenfolge der Ausgabe der Reihenfolge der Fertigstellung folgt.
+ */
+public class DirectoryWatcher {
+    /** Wie lange nach dem letzten Ereignis auf weitere gewartet wird, bevor ein Stapel geprüft wird. */
+    private static final long DEBOUNCE_MILLIS = 200;
+    /** Wie lange ein Stapel bei ununterbrochenen Ereignissen höchstens gesammelt wird. */
+    private static final long MAX_BATCH_MILLIS = 2000;
+    /** Wie viele Dateien je Thread höchstens in der Warteschlange stehen. */
+    private static final int QUEUE_FACTOR = 4;
+
+    /** Die Kommandozeilenoptionen, mit denen jede Datei verarbeitet wird. */
+    private final CheckerOptions options;
+    /** Die überwachten Verzeichnisse. */
+    private final List<Path> directories;
+    /** Der gemeinsame Ergebnis-Cache aller Dateien, oder null ohne Cache. */
+    private final ResultCache cache;
+    /** Die Statistik der Phasen aller Dateien, oder null ohne --stats. */
+    private final PhaseStats stats;
+    /** Der Strom für die Ausgabe; er dient auch als Sperre für die Ausgabe eines Ergebnisses. */
+    private final PrintStream out;
+    /** Der Strom für Fehlermeldungen. */
+    private final PrintStream err;
+    /** Der Dienst, der die Verzeichnisse überwacht. */
+    private final WatchService watchService;
+    /** Die Threads, die die Dateien prüfen. */
+    private final ThreadPoolExecutor workers;
+    /** Größe und Änderungszeit je Datei bei ihrer letzten Prüfung, nur vom überwachenden Thread benutzt. */
+    private final Map<Path, String> versions;
+    /** Die Anzahl der geprüften Dateien je {@link BatchProcessor.Outcome#ordinal()}. */
+    private final AtomicLongArray counts;
+    /** Der Zeitpunkt des Starts in Nanosekunden. */
+    private final long start;
+
+    /**
+     * Erstellt einen Watcher und meldet die Verzeichnisse beim WatchService an.
+     * @param options     die Kommandozeilenoptionen
+     * @param directories die zu überwachenden Verzeichnisse
+     * @param out         der Strom für die Ausgabe
+     * @param err         der Strom für Fehlermeldungen
+     * @throws IOException wenn ein Verzeichnis nicht überwacht werden kann.
+     */
+    public DirectoryWatcher(CheckerOptions options, List<Path> directories, PrintStream out, PrintStream err)
+            throws IOException {
+        this.options = options;
+        this.directories = directories;
+        this.cache = options.getCacheDirectory() != null
+                ? new ResultCache(Paths.get(options.getCacheDirectory()))
+                : null;
+        this.stats = options.isStats() ? new PhaseStats() : null;
+        this.out = out;
+        this.err = err;
+        this.watchService = directories.get(0).getFileSystem().newWatchService();
+        for (Path directory : directories) {
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+        int jobs = options.getJobs();
+        this.workers = new ThreadPoolExecutor(jobs, jobs, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(jobs * QUEUE_FACTOR), runnable -> {
+                    Thread thread = new Thread(runnable, "drehfreudig-watch");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.versions = new HashMap<>();
+        this.counts = new AtomicLongArray(BatchProcessor.Outcome.values().length);
+        this.start = System.nanoTime();
+    }
+
+    /**
+     * Prüft alle vorhandenen Dateien und danach jede angelegte oder geänderte Datei, bis der Watcher geschlossen
+     * oder der Thread unterbrochen wird.
+     * @throws IOException wenn ein Verzeichnis nicht gelesen werden kann.
+     */
+    public void run() throws IOException {
+        Set<Path> batch = new TreeSet<>();
+        for (Path directory : directories) {
+            scan(directory, batch);
+        }
+        submit(batch);
+
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_BATCH_MILLIS);
+                // Weitere Ereignisse sammeln, bis es eine Weile ruhig ist oder der Stapel lange genug gesammelt wurde
+                while (key != null) {
+                    collect(key, batch);
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    key = remaining > 0 ? watchService.poll(Math.min(DEBOUNCE_MILLIS, remaining),
+                            TimeUnit.MILLISECONDS) : null;
+                }
+                submit(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Der Watcher wurde geschlossen
+        }
+    }
+
+    /**
+     * Beendet die Überwachung, wartet auf die laufenden Prüfungen und gibt eine Zusammenfassung aus, mit --stats
+     * auch die {@link PhaseStats}.
+     */
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            err.println("Fehler beim Schließen der Überwachung: " + e.getMessage());
+        }
+        workers.shutdown();
+        try {
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (out) {
+            long nanos = System.nanoTime() - start;
+            long files = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                files += counts.get(i);
+            }
+            out.println(String.format(Locale.ROOT,
+                    "%n=== Zusammenfassung: %d Dateien, %d drehfreudig, %d nicht drehfreudig, %d Fehler"
+                            + " in %d s überwacht ===",
+                    files, counts.get(BatchProcessor.Outcome.DREHFREUDIG.ordinal()),
+                    counts.get(BatchProcessor.Outcome.NICHT_DREHFREUDIG.ordinal()),
+                    counts.get(BatchProcessor.Outcome.FEHLER.ordinal()), nanos / 1_000_000_000));
+            if (stats != null) {
+                stats.print(out);
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Nimmt die Dateien der Ereignisse eines Schlüssels in den Stapel auf. Sind Ereignisse verloren gegangen,
+     * wird das ganze Verzeichnis erneut gelesen.
+     * @param key   der Schlüssel mit den Ereignissen
+     * @param batch der Stapel
+     */
+    private void collect(WatchKey key, Set<Path> batch) {
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                try {
+                    scan(directory, batch);
+                } catch (IOException e) {
+                    err.println("Fehler beim Lesen des Verzeichnisses '" + directory + "': " + e.getMessage());
+                }
+            } else {
+                Path path = directory.resolve((Path) event.context());
+                if (DrehfreudigChecker.isTreeFile(path)) {
+                    batch.add(path);
+                }
+            }
+        }
+        if (!key.reset()) {
+            err.println("Verzeichnis '" + directory + "' wird nicht mehr überwacht.");
+        }
+    }
+
+    /**
+     * Nimmt alle Baumdateien eines Verzeichnisses in den Stapel auf.
+     * @param directory das Verzeichnis
+     * @param batch     der Stapel
+     * @throws IOException wenn das Verzeichnis nicht gelesen werden kann.
+     */
+    private static void scan(Path directory, Set<Path> batch) throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.filter(DrehfreudigChecker::isTreeFile).forEach(batch::add);
+        }
+    }
+
+    /**
+     * Gibt die Dateien eines Stapels zur Prüfung ab, die seit ihrer letzten Prüfung geändert wurden, und leert
+     * den Stapel. Ist die Warteschlange voll, wird die Datei im aufrufenden Thread geprüft.
+     * @param batch der Stapel
+     */
+    private void submit(Set<Path> batch) {
+        List<Path> changed = new ArrayList<>();
+        for (Path path : batch) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                if (!attributes.isRegularFile()) {
+                    continue;
+                }
+                String version = attributes.size() + "@" + attributes.lastModifiedTime().toMillis();
+                if (!version.equals(versions.put(path, version))) {
+                    changed.add(path);
+                }
+            } catch (IOException e) {
+                // Die Datei wurde inzwischen gelöscht oder umbenannt
+                versions.remove(path);
+            }
+        }
+        batch.clear();
+        for (Path path : changed) {
+            workers.execute(() -> process(path));
+        }
+    }
+
+    /**
+     * Prüft eine Datei in eigene Puffer und gibt ihr Ergebnis als Ganzes aus.
+     * @param path die Datei
+     */
+    private void process(Path path) {
+        ByteArrayOutputStream outBuffer = new ByteArrayOutputStream();
+        ByteArrayOutputStream errBuffer = new ByteArrayOutputStream();
+        BatchProcessor.Outcome outcome;
+        try (PrintStream fileOut = new PrintStream(outBuffer); PrintStream fileErr = new PrintStream(errBuffer)) {
+            fileOut.println("\n=== Verarbeite " + path + " ===");
+            outcome = DrehfreudigChecker.processFile(path.toString(), options, cache, stats, fileOut, fileErr);
+        }
+        counts.incrementAndGet(outcome.ordinal());
+        synchronized (out) {
+            out.write(outBuffer.toByteArray(), 0, outBuffer.size());
+            out.flush();
+            err.write(errBuffer.toByteArray(), 0, errBuffer.size());
+            err.flush();
+        }
+    }
+}
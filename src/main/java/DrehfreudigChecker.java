@@ -1,10 +1,16 @@
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Stream;
 
 /**
@@ -15,10 +21,28 @@ import java.util.stream.Stream;
  * 2. Die Summe der Tiefen für jedes Paar symmetrischer Blätter ist konstant.
  * <p>
  * Das Programm kann eine oder mehrere Dateien als Kommandozeilenargumente verarbeiten oder, wenn keine Argumente angegeben sind, alle .txt-Dateien im Verzeichnis 'aufgaben/'.
+ * Mit der Option --fast wird allein anhand der Blattnenner entschieden, siehe {@link CheckerOptions}.
+ * Mehrere Dateien werden nebenläufig vom {@link BatchProcessor} verarbeitet, die Ausgabe bleibt in ihrer Reihenfolge.
+ * Mit --lines enthält jede Datei viele Bäume, die der {@link LineChecker} als Datensätze ausgibt.
+ * Dateien im Binärformat des {@link BinaryTreeFile} werden an ihrer Kennung erkannt und immer kompakt geparst,
+ * ebenso mit gzip oder zstd komprimierte Dateien, die der {@link CompressedInput} beim Lesen entpackt.
+ * Für viele kurze Aufrufe hält der {@link CheckerServer} die Prüfung in einer laufenden JVM bereit.
+ * Mit --hash verwirft die {@link HashPrecheck} nicht drehfreudige Bäume nach einem Lesedurchlauf ohne Baum im Speicher.
+ * Die Phasen jeder Prüfung misst der {@link PhaseRecorder} als JFR-Ereignisse und mit --stats als Histogramme.
+ * Zum Einbetten ohne Textausgabe gibt es den wiederverwendbaren {@link TreeChecker}.
+ * Mit --watch prüft der {@link DirectoryWatcher} neue und geänderte Dateien, ohne die JVM neu zu starten.
  * @author Pavel Polukhin
  * @version 1.0
  */
 public class DrehfreudigChecker {
+    /** Ab dieser Dateigröße in Bytes wird der Baum immer kompakt aus der eingeblendeten Datei geparst. */
+    private static final long LARGE_FILE_SIZE = 16L << 20;
+    /** Bis zu dieser Dateigröße in Bytes wird der Baum im kompakten und im Streaming-Modus auch als Text ausgegeben. */
+    private static final long ECHO_LIMIT = 1L << 20;
+    /** Spaltenzahl der skalierten Visualisierung für Bäume, die für die exakte Darstellung zu breit sind. */
+    private static final int DEFAULT_COLUMNS = 120;
+    /** Breite der SVG-Bilder in Pixeln. */
+    private static final int SVG_WIDTH = 1200;
 
     /**
      * Privater Konstruktor, um die Instanziierung dieser Utility-Klasse zu verhindern.
@@ -29,27 +53,92 @@ public class DrehfreudigChecker {
 
     /**
      * Hauptmethode zum Ausführen des Programms.
-     * @param args Kommandozeilenargumente, die die zu verarbeitenden Dateinamen enthalten
+     * @param args Kommandozeilenargumente, die Optionen und die zu verarbeitenden Dateinamen enthalten
      */
     public static void main(String[] args) {
-        if (args.length == 0) {
-            System.out.println("Verwendung: java DrehfreudigChecker <dateiname1> [dateiname2] [dateiname3] ...");
+        CheckerOptions options;
+        try {
+            options = CheckerOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(CheckerOptions.usage());
+            return;
+        }
+
+        if (options.isWatch()) {
+            watch(options);
+            return;
+        }
+
+        if (options.getFiles().isEmpty()) {
+            System.out.println("Verwendung: java DrehfreudigChecker [Optionen] <dateiname1> [dateiname2] [dateiname3] ...");
             System.out.println("Oder ohne Argumente alle Dateien in aufgaben/ verarbeiten");
-            processAllFiles();
+            System.out.println(CheckerOptions.usage());
+            processAllFiles(options);
             return;
         }
 
         // Jede Datei-Argument verarbeiten
-        for (String filename : args) {
-            System.out.println("\n=== Verarbeite " + filename + " ===");
-            processFile(filename);
+        run(options, options.getFiles(), options.getFiles(), System.out, System.err);
+    }
+
+    /**
+     * Verarbeitet die Dateien mit dem BatchProcessor, oder im zeilenweisen Modus mit dem {@link LineChecker}.
+     * @param options   die Kommandozeilenoptionen
+     * @param filenames die Namen der zu verarbeitenden Dateien
+     * @param labels    die Bezeichnungen der Dateien in der Ausgabe, in derselben Reihenfolge
+     * @param out       der Strom für die Ausgabe
+     * @param err       der Strom für Fehlermeldungen
+     */
+    static void run(CheckerOptions options, List<String> filenames, List<String> labels, PrintStream out,
+                    PrintStream err) {
+        run(options, filenames, labels, null, out, err);
+    }
+
+    /**
+     * Verarbeitet die Dateien wie {@link #run(CheckerOptions, List, List, PrintStream, PrintStream)}, mehrere
+     * Dateien aber auf einem gemeinsamen Pool.
+     * @param options   die Kommandozeilenoptionen
+     * @param filenames die Namen der zu verarbeitenden Dateien
+     * @param labels    die Bezeichnungen der Dateien in der Ausgabe, in derselben Reihenfolge
+     * @param executor  der gemeinsame Pool des BatchProcessors, oder null für einen eigenen Pool
+     * @param out       der Strom für die Ausgabe
+     * @param err       der Strom für Fehlermeldungen
+     */
+    static void run(CheckerOptions options, List<String> filenames, List<String> labels, ExecutorService executor,
+                    PrintStream out, PrintStream err) {
+        if (options.isLines()) {
+            new LineChecker(options.getFormat(), options.getHashMode()).run(filenames, labels, out, err);
+        } else {
+            new BatchProcessor(options, executor).run(filenames, labels, out, err);
+        }
+    }
+
+    /**
+     * Überwacht die angegebenen Verzeichnisse, ohne Angabe das Aufgaben-Verzeichnis, mit dem
+     * {@link DirectoryWatcher}, bis das Programm beendet wird.
+     * @param options die Kommandozeilenoptionen
+     */
+    private static void watch(CheckerOptions options) {
+        List<Path> directories = new ArrayList<>();
+        for (String directory : options.getFiles().isEmpty() ? List.of("aufgaben") : options.getFiles()) {
+            directories.add(Paths.get(directory));
+        }
+        try {
+            DirectoryWatcher watcher = new DirectoryWatcher(options, directories, System.out, System.err);
+            Runtime.getRuntime().addShutdownHook(new Thread(watcher::close));
+            System.out.println("Überwache " + directories + ", Beenden mit Strg+C");
+            watcher.run();
+        } catch (IOException e) {
+            System.err.println("Fehler beim Überwachen der Verzeichnisse: " + e.getMessage());
         }
     }
 
     /**
      * Verarbeitet alle Dateien im Aufgaben-Verzeichnis.
+     * @param options die Kommandozeilenoptionen
      */
-    private static void processAllFiles() {
+    private static void processAllFiles(CheckerOptions options) {
         try {
             Path aufgabenDir = Paths.get("aufgaben");
             if (!Files.exists(aufgabenDir)) {
@@ -57,15 +146,18 @@ public class DrehfreudigChecker {
                 return;
             }
 
+            List<String> filenames = new ArrayList<>();
+            List<String> labels = new ArrayList<>();
             try (Stream<Path> paths = Files.list(aufgabenDir)) {
                 paths.filter(Files::isRegularFile)
-                        .filter(p -> p.toString().endsWith(".txt"))
+                        .filter(DrehfreudigChecker::isTreeFile)
                         .sorted()
                         .forEach(path -> {
-                            System.out.println("\n=== Verarbeite " + path.getFileName() + " ===");
-                            processFile(path.toString());
+                            filenames.add(path.toString());
+                            labels.add(path.getFileName().toString());
                         });
             }
+            run(options, filenames, labels, System.out, System.err);
         } catch (IOException e) {
             System.out.println("Fehler beim Lesen des Verzeichnisses: " + e.getMessage());
         }
@@ -73,74 +165,476 @@ public class DrehfreudigChecker {
 
     /**
      * Verarbeitet eine einzelne Datei.
+     * Fehler werden nicht weitergeworfen, sondern auf dem Fehlerstrom gemeldet und im Ergebnis vermerkt.
+     * Mit einem Cache wird ein gespeichertes Ergebnis ohne Parser und Breitenberechnung ausgegeben, außer im
+     * Streaming-Modus und bei drehfreudigen Bäumen, für deren Bild der Baum gebraucht wird.
+     * Die Phasen werden vom {@link PhaseRecorder} gemessen und als JFR-Ereignisse aufgezeichnet.
      * @param filename der Name der zu verarbeitenden Datei
-     * @throws IllegalArgumentException wenn die Baumstruktur in der Datei ungültig ist.
+     * @param options  die Kommandozeilenoptionen
+     * @param cache    der Ergebnis-Cache, oder null ohne Cache
+     * @param stats    die Statistik für --stats, oder null
+     * @param out      der Strom für die Ausgabe
+     * @param err      der Strom für Fehlermeldungen
+     * @return das Ergebnis der Prüfung
      */
-    private static void processFile(String filename) {
+    static BatchProcessor.Outcome processFile(String filename, CheckerOptions options, ResultCache cache,
+                                              PhaseStats stats, PrintStream out, PrintStream err) {
+        PhaseRecorder recorder = null;
+        String message;
         try {
-            String content = readFile(filename);
-            if (content == null || content.trim().isEmpty()) {
-                throw new IllegalArgumentException("Die Datei ist leer oder enthält keine Baumstruktur.");
-            }
-
-            // Parse den Baum
+            Path path = Paths.get(filename);
             TreeParser parser = new TreeParser();
-            String trimmedContent = content.trim();
-            Node root = parser.parse(trimmedContent);
+            WidthAndDepthCalculator calculator = new WidthAndDepthCalculator();
+            Node root = null;
+            CompactTree tree = null;
+            String treeText;
+            TreeAnalysis analysis;
+
+            long fileSize = path.toFile().length();
+            recorder = new PhaseRecorder(stats, filename, fileSize);
+            // Binärdateien haben keine Textform und werden immer kompakt geparst
+            BinaryTreeFile.Header header = BinaryTreeFile.readHeader(path);
+            // Komprimierte Dateien werden beim Lesen entpackt und lassen sich nicht im Streaming-Modus mit zwei
+            // eingeblendeten Durchläufen lesen. Über den Parser entscheidet wie bei Textdateien die Größe, hier die
+            // entpackte; ist sie unbekannt, wird vorsichtshalber kompakt geparst
+            boolean compressed = header == null && CompressedInput.detect(path) != CompressedInput.Codec.NONE;
+            long treeSize = compressed ? CompressedInput.sizeHint(path) : fileSize;
+            // Die Vorprüfung liest die Datei einmal ohne Baum im Speicher; exakt geprüft wird nur, wenn die Hashes
+            // übereinstimmen und nicht allein ihr Ergebnis zählt. Beide lesen dieselben Klammern, denn jeder
+            // Parser und der Streaming-Modus überlesen alle anderen Bytes und lassen nur einen Wurzelknoten zu
+            if (options.getHashMode() != null) {
+                recorder.begin(PhaseRecorder.Phase.PRECHECK);
+                HashPrecheck precheck = parser.precheck(path);
+                if (precheck == null) {
+                    throw new IllegalArgumentException("Die Datei ist leer oder enthält keine Baumstruktur.");
+                }
+                recorder.setCounts(precheck.getNodeCount(), precheck.getLeafCount(), precheck.getMaxDepth());
+                recorder.end();
+                if (!precheck.isDrehfreudig() || options.getHashMode() == HashPrecheck.Mode.HASH_ONLY) {
+                    return reportPrecheck(path, fileSize, precheck, recorder, out);
+                }
+            }
+            if (options.isStream() && header == null && !compressed) {
+                return checkStreaming(path, fileSize, recorder, out);
+            }
 
-            if (root == null) {
-                throw new IllegalArgumentException("Ungültige Baumstruktur in Datei: " + filename);
+            // Im DAG-Modus gibt es wie im schnellen Modus keine Blattbreiten
+            boolean fast = options.isFast() || options.isDag();
+            ResultCache.Key key = null;
+            if (cache != null) {
+                recorder.begin(PhaseRecorder.Phase.CACHE);
+                key = cache.key(path);
+                ResultCache.Entry cached = cache.lookup(key);
+                if (isComplete(cached, fast, options)) {
+                    recorder.setCounts(cached.getNodeCount(), cached.getLeafCount(), 0);
+                    out.println("Baum: " + describeTree(path, fileSize, cached.getNodeCount()));
+                    report(cached, fast, out);
+                    recorder.end();
+                    recorder.finish();
+                    return cached.isDrehfreudig()
+                            ? BatchProcessor.Outcome.DREHFREUDIG : BatchProcessor.Outcome.NICHT_DREHFREUDIG;
+                }
+                recorder.end();
+            }
+            if (options.isDag()) {
+                return checkDag(path, fileSize, options, cache, key, recorder, out, err);
             }
 
-            // Berechne Breiten und Tiefen
-            WidthAndDepthCalculator calculator = new WidthAndDepthCalculator();
-            int totalWidth = calculator.calculateTotalWidth(root);
-            calculator.assignWidthsAndDepths(root, totalWidth);
-
-            // Hole Blattbreiten und -tiefen, dann prüfe Drehfreudig-Bedingungen
-            List<Integer> leafWidths = calculator.getLeafWidths(root);
-            List<Integer> leafDepths = calculator.getLeafDepths(root);
-            boolean isWidthPalindrome = calculator.isWidthPalindrome(leafWidths);
-            boolean isConstantDepthSum = calculator.isConstantDepthSum(leafDepths);
-
-            // Ausgabe Ergebnis
-            System.out.println("Baum: " + trimmedContent);
-            System.out.println("Blattbreiten: " + leafWidths);
-            System.out.println("Breitenprüfung: " + (isWidthPalindrome ? "bestanden" : "nicht bestanden"));
-
-            if (isWidthPalindrome) {
-                System.out.println("Blatttiefen: " + leafDepths);
-                System.out.println("Tiefenprüfung: " + (isConstantDepthSum ? "bestanden" : "nicht bestanden"));
+            // Große Dateien werden immer kompakt und ohne Node-Objekte geparst
+            if (options.isCompact() || treeSize > LARGE_FILE_SIZE || treeSize < 0 || header != null) {
+                recorder.begin(PhaseRecorder.Phase.PARSE);
+                tree = parser.parseCompact(path);
+                if (tree == null) {
+                    throw new IllegalArgumentException("Die Datei ist leer oder enthält keine Baumstruktur.");
+                }
+                recorder.setNodeCount(tree.size());
+                recorder.end();
+                // Große Bäume werden parallel in Teilbäumen analysiert, kleine sequenziell
+                recorder.begin(PhaseRecorder.Phase.LEAVES);
+                analysis = new ParallelTreeAnalyzer().analyze(tree);
+                recorder.setAnalysis(analysis);
+                recorder.end();
+                if (header != null && header.getTotalWidth() != null) {
+                    analysis.setTotalWidth(header.getTotalWidth());
+                }
+                treeText = describeTree(path, fileSize, tree.size());
+            } else {
+                recorder.begin(PhaseRecorder.Phase.PARSE);
+                root = parser.parse(path);
+                if (root == null) {
+                    throw new IllegalArgumentException("Die Datei ist leer oder enthält keine Baumstruktur.");
+                }
+                recorder.end();
+                recorder.begin(PhaseRecorder.Phase.LEAVES);
+                analysis = calculator.analyze(root);
+                recorder.setAnalysis(analysis);
+                recorder.end();
+                treeText = describeTree(path, fileSize, analysis.getNodeCount());
             }
 
-            boolean isDrehfreudig = isWidthPalindrome && isConstantDepthSum;
-            System.out.println("Ergebnis: " + (isDrehfreudig ? "DREHFREUDIG" : "NICHT DREHFREUDIG"));
+            out.println("Baum: " + treeText);
+            ResultCache.Entry entry = check(calculator, analysis, options, recorder, out);
+            boolean isDrehfreudig = entry.isDrehfreudig();
+            store(cache, key, entry, path, err);
 
             // Zeige Baum an, wenn drehfreudig
-            if (isDrehfreudig) {
-                System.out.println("\nBaumvisualisierung:");
-                TreeDisplay display = new TreeDisplay();
-                display.display(root);
+            if (isDrehfreudig && options.isDisplay()) {
+                recorder.begin(PhaseRecorder.Phase.DISPLAY);
+                display(root, tree, analysis, options.getColumns(), out);
+                recorder.end();
             }
+            if (isDrehfreudig && options.getSvgDirectory() != null) {
+                recorder.begin(PhaseRecorder.Phase.SVG);
+                Path svgFile = Paths.get(options.getSvgDirectory(), svgName(path));
+                new SvgExporter(SVG_WIDTH).export(root, tree, analysis, svgFile);
+                recorder.end();
+                out.println("\nSVG-Bild gespeichert: " + svgFile);
+            }
+            recorder.finish();
+            return isDrehfreudig ? BatchProcessor.Outcome.DREHFREUDIG : BatchProcessor.Outcome.NICHT_DREHFREUDIG;
 
+        } catch (NoSuchFileException e) {
+            message = "Fehler beim Lesen der Datei '" + filename + "': Datei nicht gefunden.";
         } catch (IOException e) {
-            System.err.println("Fehler beim Lesen der Datei '" + filename + "': " + e.getMessage());
+            message = "Fehler beim Lesen der Datei '" + filename + "': " + e.getMessage();
         } catch (IllegalArgumentException e) {
-            System.err.println("Fehler in der Eingabe für Datei '" + filename + "': " + e.getMessage());
+            message = "Fehler in der Eingabe für Datei '" + filename + "': " + e.getMessage();
         } catch (Exception e) {
-            System.err.println("Ein unerwarteter Fehler ist bei der Verarbeitung von '" + filename + "' aufgetreten: " + e.getMessage());
+            message = "Ein unerwarteter Fehler ist bei der Verarbeitung von '" + filename + "' aufgetreten: " + e.getMessage();
+        }
+        err.println(message);
+        if (recorder != null) {
+            recorder.fail(message);
+        }
+        return BatchProcessor.Outcome.FEHLER;
+    }
+
+    /**
+     * Berechnet, sofern nicht im schnellen Modus geprüft wird, die Gesamtbreite, prüft den Baum und gibt das
+     * Ergebnis aus. Gesamtbreite und Prüfung werden als eigene Phasen gemessen.
+     * @param calculator der Rechner für die Prüfungen
+     * @param analysis   das Analyseergebnis des Baumes
+     * @param options    die Kommandozeilenoptionen
+     * @param recorder   die Messung der Phasen
+     * @param out        der Strom für die Ausgabe
+     * @return das Ergebnis mit den ausgegebenen Breiten und Tiefen
+     */
+    private static ResultCache.Entry check(WidthAndDepthCalculator calculator, TreeAnalysis analysis,
+                                           CheckerOptions options, PhaseRecorder recorder, PrintStream out) {
+        if (!options.isFast()) {
+            recorder.begin(PhaseRecorder.Phase.TOTAL_WIDTH);
+            analysis.getTotalWidth();
+            recorder.end();
+        }
+        recorder.begin(PhaseRecorder.Phase.CHECK);
+        ResultCache.Entry entry = summarize(calculator, analysis, options.isFast());
+        report(entry, options.isFast(), out);
+        recorder.end();
+        return entry;
+    }
+
+    /**
+     * Prüft eine Datei als DAG der Teilbäume, in dem gleich aufgebaute Teilbäume nur einmal analysiert werden,
+     * und gibt das Ergebnis wie im schnellen Modus aus. Drehfreudige Bäume werden immer skaliert angezeigt, weil
+     * ihre Gesamtbreite nicht berechnet wird.
+     * @param path     die zu prüfende Datei
+     * @param fileSize die Dateigröße in Bytes
+     * @param options  die Kommandozeilenoptionen
+     * @param cache    der Ergebnis-Cache, oder null ohne Cache
+     * @param key      der Schlüssel der Datei im Cache, oder null ohne Cache
+     * @param recorder die Messung der Phasen
+     * @param out      der Strom für die Ausgabe
+     * @param err      der Strom für Fehlermeldungen
+     * @return das Ergebnis der Prüfung
+     * @throws IOException wenn die Datei nicht gelesen oder das Bild nicht geschrieben werden kann.
+     */
+    private static BatchProcessor.Outcome checkDag(Path path, long fileSize, CheckerOptions options,
+                                                   ResultCache cache, ResultCache.Key key, PhaseRecorder recorder,
+                                                   PrintStream out, PrintStream err) throws IOException {
+        recorder.begin(PhaseRecorder.Phase.PARSE);
+        SubtreeDag dag = new TreeParser().parseDag(path);
+        if (dag == null) {
+            throw new IllegalArgumentException("Die Datei ist leer oder enthält keine Baumstruktur.");
         }
+        recorder.setCounts(dag.getNodeCount(), dag.getLeafCount(), 0);
+        recorder.end();
+        out.println("Baum: " + describeTree(path, fileSize, dag.getNodeCount()));
+        out.println("Verschiedene Teilbäume: " + dag.size() + " von " + dag.getNodeCount() + " Knoten");
+
+        recorder.begin(PhaseRecorder.Phase.CHECK);
+        boolean isWidthPalindrome = dag.isDenominatorPalindrome();
+        ResultCache.Entry entry = new ResultCache.Entry(dag.getNodeCount(), dag.getLeafCount(), isWidthPalindrome,
+                isWidthPalindrome && dag.isConstantDepthSum(), null, null, null, true);
+        report(entry, true, out);
+        recorder.end();
+        store(cache, key, entry, path, err);
+
+        if (entry.isDrehfreudig() && options.isDisplay()) {
+            recorder.begin(PhaseRecorder.Phase.DISPLAY);
+            int columns = options.getColumns() > 0 ? options.getColumns() : DEFAULT_COLUMNS;
+            out.println("\nSkalierte Baumvisualisierung (" + columns + " Spalten, mit gedrehter Kopie):");
+            new ScaledTreeDisplay(out, columns).display(dag);
+            recorder.end();
+        }
+        if (entry.isDrehfreudig() && options.getSvgDirectory() != null) {
+            recorder.begin(PhaseRecorder.Phase.SVG);
+            Path svgFile = Paths.get(options.getSvgDirectory(), svgName(path));
+            new SvgExporter(SVG_WIDTH).export(dag, svgFile);
+            recorder.end();
+            out.println("\nSVG-Bild gespeichert: " + svgFile);
+        }
+        recorder.finish();
+        return entry.isDrehfreudig() ? BatchProcessor.Outcome.DREHFREUDIG : BatchProcessor.Outcome.NICHT_DREHFREUDIG;
     }
 
     /**
-     * Liest den Inhalt einer Datei.
-     * @param filename der Name der zu lesenden Datei
-     * @return der Inhalt der Datei als String oder null bei einem Fehler
-     * @throws IOException wenn ein Fehler beim Lesen der Datei auftritt.
+     * Speichert ein Prüfergebnis im Cache. Ein Fehler beim Speichern wird nur als Warnung gemeldet.
+     * @param cache der Ergebnis-Cache, oder null ohne Cache
+     * @param key   der Schlüssel der Datei
+     * @param entry das Prüfergebnis
+     * @param path  die geprüfte Datei
+     * @param err   der Strom für Fehlermeldungen
      */
-    private static String readFile(String filename) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-            return reader.readLine();
+    private static void store(ResultCache cache, ResultCache.Key key, ResultCache.Entry entry, Path path,
+                              PrintStream err) {
+        if (cache == null) {
+            return;
         }
+        try {
+            cache.store(key, entry);
+        } catch (IOException e) {
+            err.println("Warnung: Ergebnis für '" + path + "' konnte nicht im Cache gespeichert werden: "
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * Prüft eine Datei im Streaming-Verfahren, ohne den Baum aufzubauen, und gibt das Ergebnis aus.
+     * Eine Visualisierung gibt es in diesem Modus nicht.
+     * @param path     die zu prüfende Datei
+     * @param fileSize die Dateigröße in Bytes
+     * @param recorder die Messung der Phasen; Parsen und Prüfen sind hier eine Phase
+     * @param out      der Strom für die Ausgabe
+     * @return das Ergebnis der Prüfung
+     * @throws IOException wenn die Datei nicht gelesen werden kann.
+     */
+    private static BatchProcessor.Outcome checkStreaming(Path path, long fileSize, PhaseRecorder recorder,
+                                                         PrintStream out) throws IOException {
+        recorder.begin(PhaseRecorder.Phase.CHECK);
+        StreamingChecker.Result result = new StreamingChecker().check(path);
+        recorder.setCounts(result.getNodeCount(), result.getLeafCount(), 0);
+        recorder.end();
+        out.println("Baum: " + describeTree(path, fileSize, result.getNodeCount()));
+
+        String pair = " (Blattpaar " + result.getMismatchPair() + " und "
+                + (result.getLeafCount() - 1 - result.getMismatchPair()) + ")";
+        switch (result.getMismatch()) {
+            case WIDTH:
+                out.println("Breitenprüfung: nicht bestanden" + pair);
+                break;
+            case DEPTH:
+                out.println("Breitenprüfung: bis zum Abbruch bestanden");
+                out.println("Tiefenprüfung: nicht bestanden" + pair);
+                break;
+            default:
+                out.println("Breitenprüfung: bestanden");
+                out.println("Tiefenprüfung: bestanden");
+        }
+        out.println("Ergebnis: " + (result.isDrehfreudig() ? "DREHFREUDIG" : "NICHT DREHFREUDIG"));
+        if (!result.isDrehfreudig()) {
+            out.println("Abbruch nach " + result.getBytesRead() + " von " + result.getFileSize()
+                    + " Bytes im zweiten Durchlauf.");
+        }
+        recorder.finish();
+        return result.isDrehfreudig() ? BatchProcessor.Outcome.DREHFREUDIG : BatchProcessor.Outcome.NICHT_DREHFREUDIG;
+    }
+
+    /**
+     * Gibt das Ergebnis der Hash-Vorprüfung wie das der Streaming-Prüfung aus, ohne Blattbreiten und Visualisierung.
+     * @param path     die geprüfte Datei
+     * @param fileSize die Dateigröße in Bytes
+     * @param precheck die abgeschlossene Vorprüfung
+     * @param recorder die Messung der Phasen
+     * @param out      der Strom für die Ausgabe
+     * @return das Ergebnis der Prüfung
+     * @throws IOException wenn die Datei für die Textausgabe nicht gelesen werden kann.
+     */
+    private static BatchProcessor.Outcome reportPrecheck(Path path, long fileSize, HashPrecheck precheck,
+                                                         PhaseRecorder recorder, PrintStream out) throws IOException {
+        out.println("Baum: " + describeTree(path, fileSize, precheck.getNodeCount()));
+        switch (precheck.getMismatch()) {
+            case WIDTH:
+                out.println("Breitenprüfung: nicht bestanden (Hash)");
+                break;
+            case DEPTH:
+                out.println("Breitenprüfung: bestanden (Hash)");
+                out.println("Tiefenprüfung: nicht bestanden (Hash)");
+                break;
+            default:
+                out.println("Breitenprüfung: bestanden (Hash)");
+                out.println("Tiefenprüfung: bestanden (Hash)");
+        }
+        out.println("Ergebnis: " + (precheck.isDrehfreudig() ? "DREHFREUDIG" : "NICHT DREHFREUDIG"));
+        recorder.finish();
+        return precheck.isDrehfreudig() ? BatchProcessor.Outcome.DREHFREUDIG : BatchProcessor.Outcome.NICHT_DREHFREUDIG;
+    }
+
+    /**
+     * Beschreibt einen Baum, der nicht als String eingelesen wurde.
+     * Kleine Textdateien werden als Text wiedergegeben, große und Binärdateien nur mit Knotenzahl und Größe.
+     * @param path      die Datei des Baumes
+     * @param fileSize  die Dateigröße in Bytes
+     * @param nodeCount die Knotenzahl des Baumes
+     * @return der Text für die Ausgabe
+     * @throws IOException wenn die Datei nicht gelesen werden kann.
+     */
+    private static String describeTree(Path path, long fileSize, long nodeCount) throws IOException {
+        if (CompressedInput.detect(path) != CompressedInput.Codec.NONE) {
+            // Entpackt wird höchstens bis zur Grenze für die Textausgabe
+            try (InputStream in = Channels.newInputStream(CompressedInput.open(path))) {
+                byte[] text = in.readNBytes((int) ECHO_LIMIT + 1);
+                if (text.length <= ECHO_LIMIT) {
+                    return new String(text, Charset.defaultCharset()).trim();
+                }
+            }
+            return "<" + nodeCount + " Knoten, " + fileSize + " Bytes komprimiert>";
+        }
+        if (fileSize <= ECHO_LIMIT && !BinaryTreeFile.isBinary(path)) {
+            return new String(Files.readAllBytes(path), Charset.defaultCharset()).trim();
+        }
+        return "<" + nodeCount + " Knoten, " + fileSize + " Bytes>";
+    }
+
+    /**
+     * Prüft den Baum und fasst das Ergebnis zusammen.
+     * Im schnellen Modus wird allein anhand der Pfadnenner und Tiefen der Blätter entschieden; das kgV und die
+     * Blattbreiten werden dann nicht berechnet.
+     * @param calculator der Rechner für die Prüfungen
+     * @param analysis   das Analyseergebnis des Baumes
+     * @param fast       ob im schnellen Modus geprüft wird
+     * @return das Ergebnis mit den auszugebenden Breiten und Tiefen
+     */
+    private static ResultCache.Entry summarize(WidthAndDepthCalculator calculator, TreeAnalysis analysis,
+                                               boolean fast) {
+        boolean isWidthPalindrome = calculator.isDenominatorPalindrome(analysis.getLeaves());
+        boolean isConstantDepthSum = isWidthPalindrome && calculator.isConstantDepthSum(analysis.getLeaves());
+        if (fast) {
+            return new ResultCache.Entry(analysis.getNodeCount(), analysis.getLeafCount(), isWidthPalindrome,
+                    isConstantDepthSum, null, null, null);
+        }
+        return new ResultCache.Entry(analysis.getNodeCount(), analysis.getLeafCount(), isWidthPalindrome,
+                isConstantDepthSum, analysis.getTotalWidth(), analysis.leafWidthsToString(),
+                isWidthPalindrome ? analysis.leafDepthsToString() : null);
+    }
+
+    /**
+     * Gibt das Prüfergebnis aus, außer im schnellen Modus mit Blattbreiten und Blatttiefen. Nur über Hashes
+     * ermittelte Prüfungen werden wie bei der Vorprüfung mit "(Hash)" gekennzeichnet.
+     * @param entry das Prüfergebnis
+     * @param fast  ob im schnellen Modus geprüft wird
+     * @param out   der Strom für die Ausgabe
+     */
+    private static void report(ResultCache.Entry entry, boolean fast, PrintStream out) {
+        String method = entry.isProbabilistic() ? " (Hash)" : "";
+        if (!fast) {
+            out.println("Blattbreiten: " + entry.getLeafWidths());
+        }
+        out.println("Breitenprüfung: " + (entry.isWidthPalindrome() ? "bestanden" : "nicht bestanden") + method);
+        if (entry.isWidthPalindrome()) {
+            if (!fast) {
+                out.println("Blatttiefen: " + entry.getLeafDepths());
+            }
+            out.println("Tiefenprüfung: " + (entry.isConstantDepthSum() ? "bestanden" : "nicht bestanden") + method);
+        }
+        out.println("Ergebnis: " + (entry.isDrehfreudig() ? "DREHFREUDIG" : "NICHT DREHFREUDIG"));
+    }
+
+    /**
+     * Prüft, ob ein gespeichertes Ergebnis für die Ausgabe reicht: Es muss alle auszugebenden Werte enthalten,
+     * ein drehfreudiger Baum darf weder angezeigt noch als Bild gespeichert werden, und ein nur über Hashes
+     * ermitteltes Ergebnis gilt allein im DAG-Modus, der selbst nicht genauer prüft.
+     * @param entry   das gespeicherte Ergebnis, oder null
+     * @param fast    ob ohne Blattbreiten und Blatttiefen ausgegeben wird
+     * @param options die Kommandozeilenoptionen
+     * @return true, wenn das Ergebnis ohne den Baum ausgegeben werden kann
+     */
+    private static boolean isComplete(ResultCache.Entry entry, boolean fast, CheckerOptions options) {
+        if (entry == null || entry.isProbabilistic() && !options.isDag()) {
+            return false;
+        }
+        if (entry.isDrehfreudig() && (options.isDisplay() || options.getSvgDirectory() != null)) {
+            return false;
+        }
+        return fast
+                || entry.getLeafWidths() != null && (!entry.isWidthPalindrome() || entry.getLeafDepths() != null);
+    }
+
+    /**
+     * Zeigt einen drehfreudigen Baum anhand seiner Analyse an.
+     * Ist eine Spaltenzahl angegeben oder der Baum zu breit für die exakte Darstellung, wird er skaliert mit seiner
+     * gedrehten Kopie angezeigt; dafür wird die Gesamtbreite nicht benötigt.
+     * @param root     der Wurzelknoten des Baumes, oder null, wenn er kompakt vorliegt
+     * @param tree     der kompakte Baum, oder null, wenn er als Node-Objekte vorliegt
+     * @param analysis das Analyseergebnis des Baumes
+     * @param columns  die Spaltenzahl der skalierten Darstellung, 0 für die exakte Darstellung
+     * @param out      der Strom für die Ausgabe
+     */
+    static void display(Node root, CompactTree tree, TreeAnalysis analysis, int columns, PrintStream out) {
+        if (columns > 0) {
+            out.println("\nSkalierte Baumvisualisierung (" + columns + " Spalten, mit gedrehter Kopie):");
+            displayScaled(root, tree, analysis, columns, out);
+            return;
+        }
+
+        // Exakt nur anzeigen, wenn die Gesamtbreite darstellbar ist
+        BigInteger totalWidth = analysis.getTotalWidth();
+        if (totalWidth.bitLength() >= Integer.SIZE) {
+            out.println("\nBaum ist zu breit für die exakte Visualisierung (Gesamtbreite " + totalWidth
+                    + "), skaliert auf " + DEFAULT_COLUMNS + " Spalten mit gedrehter Kopie:");
+            displayScaled(root, tree, analysis, DEFAULT_COLUMNS, out);
+            return;
+        }
+        out.println("\nBaumvisualisierung:");
+        TreeDisplay display = new TreeDisplay(out);
+        display.display(root != null ? root : tree.toNode(), analysis);
+    }
+
+    /**
+     * Zeigt einen drehfreudigen Baum skaliert mit seiner gedrehten Kopie an.
+     * @param root     der Wurzelknoten des Baumes, oder null, wenn er kompakt vorliegt
+     * @param tree     der kompakte Baum, oder null, wenn er als Node-Objekte vorliegt
+     * @param analysis das Analyseergebnis des Baumes
+     * @param columns  die Spaltenzahl
+     * @param out      der Strom für die Ausgabe
+     */
+    private static void displayScaled(Node root, CompactTree tree, TreeAnalysis analysis, int columns,
+                                      PrintStream out) {
+        ScaledTreeDisplay display = new ScaledTreeDisplay(out, columns);
+        if (root != null) {
+            display.display(root, analysis);
+        } else {
+            display.display(tree, analysis);
+        }
+    }
+
+    /**
+     * Prüft, ob eine Datei nach ihrem Namen einen Baum enthält: eine .txt-Datei, auch mit gzip oder zstd komprimiert.
+     * @param path die Datei
+     * @return true für .txt, .txt.gz und .txt.zst
+     */
+    static boolean isTreeFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.endsWith(".txt") || name.endsWith(".txt.gz") || name.endsWith(".txt.zst");
+    }
+
+    /**
+     * Gibt den Namen des SVG-Bildes zu einer Eingabedatei zurück: ihr Name mit der Endung .svg statt .txt.
+     * @param path die Eingabedatei
+     * @return der Dateiname des Bildes
+     */
+    private static String svgName(Path path) {
+        String name = path.getFileName().toString().replaceFirst("\\.(gz|zst)$", "");
+        int dot = name.lastIndexOf('.');
+        return (dot > 0 ? name.substring(0, dot) : name) + ".svg";
     }
-}
\ No newline at end of file
+}
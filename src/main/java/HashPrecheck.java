@@ -0,0 +1,232 @@
+import java.util.Arrays;
+
+/**
+ * Prüft einen Baum in einem einzigen Lesedurchlauf probabilistisch auf Drehfreudigkeit, ohne Blätter oder
+ * Kinderzahlen zu speichern. Im Speicher liegt nur der Pfad vom Wurzelknoten zum aktuellen Knoten.
+ * <p>
+ * Während des Lesens werden Polynom-Hashes ({@link PolynomialHash}) der Nennerfolge und der Tiefenfolge der
+ * Blätter vorwärts und rückwärts gebildet: vorwärts als Summe r^i · v_i, rückwärts als Summe r^(-i) · v_i, weil
+ * die Blattzahl n erst am Ende feststeht; mit r^(n-1) multipliziert ergibt das den Hash der umgekehrten Folge.
+ * Die Tiefe eines Blattes ist sofort bekannt, sein Pfadnenner aber erst, wenn alle Vorfahren geschlossen sind.
+ * Weil die Nenner additiv über ihre Primfaktorzerlegung dargestellt werden, trägt jeder Knoten beim Schließen
+ * den Wert seiner Kinderzahl mal der Summe der Potenzen r^i seiner Blätter bei; diese Summen werden auf dem Pfad
+ * nach oben weitergereicht.
+ * <p>
+ * Stimmen die Hashes nicht überein, ist der Baum sicher nicht drehfreudig. Stimmen sie überein, ist er es bis
+ * auf eine Fehlerwahrscheinlichkeit in der Größenordnung Blattzahl / 2^61; mit {@link Mode#EXACT} wird er dann
+ * noch exakt paarweise geprüft. Bei überwiegend nicht drehfreudigen Eingaben entfällt so meist jeder weitere
+ * Aufwand.
+ * <p>
+ * Ein Prüfer kann mit {@link #reset()} für weitere Bäume wiederverwendet werden und allokiert dabei nur, wenn ein
+ * Baum tiefer ist als alle bisherigen. Er ist nicht threadsicher.
+ */
+public class HashPrecheck implements TreeParser.Sink {
+    /** Anfangskapazität der Pfad-Arrays. */
+    private static final int INITIAL_DEPTH = 64;
+
+    /** Wie das Ergebnis der Vorprüfung verwendet wird. */
+    public enum Mode {
+        /** Nur Bäume mit ungleichen Hashes werden sofort verworfen, alle anderen exakt geprüft. */
+        EXACT,
+        /** Das Ergebnis der Hashes ist das Ergebnis der Prüfung. */
+        HASH_ONLY
+    }
+
+    /** Der Hash mit zufälliger Basis. */
+    private final PolynomialHash hash;
+    /** Das Inverse der Basis r. */
+    private final long inverseBase;
+    /** Die Kinderzahl je offenem Knoten. */
+    private int[] childCounts;
+    /** Die Summe der r^i über die bisherigen Blätter je offenem Knoten. */
+    private long[] forwardPowers;
+    /** Die Summe der r^(-i) über die bisherigen Blätter je offenem Knoten. */
+    private long[] reversePowers;
+    /** Die Anzahl der offenen Knoten. */
+    private int depth;
+    /** Die Anzahl der gelesenen Knoten. */
+    private long nodeCount;
+    /** Die Anzahl der gelesenen Blätter. */
+    private long leafCount;
+    /** Die größte Tiefe, wobei der Wurzelknoten die Tiefe 1 hat. */
+    private int maxDepth;
+    /** Die Tiefe des ersten Blattes. */
+    private int firstDepth;
+    /** Die Tiefe des letzten Blattes. */
+    private int lastDepth;
+    /** r hoch Blattzahl. */
+    private long forwardPower;
+    /** r hoch minus Blattzahl. */
+    private long reversePower;
+    /** Der Hash der Nennerwerte von vorn. */
+    private long denominatorForward;
+    /** Der Hash der Nennerwerte mit fallenden Potenzen. */
+    private long denominatorReverse;
+    /** Der Hash der Tiefen von vorn. */
+    private long depthForward;
+    /** Der Hash der Tiefen mit fallenden Potenzen. */
+    private long depthReverse;
+    /** Das Ergebnis nach {@link #finish()}. */
+    private Mismatch mismatch;
+
+    /**
+     * Erstellt einen Prüfer mit zufälliger Basis.
+     */
+    public HashPrecheck() {
+        this.hash = new PolynomialHash();
+        this.inverseBase = PolynomialHash.power(hash.getBase(), PolynomialHash.MODULUS - 2);
+        this.childCounts = new int[INITIAL_DEPTH];
+        this.forwardPowers = new long[INITIAL_DEPTH];
+        this.reversePowers = new long[INITIAL_DEPTH];
+        reset();
+    }
+
+    /**
+     * Verwirft den bisher gelesenen Baum, damit der nächste gelesen werden kann.
+     */
+    public void reset() {
+        depth = 0;
+        nodeCount = 0;
+        leafCount = 0;
+        maxDepth = 0;
+        firstDepth = 0;
+        lastDepth = 0;
+        forwardPower = 1;
+        reversePower = 1;
+        denominatorForward = 0;
+        denominatorReverse = 0;
+        depthForward = 0;
+        depthReverse = 0;
+        mismatch = null;
+    }
+
+    /**
+     * Verarbeitet eine öffnende Klammer.
+     * @throws IllegalArgumentException wenn nach dem Wurzelknoten ein weiterer Baum beginnt.
+     */
+    @Override
+    public void open() {
+        if (depth == 0 && nodeCount > 0) {
+            throw new IllegalArgumentException("Ungültige Baumstruktur: Mehr als ein Wurzelknoten.");
+        }
+        if (depth > 0) {
+            childCounts[depth - 1]++;
+        }
+        if (depth == childCounts.length) {
+            childCounts = Arrays.copyOf(childCounts, depth * 2);
+            forwardPowers = Arrays.copyOf(forwardPowers, depth * 2);
+            reversePowers = Arrays.copyOf(reversePowers, depth * 2);
+        }
+        childCounts[depth] = 0;
+        forwardPowers[depth] = 0;
+        reversePowers[depth] = 0;
+        depth++;
+        nodeCount++;
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    /**
+     * Verarbeitet eine schließende Klammer. Ein Blatt geht mit seiner Tiefe in die Hashes ein, ein innerer Knoten
+     * mit dem Wert seiner Kinderzahl für alle Blätter unter ihm.
+     * @throws IllegalArgumentException wenn kein Knoten offen ist.
+     */
+    @Override
+    public void close() {
+        if (depth == 0) {
+            throw new IllegalArgumentException("Ungültige Baumstruktur: Zu viele schließende Klammern.");
+        }
+        int top = depth - 1;
+        if (childCounts[top] == 0) {
+            if (leafCount == 0) {
+                firstDepth = depth;
+            }
+            lastDepth = depth;
+            forwardPowers[top] = forwardPower;
+            reversePowers[top] = reversePower;
+            depthForward = PolynomialHash.add(depthForward, PolynomialHash.multiply(depth, forwardPower));
+            depthReverse = PolynomialHash.add(depthReverse, PolynomialHash.multiply(depth, reversePower));
+            forwardPower = PolynomialHash.multiply(forwardPower, hash.getBase());
+            reversePower = PolynomialHash.multiply(reversePower, inverseBase);
+            leafCount++;
+        } else {
+            long value = hash.valueOf(childCounts[top]);
+            if (value != 0) {
+                denominatorForward = PolynomialHash.add(denominatorForward,
+                        PolynomialHash.multiply(value, forwardPowers[top]));
+                denominatorReverse = PolynomialHash.add(denominatorReverse,
+                        PolynomialHash.multiply(value, reversePowers[top]));
+            }
+        }
+        if (top > 0) {
+            forwardPowers[top - 1] = PolynomialHash.add(forwardPowers[top - 1], forwardPowers[top]);
+            reversePowers[top - 1] = PolynomialHash.add(reversePowers[top - 1], reversePowers[top]);
+        }
+        depth = top;
+    }
+
+    /**
+     * Schließt den gelesenen Baum ab und vergleicht die Hashes. Wie bei der exakten Prüfung wird die Tiefe nur
+     * geprüft, wenn die Nennerfolge ein Palindrom ist.
+     * @return false, wenn keine Klammer gelesen wurde, sonst true
+     * @throws IllegalArgumentException wenn noch Knoten offen sind.
+     */
+    public boolean finish() {
+        if (depth > 0) {
+            throw new IllegalArgumentException("Ungültige Baumstruktur: Zu viele öffnende Klammern.");
+        }
+        if (nodeCount == 0) {
+            return false;
+        }
+        // Mit r^(n-1) werden aus den fallenden Potenzen r^(-i) die Potenzen r^(n-1-i) der umgekehrten Folge
+        long shift = PolynomialHash.multiply(forwardPower, inverseBase);
+        if (denominatorForward != PolynomialHash.multiply(denominatorReverse, shift)) {
+            mismatch = Mismatch.WIDTH;
+        } else if (!hash.isConstantPairSumAnyMiddle(depthForward, PolynomialHash.multiply(depthReverse, shift),
+                leafCount, firstDepth + lastDepth, maxDepth)) {
+            mismatch = Mismatch.DEPTH;
+        } else {
+            mismatch = Mismatch.NONE;
+        }
+        return true;
+    }
+
+    /**
+     * Gibt die Anzahl der gelesenen Knoten zurück.
+     * @return die Knotenzahl
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Gibt die Anzahl der gelesenen Blätter zurück.
+     * @return die Blattzahl
+     */
+    public long getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * Gibt die größte Knotentiefe zurück.
+     * @return die größte Tiefe
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Gibt die gefundene Abweichung zurück.
+     * @return die Abweichung, oder null vor {@link #finish()}
+     */
+    public Mismatch getMismatch() {
+        return mismatch;
+    }
+
+    /**
+     * Gibt zurück, ob die Hashes auf einen drehfreudigen Baum schließen lassen.
+     * @return true, wenn alle Hashes übereinstimmen
+     */
+    public boolean isDrehfreudig() {
+        return mismatch == Mismatch.NONE;
+    }
+}
@@ -0,0 +1,563 @@
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Prüft einen Baum, der Knoten für Knoten wächst, nach jedem Schritt erneut, ohne ihn ganz zu durchlaufen.
+ * <p>
+ * Der Baum wird als Folge von Marken gehalten: Jeder Knoten hat eine öffnende und eine schließende Marke, wie die
+ * Klammern der Eingabedatei. Die öffnende Marke eines Blattes trägt den Wert seines Pfadnenners und seine Tiefe.
+ * Die Folge liegt in einem Treap mit impliziten Positionen, dessen Knoten die Blattzahl und Polynom-Hashes
+ * ({@link PolynomialHash}) der Nenner- und Tiefenfolge vorwärts und rückwärts zusammenfassen. Die Nenner werden
+ * additiv über ihre Primfaktorzerlegung dargestellt.
+ * <p>
+ * Erhält ein Knoten mit k Kindern ein weiteres, wachsen die Pfadnenner aller Knoten unter ihm vom k-fachen auf
+ * den (k+1)-fachen Nenner des Knotens. Das ist eine Addition auf dem zusammenhängenden Bereich zwischen seinen
+ * Marken, die im Treap verzögert weitergereicht wird. Das neue Blatt wird vor der schließenden Marke eingefügt;
+ * war der Knoten selbst ein Blatt, zählt seine Marke nicht mehr als Blatt. Ein Einfügen kostet so erwartet
+ * O(log n), die Abfrage O(log n) für die Tiefen des ersten, letzten und mittleren Blattes.
+ * <p>
+ * Die Daten einer Marke liegen nebeneinander in je einem int- und einem long-Array, sodass ein Schritt im Treap
+ * nur wenige Cache-Zeilen berührt.
+ * <p>
+ * Wie bei {@link SubtreeDag} ist die Prüfung probabilistisch: Ein nicht drehfreudiger Baum wird nur mit einer
+ * Wahrscheinlichkeit in der Größenordnung Blattzahl / 2^61 als drehfreudig erkannt; ein drehfreudiger Baum wird
+ * immer erkannt. Die Gesamtbreite wird erst bei Bedarf mit dem {@link WidthAndDepthCalculator} berechnet.
+ * <p>
+ * Der Baum darf nur über {@link #addChild(Node, Node)} verändert werden. Die Klasse ist nicht threadsicher.
+ */
+public class IncrementalChecker {
+    /** Kein Treap-Knoten. */
+    private static final int NONE = -1;
+    /** Anfangskapazität in Marken. */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** Anzahl der int-Felder je Marke. */
+    private static final int LINK_STRIDE = 8;
+    /** Linkes Kind im Treap. */
+    private static final int LEFT = 0;
+    /** Rechtes Kind im Treap. */
+    private static final int RIGHT = 1;
+    /** Elternknoten im Treap. */
+    private static final int PARENT = 2;
+    /** Zufällige Priorität. */
+    private static final int PRIORITY = 3;
+    /** Anzahl der Marken im Teilbaum des Treaps. */
+    private static final int COUNT = 4;
+    /** Tiefe des Knotens der Marke, wobei der Wurzelknoten die Tiefe 1 hat. */
+    private static final int DEPTH = 5;
+    /** 1, wenn die Marke ein Blatt darstellt, sonst 0. */
+    private static final int LEAF = 6;
+
+    /** Anzahl der long-Felder je Marke. */
+    private static final int DATA_STRIDE = 8;
+    /** Wert des Pfadnenners, ohne noch ausstehende Additionen der Vorfahren im Treap. */
+    private static final int VALUE = 0;
+    /** Ausstehende Addition für die Kinder im Treap. */
+    private static final int PENDING = 1;
+    /** Hash der Nennerwerte der Blätter von links nach rechts. */
+    private static final int DENOMINATOR_FORWARD = 2;
+    /** Hash der Nennerwerte der Blätter von rechts nach links. */
+    private static final int DENOMINATOR_REVERSE = 3;
+    /** Hash der Blatttiefen von links nach rechts. */
+    private static final int DEPTH_FORWARD = 4;
+    /** Hash der Blatttiefen von rechts nach links. */
+    private static final int DEPTH_REVERSE = 5;
+    /** r hoch Blattzahl im Teilbaum des Treaps. */
+    private static final int POWER = 6;
+    /** Anzahl der Blätter im Teilbaum des Treaps. */
+    private static final int LEAVES = 7;
+
+    /** Der geprüfte Baum. */
+    private final Node root;
+    /** Die Nummer jedes Knotens; seine Marken sind 2 · Nummer und 2 · Nummer + 1. */
+    private final Map<Node, Integer> numbers;
+    /** Der Hash mit zufälliger Basis. */
+    private final PolynomialHash hash;
+    /** Die int-Felder aller Marken, {@value #LINK_STRIDE} je Marke. */
+    private int[] links;
+    /** Die long-Felder aller Marken, {@value #DATA_STRIDE} je Marke. */
+    private long[] data;
+    /** Der Wurzelknoten des Treaps. */
+    private int treap;
+    /** Die Anzahl der Marken. */
+    private int size;
+    /** Linker Teil der letzten Teilung. */
+    private int splitLeft;
+    /** Rechter Teil der letzten Teilung. */
+    private int splitRight;
+    /** Die Analyse für die Gesamtbreite, bis zur nächsten Änderung, sonst null. */
+    private TreeAnalysis analysis;
+
+    /**
+     * Erstellt einen Prüfer für einen Baum. Bereits vorhandene Kinder werden wie mit
+     * {@link #addChild(Node, Node)} eingefügt.
+     *
+     * @param root der Wurzelknoten des Baumes
+     */
+    public IncrementalChecker(Node root) {
+        this.root = root;
+        this.numbers = new IdentityHashMap<>();
+        this.hash = new PolynomialHash();
+        this.links = new int[INITIAL_CAPACITY * LINK_STRIDE];
+        this.data = new long[INITIAL_CAPACITY * DATA_STRIDE];
+
+        // Der Wurzelknoten ist ein Blatt mit Nenner 1 und Tiefe 1
+        numbers.put(root, 0);
+        treap = newMark(0, 1, true);
+        treap = insertAt(treap, 1, newMark(0, 1, false));
+        insertChildren(root);
+    }
+
+    /**
+     * Hängt einen Knoten als letztes Kind an und aktualisiert die Prüfung. Hat der neue Knoten bereits Kinder,
+     * werden sie mit eingefügt.
+     *
+     * @param parentNode der Elternknoten, ein Knoten des geprüften Baumes
+     * @param child      der neue Kindknoten
+     * @throws IllegalArgumentException wenn der Elternknoten nicht zum Baum gehört oder der Kindknoten schon.
+     */
+    public void addChild(Node parentNode, Node child) {
+        Integer number = numbers.get(parentNode);
+        if (number == null) {
+            throw new IllegalArgumentException("Der Elternknoten gehört nicht zum geprüften Baum.");
+        }
+        if (numbers.containsKey(child)) {
+            throw new IllegalArgumentException("Der Knoten gehört bereits zum geprüften Baum.");
+        }
+        int childCount = parentNode.getChildren().size();
+        parentNode.addChild(child);
+        insert(number, childCount, child);
+        insertChildren(child);
+    }
+
+    /**
+     * Gibt zurück, ob der Baum drehfreudig ist.
+     * @return true, wenn Breiten- und Tiefenprüfung bestanden sind
+     */
+    public boolean isDrehfreudig() {
+        return isWidthPalindrome() && isConstantDepthSum();
+    }
+
+    /**
+     * Gibt zurück, ob die Pfadnenner der Blätter, und damit ihre Breiten, ein Palindrom bilden.
+     * @return true, wenn die Breitenprüfung bestanden ist
+     */
+    public boolean isWidthPalindrome() {
+        return data[treap * DATA_STRIDE + DENOMINATOR_FORWARD] == data[treap * DATA_STRIDE + DENOMINATOR_REVERSE];
+    }
+
+    /**
+     * Gibt zurück, ob die Tiefensumme gegenüberliegender Blätter konstant ist.
+     * @return true, wenn die Tiefenprüfung bestanden ist
+     */
+    public boolean isConstantDepthSum() {
+        long n = getLeafCount();
+        if (n <= 1) {
+            return true;
+        }
+        int pairSum = leafDepth(0) + leafDepth(n - 1);
+        return hash.isConstantPairSum(data[treap * DATA_STRIDE + DEPTH_FORWARD],
+                data[treap * DATA_STRIDE + DEPTH_REVERSE], n, pairSum, n % 2 == 1 ? leafDepth(n / 2) : 0);
+    }
+
+    /**
+     * Gibt die Anzahl aller Knoten zurück.
+     * @return die Knotenzahl
+     */
+    public int getNodeCount() {
+        return size / 2;
+    }
+
+    /**
+     * Gibt die Anzahl der Blätter zurück.
+     * @return die Blattzahl
+     */
+    public long getLeafCount() {
+        return data[treap * DATA_STRIDE + LEAVES];
+    }
+
+    /**
+     * Gibt die Gesamtbreite zurück, das kgV aller Pfadnenner. Sie wird mit einem vollständigen Durchlauf
+     * berechnet und bis zur nächsten Änderung des Baumes zwischengespeichert.
+     * @return die Gesamtbreite
+     */
+    public BigInteger getTotalWidth() {
+        if (analysis == null) {
+            analysis = new WidthAndDepthCalculator().analyze(root);
+        }
+        return analysis.getTotalWidth();
+    }
+
+    /**
+     * Fügt die schon vorhandenen Nachkommen eines Knotens in Präordnung ein.
+     * @param node der bereits eingefügte Knoten
+     * @throws IllegalArgumentException wenn ein Nachkomme schon zum Baum gehört.
+     */
+    private void insertChildren(Node node) {
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            Node current = stack.pop();
+            int number = numbers.get(current);
+            for (int i = 0; i < current.getChildren().size(); i++) {
+                Node child = current.getChildren().get(i);
+                if (numbers.containsKey(child)) {
+                    throw new IllegalArgumentException("Der Knoten gehört bereits zum geprüften Baum.");
+                }
+                insert(number, i, child);
+            }
+            for (int i = current.getChildren().size() - 1; i >= 0; i--) {
+                stack.push(current.getChildren().get(i));
+            }
+        }
+    }
+
+    /**
+     * Fügt einen Knoten als Blatt hinter den bisherigen Kindern seines Elternknotens ein.
+     * @param number     die Nummer des Elternknotens
+     * @param childCount die bisherige Kinderzahl des Elternknotens
+     * @param child      der neue Knoten
+     */
+    private void insert(int number, int childCount, Node child) {
+        int open = 2 * number;
+        int close = open + 1;
+
+        // Position und Nennerwert der öffnenden Marke in einem Weg zur Wurzel
+        long parentValue = data[open * DATA_STRIDE + VALUE];
+        int start = countOf(links[open * LINK_STRIDE + LEFT]);
+        for (int node = open; links[node * LINK_STRIDE + PARENT] != NONE; ) {
+            int up = links[node * LINK_STRIDE + PARENT];
+            parentValue = PolynomialHash.add(parentValue, data[up * DATA_STRIDE + PENDING]);
+            if (links[up * LINK_STRIDE + RIGHT] == node) {
+                start += countOf(links[up * LINK_STRIDE + LEFT]) + 1;
+            }
+            node = up;
+        }
+        int end = rank(close);
+
+        long childValue;
+        if (childCount == 0) {
+            // Der Elternknoten war ein Blatt, das neue Kind nimmt seinen Platz mit gleichem Nenner ein
+            pushPath(open);
+            links[open * LINK_STRIDE + LEAF] = 0;
+            for (int node = open; node != NONE; node = links[node * LINK_STRIDE + PARENT]) {
+                update(node);
+            }
+            childValue = parentValue;
+        } else {
+            long shift = PolynomialHash.subtract(hash.valueOf(childCount + 1), hash.valueOf(childCount));
+            addRange(treap, start + 1, end, shift);
+            childValue = PolynomialHash.add(parentValue, hash.valueOf(childCount + 1));
+        }
+
+        numbers.put(child, size / 2);
+        int childDepth = links[open * LINK_STRIDE + DEPTH] + 1;
+        treap = insertAt(treap, end, newMark(childValue, childDepth, true));
+        treap = insertAt(treap, end + 1, newMark(childValue, childDepth, false));
+        links[treap * LINK_STRIDE + PARENT] = NONE;
+        analysis = null;
+    }
+
+    /**
+     * Legt eine neue Marke als einzelnen Treap-Knoten an.
+     * @param denominatorValue der Wert des Pfadnenners
+     * @param depth            die Tiefe des Knotens
+     * @param leaf             ob die Marke ein Blatt darstellt
+     * @return die Nummer der Marke
+     */
+    private int newMark(long denominatorValue, int depth, boolean leaf) {
+        if ((size + 1) * LINK_STRIDE > links.length) {
+            int capacity = size + size / 2;
+            links = Arrays.copyOf(links, capacity * LINK_STRIDE);
+            data = Arrays.copyOf(data, capacity * DATA_STRIDE);
+        }
+        int mark = size++;
+        int l = mark * LINK_STRIDE;
+        links[l + LEFT] = NONE;
+        links[l + RIGHT] = NONE;
+        links[l + PARENT] = NONE;
+        links[l + PRIORITY] = ThreadLocalRandom.current().nextInt();
+        links[l + DEPTH] = depth;
+        links[l + LEAF] = leaf ? 1 : 0;
+        data[mark * DATA_STRIDE + VALUE] = denominatorValue;
+        update(mark);
+        return mark;
+    }
+
+    /**
+     * Gibt die Position einer Marke in der Folge zurück.
+     * @param mark die Marke
+     * @return die Position, von 0 an gezählt
+     */
+    private int rank(int mark) {
+        int result = countOf(links[mark * LINK_STRIDE + LEFT]);
+        for (int node = mark; links[node * LINK_STRIDE + PARENT] != NONE; ) {
+            int up = links[node * LINK_STRIDE + PARENT];
+            if (links[up * LINK_STRIDE + RIGHT] == node) {
+                result += countOf(links[up * LINK_STRIDE + LEFT]) + 1;
+            }
+            node = up;
+        }
+        return result;
+    }
+
+    /**
+     * Gibt die Tiefe eines Blattes zurück.
+     * @param index die Position des Blattes von links
+     * @return die Tiefe des Blattes
+     */
+    private int leafDepth(long index) {
+        int node = treap;
+        while (true) {
+            int l = node * LINK_STRIDE;
+            long before = leavesOf(links[l + LEFT]);
+            if (index < before) {
+                node = links[l + LEFT];
+            } else if (index == before && links[l + LEAF] != 0) {
+                return links[l + DEPTH];
+            } else {
+                index -= before + links[l + LEAF];
+                node = links[l + RIGHT];
+            }
+        }
+    }
+
+    /**
+     * Teilt einen Treap nach den ersten k Marken. Das Ergebnis steht in splitLeft und splitRight.
+     * @param node die Wurzel des Treaps oder NONE
+     * @param k    die Anzahl der Marken im linken Teil
+     */
+    private void split(int node, int k) {
+        if (node == NONE) {
+            splitLeft = NONE;
+            splitRight = NONE;
+            return;
+        }
+        push(node);
+        int l = node * LINK_STRIDE;
+        if (countOf(links[l + LEFT]) >= k) {
+            split(links[l + LEFT], k);
+            links[l + LEFT] = splitRight;
+            attach(splitRight, node);
+            splitRight = node;
+        } else {
+            split(links[l + RIGHT], k - countOf(links[l + LEFT]) - 1);
+            links[l + RIGHT] = splitLeft;
+            attach(splitLeft, node);
+            splitLeft = node;
+        }
+        update(node);
+        links[l + PARENT] = NONE;
+    }
+
+    /**
+     * Fügt eine einzelne Marke an einer Position in einen Treap ein.
+     * @param node     die Wurzel des Treaps oder NONE
+     * @param position die Position der neuen Marke
+     * @param mark     die neue Marke
+     * @return die Wurzel des Treaps mit der Marke
+     */
+    private int insertAt(int node, int position, int mark) {
+        if (node == NONE) {
+            return mark;
+        }
+        int l = node * LINK_STRIDE;
+        if (links[mark * LINK_STRIDE + PRIORITY] > links[l + PRIORITY]) {
+            split(node, position);
+            links[mark * LINK_STRIDE + LEFT] = splitLeft;
+            links[mark * LINK_STRIDE + RIGHT] = splitRight;
+            attach(splitLeft, mark);
+            attach(splitRight, mark);
+            update(mark);
+            return mark;
+        }
+        push(node);
+        int before = countOf(links[l + LEFT]);
+        if (position <= before) {
+            links[l + LEFT] = insertAt(links[l + LEFT], position, mark);
+            attach(links[l + LEFT], node);
+        } else {
+            links[l + RIGHT] = insertAt(links[l + RIGHT], position - before - 1, mark);
+            attach(links[l + RIGHT], node);
+        }
+        update(node);
+        return node;
+    }
+
+    /**
+     * Addiert einen Wert auf die Nenner der Marken in einem Positionsbereich, ohne den Treap zu teilen.
+     * Vollständig enthaltene Teilbäume erhalten die Addition verzögert.
+     * @param node  die Wurzel des Treaps oder NONE
+     * @param from  die erste Position im Treap
+     * @param to    die Position nach dem Bereich
+     * @param shift der zu addierende Wert
+     */
+    private void addRange(int node, int from, int to, long shift) {
+        if (node == NONE || from >= to) {
+            return;
+        }
+        int l = node * LINK_STRIDE;
+        if (from == 0 && to == links[l + COUNT]) {
+            add(node, shift);
+            return;
+        }
+        push(node);
+        int before = countOf(links[l + LEFT]);
+        addRange(links[l + LEFT], from, Math.min(to, before), shift);
+        if (from <= before && before < to) {
+            data[node * DATA_STRIDE + VALUE] = PolynomialHash.add(data[node * DATA_STRIDE + VALUE], shift);
+        }
+        addRange(links[l + RIGHT], Math.max(from - before - 1, 0), to - before - 1, shift);
+        update(node);
+    }
+
+    /**
+     * Gibt alle ausstehenden Additionen auf dem Weg von der Wurzel zu einer Marke weiter, damit die Marke und
+     * ihre Vorfahren danach von unten nach oben neu berechnet werden können.
+     * @param mark die Marke
+     */
+    private void pushPath(int mark) {
+        Deque<Integer> path = new ArrayDeque<>();
+        for (int node = mark; node != NONE; node = links[node * LINK_STRIDE + PARENT]) {
+            path.push(node);
+        }
+        while (!path.isEmpty()) {
+            push(path.pop());
+        }
+    }
+
+    /**
+     * Setzt den Elternknoten eines Treap-Knotens.
+     * @param child     der Kindknoten oder NONE
+     * @param newParent der Elternknoten
+     */
+    private void attach(int child, int newParent) {
+        if (child != NONE) {
+            links[child * LINK_STRIDE + PARENT] = newParent;
+        }
+    }
+
+    /**
+     * Addiert einen Wert auf alle Nenner eines Treaps und passt die Hashes an.
+     * @param node  die Wurzel des Treaps oder NONE
+     * @param shift der zu addierende Wert
+     */
+    private void add(int node, long shift) {
+        if (node == NONE) {
+            return;
+        }
+        int d = node * DATA_STRIDE;
+        data[d + VALUE] = PolynomialHash.add(data[d + VALUE], shift);
+        data[d + PENDING] = PolynomialHash.add(data[d + PENDING], shift);
+        long sum = PolynomialHash.multiply(shift, hash.geometric(data[d + POWER]));
+        data[d + DENOMINATOR_FORWARD] = PolynomialHash.add(data[d + DENOMINATOR_FORWARD], sum);
+        data[d + DENOMINATOR_REVERSE] = PolynomialHash.add(data[d + DENOMINATOR_REVERSE], sum);
+    }
+
+    /**
+     * Gibt eine ausstehende Addition an die Kinder weiter.
+     * @param node der Treap-Knoten
+     */
+    private void push(int node) {
+        int d = node * DATA_STRIDE;
+        if (data[d + PENDING] != 0) {
+            add(links[node * LINK_STRIDE + LEFT], data[d + PENDING]);
+            add(links[node * LINK_STRIDE + RIGHT], data[d + PENDING]);
+            data[d + PENDING] = 0;
+        }
+    }
+
+    /**
+     * Berechnet die Zusammenfassung eines Treap-Knotens aus seinen Kindern und seiner Marke neu.
+     * @param node der Treap-Knoten
+     */
+    private void update(int node) {
+        int l = node * LINK_STRIDE;
+        int d = node * DATA_STRIDE;
+        int leftNode = links[l + LEFT];
+        int rightNode = links[l + RIGHT];
+        boolean leaf = links[l + LEAF] != 0;
+        long ownPower = leaf ? hash.getBase() : 1;
+        long ownValue = leaf ? data[d + VALUE] : 0;
+        long ownDepth = leaf ? links[l + DEPTH] : 0;
+
+        int count = 1;
+        long leaves = leaf ? 1 : 0;
+        long leftPower = 1;
+        long rightPower = 1;
+        long leftDenominator = 0;
+        long leftReverse = 0;
+        long leftDepth = 0;
+        long leftDepthReverse = 0;
+        long rightDenominator = 0;
+        long rightReverse = 0;
+        long rightDepth = 0;
+        long rightDepthReverse = 0;
+        if (leftNode != NONE) {
+            int c = leftNode * DATA_STRIDE;
+            count += links[leftNode * LINK_STRIDE + COUNT];
+            leaves += data[c + LEAVES];
+            leftPower = data[c + POWER];
+            leftDenominator = data[c + DENOMINATOR_FORWARD];
+            leftReverse = data[c + DENOMINATOR_REVERSE];
+            leftDepth = data[c + DEPTH_FORWARD];
+            leftDepthReverse = data[c + DEPTH_REVERSE];
+        }
+        if (rightNode != NONE) {
+            int c = rightNode * DATA_STRIDE;
+            count += links[rightNode * LINK_STRIDE + COUNT];
+            leaves += data[c + LEAVES];
+            rightPower = data[c + POWER];
+            rightDenominator = data[c + DENOMINATOR_FORWARD];
+            rightReverse = data[c + DENOMINATOR_REVERSE];
+            rightDepth = data[c + DEPTH_FORWARD];
+            rightDepthReverse = data[c + DEPTH_REVERSE];
+        }
+
+        links[l + COUNT] = count;
+        data[d + LEAVES] = leaves;
+        data[d + POWER] = PolynomialHash.multiply(leftPower, leaf ? PolynomialHash.multiply(ownPower, rightPower)
+                : rightPower);
+        data[d + DENOMINATOR_FORWARD] = concat(leftDenominator, leftPower, ownValue, ownPower, rightDenominator);
+        data[d + DENOMINATOR_REVERSE] = concat(rightReverse, rightPower, ownValue, ownPower, leftReverse);
+        data[d + DEPTH_FORWARD] = concat(leftDepth, leftPower, ownDepth, ownPower, rightDepth);
+        data[d + DEPTH_REVERSE] = concat(rightDepthReverse, rightPower, ownDepth, ownPower, leftDepthReverse);
+    }
+
+    /**
+     * Verbindet die Hashes dreier aufeinanderfolgender Teilfolgen.
+     * @param first       der Hash der ersten Teilfolge
+     * @param firstPower  r hoch Länge der ersten Teilfolge
+     * @param middle      der Hash der mittleren Teilfolge, höchstens ein Glied
+     * @param middlePower r hoch Länge der mittleren Teilfolge
+     * @param last        der Hash der letzten Teilfolge
+     * @return der Hash der ganzen Folge
+     */
+    private static long concat(long first, long firstPower, long middle, long middlePower, long last) {
+        long rest = PolynomialHash.add(middle, PolynomialHash.multiply(middlePower, last));
+        return PolynomialHash.add(first, PolynomialHash.multiply(firstPower, rest));
+    }
+
+    /**
+     * Gibt die Anzahl der Marken eines Treaps zurück.
+     * @param node die Wurzel oder NONE
+     * @return die Anzahl der Marken
+     */
+    private int countOf(int node) {
+        return node == NONE ? 0 : links[node * LINK_STRIDE + COUNT];
+    }
+
+    /**
+     * Gibt die Anzahl der Blätter eines Treaps zurück.
+     * @param node die Wurzel oder NONE
+     * @return die Anzahl der Blätter
+     */
+    private long leavesOf(int node) {
+        return node == NONE ? 0 : data[node * DATA_STRIDE + LEAVES];
+    }
+}
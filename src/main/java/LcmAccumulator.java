@@ -0,0 +1,286 @@
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sammelt das kleinste gemeinsame Vielfache (kgV) der Pfadnenner aller Blätter während eines Durchlaufs.
+ * <p>
+ * Der Pfadnenner eines Blattes ist das Produkt der Kinderzahlen seiner Vorfahren; sein Exponent zu einer Primzahl
+ * ist also die Summe ihrer Exponenten in diesen Kinderzahlen. Der Durchlauf meldet jeden inneren Knoten mit
+ * {@link #enter(int)} und {@link #leave(int)}; der Akkumulator führt dazu die Exponenten des aktuellen Pfades und
+ * je Primzahl den größten bisher erreichten. Weil die Exponenten entlang eines Pfades nur wachsen und unter jedem
+ * inneren Knoten ein Blatt liegt, ist das Maximum schon beim Betreten eines Knotens bekannt. Das kgV ist das
+ * Produkt der Primzahlpotenzen und wird erst bei Bedarf gebildet, solange es passt als long, sonst einmal als
+ * {@link BigInteger}. Je Blatt wird so nie mit großen Zahlen gerechnet, auch bei sehr tiefen oder breiten Bäumen.
+ * <p>
+ * Jede verschiedene Kinderzahl wird nur einmal in Primfaktoren zerlegt. Ein Akkumulator ist nicht threadsicher;
+ * parallele Durchläufe arbeiten mit {@link #copyPath() Kopien} und führen sie mit {@link #merge} zusammen.
+ */
+public class LcmAccumulator {
+    /** Kinderzahlen unterhalb dieser Grenze werden in einem Array nachgeschlagen, größere in einer Map. */
+    private static final int SMALL_COUNTS = 256;
+    /** Höchstzahl verschiedener Primfaktoren eines int. */
+    private static final int MAX_PRIME_FACTORS = 9;
+    /** Anfangskapazität der Primzahl-Arrays. */
+    private static final int INITIAL_CAPACITY = 8;
+
+    /** Die Zerlegungen kleiner Kinderzahlen, abwechselnd Primzahlindex und Exponent; erst bei Bedarf angelegt. */
+    private int[][] smallFactors;
+    /** Die Zerlegungen großer Kinderzahlen, abwechselnd Primzahlindex und Exponent. */
+    private final Map<Integer, int[]> largeFactors;
+    /** Der Index jeder bisher gefundenen Primzahl in den Arrays. */
+    private final Map<Integer, Integer> primeIndexes;
+    /** Die bisher gefundenen Primzahlen. */
+    private int[] primes;
+    /** Der Exponent je Primzahl im Pfadnenner der Kinder des aktuellen Knotens. */
+    private int[] pathExponents;
+    /** Der größte Exponent je Primzahl über alle bisherigen Pfade. */
+    private int[] maxExponents;
+    /** Die Anzahl der bisher gefundenen Primzahlen. */
+    private int primeCount;
+    /** Das zuletzt gebildete kgV, falls es nicht in einen long passt; null, wenn es neu zu bilden ist. */
+    private BigInteger bigValue;
+
+    /**
+     * Erstellt einen neuen Akkumulator mit leerem Pfad und dem neutralen kgV 1.
+     */
+    public LcmAccumulator() {
+        this.largeFactors = new HashMap<>();
+        this.primeIndexes = new HashMap<>();
+        this.primes = new int[INITIAL_CAPACITY];
+        this.pathExponents = new int[INITIAL_CAPACITY];
+        this.maxExponents = new int[INITIAL_CAPACITY];
+        this.primeCount = 0;
+    }
+
+    /**
+     * Erstellt eine Kopie eines Akkumulators für einen Durchlauf unterhalb seines aktuellen Pfades.
+     * @param path der zu kopierende Akkumulator
+     */
+    private LcmAccumulator(LcmAccumulator path) {
+        this.smallFactors = path.smallFactors != null ? path.smallFactors.clone() : null;
+        this.largeFactors = new HashMap<>(path.largeFactors);
+        this.primeIndexes = new HashMap<>(path.primeIndexes);
+        this.primes = path.primes.clone();
+        this.pathExponents = path.pathExponents.clone();
+        // Unter dem Pfad liegt mindestens ein Blatt, dessen Nenner ihn enthält
+        this.maxExponents = path.pathExponents.clone();
+        this.primeCount = path.primeCount;
+    }
+
+    /**
+     * Betritt einen inneren Knoten: Die Exponenten seiner Kinderzahl kommen zum Pfad hinzu.
+     * @param childCount die positive Kinderzahl des Knotens
+     */
+    public void enter(int childCount) {
+        int[] factors = factors(childCount);
+        for (int i = 0; i < factors.length; i += 2) {
+            int prime = factors[i];
+            int exponent = pathExponents[prime] + factors[i + 1];
+            pathExponents[prime] = exponent;
+            if (exponent > maxExponents[prime]) {
+                maxExponents[prime] = exponent;
+                bigValue = null;
+            }
+        }
+    }
+
+    /**
+     * Verlässt einen mit {@link #enter(int)} betretenen Knoten wieder.
+     * @param childCount die Kinderzahl des Knotens
+     */
+    public void leave(int childCount) {
+        int[] factors = factors(childCount);
+        for (int i = 0; i < factors.length; i += 2) {
+            pathExponents[factors[i]] -= factors[i + 1];
+        }
+    }
+
+    /**
+     * Erstellt einen Akkumulator mit demselben Pfad, etwa für einen parallel durchlaufenen Teilbaum. Seine
+     * Maxima beginnen beim Pfad selbst und lassen sich danach mit {@link #merge} übernehmen.
+     * @return die Kopie
+     */
+    LcmAccumulator copyPath() {
+        return new LcmAccumulator(this);
+    }
+
+    /**
+     * Übernimmt die Maxima eines anderen Akkumulators, etwa eines parallel durchlaufenen Teilbaums. Danach ist
+     * das kgV das der Blätter beider Akkumulatoren.
+     * @param other der andere Akkumulator
+     */
+    void merge(LcmAccumulator other) {
+        for (int i = 0; i < other.primeCount; i++) {
+            int exponent = other.maxExponents[i];
+            if (exponent > 0) {
+                int prime = index(other.primes[i]);
+                if (exponent > maxExponents[prime]) {
+                    maxExponents[prime] = exponent;
+                    bigValue = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Setzt Pfad und kgV auf den Startwert zurück, damit der Akkumulator für den nächsten Baum wiederverwendet
+     * werden kann. Die Zerlegungen der Kinderzahlen bleiben erhalten.
+     */
+    void reset() {
+        Arrays.fill(pathExponents, 0, primeCount, 0);
+        Arrays.fill(maxExponents, 0, primeCount, 0);
+        bigValue = null;
+    }
+
+    /**
+     * Prüft, ob das kgV in einen long passt.
+     * @return true, wenn das kgV als long dargestellt werden kann
+     */
+    public boolean fitsInLong() {
+        return longProduct() != 0;
+    }
+
+    /**
+     * Gibt das kgV als long zurück.
+     * @return das kgV
+     * @throws ArithmeticException wenn das kgV nicht in einen long passt
+     */
+    public long longValue() {
+        long value = longProduct();
+        if (value == 0) {
+            throw new ArithmeticException("Das kgV passt nicht in einen long: " + toBigInteger());
+        }
+        return value;
+    }
+
+    /**
+     * Gibt das exakte kgV zurück.
+     * @return das kgV als BigInteger
+     */
+    public BigInteger toBigInteger() {
+        long value = longProduct();
+        if (value != 0) {
+            return BigInteger.valueOf(value);
+        }
+        if (bigValue == null) {
+            BigInteger product = BigInteger.ONE;
+            for (int i = 0; i < primeCount; i++) {
+                if (maxExponents[i] > 0) {
+                    product = product.multiply(BigInteger.valueOf(primes[i]).pow(maxExponents[i]));
+                }
+            }
+            bigValue = product;
+        }
+        return bigValue;
+    }
+
+    /**
+     * Bildet das kgV als long, ohne Objekte zu erzeugen.
+     * @return das kgV, oder 0, wenn es nicht in einen long passt
+     */
+    private long longProduct() {
+        long product = 1;
+        for (int i = 0; i < primeCount; i++) {
+            long prime = primes[i];
+            for (int exponent = maxExponents[i]; exponent > 0; exponent--) {
+                long next = product * prime;
+                if (Math.multiplyHigh(product, prime) != 0 || next < 0) {
+                    return 0;
+                }
+                product = next;
+            }
+        }
+        return product;
+    }
+
+    /**
+     * Gibt die Zerlegung einer Kinderzahl zurück und zerlegt sie beim ersten Auftreten.
+     * @param count die Kinderzahl
+     * @return abwechselnd Primzahlindex und Exponent
+     */
+    private int[] factors(int count) {
+        if (count < SMALL_COUNTS) {
+            if (smallFactors == null) {
+                smallFactors = new int[SMALL_COUNTS][];
+            }
+            int[] factors = smallFactors[count];
+            if (factors == null) {
+                factors = factorize(count);
+                smallFactors[count] = factors;
+            }
+            return factors;
+        }
+        int[] factors = largeFactors.get(count);
+        if (factors == null) {
+            factors = factorize(count);
+            largeFactors.put(count, factors);
+        }
+        return factors;
+    }
+
+    /**
+     * Zerlegt eine Zahl durch Probedivision in Primfaktoren.
+     * @param count die positive Zahl
+     * @return abwechselnd Primzahlindex und Exponent
+     */
+    private int[] factorize(int count) {
+        int[] factors = new int[2 * MAX_PRIME_FACTORS];
+        int length = 0;
+        int rest = count;
+        for (int divisor = 2; divisor <= rest / divisor; divisor++) {
+            if (rest % divisor == 0) {
+                int exponent = 0;
+                do {
+                    rest /= divisor;
+                    exponent++;
+                } while (rest % divisor == 0);
+                factors[length++] = index(divisor);
+                factors[length++] = exponent;
+            }
+        }
+        if (rest > 1) {
+            factors[length++] = index(rest);
+            factors[length++] = 1;
+        }
+        return Arrays.copyOf(factors, length);
+    }
+
+    /**
+     * Gibt den Index einer Primzahl zurück und legt ihn beim ersten Auftreten an.
+     * @param prime die Primzahl
+     * @return ihr Index in den Arrays
+     */
+    private int index(int prime) {
+        Integer index = primeIndexes.get(prime);
+        if (index != null) {
+            return index;
+        }
+        if (primeCount == primes.length) {
+            int newCapacity = primes.length * 2;
+            primes = Arrays.copyOf(primes, newCapacity);
+            pathExponents = Arrays.copyOf(pathExponents, newCapacity);
+            maxExponents = Arrays.copyOf(maxExponents, newCapacity);
+        }
+        primes[primeCount] = prime;
+        primeIndexes.put(prime, primeCount);
+        return primeCount++;
+    }
+
+    /**
+     * Berechnet den größten gemeinsamen Teiler (ggT) mit dem Euklidischen Algorithmus.
+     *
+     * @param a erste Zahl
+     * @param b zweite Zahl
+     * @return ggT von a und b
+     */
+    static long gcd(long a, long b) {
+        while (b != 0) {
+            long temp = b;
+            b = a % b;
+            a = temp;
+        }
+        return a;
+    }
+}
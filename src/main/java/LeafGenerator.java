@@ -0,0 +1,124 @@
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Erzeugt die Blätter eines Baumes aus den Kinderzahlen seiner Knoten in Präordnung, wie sie der
+ * {@link TreeChecker} und der {@link LineChecker} beim Lesen sammeln. Der Pfadnenner eines Blattes ist das Produkt
+ * der Kinderzahlen seiner Vorfahren; er wird als long geführt, bis er überläuft, und danach als BigInteger.
+ * <p>
+ * Die Pfad-Arrays wachsen nur, bis sie für den tiefsten bisher erzeugten Baum reichen, und werden danach
+ * wiederverwendet. Ein Generator ist nicht threadsicher.
+ */
+class LeafGenerator {
+    /** Anfangskapazität der Pfad-Arrays. */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** Die Pfadnenner der Kinder je offenem Knoten. */
+    private long[] pathDenominators;
+    /** Die übergelaufenen Pfadnenner der Kinder je offenem Knoten, oder null, solange es keine gibt. */
+    private BigInteger[] bigPathDenominators;
+    /** Die Zahl der noch nicht besuchten Kinder je offenem Knoten. */
+    private int[] pathRemaining;
+    /** Die Kinderzahl je offenem Knoten, für den Sammler des kgV. */
+    private int[] pathChildCounts;
+
+    /**
+     * Erstellt einen Generator mit kleinen Arrays, die mit den Bäumen wachsen.
+     */
+    LeafGenerator() {
+        this.pathDenominators = new long[INITIAL_CAPACITY];
+        this.bigPathDenominators = null;
+        this.pathRemaining = new int[INITIAL_CAPACITY];
+        this.pathChildCounts = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Berechnet den Pfadnenner der Kinder eines Knotens, wenn er nicht in einen long passt.
+     *
+     * @param denominator    der Pfadnenner des Knotens, solange er in einen long passt
+     * @param bigDenominator der Pfadnenner des Knotens nach einem Überlauf, sonst null
+     * @param childCount     die Kinderzahl des Knotens
+     * @return der Pfadnenner der Kinder, oder null, wenn er als {@code denominator * childCount} in einen long passt
+     */
+    static BigInteger bigChildDenominator(long denominator, BigInteger bigDenominator, int childCount) {
+        if (bigDenominator != null) {
+            return bigDenominator.multiply(BigInteger.valueOf(childCount));
+        }
+        long childDenominator = denominator * childCount;
+        if (Math.multiplyHigh(denominator, childCount) != 0 || childDenominator < 0) {
+            return BigInteger.valueOf(denominator).multiply(BigInteger.valueOf(childCount));
+        }
+        return null;
+    }
+
+    /**
+     * Ersetzt den Inhalt der Blattfolge durch die Blätter eines Baumes und sammelt gegebenenfalls das kgV ihrer
+     * Pfadnenner.
+     *
+     * @param childCounts die Kinderzahl je Knoten in Präordnung
+     * @param nodes       die Knotenzahl des Baumes
+     * @param leaves      die zu füllende Blattfolge
+     * @param lcm         der zurückzusetzende und zu füllende Sammler für das kgV, oder null ohne kgV
+     */
+    void generate(int[] childCounts, int nodes, LeafSequence leaves, LcmAccumulator lcm) {
+        leaves.clear();
+        if (lcm != null) {
+            lcm.reset();
+        }
+        bigPathDenominators = null;
+        long[] denominators = pathDenominators;
+        int[] remaining = pathRemaining;
+        int[] counts = pathChildCounts;
+        int top = 0;
+        for (int node = 0; node < nodes; node++) {
+            long denominator = top == 0 ? 1 : denominators[top - 1];
+            BigInteger bigDenominator = top == 0 || bigPathDenominators == null ? null : bigPathDenominators[top - 1];
+            int depth = top + 1;
+            if (top > 0) {
+                remaining[top - 1]--;
+            }
+
+            int childCount = childCounts[node];
+            if (childCount == 0) {
+                if (bigDenominator == null) {
+                    leaves.add(denominator, depth);
+                } else {
+                    leaves.add(bigDenominator, depth);
+                }
+                while (top > 0 && remaining[top - 1] == 0) {
+                    top--;
+                    if (lcm != null) {
+                        lcm.leave(counts[top]);
+                    }
+                }
+                continue;
+            }
+
+            if (top == denominators.length) {
+                denominators = Arrays.copyOf(denominators, top * 2);
+                remaining = Arrays.copyOf(remaining, top * 2);
+                counts = Arrays.copyOf(counts, top * 2);
+                pathDenominators = denominators;
+                pathRemaining = remaining;
+                pathChildCounts = counts;
+                if (bigPathDenominators != null) {
+                    bigPathDenominators = Arrays.copyOf(bigPathDenominators, top * 2);
+                }
+            }
+            BigInteger bigChildDenominator = bigChildDenominator(denominator, bigDenominator, childCount);
+            if (bigChildDenominator != null && bigPathDenominators == null) {
+                bigPathDenominators = new BigInteger[denominators.length];
+            }
+            denominators[top] = bigChildDenominator == null ? denominator * childCount : 0;
+            if (bigPathDenominators != null) {
+                bigPathDenominators[top] = bigChildDenominator;
+            }
+            remaining[top] = childCount;
+            counts[top] = childCount;
+            if (lcm != null) {
+                lcm.enter(childCount);
+            }
+            top++;
+        }
+    }
+}
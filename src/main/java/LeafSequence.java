@@ -0,0 +1,183 @@
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Speichert die Pfadnenner und Tiefen aller Blätter in Links-nach-Rechts-Reihenfolge.
+ * Der Pfadnenner eines Blattes ist das Produkt der Kinderzahlen seiner Vorfahren; die Blattbreite ergibt sich
+ * daraus als Gesamtbreite geteilt durch den Nenner. Die Werte liegen in primitiven Arrays; nur Nenner, die
+ * nicht in einen long passen, werden zusätzlich als BigInteger abgelegt.
+ */
+public class LeafSequence {
+    /** Anfangskapazität der Arrays. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Die Pfadnenner der Blätter; 0 markiert einen Nenner, der nur in bigDenominators steht. */
+    private long[] denominators;
+    /** Die übergelaufenen Pfadnenner, oder null, solange es keine gibt. */
+    private BigInteger[] bigDenominators;
+    /** Die Tiefen der Blätter, wobei der Wurzelknoten die Tiefe 1 hat. */
+    private int[] depths;
+    /** Die Anzahl der gespeicherten Blätter. */
+    private int size;
+
+    /**
+     * Erstellt eine leere Blattfolge.
+     */
+    public LeafSequence() {
+        this.denominators = new long[INITIAL_CAPACITY];
+        this.bigDenominators = null;
+        this.depths = new int[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Hängt ein Blatt an die Folge an.
+     * @param denominator der positive Pfadnenner des Blattes
+     * @param depth       die Tiefe des Blattes
+     */
+    public void add(long denominator, int depth) {
+        ensureCapacity();
+        denominators[size] = denominator;
+        depths[size] = depth;
+        size++;
+    }
+
+    /**
+     * Hängt ein Blatt mit einem möglicherweise sehr großen Pfadnenner an die Folge an.
+     * @param denominator der positive Pfadnenner des Blattes
+     * @param depth       die Tiefe des Blattes
+     */
+    public void add(BigInteger denominator, int depth) {
+        if (denominator.bitLength() < Long.SIZE) {
+            add(denominator.longValue(), depth);
+            return;
+        }
+        ensureCapacity();
+        if (bigDenominators == null) {
+            bigDenominators = new BigInteger[denominators.length];
+        }
+        denominators[size] = 0;
+        bigDenominators[size] = denominator;
+        depths[size] = depth;
+        size++;
+    }
+
+    /**
+     * Hängt alle Blätter einer anderen Folge an diese Folge an.
+     * @param other die anzuhängende Folge
+     */
+    void append(LeafSequence other) {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.denominators, 0, denominators, size, other.size);
+        System.arraycopy(other.depths, 0, depths, size, other.size);
+        if (other.bigDenominators != null) {
+            if (bigDenominators == null) {
+                bigDenominators = new BigInteger[denominators.length];
+            }
+            System.arraycopy(other.bigDenominators, 0, bigDenominators, size, other.size);
+        }
+        size += other.size;
+    }
+
+    /**
+     * Entfernt alle Blätter, damit die Folge für den nächsten Baum wiederverwendet werden kann.
+     * Die Arrays behalten ihre Kapazität.
+     */
+    void clear() {
+        size = 0;
+        bigDenominators = null;
+    }
+
+    /**
+     * Kehrt die Reihenfolge der Blätter um.
+     */
+    void reverse() {
+        for (int i = 0, j = size - 1; i < j; i++, j--) {
+            long denominator = denominators[i];
+            denominators[i] = denominators[j];
+            denominators[j] = denominator;
+            int depth = depths[i];
+            depths[i] = depths[j];
+            depths[j] = depth;
+            if (bigDenominators != null) {
+                BigInteger big = bigDenominators[i];
+                bigDenominators[i] = bigDenominators[j];
+                bigDenominators[j] = big;
+            }
+        }
+    }
+
+    /**
+     * Vergrößert die Arrays, wenn kein Platz für ein weiteres Blatt ist.
+     */
+    private void ensureCapacity() {
+        ensureCapacity(size + 1);
+    }
+
+    /**
+     * Vergrößert die Arrays auf mindestens die angegebene Kapazität.
+     * @param capacity die benötigte Anzahl an Blättern
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= denominators.length) {
+            return;
+        }
+        int newCapacity = Math.max(denominators.length * 2, capacity);
+        denominators = Arrays.copyOf(denominators, newCapacity);
+        depths = Arrays.copyOf(depths, newCapacity);
+        if (bigDenominators != null) {
+            bigDenominators = Arrays.copyOf(bigDenominators, newCapacity);
+        }
+    }
+
+    /**
+     * Gibt die Anzahl der Blätter zurück.
+     * @return die Anzahl der Blätter
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gibt die Tiefe eines Blattes zurück.
+     * @param index die Position des Blattes
+     * @return die Tiefe des Blattes
+     */
+    public int getDepth(int index) {
+        return depths[index];
+    }
+
+    /**
+     * Gibt den exakten Pfadnenner eines Blattes zurück.
+     * @param index die Position des Blattes
+     * @return der Pfadnenner des Blattes
+     */
+    public BigInteger getDenominator(int index) {
+        long denominator = denominators[index];
+        return denominator != 0 ? BigInteger.valueOf(denominator) : bigDenominators[index];
+    }
+
+    /**
+     * Gibt den Pfadnenner eines Blattes als long zurück.
+     * @param index die Position des Blattes
+     * @return der Pfadnenner, oder 0, wenn er nicht in einen long passt
+     */
+    public long getLongDenominator(int index) {
+        return denominators[index];
+    }
+
+    /**
+     * Prüft, ob zwei Blätter denselben Pfadnenner haben.
+     * @param i die Position des ersten Blattes
+     * @param j die Position des zweiten Blattes
+     * @return true, wenn die Nenner gleich sind, sonst false
+     */
+    public boolean denominatorEquals(int i, int j) {
+        long a = denominators[i];
+        long b = denominators[j];
+        if (a != 0 || b != 0) {
+            return a == b;
+        }
+        return bigDenominators[i].equals(bigDenominators[j]);
+    }
+}
@@ -0,0 +1,523 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Prüft Dateien mit vielen Bäumen, einem oder mehreren je Zeile, und gibt je Baum einen kompakten Datensatz als
+ * TSV oder JSON-Zeile aus. Mit gzip oder zstd komprimierte Dateien werden beim Lesen entpackt, siehe
+ * {@link CompressedInput}.
+ * <p>
+ * Jede ausgeglichene Klammergruppe auf oberster Ebene ist ein eigener Baum; ein Baum endet spätestens am
+ * Zeilenende. Gelesen wird über einen wiederverwendbaren Bytepuffer. Die Kinderzahlen eines Baumes werden in
+ * Präordnung in wiederverwendbare Arrays geschrieben; an seiner letzten schließenden Klammer werden daraus die
+ * Blätter erzeugt und wie im schnellen Modus anhand der Pfadnenner geprüft. Puffer, Rechner und Blattfolge werden
+ * für alle Bäume wiederverwendet, sodass je Baum nichts allokiert wird, solange die Pfadnenner in einen long
+ * passen. Eine Visualisierung gibt es in diesem Modus nicht.
+ * <p>
+ * Mit einer {@link HashPrecheck} werden beim Lesen Hashes der Blattfolgen gebildet; Bäume mit ungleichen Hashes
+ * werden ohne Erzeugen der Blätter verworfen. Zählt allein das Ergebnis der Hashes, werden auch die Kinderzahlen
+ * nicht mehr gespeichert, sodass je Baum nur Speicher für seine Tiefe gebraucht wird.
+ */
+public class LineChecker {
+    /** Größe des Lesepuffers in Bytes. */
+    private static final int BUFFER_SIZE = 1 << 20;
+    /** Anfangskapazität der Knoten-Arrays. */
+    private static final int INITIAL_CAPACITY = 64;
+    /** Länge der gepufferten Datensätze in Bytes, ab der sie ausgegeben werden. */
+    private static final int FLUSH_BYTES = 1 << 16;
+    /** Die Kopfzeile im TSV-Format. */
+    private static final String TSV_HEADER = "datei\tzeile\tbaum\tknoten\tblaetter\tergebnis\tgrund\n";
+    /** Die Ergebnisse als Text je {@link BatchProcessor.Outcome#ordinal()}. */
+    private static final byte[][] OUTCOMES = new byte[BatchProcessor.Outcome.values().length][];
+    /** Das Feld für die Nummer des Baumes im JSON-Format, wie die folgenden mit dem Trenner davor. */
+    private static final byte[] JSON_TREE = ascii(",\"baum\":");
+    /** Das Feld für die Knotenzahl im JSON-Format. */
+    private static final byte[] JSON_NODES = ascii(",\"knoten\":");
+    /** Das Feld für die Blattzahl im JSON-Format. */
+    private static final byte[] JSON_LEAVES = ascii(",\"blaetter\":");
+    /** Das Feld für das Ergebnis im JSON-Format. */
+    private static final byte[] JSON_OUTCOME = ascii(",\"ergebnis\":\"");
+    /** Das Feld für den Grund im JSON-Format. */
+    private static final byte[] JSON_REASON = ascii("\",\"grund\":\"");
+
+    static {
+        for (BatchProcessor.Outcome outcome : BatchProcessor.Outcome.values()) {
+            OUTCOMES[outcome.ordinal()] = ascii(outcome.name());
+        }
+    }
+
+    /** Das Ausgabeformat der Datensätze. */
+    public enum Format {
+        /** Tabulatorgetrennte Werte mit einer Kopfzeile. */
+        TSV,
+        /** Ein JSON-Objekt je Zeile. */
+        JSON
+    }
+
+    /** Das Ausgabeformat. */
+    private final Format format;
+    /** Wie die Hash-Vorprüfung verwendet wird, oder null ohne Vorprüfung. */
+    private final HashPrecheck.Mode hashMode;
+    /** Die Vorprüfung des aktuellen Baumes, oder null ohne Vorprüfung. */
+    private final HashPrecheck precheck;
+    /** Der Rechner für die Prüfungen. */
+    private final WidthAndDepthCalculator calculator;
+    /** Die Blätter des aktuellen Baumes. */
+    private final LeafSequence leaves;
+    /** Erzeugt die Blätter aus den Kinderzahlen. */
+    private final LeafGenerator generator;
+    /** Der Lesepuffer. */
+    private final ByteBuffer buffer;
+    /** Die gepufferten Datensätze, im Standardzeichensatz kodiert. */
+    private byte[] records;
+    /** Die Länge der gepufferten Datensätze. */
+    private int recordLength;
+    /** Der Grund für eine nicht bestandene Breitenprüfung. */
+    private final byte[] widthReason;
+    /** Der Grund für eine nicht bestandene Tiefenprüfung. */
+    private final byte[] depthReason;
+    /** Die Meldung für zu viele schließende Klammern. */
+    private final byte[] closingError;
+    /** Die Meldung für zu viele öffnende Klammern. */
+    private final byte[] openingError;
+    /** Die Kinderzahl je Knoten des aktuellen Baumes in Präordnung. */
+    private int[] childCounts;
+    /** Die Nummern der offenen Knoten beim Lesen, vom Wurzelknoten an. */
+    private int[] openNodes;
+    /** Ob die TSV-Kopfzeile schon ausgegeben wurde. */
+    private boolean headerWritten;
+    /** Die Anzahl der geprüften Bäume. */
+    private long treeCount;
+    /** Die Anzahl der drehfreudigen Bäume. */
+    private long drehfreudigCount;
+    /** Die Anzahl der ungültigen Bäume. */
+    private long errorCount;
+    /** Die Anzahl der gelesenen Bytes. */
+    private long bytesRead;
+
+    /**
+     * Erstellt einen Prüfer mit dem angegebenen Ausgabeformat.
+     * @param format das Format der Datensätze
+     */
+    public LineChecker(Format format) {
+        this(format, null);
+    }
+
+    /**
+     * Erstellt einen Prüfer mit dem angegebenen Ausgabeformat und Hash-Vorprüfung.
+     * @param format   das Format der Datensätze
+     * @param hashMode wie die Hash-Vorprüfung verwendet wird, oder null ohne Vorprüfung
+     */
+    public LineChecker(Format format, HashPrecheck.Mode hashMode) {
+        this.format = format;
+        this.hashMode = hashMode;
+        this.precheck = hashMode != null ? new HashPrecheck() : null;
+        this.calculator = new WidthAndDepthCalculator();
+        this.leaves = new LeafSequence();
+        this.generator = new LeafGenerator();
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.records = new byte[FLUSH_BYTES + 1024];
+        this.recordLength = 0;
+        this.widthReason = encode("Breitenprüfung nicht bestanden");
+        this.depthReason = encode("Tiefenprüfung nicht bestanden");
+        this.closingError = encode("Ungültige Baumstruktur: Zu viele schließende Klammern.");
+        this.openingError = encode("Ungültige Baumstruktur: Zu viele öffnende Klammern.");
+        this.childCounts = new int[INITIAL_CAPACITY];
+        this.openNodes = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Prüft alle Dateien nacheinander und gibt zum Schluss eine Zusammenfassung mit Durchsatz auf dem
+     * Fehlerstrom aus, damit die Ausgabe nur aus Datensätzen besteht.
+     * @param filenames die Namen der zu prüfenden Dateien
+     * @param labels    die Bezeichnungen der Dateien in den Datensätzen, in derselben Reihenfolge
+     * @param out       der Strom für die Datensätze
+     * @param err       der Strom für Fehlermeldungen und die Zusammenfassung
+     */
+    public void run(List<String> filenames, List<String> labels, PrintStream out, PrintStream err) {
+        long start = System.nanoTime();
+        int unreadable = 0;
+        for (int i = 0; i < filenames.size(); i++) {
+            String filename = filenames.get(i);
+            try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+                if (BinaryTreeFile.isBinary(channel)) {
+                    err.println("Fehler in der Eingabe für Datei '" + filename
+                            + "': Binärdateien enthalten nur einen Baum und werden zeilenweise nicht unterstützt.");
+                    unreadable++;
+                    continue;
+                }
+                try (ReadableByteChannel input = CompressedInput.decompress(channel)) {
+                    check(input, labels.get(i), out);
+                }
+            } catch (NoSuchFileException e) {
+                err.println("Fehler beim Lesen der Datei '" + filename + "': Datei nicht gefunden.");
+                unreadable++;
+            } catch (IOException e) {
+                err.println("Fehler beim Lesen der Datei '" + filename + "': " + e.getMessage());
+                unreadable++;
+            }
+        }
+        out.flush();
+
+        long nanos = System.nanoTime() - start;
+        double seconds = Math.max(nanos, 1) / 1e9;
+        err.println(String.format(Locale.ROOT,
+                "=== Zusammenfassung: %d Bäume in %d Dateien, %d drehfreudig, %d nicht drehfreudig, %d ungültig,"
+                        + " %d Dateien nicht lesbar in %d ms (%.0f Bäume/s, %.1f MB/s) ===",
+                treeCount, filenames.size(), drehfreudigCount, treeCount - drehfreudigCount - errorCount,
+                errorCount, unreadable, nanos / 1_000_000, treeCount / seconds, bytesRead / seconds / (1 << 20)));
+    }
+
+    /**
+     * Prüft alle Bäume eines Kanals und schreibt je Baum einen Datensatz.
+     * Ungültige Bäume werden als Datensatz mit Fehlermeldung ausgegeben; nach zu vielen schließenden Klammern
+     * wird der Rest der Zeile übersprungen.
+     *
+     * @param channel der zu lesende Kanal; er wird nicht geschlossen
+     * @param label   die Bezeichnung der Eingabe in den Datensätzen
+     * @param out     der Strom für die Datensätze
+     * @throws IOException wenn der Kanal nicht gelesen werden kann.
+     */
+    public void check(ReadableByteChannel channel, String label, PrintStream out) throws IOException {
+        if (format == Format.TSV && !headerWritten) {
+            put(encode(TSV_HEADER));
+            headerWritten = true;
+        }
+        byte[] prefix = encode(format == Format.TSV
+                ? label.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ') + "\t"
+                : "{\"datei\":" + jsonString(label) + ",\"zeile\":");
+        byte[] bytes = buffer.array();
+        // Die Arrays liegen in lokalen Variablen, damit sie in der Schleife nicht aus den Feldern gelesen werden
+        int[] counts = childCounts;
+        int[] open = openNodes;
+        HashPrecheck hashes = precheck;
+        // Zählt allein das Ergebnis der Hashes, werden die Kinderzahlen nicht gebraucht
+        boolean storeCounts = hashMode != HashPrecheck.Mode.HASH_ONLY;
+        long line = 1;
+        int tree = 0;
+        int depth = 0;
+        int nodes = 0;
+        boolean skipping = false;
+
+        buffer.clear();
+        for (int count = channel.read(buffer); count >= 0; count = channel.read(buffer)) {
+            bytesRead += count;
+            int limit = buffer.position();
+            for (int i = 0; i < limit; i++) {
+                byte b = bytes[i];
+                if (b == '(') {
+                    if (skipping) {
+                        continue;
+                    }
+                    if (depth == 0) {
+                        tree++;
+                        nodes = 0;
+                        if (hashes != null) {
+                            hashes.reset();
+                        }
+                    }
+                    if (hashes != null) {
+                        hashes.open();
+                    }
+                    if (!storeCounts) {
+                        depth++;
+                        nodes++;
+                        continue;
+                    }
+                    if (nodes == counts.length) {
+                        counts = Arrays.copyOf(counts, nodes * 2);
+                        childCounts = counts;
+                    }
+                    if (depth == open.length) {
+                        open = Arrays.copyOf(open, depth * 2);
+                        openNodes = open;
+                    }
+                    counts[nodes] = 0;
+                    if (depth > 0) {
+                        counts[open[depth - 1]]++;
+                    }
+                    open[depth++] = nodes++;
+                } else if (b == ')') {
+                    if (skipping) {
+                        continue;
+                    }
+                    if (depth == 0) {
+                        tree++;
+                        reportError(prefix, line, tree, closingError, out);
+                        skipping = true;
+                    } else {
+                        if (hashes != null) {
+                            hashes.close();
+                        }
+                        if (--depth == 0) {
+                            checkTree(prefix, line, tree, nodes, out);
+                        }
+                    }
+                } else if (b == '\n') {
+                    if (depth > 0) {
+                        reportError(prefix, line, tree, openingError, out);
+                        depth = 0;
+                    }
+                    line++;
+                    tree = 0;
+                    skipping = false;
+                }
+            }
+            buffer.clear();
+        }
+        if (depth > 0) {
+            reportError(prefix, line, tree, openingError, out);
+        }
+        flush(out);
+    }
+
+    /**
+     * Gibt die Anzahl der bisher geprüften Bäume zurück, einschließlich der ungültigen.
+     * @return die Anzahl der Bäume
+     */
+    public long getTreeCount() {
+        return treeCount;
+    }
+
+    /**
+     * Gibt die Anzahl der bisher gefundenen drehfreudigen Bäume zurück.
+     * @return die Anzahl der drehfreudigen Bäume
+     */
+    public long getDrehfreudigCount() {
+        return drehfreudigCount;
+    }
+
+    /**
+     * Gibt die Anzahl der bisher gefundenen ungültigen Bäume zurück.
+     * @return die Anzahl der ungültigen Bäume
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Gibt die Anzahl der bisher gelesenen Bytes zurück.
+     * @return die gelesenen Bytes
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Erzeugt die Blätter eines vollständig gelesenen Baumes aus seinen Kinderzahlen, prüft ihn und schreibt
+     * seinen Datensatz. Mit Vorprüfung wird das nur getan, wenn die Hashes übereinstimmen und nicht allein ihr
+     * Ergebnis zählt.
+     * @param prefix der Anfang jedes Datensatzes der Eingabe
+     * @param line   die Zeilennummer
+     * @param tree   die Nummer des Baumes in der Zeile
+     * @param nodes  die Knotenzahl
+     * @param out    der Strom für die Datensätze
+     */
+    private void checkTree(byte[] prefix, long line, int tree, int nodes, PrintStream out) {
+        if (precheck != null) {
+            precheck.finish();
+            if (!precheck.isDrehfreudig() || hashMode == HashPrecheck.Mode.HASH_ONLY) {
+                treeCount++;
+                byte[] reason = null;
+                switch (precheck.getMismatch()) {
+                    case WIDTH:
+                        reason = widthReason;
+                        break;
+                    case DEPTH:
+                        reason = depthReason;
+                        break;
+                    default:
+                        drehfreudigCount++;
+                }
+                BatchProcessor.Outcome outcome = reason == null
+                        ? BatchProcessor.Outcome.DREHFREUDIG : BatchProcessor.Outcome.NICHT_DREHFREUDIG;
+                writeRecord(prefix, line, tree, nodes, (int) precheck.getLeafCount(), outcome, reason, out);
+                return;
+            }
+        }
+        generator.generate(childCounts, nodes, leaves, null);
+
+        treeCount++;
+        byte[] reason = null;
+        if (!calculator.isDenominatorPalindrome(leaves)) {
+            reason = widthReason;
+        } else if (!calculator.isConstantDepthSum(leaves)) {
+            reason = depthReason;
+        } else {
+            drehfreudigCount++;
+        }
+        BatchProcessor.Outcome outcome = reason == null
+                ? BatchProcessor.Outcome.DREHFREUDIG : BatchProcessor.Outcome.NICHT_DREHFREUDIG;
+        writeRecord(prefix, line, tree, nodes, leaves.size(), outcome, reason, out);
+    }
+
+    /**
+     * Zählt einen ungültigen Baum und schreibt seinen Datensatz.
+     * @param prefix  der Anfang jedes Datensatzes der Eingabe
+     * @param line    die Zeilennummer
+     * @param tree    die Nummer des Baumes in der Zeile
+     * @param message die Fehlermeldung
+     * @param out     der Strom für die Datensätze
+     */
+    private void reportError(byte[] prefix, long line, int tree, byte[] message, PrintStream out) {
+        treeCount++;
+        errorCount++;
+        writeRecord(prefix, line, tree, 0, 0, BatchProcessor.Outcome.FEHLER, message, out);
+    }
+
+    /**
+     * Hängt einen Datensatz an den Ausgabepuffer an und gibt den Puffer aus, wenn er voll ist.
+     * @param prefix    der Anfang jedes Datensatzes der Eingabe
+     * @param line      die Zeilennummer
+     * @param tree      die Nummer des Baumes in der Zeile
+     * @param nodes     die Knotenzahl, 0 bei einem ungültigen Baum
+     * @param leafCount die Blattzahl, 0 bei einem ungültigen Baum
+     * @param outcome   das Ergebnis
+     * @param reason    der Grund bei einem nicht drehfreudigen oder ungültigen Baum, sonst null
+     * @param out       der Strom für die Datensätze
+     */
+    private void writeRecord(byte[] prefix, long line, int tree, int nodes, int leafCount,
+                             BatchProcessor.Outcome outcome, byte[] reason, PrintStream out) {
+        put(prefix);
+        putNumber(line);
+        if (format == Format.TSV) {
+            putByte('\t');
+            putNumber(tree);
+            putByte('\t');
+            putNumber(nodes);
+            putByte('\t');
+            putNumber(leafCount);
+            putByte('\t');
+            put(OUTCOMES[outcome.ordinal()]);
+            putByte('\t');
+            if (reason != null) {
+                // Die Gründe sind feste Texte ohne Tabulatoren
+                put(reason);
+            }
+        } else {
+            put(JSON_TREE);
+            putNumber(tree);
+            put(JSON_NODES);
+            putNumber(nodes);
+            put(JSON_LEAVES);
+            putNumber(leafCount);
+            put(JSON_OUTCOME);
+            put(OUTCOMES[outcome.ordinal()]);
+            if (reason != null) {
+                // Die Gründe sind feste Texte ohne zu maskierende Zeichen
+                put(JSON_REASON);
+                put(reason);
+            }
+            putByte('"');
+            putByte('}');
+        }
+        putByte('\n');
+        if (recordLength >= FLUSH_BYTES) {
+            flush(out);
+        }
+    }
+
+    /**
+     * Hängt Bytes an den Ausgabepuffer an.
+     * @param bytes die Bytes
+     */
+    private void put(byte[] bytes) {
+        ensureRecordCapacity(bytes.length);
+        System.arraycopy(bytes, 0, records, recordLength, bytes.length);
+        recordLength += bytes.length;
+    }
+
+    /**
+     * Hängt ein ASCII-Zeichen an den Ausgabepuffer an.
+     * @param c das Zeichen
+     */
+    private void putByte(char c) {
+        ensureRecordCapacity(1);
+        records[recordLength++] = (byte) c;
+    }
+
+    /**
+     * Hängt eine nicht negative Zahl in Dezimalschreibweise an den Ausgabepuffer an, ohne einen String zu erzeugen.
+     * @param value die Zahl
+     */
+    private void putNumber(long value) {
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        ensureRecordCapacity(digits);
+        long rest = value;
+        for (int i = recordLength + digits - 1; i >= recordLength; i--) {
+            records[i] = (byte) ('0' + rest % 10);
+            rest /= 10;
+        }
+        recordLength += digits;
+    }
+
+    /**
+     * Vergrößert den Ausgabepuffer, wenn die angegebene Anzahl Bytes nicht mehr hineinpasst.
+     * @param length die Anzahl der anzuhängenden Bytes
+     */
+    private void ensureRecordCapacity(int length) {
+        if (recordLength + length > records.length) {
+            records = Arrays.copyOf(records, Math.max(records.length * 2, recordLength + length));
+        }
+    }
+
+    /**
+     * Gibt die gepufferten Datensätze aus.
+     * @param out der Strom für die Datensätze
+     */
+    private void flush(PrintStream out) {
+        out.write(records, 0, recordLength);
+        recordLength = 0;
+    }
+
+    /**
+     * Kodiert einen Text im Standardzeichensatz, wie ihn auch die übrige Ausgabe verwendet.
+     * @param text der Text
+     * @return die kodierten Bytes
+     */
+    private static byte[] encode(String text) {
+        return text.getBytes(Charset.defaultCharset());
+    }
+
+    /**
+     * Kodiert einen ASCII-Text.
+     * @param text der Text
+     * @return die Bytes
+     */
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Maskiert einen Text als JSON-String.
+     * @param text der Text
+     * @return der Text in Anführungszeichen mit maskierten Sonderzeichen
+     */
+    private static String jsonString(String text) {
+        StringBuilder result = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                result.append('\\').append(c);
+            } else if (c < 0x20) {
+                result.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.append('"').toString();
+    }
+}
@@ -0,0 +1,11 @@
+/**
+ * Die Art der ersten gefundenen Abweichung bei der Prüfung eines Baumes.
+ */
+public enum Mismatch {
+    /** Alle Blattpaare stimmen überein. */
+    NONE,
+    /** Ein Blattpaar hat verschiedene Breiten. */
+    WIDTH,
+    /** Ein Blattpaar weicht von der Tiefensumme ab. */
+    DEPTH
+}
@@ -1,3 +1,4 @@
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -9,7 +10,9 @@ public class Node {
     /** Die Liste der Kinderknoten dieses Knotens. */
     private List<Node> children;
     /** Die berechnete Breite des Knotens, die den ihm zugewiesenen horizontalen Raum darstellt. */
-    private int width;
+    private long width;
+    /** Die exakte Breite, falls sie nicht in einen long passt, sonst null. */
+    private BigInteger exactWidth;
     /** Die Tiefe des Knotens im Baum, wobei der Wurzelknoten die Tiefe 1 hat. */
     private int depth;
 
@@ -19,6 +22,7 @@ public class Node {
     public Node() {
         this.children = new ArrayList<>();
         this.width = 0;
+        this.exactWidth = null;
         this.depth = 0;
     }
 
@@ -41,8 +45,12 @@ public class Node {
     /**
      * Gibt die Breite des Knotens zurück.
      * @return die Breite des Knotens
+     * @throws ArithmeticException wenn die Breite nicht in einen long passt
      */
-    public int getWidth() {
+    public long getWidth() {
+        if (exactWidth != null) {
+            throw new ArithmeticException("Die Breite passt nicht in einen long: " + exactWidth);
+        }
         return width;
     }
 
@@ -50,8 +58,31 @@ public class Node {
      * Legt die Breite des Knotens fest.
      * @param width die dem Knoten zuzuweisende Breite
      */
-    public void setWidth(int width) {
+    public void setWidth(long width) {
         this.width = width;
+        this.exactWidth = null;
+    }
+
+    /**
+     * Gibt die exakte Breite des Knotens zurück, auch wenn sie nicht in einen long passt.
+     * @return die exakte Breite des Knotens
+     */
+    public BigInteger getExactWidth() {
+        return exactWidth != null ? exactWidth : BigInteger.valueOf(width);
+    }
+
+    /**
+     * Legt die exakte Breite des Knotens fest.
+     * Passt die Breite in einen long, wird sie wie bei {@link #setWidth(long)} primitiv gespeichert.
+     * @param width die dem Knoten zuzuweisende Breite
+     */
+    public void setExactWidth(BigInteger width) {
+        if (width.bitLength() < Long.SIZE) {
+            setWidth(width.longValue());
+        } else {
+            this.width = 0;
+            this.exactWidth = width;
+        }
     }
 
     /**
@@ -0,0 +1,156 @@
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Expliziter Stapel für iterative Tiefensuchen über einen Node-Baum.
+ * Jeder Eintrag hält einen Knoten, den Index seines nächsten unbesuchten Kindes und zwei long-Werte,
+ * deren Bedeutung der jeweilige Durchlauf festlegt. Die Arrays wachsen nur durch Verdoppeln, sodass
+ * auch Bäume mit Millionen Ebenen ohne Rekursion und ohne Objekt pro Ebene durchlaufen werden.
+ */
+class NodeStack {
+    /** Anfangskapazität der Arrays. */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** Die Knoten auf dem Stapel. */
+    private Node[] nodes;
+    /** Der Index des nächsten unbesuchten Kindes je Eintrag. */
+    private int[] nextChild;
+    /** Der erste Wert je Eintrag. */
+    private long[] values;
+    /** Der zweite Wert je Eintrag. */
+    private long[] extras;
+    /** Der erste Wert, falls er nicht in einen long passt; null, solange es keinen solchen gibt. */
+    private BigInteger[] bigValues;
+    /** Die Anzahl der Einträge. */
+    private int size;
+
+    /**
+     * Erstellt einen leeren Stapel.
+     */
+    NodeStack() {
+        this.nodes = new Node[INITIAL_CAPACITY];
+        this.nextChild = new int[INITIAL_CAPACITY];
+        this.values = new long[INITIAL_CAPACITY];
+        this.extras = new long[INITIAL_CAPACITY];
+        this.bigValues = null;
+        this.size = 0;
+    }
+
+    /**
+     * Legt einen Knoten mit primitiven Werten auf den Stapel.
+     * @param node  der Knoten
+     * @param value der erste Wert
+     * @param extra der zweite Wert
+     */
+    void push(Node node, long value, long extra) {
+        if (size == nodes.length) {
+            grow();
+        }
+        nodes[size] = node;
+        nextChild[size] = 0;
+        values[size] = value;
+        extras[size] = extra;
+        size++;
+    }
+
+    /**
+     * Legt einen Knoten mit einem großen ersten Wert auf den Stapel.
+     * @param node  der Knoten
+     * @param value der erste Wert
+     * @param extra der zweite Wert
+     */
+    void push(Node node, BigInteger value, long extra) {
+        push(node, 0, extra);
+        if (bigValues == null) {
+            bigValues = new BigInteger[nodes.length];
+        }
+        bigValues[size - 1] = value;
+    }
+
+    /**
+     * Verdoppelt die Kapazität aller Arrays.
+     */
+    private void grow() {
+        int newCapacity = nodes.length * 2;
+        nodes = Arrays.copyOf(nodes, newCapacity);
+        nextChild = Arrays.copyOf(nextChild, newCapacity);
+        values = Arrays.copyOf(values, newCapacity);
+        extras = Arrays.copyOf(extras, newCapacity);
+        if (bigValues != null) {
+            bigValues = Arrays.copyOf(bigValues, newCapacity);
+        }
+    }
+
+    /**
+     * Entfernt den obersten Eintrag.
+     */
+    void pop() {
+        size--;
+        nodes[size] = null;
+        if (bigValues != null) {
+            bigValues[size] = null;
+        }
+    }
+
+    /**
+     * Prüft, ob der Stapel leer ist.
+     * @return true, wenn der Stapel leer ist
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gibt die Anzahl der Einträge zurück.
+     * @return die Stapelhöhe
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gibt das nächste unbesuchte Kind des obersten Knotens zurück und rückt weiter.
+     * @return das Kind, oder null, wenn alle Kinder besucht sind
+     */
+    Node nextChild() {
+        Node node = nodes[size - 1];
+        int index = nextChild[size - 1];
+        if (index >= node.getChildren().size()) {
+            return null;
+        }
+        nextChild[size - 1] = index + 1;
+        return node.getChildren().get(index);
+    }
+
+    /**
+     * Gibt den Index des zuletzt mit {@link #nextChild()} gelieferten Kindes zurück.
+     * @return der Kindindex
+     */
+    int childIndex() {
+        return nextChild[size - 1] - 1;
+    }
+
+    /**
+     * Gibt den ersten Wert des obersten Eintrags zurück.
+     * @return der Wert, oder 0, wenn er nur als BigInteger vorliegt
+     */
+    long peekValue() {
+        return values[size - 1];
+    }
+
+    /**
+     * Gibt den großen ersten Wert des obersten Eintrags zurück.
+     * @return der Wert, oder null, wenn er in einen long passt
+     */
+    BigInteger peekBigValue() {
+        return bigValues != null ? bigValues[size - 1] : null;
+    }
+
+    /**
+     * Gibt den zweiten Wert des obersten Eintrags zurück.
+     * @return der Wert
+     */
+    long peekExtra() {
+        return extras[size - 1];
+    }
+}
@@ -0,0 +1,278 @@
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Analysiert einen großen {@link CompactTree} parallel mit Fork/Join.
+ * <p>
+ * Der Pfadnenner eines Blattes hängt nur vom Produkt der Kinderzahlen seiner Vorfahren ab, Teilbäume lassen sich
+ * daher unabhängig voneinander analysieren. Weil die Knoten in Präordnung nummeriert sind, ist jeder Teilbaum
+ * ein zusammenhängender Nummernbereich; sein Ende ist der nächste Geschwisterknoten oder, beim letzten Kind,
+ * das Ende des Elternbereichs. Teilbaumgrößen ergeben sich so ohne zusätzliches Array.
+ * <p>
+ * Eine Aufgabe bearbeitet einen Wald aufeinanderfolgender Geschwister. Ist er größer als die Schwelle, wird er
+ * in Gruppen zerlegt: Teilbäume über der Schwelle bilden eine eigene Gruppe, kleinere Geschwister werden bis zur
+ * Schwelle zusammengefasst. Die größte Gruppe bearbeitet die Aufgabe selbst weiter, bei einer einzelnen Wurzel
+ * steigt sie zu deren Kindern ab. Die übrigen Gruppen werden abgespalten oder, wenn sie sehr klein sind, gleich
+ * mitgerechnet. So bleibt die Schachtelung der Aufgaben logarithmisch, auch bei Ketten und Raupen.
+ * <p>
+ * Eine Aufgabe wartet nicht auf ihre abgespaltenen Teilaufgaben, sondern gibt sie in Blattreihenfolge zurück.
+ * Erst der Aufrufer wartet auf sie und fügt die Teilergebnisse zusammen, sodass der Aufrufstapel nicht mit der
+ * Baumtiefe wächst.
+ * <p>
+ * Jede Aufgabe führt einen eigenen {@link LcmAccumulator}, der mit dem Pfad zu ihren Wurzeln beginnt. Seine Maxima
+ * landen mit dem letzten Teilergebnis der Aufgabe im Gesamtergebnis.
+ */
+public class ParallelTreeAnalyzer {
+    /** Standardschwelle in Knoten, bis zu der ein Wald in einer Aufgabe sequenziell analysiert wird. */
+    static final int DEFAULT_THRESHOLD = 1 << 16;
+
+    /** Der Pool, in dem die Aufgaben laufen. */
+    private final ForkJoinPool pool;
+    /** Die Schwelle in Knoten, bis zu der ein Wald sequenziell analysiert wird. */
+    private final int threshold;
+    /** Gruppen bis zu dieser Größe werden nicht abgespalten, sondern gleich mitgerechnet. */
+    private final int inlineLimit;
+    /** Der Rechner für die sequenzielle Analyse. */
+    private final WidthAndDepthCalculator calculator;
+
+    /**
+     * Erstellt einen Analysator, der im gemeinsamen Fork/Join-Pool arbeitet.
+     */
+    public ParallelTreeAnalyzer() {
+        this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Erstellt einen Analysator mit eigenem Pool und eigener Schwelle.
+     * @param pool      der Pool für die Aufgaben
+     * @param threshold die Schwelle in Knoten, bis zu der sequenziell analysiert wird
+     * @throws IllegalArgumentException wenn die Schwelle nicht positiv ist.
+     */
+    public ParallelTreeAnalyzer(ForkJoinPool pool, int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Die Schwelle muss positiv sein: " + threshold);
+        }
+        this.pool = pool;
+        this.threshold = threshold;
+        this.inlineLimit = threshold / 16;
+        this.calculator = new WidthAndDepthCalculator();
+    }
+
+    /**
+     * Analysiert den Baum. Das Ergebnis ist dasselbe wie bei {@link WidthAndDepthCalculator#analyze(CompactTree)}.
+     *
+     * @param tree der kompakte Baum
+     * @return das Analyseergebnis
+     */
+    public TreeAnalysis analyze(CompactTree tree) {
+        if (tree.size() <= threshold) {
+            return calculator.analyze(tree);
+        }
+
+        // Teilaufgaben der Reihe nach einsammeln und durch ihre eigenen Teile ersetzen
+        TreeAnalysis result = new TreeAnalysis();
+        Deque<Object> work = new ArrayDeque<>(pool.invoke(new ForestTask(tree, 0, tree.size(), 1, null, 1, new LcmAccumulator())));
+        while (!work.isEmpty()) {
+            Object part = work.poll();
+            if (part instanceof TreeAnalysis) {
+                result.append((TreeAnalysis) part);
+            } else {
+                List<Object> parts = ((ForestTask) part).join();
+                for (int i = parts.size() - 1; i >= 0; i--) {
+                    work.push(parts.get(i));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Aufgabe für einen Wald aufeinanderfolgender Geschwister mit gemeinsamem Pfadnenner und gemeinsamer Tiefe.
+     * Das Ergebnis ist eine Liste in Blattreihenfolge aus fertigen {@link TreeAnalysis}-Teilen und abgespaltenen,
+     * noch ausstehenden ForestTasks.
+     */
+    private class ForestTask extends RecursiveTask<List<Object>> {
+        /** Versionskennung für die Serialisierung. */
+        private static final long serialVersionUID = 1L;
+
+        /** Der kompakte Baum. */
+        private final CompactTree tree;
+        /** Die erste Knotennummer des Waldes. */
+        private final int from;
+        /** Die Knotennummer nach dem Wald. */
+        private final int to;
+        /** Pfadnenner der Wurzeln, solange er in einen long passt. */
+        private final long denominator;
+        /** Pfadnenner der Wurzeln nach einem Überlauf, sonst null. */
+        private final BigInteger bigDenominator;
+        /** Tiefe der Wurzeln. */
+        private final int depth;
+        /** Der Sammler für das kgV, dessen Pfad zu den Wurzeln führt. */
+        private final LcmAccumulator lcm;
+
+        /**
+         * Erstellt eine Aufgabe für einen Wald.
+         * @param tree           der kompakte Baum
+         * @param from           die erste Knotennummer des Waldes
+         * @param to             die Knotennummer nach dem Wald
+         * @param denominator    Pfadnenner der Wurzeln, solange er in einen long passt
+         * @param bigDenominator Pfadnenner der Wurzeln nach einem Überlauf, sonst null
+         * @param depth          Tiefe der Wurzeln
+         * @param lcm            der Sammler für das kgV, dessen Pfad zu den Wurzeln führt
+         */
+        ForestTask(CompactTree tree, int from, int to, long denominator, BigInteger bigDenominator, int depth,
+                   LcmAccumulator lcm) {
+            this.tree = tree;
+            this.from = from;
+            this.to = to;
+            this.denominator = denominator;
+            this.bigDenominator = bigDenominator;
+            this.depth = depth;
+            this.lcm = lcm;
+        }
+
+        /**
+         * Zerlegt den Wald und analysiert die größte Gruppe selbst.
+         * Teile links der weiterbearbeiteten Gruppe werden vorne angehängt. Teile rechts davon liegen in
+         * umgekehrter Reihenfolge in after, damit die Teile tieferer Ebenen vor denen höherer Ebenen landen;
+         * mitgerechnete Blätter werden dort ebenfalls umgekehrt gesammelt und am Ende zurückgedreht.
+         *
+         * @return die Teilergebnisse in Blattreihenfolge
+         */
+        @Override
+        protected List<Object> compute() {
+            List<Object> before = new ArrayList<>();
+            List<Object> after = new ArrayList<>();
+            TreeAnalysis beforeAcc = new TreeAnalysis();
+            TreeAnalysis afterAcc = new TreeAnalysis();
+            PathStack path = new PathStack();
+
+            int start = from;
+            int end = to;
+            long den = denominator;
+            BigInteger bigDen = bigDenominator;
+            int level = depth;
+            while (end - start > threshold) {
+                List<int[]> groups = split(start, end);
+                if (groups.size() == 1) {
+                    // Eine einzelne große Wurzel: sie selbst zählen und zu ihren Kindern absteigen
+                    beforeAcc.addNode(level);
+                    int childCount = tree.getChildCount(start);
+                    lcm.enter(childCount);
+                    BigInteger bigChildDen = LeafGenerator.bigChildDenominator(den, bigDen, childCount);
+                    if (bigChildDen != null) {
+                        bigDen = bigChildDen;
+                    } else {
+                        den *= childCount;
+                    }
+                    start++;
+                    level++;
+                    continue;
+                }
+
+                int largest = 0;
+                for (int i = 1; i < groups.size(); i++) {
+                    if (size(groups.get(i)) > size(groups.get(largest))) {
+                        largest = i;
+                    }
+                }
+                for (int i = 0; i < largest; i++) {
+                    int[] group = groups.get(i);
+                    if (size(group) <= inlineLimit) {
+                        calculator.analyzeRange(tree, group[0], group[1], den, bigDen, level, beforeAcc, path, lcm);
+                    } else {
+                        beforeAcc = flush(beforeAcc, before, false);
+                        before.add(new ForestTask(tree, group[0], group[1], den, bigDen, level, lcm.copyPath()).fork());
+                    }
+                }
+                for (int i = groups.size() - 1; i > largest; i--) {
+                    int[] group = groups.get(i);
+                    if (size(group) <= inlineLimit) {
+                        TreeAnalysis part = new TreeAnalysis();
+                        calculator.analyzeRange(tree, group[0], group[1], den, bigDen, level, part, path, lcm);
+                        part.reverseLeaves();
+                        afterAcc.append(part);
+                    } else {
+                        afterAcc = flush(afterAcc, after, true);
+                        after.add(new ForestTask(tree, group[0], group[1], den, bigDen, level, lcm.copyPath()).fork());
+                    }
+                }
+                start = groups.get(largest)[0];
+                end = groups.get(largest)[1];
+            }
+            calculator.analyzeRange(tree, start, end, den, bigDen, level, beforeAcc, path, lcm);
+            beforeAcc.getLcm().merge(lcm);
+
+            flush(beforeAcc, before, false);
+            flush(afterAcc, after, true);
+            for (int i = after.size() - 1; i >= 0; i--) {
+                before.add(after.get(i));
+            }
+            return before;
+        }
+
+        /**
+         * Zerlegt einen Wald in Gruppen: jede Wurzel über der Schwelle allein, kleinere Geschwister zusammengefasst,
+         * solange die Gruppe die Schwelle nicht überschreitet.
+         * @param start die erste Knotennummer des Waldes
+         * @param end   die Knotennummer nach dem Wald
+         * @return die Gruppen als Paare aus erster Knotennummer und Knotennummer nach der Gruppe
+         */
+        private List<int[]> split(int start, int end) {
+            List<int[]> groups = new ArrayList<>();
+            int groupStart = start;
+            int root = start;
+            while (root < end) {
+                int next = tree.getNextSibling(root);
+                int rootEnd = next >= 0 ? next : end;
+                if (rootEnd - root > threshold) {
+                    if (groupStart < root) {
+                        groups.add(new int[] {groupStart, root});
+                    }
+                    groups.add(new int[] {root, rootEnd});
+                    groupStart = rootEnd;
+                } else if (rootEnd - groupStart > threshold) {
+                    groups.add(new int[] {groupStart, root});
+                    groupStart = root;
+                }
+                root = rootEnd;
+            }
+            if (groupStart < end) {
+                groups.add(new int[] {groupStart, end});
+            }
+            return groups;
+        }
+
+        /**
+         * Übernimmt ein Zwischenergebnis in die Teilliste, falls es Knoten enthält.
+         * @param acc      das Zwischenergebnis
+         * @param parts    die Teilliste
+         * @param reversed ob die Blätter des Zwischenergebnisses umgekehrt gesammelt wurden
+         * @return ein neues, leeres Zwischenergebnis, oder acc selbst, wenn es leer war
+         */
+        private TreeAnalysis flush(TreeAnalysis acc, List<Object> parts, boolean reversed) {
+            if (acc.getNodeCount() == 0) {
+                return acc;
+            }
+            if (reversed) {
+                acc.reverseLeaves();
+            }
+            parts.add(acc);
+            return new TreeAnalysis();
+        }
+
+        /**
+         * Gibt die Größe einer Gruppe in Knoten zurück.
+         * @param group die Gruppe
+         * @return die Knotenzahl
+         */
+        private int size(int[] group) {
+            return group[1] - group[0];
+        }
+    }
+}
@@ -0,0 +1,122 @@
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Stapel der offenen Vorfahren beim Durchlauf eines {@link CompactTree} in Präordnung.
+ * Jeder Eintrag hält eine Knotennummer und einen long-Wert, etwa den Pfadnenner der Kinder dieses Knotens.
+ * Werte, die nicht in einen long passen, werden erst bei Bedarf in einem BigInteger-Array abgelegt.
+ */
+class PathStack {
+    /** Anfangskapazität der Arrays. */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** Die Knotennummern auf dem Stapel. */
+    private int[] nodes;
+    /** Der Wert je Eintrag. */
+    private long[] values;
+    /** Der Wert, falls er nicht in einen long passt; null, solange es keinen solchen gibt. */
+    private BigInteger[] bigValues;
+    /** Die Anzahl der Einträge. */
+    private int size;
+
+    /**
+     * Erstellt einen leeren Stapel.
+     */
+    PathStack() {
+        this.nodes = new int[INITIAL_CAPACITY];
+        this.values = new long[INITIAL_CAPACITY];
+        this.bigValues = null;
+        this.size = 0;
+    }
+
+    /**
+     * Legt einen Knoten mit einem primitiven Wert auf den Stapel.
+     * @param node  die Knotennummer
+     * @param value der Wert
+     */
+    void push(int node, long value) {
+        if (size == nodes.length) {
+            int newCapacity = nodes.length * 2;
+            nodes = Arrays.copyOf(nodes, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+            if (bigValues != null) {
+                bigValues = Arrays.copyOf(bigValues, newCapacity);
+            }
+        }
+        nodes[size] = node;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * Legt einen Knoten mit einem großen Wert auf den Stapel.
+     * @param node  die Knotennummer
+     * @param value der Wert
+     */
+    void push(int node, BigInteger value) {
+        push(node, 0);
+        if (bigValues == null) {
+            bigValues = new BigInteger[nodes.length];
+        }
+        bigValues[size - 1] = value;
+    }
+
+    /**
+     * Entfernt den obersten Eintrag.
+     */
+    void pop() {
+        size--;
+        if (bigValues != null) {
+            bigValues[size] = null;
+        }
+    }
+
+    /**
+     * Leert den Stapel, ohne seine Arrays freizugeben.
+     */
+    void clear() {
+        while (size > 0) {
+            pop();
+        }
+    }
+
+    /**
+     * Prüft, ob der Stapel leer ist.
+     * @return true, wenn der Stapel leer ist
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gibt die Anzahl der Einträge zurück.
+     * @return die Stapelhöhe
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gibt die Knotennummer des obersten Eintrags zurück.
+     * @return die Knotennummer
+     */
+    int peekNode() {
+        return nodes[size - 1];
+    }
+
+    /**
+     * Gibt den Wert des obersten Eintrags zurück.
+     * @return der Wert, oder 0, wenn er nur als BigInteger vorliegt
+     */
+    long peekValue() {
+        return values[size - 1];
+    }
+
+    /**
+     * Gibt den großen Wert des obersten Eintrags zurück.
+     * @return der Wert, oder null, wenn er in einen long passt
+     */
+    BigInteger peekBigValue() {
+        return bigValues != null ? bigValues[size - 1] : null;
+    }
+}
@@ -0,0 +1,260 @@
+import java.lang.management.ManagementFactory;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Misst die Phasen der Prüfung eines Baumes. Jede Phase wird als JFR-Ereignis {@code drehfreudig.Phase}
+ * aufgezeichnet, sofern JFR läuft, etwa mit {@code java -XX:StartFlightRecording ...}; ohne JFR werden die
+ * Ereignisklassen gar nicht erst geladen. Mit {@code --stats} fließen Dauer und Allokation zusätzlich in die
+ * {@link PhaseStats} ein. Fehler werden als {@code drehfreudig.CheckFailed} aufgezeichnet.
+ * <p>
+ * Die Ereignisse tragen die Kennzahlen des Baumes, soweit sie am Ende der Phase bekannt sind: nach dem Lesen nur
+ * die Größe, nach dem kompakten Parsen die Knotenzahl, nach der Analyse auch Blattzahl und Tiefe. Ein Recorder
+ * gehört zu genau einem Baum und wird nur von einem Thread benutzt.
+ */
+public class PhaseRecorder {
+    /**
+     * Hält die Bean für die Allokation des aktuellen Threads, damit die Management-Klassen erst bei der ersten
+     * Messung geladen werden.
+     */
+    private static class Allocation {
+        /** Die Bean für die Allokation des aktuellen Threads. */
+        static final com.sun.management.ThreadMXBean THREADS =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    }
+
+    /**
+     * Die gemessenen Phasen in der Reihenfolge der Prüfung.
+     */
+    public enum Phase {
+        /** Vorprüfung über Hashes der Blattfolgen in einem Lesedurchlauf. */
+        PRECHECK("Vorprüfung"),
+        /** Schlüssel und Nachschlagen im Ergebnis-Cache, bei einem Treffer samt Ausgabe des Ergebnisses. */
+        CACHE("Cache"),
+        /** Parsen in Node-Objekte, kompakte Arrays oder einen DAG. */
+        PARSE("Parsen"),
+        /** Durchlauf des Baumes zum Sammeln der Blattnenner und -tiefen. */
+        LEAVES("Blätter"),
+        /** Berechnung der Gesamtbreite als kgV der Blattnenner. */
+        TOTAL_WIDTH("Gesamtbreite"),
+        /** Breiten- und Tiefenprüfung samt Aufbereitung der Ausgabe. */
+        CHECK("Prüfung"),
+        /** Visualisierung eines drehfreudigen Baumes. */
+        DISPLAY("Anzeige"),
+        /** Export eines drehfreudigen Baumes als SVG-Bild. */
+        SVG("SVG");
+
+        /** Die Bezeichnung in der Ausgabe. */
+        private final String label;
+
+        /**
+         * Erstellt eine Phase.
+         * @param label die Bezeichnung in der Ausgabe
+         */
+        Phase(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Gibt die Bezeichnung in der Ausgabe zurück.
+         * @return die Bezeichnung
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * JFR-Ereignis für eine Phase der Prüfung.
+     */
+    @Name("drehfreudig.Phase")
+    @Label("Prüfphase")
+    @Category("Drehfreudig")
+    @Description("Eine Phase der Prüfung eines Baumes mit den bis dahin bekannten Kennzahlen")
+    static class PhaseEvent extends jdk.jfr.Event {
+        /** Die Eingabe. */
+        @Label("Eingabe")
+        String input;
+        /** Die Phase. */
+        @Label("Phase")
+        String phase;
+        /** Die Knotenzahl. */
+        @Label("Knoten")
+        long nodeCount;
+        /** Die Blattzahl. */
+        @Label("Blätter")
+        long leafCount;
+        /** Die größte Tiefe. */
+        @Label("Größte Tiefe")
+        int maxDepth;
+        /** Die Größe der Eingabe. */
+        @Label("Größe")
+        @DataAmount
+        long size;
+        /** Die in der Phase allokierten Bytes. */
+        @Label("Allokiert")
+        @DataAmount
+        long allocated;
+    }
+
+    /**
+     * JFR-Ereignis für eine Prüfung, die mit einem Fehler endet.
+     */
+    @Name("drehfreudig.CheckFailed")
+    @Label("Prüfung fehlgeschlagen")
+    @Category("Drehfreudig")
+    static class CheckFailedEvent extends jdk.jfr.Event {
+        /** Die Eingabe. */
+        @Label("Eingabe")
+        String input;
+        /** Die Fehlermeldung. */
+        @Label("Meldung")
+        String message;
+    }
+
+    /** Die Statistik, in die gemessen wird, oder null ohne --stats. */
+    private final PhaseStats stats;
+    /** Die Bezeichnung der Eingabe, etwa der Dateiname. */
+    private final String input;
+    /** Die Größe der Eingabe in Bytes. */
+    private final long size;
+    /** Die Knotenzahl, sobald bekannt. */
+    private long nodeCount;
+    /** Die Blattzahl, sobald bekannt. */
+    private long leafCount;
+    /** Die größte Tiefe, sobald bekannt. */
+    private int maxDepth;
+    /** Die laufende Phase, oder null. */
+    private Phase phase;
+    /** Das Ereignis der laufenden Phase. */
+    private PhaseEvent event;
+    /** Beginn der laufenden Phase in Nanosekunden. */
+    private long start;
+    /** Allokierte Bytes des Threads zu Beginn der laufenden Phase. */
+    private long startAllocated;
+    /** Dauer aller Phasen dieses Baumes in Nanosekunden. */
+    private long totalNanos;
+    /** Allokation aller Phasen dieses Baumes in Bytes. */
+    private long totalAllocated;
+
+    /**
+     * Erstellt einen Recorder für einen Baum.
+     * @param stats die Statistik, in die gemessen wird, oder null, wenn nur JFR-Ereignisse erzeugt werden
+     * @param input die Bezeichnung der Eingabe, etwa der Dateiname
+     * @param size  die Größe der Eingabe in Bytes
+     */
+    public PhaseRecorder(PhaseStats stats, String input, long size) {
+        this.stats = stats;
+        this.input = input;
+        this.size = size;
+    }
+
+    /**
+     * Beginnt eine Phase.
+     * @param phase die Phase
+     */
+    public void begin(Phase phase) {
+        this.phase = phase;
+        // Ohne laufende Aufzeichnung werden die Ereignisklassen gar nicht erst geladen, das spart Startzeit
+        this.event = FlightRecorder.isInitialized() ? new PhaseEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        if (stats != null || event != null && event.isEnabled()) {
+            startAllocated = Allocation.THREADS.getCurrentThreadAllocatedBytes();
+        }
+        start = System.nanoTime();
+    }
+
+    /**
+     * Beendet die laufende Phase und zeichnet sie auf.
+     */
+    public void end() {
+        long nanos = System.nanoTime() - start;
+        boolean commit = false;
+        if (event != null) {
+            event.end();
+            commit = event.shouldCommit();
+        }
+        if (stats == null && !commit) {
+            phase = null;
+            return;
+        }
+        long allocated = Allocation.THREADS.getCurrentThreadAllocatedBytes() - startAllocated;
+        if (commit) {
+            event.input = input;
+            event.phase = phase.getLabel();
+            event.nodeCount = nodeCount;
+            event.leafCount = leafCount;
+            event.maxDepth = maxDepth;
+            event.size = size;
+            event.allocated = allocated;
+            event.commit();
+        }
+        if (stats != null) {
+            stats.add(phase, nanos, allocated);
+            totalNanos += nanos;
+            totalAllocated += allocated;
+        }
+        phase = null;
+    }
+
+    /**
+     * Setzt die Knotenzahl nach dem Parsen.
+     * @param nodeCount die Knotenzahl
+     */
+    public void setNodeCount(long nodeCount) {
+        this.nodeCount = nodeCount;
+    }
+
+    /**
+     * Setzt die Kennzahlen nach der Analyse.
+     * @param analysis das Analyseergebnis
+     */
+    public void setAnalysis(TreeAnalysis analysis) {
+        setCounts(analysis.getNodeCount(), analysis.getLeafCount(), analysis.getMaxDepth());
+    }
+
+    /**
+     * Setzt die Kennzahlen, soweit sie bekannt sind.
+     * @param nodeCount die Knotenzahl
+     * @param leafCount die Blattzahl
+     * @param maxDepth  die größte Tiefe, oder 0, wenn sie unbekannt ist
+     */
+    public void setCounts(long nodeCount, long leafCount, int maxDepth) {
+        this.nodeCount = nodeCount;
+        this.leafCount = leafCount;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Schließt die Messung eines erfolgreich geprüften Baumes ab und meldet ihn der Statistik.
+     */
+    public void finish() {
+        if (stats != null) {
+            stats.addTree(input, size, nodeCount, totalNanos, totalAllocated);
+        }
+    }
+
+    /**
+     * Zeichnet einen Fehler auf. Eine noch laufende Phase wird dabei verworfen.
+     * @param message die Fehlermeldung
+     */
+    public void fail(String message) {
+        phase = null;
+        if (!FlightRecorder.isInitialized()) {
+            return;
+        }
+        CheckFailedEvent failed = new CheckFailedEvent();
+        if (failed.shouldCommit()) {
+            failed.input = input;
+            failed.message = message;
+            failed.commit();
+        }
+    }
+}
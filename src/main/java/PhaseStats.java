@@ -0,0 +1,295 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sammelt Dauer und Allokation je Phase über alle geprüften Bäume für die Option --stats und gibt sie als
+ * Perzentile und Histogramme aus. Die Werte werden in Klassen zur Basis 2 gezählt, sodass jede Messung nur einen
+ * atomaren Zähler erhöht; Perzentile sind daher auf eine Zweierpotenz genau. Zusätzlich werden die langsamsten
+ * Bäume mit ihrem Namen festgehalten, um auffällige Eingaben zu finden.
+ * <p>
+ * Die Methoden dürfen von mehreren Threads gleichzeitig aufgerufen werden, etwa aus dem {@link BatchProcessor}.
+ */
+public class PhaseStats {
+    /** Anzahl der Klassen: eine für 0 und eine je Bitlänge eines long. */
+    private static final int BUCKETS = Long.SIZE + 1;
+    /** Länge des längsten Balkens eines Histogramms in Zeichen. */
+    private static final int BAR_WIDTH = 40;
+    /** Anzahl der ausgegebenen langsamsten Bäume. */
+    private static final int SLOWEST = 5;
+
+    /**
+     * Häufigkeiten von Messwerten in Klassen [2^(k-1), 2^k).
+     */
+    private static class Histogram {
+        /** Die Anzahl je Klasse; Klasse 0 zählt den Wert 0. */
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        /** Der größte Wert. */
+        private final AtomicLong max = new AtomicLong();
+
+        /**
+         * Zählt einen Wert.
+         * @param value der nicht negative Wert
+         */
+        void add(long value) {
+            counts.incrementAndGet(bucket(value));
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        /**
+         * Gibt die Anzahl aller gezählten Werte zurück.
+         * @return die Anzahl
+         */
+        long count() {
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                count += counts.get(i);
+            }
+            return count;
+        }
+
+        /**
+         * Schätzt ein Perzentil als Obergrenze der Klasse, in die es fällt.
+         * @param fraction der Anteil, etwa 0.99
+         * @return das Perzentil, höchstens der größte Wert
+         */
+        long percentile(double fraction) {
+            long rank = (long) Math.ceil(fraction * count());
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank && seen > 0) {
+                    return Math.min(upper(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        /**
+         * Gibt die belegten Klassen als Zeilen mit Balken aus.
+         * @param unit   die Einheit der Werte, "ns" oder "B"
+         * @param indent die Einrückung jeder Zeile
+         * @param out    der Strom für die Ausgabe
+         */
+        void print(String unit, String indent, PrintStream out) {
+            int first = -1;
+            int last = -1;
+            long peak = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                long count = counts.get(i);
+                if (count > 0) {
+                    first = first < 0 ? i : first;
+                    last = i;
+                    peak = Math.max(peak, count);
+                }
+            }
+            for (int i = first; i >= 0 && i <= last; i++) {
+                long count = counts.get(i);
+                int bar = (int) ((count * BAR_WIDTH + peak - 1) / peak);
+                out.println(String.format(Locale.ROOT, "%s%9s .. %-9s %8d %s", indent, format(lower(i), unit),
+                        format(upper(i), unit), count, "#".repeat(bar)));
+            }
+        }
+
+        /**
+         * Bestimmt die Klasse eines Wertes.
+         * @param value der Wert
+         * @return die Bitlänge des Wertes
+         */
+        private static int bucket(long value) {
+            return Long.SIZE - Long.numberOfLeadingZeros(Math.max(value, 0));
+        }
+
+        /**
+         * Gibt die Untergrenze einer Klasse zurück.
+         * @param bucket die Klasse
+         * @return der kleinste Wert der Klasse
+         */
+        private static long lower(int bucket) {
+            return bucket == 0 ? 0 : 1L << (bucket - 1);
+        }
+
+        /**
+         * Gibt die Obergrenze einer Klasse zurück.
+         * @param bucket die Klasse
+         * @return der größte Wert der Klasse
+         */
+        private static long upper(int bucket) {
+            return bucket == 0 ? 0 : bucket == Long.SIZE ? Long.MAX_VALUE : (1L << bucket) - 1;
+        }
+    }
+
+    /**
+     * Die Gesamtwerte eines geprüften Baumes für die Liste der langsamsten Bäume.
+     */
+    private static class Tree {
+        /** Die Bezeichnung der Eingabe. */
+        private final String input;
+        /** Die Größe der Eingabe in Bytes. */
+        private final long size;
+        /** Die Knotenzahl. */
+        private final long nodeCount;
+        /** Die Dauer aller Phasen in Nanosekunden. */
+        private final long nanos;
+        /** Die Allokation aller Phasen in Bytes. */
+        private final long allocated;
+
+        /**
+         * Erstellt einen Eintrag.
+         * @param input     die Bezeichnung der Eingabe
+         * @param size      die Größe der Eingabe in Bytes
+         * @param nodeCount die Knotenzahl
+         * @param nanos     die Dauer aller Phasen in Nanosekunden
+         * @param allocated die Allokation aller Phasen in Bytes
+         */
+        Tree(String input, long size, long nodeCount, long nanos, long allocated) {
+            this.input = input;
+            this.size = size;
+            this.nodeCount = nodeCount;
+            this.nanos = nanos;
+            this.allocated = allocated;
+        }
+    }
+
+    /** Die Dauer je Phase in Nanosekunden. */
+    private final Histogram[] nanos;
+    /** Die Allokation je Phase in Bytes. */
+    private final Histogram[] allocated;
+    /** Die Dauer je Baum über alle Phasen. */
+    private final Histogram treeNanos;
+    /** Die Allokation je Baum über alle Phasen. */
+    private final Histogram treeAllocated;
+    /** Die bisher langsamsten Bäume, absteigend nach Dauer. */
+    private final List<Tree> slowest;
+
+    /**
+     * Erstellt eine leere Statistik.
+     */
+    public PhaseStats() {
+        int phases = PhaseRecorder.Phase.values().length;
+        this.nanos = new Histogram[phases];
+        this.allocated = new Histogram[phases];
+        for (int i = 0; i < phases; i++) {
+            nanos[i] = new Histogram();
+            allocated[i] = new Histogram();
+        }
+        this.treeNanos = new Histogram();
+        this.treeAllocated = new Histogram();
+        this.slowest = new ArrayList<>();
+    }
+
+    /**
+     * Zählt eine gemessene Phase.
+     * @param phase          die Phase
+     * @param phaseNanos     ihre Dauer in Nanosekunden
+     * @param allocatedBytes ihre Allokation in Bytes
+     */
+    void add(PhaseRecorder.Phase phase, long phaseNanos, long allocatedBytes) {
+        nanos[phase.ordinal()].add(phaseNanos);
+        allocated[phase.ordinal()].add(allocatedBytes);
+    }
+
+    /**
+     * Zählt einen vollständig geprüften Baum.
+     * @param input          die Bezeichnung der Eingabe
+     * @param size           die Größe der Eingabe in Bytes
+     * @param nodeCount      die Knotenzahl
+     * @param totalNanos     die Dauer aller Phasen in Nanosekunden
+     * @param allocatedBytes die Allokation aller Phasen in Bytes
+     */
+    void addTree(String input, long size, long nodeCount, long totalNanos, long allocatedBytes) {
+        treeNanos.add(totalNanos);
+        treeAllocated.add(allocatedBytes);
+        synchronized (slowest) {
+            if (slowest.size() < SLOWEST || totalNanos > slowest.get(slowest.size() - 1).nanos) {
+                slowest.add(new Tree(input, size, nodeCount, totalNanos, allocatedBytes));
+                slowest.sort(Comparator.comparingLong((Tree tree) -> tree.nanos).reversed());
+                if (slowest.size() > SLOWEST) {
+                    slowest.remove(SLOWEST);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gibt Perzentile, Histogramme und die langsamsten Bäume aus.
+     * @param out der Strom für die Ausgabe
+     */
+    public void print(PrintStream out) {
+        out.println();
+        out.println("=== Phasenstatistik: " + treeNanos.count() + " Bäume ===");
+        out.println(String.format(Locale.ROOT, "%-14s %8s %10s %10s %10s %10s %10s %10s", "Phase", "Anzahl",
+                "Zeit p50", "Zeit p99", "Zeit max", "Alloc p50", "Alloc p99", "Alloc max"));
+        PhaseRecorder.Phase[] phases = PhaseRecorder.Phase.values();
+        for (PhaseRecorder.Phase phase : phases) {
+            printRow(phase.getLabel(), nanos[phase.ordinal()], allocated[phase.ordinal()], out);
+        }
+        printRow("Je Baum", treeNanos, treeAllocated, out);
+
+        out.println("\nZeit je Phase:");
+        for (PhaseRecorder.Phase phase : phases) {
+            if (nanos[phase.ordinal()].count() > 0) {
+                out.println("  " + phase.getLabel());
+                nanos[phase.ordinal()].print("ns", "    ", out);
+            }
+        }
+        out.println("\nAllokation je Phase:");
+        for (PhaseRecorder.Phase phase : phases) {
+            if (allocated[phase.ordinal()].count() > 0) {
+                out.println("  " + phase.getLabel());
+                allocated[phase.ordinal()].print("B", "    ", out);
+            }
+        }
+
+        synchronized (slowest) {
+            if (!slowest.isEmpty()) {
+                out.println("\nLangsamste Bäume:");
+                for (Tree tree : slowest) {
+                    out.println(String.format(Locale.ROOT, "  %9s  %s (%d Knoten, %s, %s allokiert)",
+                            format(tree.nanos, "ns"), tree.input, tree.nodeCount, format(tree.size, "B"),
+                            format(tree.allocated, "B")));
+                }
+            }
+        }
+    }
+
+    /**
+     * Gibt die Tabellenzeile einer Phase aus, sofern sie gemessen wurde.
+     * @param label     die Bezeichnung der Zeile
+     * @param time      die Dauer
+     * @param allocation die Allokation
+     * @param out       der Strom für die Ausgabe
+     */
+    private static void printRow(String label, Histogram time, Histogram allocation, PrintStream out) {
+        long count = time.count();
+        if (count == 0) {
+            return;
+        }
+        out.println(String.format(Locale.ROOT, "%-14s %8d %10s %10s %10s %10s %10s %10s", label, count,
+                format(time.percentile(0.5), "ns"), format(time.percentile(0.99), "ns"),
+                format(time.max.get(), "ns"), format(allocation.percentile(0.5), "B"),
+                format(allocation.percentile(0.99), "B"), format(allocation.max.get(), "B")));
+    }
+
+    /**
+     * Formatiert eine Dauer oder Datenmenge mit passender Einheit, etwa "1.5 ms" oder "12 KB".
+     * @param value der Wert in Nanosekunden oder Bytes
+     * @param unit  "ns" für eine Dauer, "B" für eine Datenmenge
+     * @return der formatierte Wert
+     */
+    static String format(long value, String unit) {
+        String[] units = unit.equals("ns") ? new String[] {"ns", "µs", "ms", "s"} : new String[] {"B", "KB", "MB", "GB"};
+        int divisor = unit.equals("ns") ? 1000 : 1024;
+        double scaled = value;
+        int index = 0;
+        while (scaled >= divisor && index < units.length - 1) {
+            scaled /= divisor;
+            index++;
+        }
+        return String.format(Locale.ROOT, scaled < 10 && index > 0 ? "%.1f %s" : "%.0f %s", scaled, units[index]);
+    }
+}
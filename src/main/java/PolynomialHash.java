@@ -0,0 +1,196 @@
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Polynom-Hashes über Blattfolgen modulo der Mersenne-Primzahl 2^61 - 1, wie sie {@link SubtreeDag},
+ * {@link IncrementalChecker} und {@link HashPrecheck} verwenden.
+ * <p>
+ * Eine Folge v_0, ..., v_(n-1) wird als Summe r^i · v_i mit einer zufälligen Basis r gehasht. Pfadnenner werden
+ * dabei nicht selbst eingesetzt, sondern als Summe e_p · z_p über ihre Primfaktorzerlegung mit zufälligen Werten
+ * z_p, sodass sich der Wert beim Multiplizieren zweier Nenner addiert. Die Kinderzahlen auf einem Pfad lassen sich
+ * so als Summanden statt als Faktoren verrechnen.
+ * <p>
+ * Eine Instanz ist nicht threadsicher, weil sie die Werte der Kinderzahlen zwischenspeichert.
+ */
+final class PolynomialHash {
+    /** Der Modul der Hashes, die Mersenne-Primzahl 2^61 - 1. */
+    static final long MODULUS = (1L << 61) - 1;
+
+    /** Die zufällige Basis r. */
+    private final long base;
+    /** Das Inverse von r - 1, um 1 + r + ... + r^(n-1) als (r^n - 1) / (r - 1) zu berechnen. */
+    private final long inverseBaseMinusOne;
+    /** Der zufällige Startwert für die Werte der Primzahlen. */
+    private final long seed;
+    /** Der Wert je Kinderzahl, 0 wenn noch nicht berechnet. */
+    private long[] factorValue = new long[64];
+
+    /**
+     * Erstellt einen Hash mit zufälliger Basis und zufälligen Primzahlwerten.
+     */
+    PolynomialHash() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        this.base = random.nextLong(2, MODULUS - 1);
+        // Nach dem kleinen Satz von Fermat ist x^(p-2) das Inverse von x modulo p
+        this.inverseBaseMinusOne = power(base - 1, MODULUS - 2);
+        this.seed = random.nextLong();
+    }
+
+    /**
+     * Gibt die Basis r zurück.
+     * @return die Basis
+     */
+    long getBase() {
+        return base;
+    }
+
+    /**
+     * Gibt 1 + r + ... + r^(n-1) zurück, also den Hash einer Folge aus n Einsen.
+     * @param power r^n
+     * @return die geometrische Summe modulo 2^61 - 1
+     */
+    long geometric(long power) {
+        return multiply(subtract(power, 1), inverseBaseMinusOne);
+    }
+
+    /**
+     * Gibt den Wert einer Kinderzahl zurück: die Summe der Werte ihrer Primfaktoren mit Vielfachheit.
+     * So gilt valueOf(a · b) = valueOf(a) + valueOf(b), und gleiche Produkte ergeben gleiche Werte.
+     * @param k die Kinderzahl, mindestens 1
+     * @return der Wert modulo 2^61 - 1, 0 für k = 1
+     */
+    long valueOf(int k) {
+        if (k >= factorValue.length) {
+            factorValue = Arrays.copyOf(factorValue, Math.max(k + 1, factorValue.length * 2));
+        }
+        if (factorValue[k] == 0 && k > 1) {
+            long value = 0;
+            int rest = k;
+            for (int p = 2; (long) p * p <= rest; p++) {
+                while (rest % p == 0) {
+                    value = add(value, primeValue(p));
+                    rest /= p;
+                }
+            }
+            if (rest > 1) {
+                value = add(value, primeValue(rest));
+            }
+            factorValue[k] = value;
+        }
+        return factorValue[k];
+    }
+
+    /**
+     * Prüft anhand der Hashes einer Folge, ob die Summe gegenüberliegender Glieder v_i + v_(n-1-i) konstant ist.
+     * Verglichen wird die Summe über r^i · (v_i + v_(n-1-i)) mit der über r^i · (v_0 + v_(n-1)). Bei ungerader
+     * Länge bildet das mittlere Glied kein Paar und wird wie in {@link WidthAndDepthCalculator} nicht geprüft.
+     *
+     * @param forward der Hash der Folge von vorn
+     * @param reverse der Hash der Folge von hinten
+     * @param length  die Länge n der Folge
+     * @param pairSum v_0 + v_(n-1)
+     * @param middle  das mittlere Glied v_(n/2), nur bei ungerader Länge verwendet
+     * @return true, wenn die Summe konstant ist, bis auf eine Fehlerwahrscheinlichkeit von etwa n / 2^61
+     */
+    boolean isConstantPairSum(long forward, long reverse, long length, long pairSum, long middle) {
+        long actual = add(forward, reverse);
+        long expected = multiply(pairSum, geometric(power(base, length)));
+        if (length % 2 == 1) {
+            long weight = power(base, length / 2);
+            actual = subtract(actual, multiply(weight, 2 * middle));
+            expected = subtract(expected, multiply(weight, pairSum));
+        }
+        return actual == expected;
+    }
+
+    /**
+     * Prüft wie {@link #isConstantPairSum} anhand der Hashes, ob die Summe gegenüberliegender Glieder konstant ist,
+     * ohne das mittlere Glied einer ungeraden Folge zu kennen. Sind alle Paare gleich, bleibt vom Unterschied der
+     * beiden Summen nur r^(n/2) · (2 · v_(n/2) - pairSum) übrig; das mittlere Glied wird daraus zurückgerechnet
+     * und nur darauf geprüft, ob es eine ganze Zahl zwischen 0 und maxMiddle ist.
+     *
+     * @param forward   der Hash der Folge von vorn
+     * @param reverse   der Hash der Folge von hinten
+     * @param length    die Länge n der Folge
+     * @param pairSum   v_0 + v_(n-1)
+     * @param maxMiddle die Obergrenze für das mittlere Glied, etwa die größte Tiefe
+     * @return true, wenn die Summe konstant ist, bis auf eine Fehlerwahrscheinlichkeit von etwa
+     *         (n + maxMiddle) / 2^61
+     */
+    boolean isConstantPairSumAnyMiddle(long forward, long reverse, long length, long pairSum, long maxMiddle) {
+        long difference = subtract(add(forward, reverse), multiply(pairSum, geometric(power(base, length))));
+        if (length % 2 == 0 || difference == 0) {
+            return difference == 0;
+        }
+        long twiceMiddle = add(multiply(difference, power(power(base, length / 2), MODULUS - 2)), pairSum);
+        return twiceMiddle % 2 == 0 && twiceMiddle <= 2 * maxMiddle;
+    }
+
+    /**
+     * Gibt den zufälligen Wert einer Primzahl zurück, gemischt aus dem Startwert wie bei SplitMix64.
+     * @param p die Primzahl
+     * @return ein Wert zwischen 1 und 2^61 - 2
+     */
+    private long primeValue(int p) {
+        long z = seed + p * 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        z ^= z >>> 31;
+        return (z >>> 3) % (MODULUS - 1) + 1;
+    }
+
+    /**
+     * Berechnet eine Potenz modulo 2^61 - 1 durch wiederholtes Quadrieren.
+     * @param base     die Basis
+     * @param exponent der Exponent
+     * @return base^exponent mod (2^61 - 1)
+     */
+    static long power(long base, long exponent) {
+        long result = 1;
+        long square = base;
+        for (long e = exponent; e > 0; e >>= 1) {
+            if ((e & 1) != 0) {
+                result = multiply(result, square);
+            }
+            square = multiply(square, square);
+        }
+        return result;
+    }
+
+    /**
+     * Addiert zwei Reste modulo 2^61 - 1.
+     * @param a der erste Rest
+     * @param b der zweite Rest
+     * @return (a + b) mod (2^61 - 1)
+     */
+    static long add(long a, long b) {
+        long sum = a + b;
+        return sum >= MODULUS ? sum - MODULUS : sum;
+    }
+
+    /**
+     * Subtrahiert zwei Reste modulo 2^61 - 1.
+     * @param a der Minuend
+     * @param b der Subtrahend
+     * @return (a - b) mod (2^61 - 1)
+     */
+    static long subtract(long a, long b) {
+        long difference = a - b;
+        return difference < 0 ? difference + MODULUS : difference;
+    }
+
+    /**
+     * Multipliziert zwei Reste modulo 2^61 - 1.
+     * @param a der erste Rest
+     * @param b der zweite Rest
+     * @return (a · b) mod (2^61 - 1)
+     */
+    static long multiply(long a, long b) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        // 2^61 ist modulo 2^61 - 1 gleich 1, die oberen Bits werden daher auf die unteren addiert
+        long result = (low & MODULUS) + ((low >>> 61) | (high << 3));
+        result = (result & MODULUS) + (result >>> 61);
+        return result >= MODULUS ? result - MODULUS : result;
+    }
+}
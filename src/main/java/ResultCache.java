@@ -0,0 +1,455 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Speichert Prüfergebnisse dauerhaft in einem Verzeichnis, adressiert über einen Hash des Bauminhalts.
+ * <p>
+ * Der Schlüssel wird nur aus den Klammern der Datei gebildet, denn alle anderen Zeichen überliest auch der
+ * {@link TreeParser}. Zwei unabhängige 64-Bit-Hashes und die Zahl der Klammern bilden den Schlüssel; dafür wird die
+ * Datei einmal gelesen, ohne einen Baum aufzubauen. Jeder Eintrag liegt in einer eigenen Textdatei und enthält
+ * das Ergebnis, das kgV und die formatierten Blattbreiten und -tiefen, sodass ein Treffer die Ausgabe ohne Parser
+ * und Breitenberechnung wiederholen kann. Ergebnisse des DAG-Modus beruhen nur auf Hashes der Blattfolgen und
+ * sind als solche gekennzeichnet, damit sie nicht als exaktes Ergebnis ausgegeben werden.
+ * <p>
+ * Jeder Eintrag beginnt mit der {@link #VERSION Formatversion}; Einträge anderer Versionen gelten als nicht
+ * vorhanden und werden beim nächsten Speichern ersetzt. Überschreiten die Einträge zusammen die Größengrenze,
+ * werden die am längsten nicht benutzten gelöscht; ein Treffer setzt dafür die Änderungszeit seiner Datei neu.
+ * Mehrere Threads und Prozesse dürfen denselben Cache verwenden, weil Einträge erst vollständig geschrieben und
+ * dann atomar umbenannt werden.
+ */
+public class ResultCache {
+    /** Die Formatversion der Einträge; bei Änderungen an Format oder Berechnung zu erhöhen. */
+    static final int VERSION = 2;
+    /** Die Standardgrenze für die Größe aller Einträge zusammen in Bytes. */
+    static final long DEFAULT_MAX_BYTES = 256L << 20;
+    /** Die erste Zeile jedes Eintrags vor der Versionsnummer. */
+    private static final String HEADER = "drehfreudig-cache ";
+    /** Die Dateiendung der Einträge. */
+    private static final String SUFFIX = ".entry";
+    /** Startwert des FNV-1a-Hashes. */
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    /** Multiplikator des FNV-1a-Hashes. */
+    private static final long FNV_PRIME = 0x100000001b3L;
+    /** Ungerader Multiplikator des zweiten, polynomiellen Hashes. */
+    private static final long POLYNOMIAL_MULTIPLIER = 0x9e3779b97f4a7c15L;
+    /** Platzhalter für nicht berechnete Werte in einem Eintrag. */
+    private static final String ABSENT = "-";
+
+    /** Das Verzeichnis der Einträge. */
+    private final Path directory;
+    /** Die Grenze für die Größe aller Einträge zusammen in Bytes. */
+    private final long maxBytes;
+    /** Die geschätzte Größe aller Einträge seit der letzten Zählung, -1 vor der ersten Zählung. */
+    private long size;
+
+    /**
+     * Erstellt einen Cache mit der Standardgrößengrenze. Das Verzeichnis wird beim ersten Speichern angelegt.
+     * @param directory das Verzeichnis der Einträge
+     */
+    public ResultCache(Path directory) {
+        this(directory, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Erstellt einen Cache. Das Verzeichnis wird beim ersten Speichern angelegt.
+     * @param directory das Verzeichnis der Einträge
+     * @param maxBytes  die Grenze für die Größe aller Einträge zusammen in Bytes
+     * @throws IllegalArgumentException wenn die Grenze nicht positiv ist.
+     */
+    public ResultCache(Path directory, long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("Die Cachegröße muss positiv sein: " + maxBytes);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.size = -1;
+    }
+
+    /**
+     * Berechnet den Schlüssel einer Baumdatei aus ihren Klammern. Die Datei wird über den {@link TreeParser}
+     * gelesen, sodass der Schlüssel genau die Klammern abdeckt, die auch geparst werden: eine komprimierte
+     * Datei und eine Binärdatei haben denselben Schlüssel wie ihr Text.
+     * @param file die Baumdatei
+     * @return der Schlüssel
+     * @throws IOException wenn die Datei nicht gelesen werden kann.
+     */
+    public Key key(Path file) throws IOException {
+        KeyBuilder builder = new KeyBuilder();
+        new TreeParser().feed(file, builder);
+        return new Key(builder.fnv, builder.polynomial, builder.length);
+    }
+
+    /**
+     * Sucht den Eintrag zu einem Schlüssel und markiert ihn als zuletzt benutzt.
+     * Ein fehlender, unlesbarer oder beschädigter Eintrag gilt als nicht vorhanden.
+     * @param key der Schlüssel
+     * @return der Eintrag, oder null, wenn es keinen gültigen Eintrag gibt
+     */
+    public Entry lookup(Key key) {
+        Path file = directory.resolve(key.fileName());
+        try {
+            Entry entry;
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                entry = read(reader, key);
+            }
+            if (entry != null) {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            }
+            return entry;
+        } catch (IOException e) {
+            // Fehlt, oder wurde inzwischen von einem anderen Prozess verdrängt
+            return null;
+        }
+    }
+
+    /**
+     * Speichert einen Eintrag und verdrängt danach, falls nötig, die am längsten nicht benutzten Einträge.
+     * Einträge, die allein größer als die Grenze sind, werden nicht gespeichert.
+     * @param key   der Schlüssel
+     * @param entry der Eintrag
+     * @throws IOException wenn der Eintrag nicht geschrieben werden kann.
+     */
+    public void store(Key key, Entry entry) throws IOException {
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, key.toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                write(writer, key, entry);
+            }
+            long written = Files.size(temp);
+            if (written > maxBytes) {
+                return;
+            }
+            Files.move(temp, directory.resolve(key.fileName()),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            added(written);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Zählt einen gespeicherten Eintrag zur Größe und verdrängt bei Überschreitung der Grenze.
+     * @param written die Größe des Eintrags in Bytes
+     * @throws IOException wenn das Verzeichnis nicht gelesen werden kann.
+     */
+    private synchronized void added(long written) throws IOException {
+        if (size >= 0) {
+            size += written;
+            if (size <= maxBytes) {
+                return;
+            }
+        }
+        evict();
+    }
+
+    /**
+     * Zählt die Einträge neu und löscht die am längsten nicht benutzten, bis die Grenze eingehalten ist.
+     * @throws IOException wenn das Verzeichnis nicht gelesen werden kann.
+     */
+    private void evict() throws IOException {
+        List<Path> files = new ArrayList<>();
+        List<BasicFileAttributes> attributes = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : entries) {
+                try {
+                    BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                    files.add(file);
+                    attributes.add(attrs);
+                    total += attrs.size();
+                } catch (NoSuchFileException e) {
+                    // Gerade von einem anderen Prozess gelöscht
+                }
+            }
+        }
+
+        if (total > maxBytes) {
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < files.size(); i++) {
+                order.add(i);
+            }
+            order.sort(Comparator.comparing(i -> attributes.get(i).lastModifiedTime()));
+            for (int i : order) {
+                if (total <= maxBytes) {
+                    break;
+                }
+                Files.deleteIfExists(files.get(i));
+                total -= attributes.get(i).size();
+            }
+        }
+        size = total;
+    }
+
+    /**
+     * Schreibt einen Eintrag zeilenweise.
+     * @param writer der Zielstrom
+     * @param key    der Schlüssel, dessen Klammerzahl zur Kontrolle mitgespeichert wird
+     * @param entry  der Eintrag
+     * @throws IOException wenn nicht geschrieben werden kann.
+     */
+    private static void write(BufferedWriter writer, Key key, Entry entry) throws IOException {
+        writer.write(HEADER + VERSION + "\n");
+        writer.write(key.length + "\n");
+        writer.write(entry.nodeCount + "\n");
+        writer.write(entry.leafCount + "\n");
+        writer.write(entry.widthPalindrome + "\n");
+        writer.write(entry.constantDepthSum + "\n");
+        writer.write((entry.totalWidth != null ? entry.totalWidth.toString() : ABSENT) + "\n");
+        writer.write((entry.leafWidths != null ? entry.leafWidths : ABSENT) + "\n");
+        writer.write((entry.leafDepths != null ? entry.leafDepths : ABSENT) + "\n");
+        writer.write(entry.probabilistic + "\n");
+    }
+
+    /**
+     * Liest einen Eintrag zeilenweise.
+     * @param reader der Quellstrom
+     * @param key    der erwartete Schlüssel
+     * @return der Eintrag, oder null bei anderer Version, anderer Klammerzahl oder unvollständigem Eintrag
+     * @throws IOException wenn nicht gelesen werden kann.
+     */
+    private static Entry read(BufferedReader reader, Key key) throws IOException {
+        if (!(HEADER + VERSION).equals(reader.readLine())) {
+            return null;
+        }
+        String[] lines = new String[9];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = reader.readLine();
+            if (lines[i] == null) {
+                return null;
+            }
+        }
+        try {
+            if (Long.parseLong(lines[0]) != key.length) {
+                return null;
+            }
+            return new Entry(Long.parseLong(lines[1]), Long.parseLong(lines[2]),
+                    Boolean.parseBoolean(lines[3]), Boolean.parseBoolean(lines[4]),
+                    lines[5].equals(ABSENT) ? null : new BigInteger(lines[5]),
+                    lines[6].equals(ABSENT) ? null : lines[6],
+                    lines[7].equals(ABSENT) ? null : lines[7], Boolean.parseBoolean(lines[8]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Bildet die beiden Hashes und die Länge aus den Klammerereignissen beim Lesen einer Baumdatei.
+     */
+    private static class KeyBuilder implements TreeParser.Sink {
+        /** Der FNV-1a-Hash der bisherigen Klammern. */
+        private long fnv = FNV_OFFSET;
+        /** Der polynomielle Hash der bisherigen Klammern. */
+        private long polynomial;
+        /** Die Anzahl der bisherigen Klammern. */
+        private long length;
+
+        @Override
+        public void open() {
+            add((byte) '(');
+        }
+
+        @Override
+        public void close() {
+            add((byte) ')');
+        }
+
+        /**
+         * Nimmt eine Klammer in die Hashes auf.
+         * @param b die Klammer als ASCII-Byte
+         */
+        private void add(byte b) {
+            fnv = (fnv ^ b) * FNV_PRIME;
+            polynomial = polynomial * POLYNOMIAL_MULTIPLIER + b;
+            length++;
+        }
+    }
+
+    /**
+     * Der Schlüssel einer Baumdatei: zwei Hashes ihrer Klammerfolge und deren Länge.
+     */
+    public static class Key {
+        /** Der FNV-1a-Hash der Klammern. */
+        private final long fnv;
+        /** Der polynomielle Hash der Klammern. */
+        private final long polynomial;
+        /** Die Anzahl der Klammern. */
+        private final long length;
+
+        /**
+         * Erstellt einen Schlüssel.
+         * @param fnv        der FNV-1a-Hash der Klammern
+         * @param polynomial der polynomielle Hash der Klammern
+         * @param length     die Anzahl der Klammern
+         */
+        Key(long fnv, long polynomial, long length) {
+            this.fnv = fnv;
+            this.polynomial = polynomial;
+            this.length = length;
+        }
+
+        /**
+         * Gibt den Dateinamen des Eintrags zurück.
+         * @return der Dateiname
+         */
+        String fileName() {
+            return this + SUFFIX;
+        }
+
+        /**
+         * Gibt den Schlüssel als 32 Hexadezimalziffern zurück.
+         * @return der Schlüssel als Text
+         */
+        @Override
+        public String toString() {
+            return String.format("%016x%016x", fnv, polynomial);
+        }
+    }
+
+    /**
+     * Ein gespeichertes Prüfergebnis. Im schnellen Modus ohne kgV und Blattbreiten, bei nicht palindromischen
+     * Blattnennern ohne Blatttiefen. Ein probabilistisches Ergebnis wurde nur über Hashes ermittelt.
+     */
+    public static class Entry {
+        /** Die Anzahl aller Knoten. */
+        private final long nodeCount;
+        /** Die Anzahl der Blätter. */
+        private final long leafCount;
+        /** Ob die Blattnenner ein Palindrom bilden. */
+        private final boolean widthPalindrome;
+        /** Ob die Tiefensumme gegenüberliegender Blätter konstant ist. */
+        private final boolean constantDepthSum;
+        /** Das kgV aller Blattnenner, oder null, wenn es nicht berechnet wurde. */
+        private final BigInteger totalWidth;
+        /** Die formatierten Blattbreiten, oder null, wenn sie nicht berechnet wurden. */
+        private final String leafWidths;
+        /** Die formatierten Blatttiefen, oder null, wenn sie nicht berechnet wurden. */
+        private final String leafDepths;
+        /** Ob das Ergebnis nur über Hashes ermittelt wurde. */
+        private final boolean probabilistic;
+
+        /**
+         * Erstellt einen exakten Eintrag.
+         * @param nodeCount        die Anzahl aller Knoten
+         * @param leafCount        die Anzahl der Blätter
+         * @param widthPalindrome  ob die Blattnenner ein Palindrom bilden
+         * @param constantDepthSum ob die Tiefensumme konstant ist
+         * @param totalWidth       das kgV aller Blattnenner, oder null
+         * @param leafWidths       die formatierten Blattbreiten, oder null
+         * @param leafDepths       die formatierten Blatttiefen, oder null
+         */
+        public Entry(long nodeCount, long leafCount, boolean widthPalindrome, boolean constantDepthSum,
+                     BigInteger totalWidth, String leafWidths, String leafDepths) {
+            this(nodeCount, leafCount, widthPalindrome, constantDepthSum, totalWidth, leafWidths, leafDepths, false);
+        }
+
+        /**
+         * Erstellt einen Eintrag.
+         * @param nodeCount        die Anzahl aller Knoten
+         * @param leafCount        die Anzahl der Blätter
+         * @param widthPalindrome  ob die Blattnenner ein Palindrom bilden
+         * @param constantDepthSum ob die Tiefensumme konstant ist
+         * @param totalWidth       das kgV aller Blattnenner, oder null
+         * @param leafWidths       die formatierten Blattbreiten, oder null
+         * @param leafDepths       die formatierten Blatttiefen, oder null
+         * @param probabilistic    ob das Ergebnis nur über Hashes ermittelt wurde
+         */
+        public Entry(long nodeCount, long leafCount, boolean widthPalindrome, boolean constantDepthSum,
+                     BigInteger totalWidth, String leafWidths, String leafDepths, boolean probabilistic) {
+            this.nodeCount = nodeCount;
+            this.leafCount = leafCount;
+            this.widthPalindrome = widthPalindrome;
+            this.constantDepthSum = constantDepthSum;
+            this.totalWidth = totalWidth;
+            this.leafWidths = leafWidths;
+            this.leafDepths = leafDepths;
+            this.probabilistic = probabilistic;
+        }
+
+        /**
+         * Gibt die Anzahl aller Knoten zurück.
+         * @return die Knotenzahl
+         */
+        public long getNodeCount() {
+            return nodeCount;
+        }
+
+        /**
+         * Gibt die Anzahl der Blätter zurück.
+         * @return die Blattzahl
+         */
+        public long getLeafCount() {
+            return leafCount;
+        }
+
+        /**
+         * Gibt zurück, ob die Blattnenner ein Palindrom bilden.
+         * @return true, wenn die Breitenprüfung bestanden ist
+         */
+        public boolean isWidthPalindrome() {
+            return widthPalindrome;
+        }
+
+        /**
+         * Gibt zurück, ob die Tiefensumme gegenüberliegender Blätter konstant ist.
+         * @return true, wenn die Tiefenprüfung bestanden ist
+         */
+        public boolean isConstantDepthSum() {
+            return constantDepthSum;
+        }
+
+        /**
+         * Gibt zurück, ob der Baum drehfreudig ist.
+         * @return true, wenn beide Prüfungen bestanden sind
+         */
+        public boolean isDrehfreudig() {
+            return widthPalindrome && constantDepthSum;
+        }
+
+        /**
+         * Gibt das kgV aller Blattnenner zurück.
+         * @return die Gesamtbreite, oder null, wenn sie nicht berechnet wurde
+         */
+        public BigInteger getTotalWidth() {
+            return totalWidth;
+        }
+
+        /**
+         * Gibt die formatierten Blattbreiten zurück.
+         * @return die Blattbreiten, oder null, wenn sie nicht berechnet wurden
+         */
+        public String getLeafWidths() {
+            return leafWidths;
+        }
+
+        /**
+         * Gibt die formatierten Blatttiefen zurück.
+         * @return die Blatttiefen, oder null, wenn sie nicht berechnet wurden
+         */
+        public String getLeafDepths() {
+            return leafDepths;
+        }
+
+        /**
+         * Gibt zurück, ob das Ergebnis nur über Hashes ermittelt wurde, etwa im DAG-Modus. Ein nicht drehfreudiger
+         * Baum kann dann mit geringer Wahrscheinlichkeit als drehfreudig gelten.
+         * @return true, wenn das Ergebnis probabilistisch ist
+         */
+        public boolean isProbabilistic() {
+            return probabilistic;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Zeigt einen Baum auf eine feste Spaltenzahl skaliert an, zusammen mit seiner um 180° gedrehten Kopie.
+ * <p>
+ * Ein Knoten mit Pfadnenner D nimmt genau den Anteil 1/D der Gesamtbreite ein; die Spalten ergeben sich daraus
+ * wie in {@link VisibleLevel} beschrieben. Gerechnet wird nur mit diesen Brüchen, nie mit der Gesamtbreite selbst,
+ * sodass der Aufwand von der Spaltenzahl und der Zahl der sichtbaren Knoten abhängt und nicht vom kgV.
+ * Sind die Kinder eines Knotens schmaler als eine Spalte, wird sein Teilbaum nicht weiter besucht und als
+ * schattierter Block zusammengefasst: Alle Zellen, die kein sichtbarer Knoten belegt, werden schattiert.
+ * <p>
+ * Wie in der Aufgabe wird unter dem Baum die um 180° gedrehte Kopie mit der Wurzel unten gezeichnet. Ein Knoten
+ * der Tiefe d erscheint dort gespiegelt in Zeile h + 1 - d, wobei h die konstante Tiefensumme gegenüberliegender
+ * Blätter ist. Bei einem drehfreudigen Baum füllen beide Kopien zusammen genau h Zeilen, und jedes Blatt trifft
+ * in der Mitte passgenau auf ein Blatt der gedrehten Kopie. Die Zellen ohne sichtbaren Knoten sind dann genau die
+ * der zusammengefassten Teilbäume.
+ */
+public class ScaledTreeDisplay {
+    /** Zeichen für Zellen zusammengefasster Teilbäume, die schmaler als eine Spalte sind. */
+    private static final char SHADE = '#';
+
+    /** Der Strom, auf den die Anzeigezeilen geschrieben werden. */
+    private final PrintStream out;
+    /** Die Anzahl der Spalten. */
+    private final int columns;
+
+    /**
+     * Erstellt eine skalierte Anzeige.
+     *
+     * @param out     der Strom für die Anzeigezeilen
+     * @param columns die Anzahl der Spalten
+     * @throws IllegalArgumentException wenn die Spaltenzahl nicht positiv ist.
+     */
+    public ScaledTreeDisplay(PrintStream out, int columns) {
+        if (columns < 1) {
+            throw new IllegalArgumentException("Die Spaltenzahl muss positiv sein: " + columns);
+        }
+        this.out = out;
+        this.columns = columns;
+    }
+
+    /**
+     * Zeigt einen drehfreudigen Baum mit seiner gedrehten Kopie an.
+     *
+     * @param root     der Wurzelknoten des Baumes
+     * @param analysis das Analyseergebnis des Baumes
+     */
+    public void display(Node root, TreeAnalysis analysis) {
+        if (root == null)
+            return;
+
+        print(layout(VisibleLevel.of(root, columns)), height(analysis));
+    }
+
+    /**
+     * Zeigt einen drehfreudigen, kompakt gespeicherten Baum mit seiner gedrehten Kopie an.
+     * Es werden nur die sichtbaren Knoten besucht.
+     *
+     * @param tree     der kompakte Baum
+     * @param analysis das Analyseergebnis des Baumes
+     */
+    public void display(CompactTree tree, TreeAnalysis analysis) {
+        if (tree == null)
+            return;
+
+        print(layout(VisibleLevel.of(tree, columns)), height(analysis));
+    }
+
+    /**
+     * Zeigt einen drehfreudigen Baum, der als DAG der Teilbäume vorliegt, mit seiner gedrehten Kopie an.
+     * Mehrfach vorkommende Teilbäume werden an jeder sichtbaren Stelle gezeichnet.
+     *
+     * @param dag der DAG der Teilbäume
+     */
+    public void display(SubtreeDag dag) {
+        if (dag == null)
+            return;
+
+        print(layout(VisibleLevel.of(dag, columns)), dag.getFirstLeafDepth() + dag.getLastLeafDepth());
+    }
+
+    /**
+     * Gibt die Zeilenzahl beider Kopien zurück: die Tiefensumme des ersten und letzten Blattes.
+     *
+     * @param analysis das Analyseergebnis des Baumes
+     * @return die Zeilenzahl
+     */
+    private static int height(TreeAnalysis analysis) {
+        LeafSequence leaves = analysis.getLeaves();
+        return leaves.getDepth(0) + leaves.getDepth(leaves.size() - 1);
+    }
+
+    /**
+     * Berechnet die sichtbaren Knoten aller Ebenen, ausgehend von der Ebene des Wurzelknotens.
+     *
+     * @param first die Ebene des Wurzelknotens
+     * @return die Ebenen von oben nach unten
+     */
+    private List<VisibleLevel> layout(VisibleLevel first) {
+        List<VisibleLevel> levels = new ArrayList<>();
+        VisibleLevel level = first;
+        while (level.size() > 0) {
+            levels.add(level);
+            // Kinder schmaler als eine Spalte werden nicht besucht, ihr Teilbaum bleibt schattiert
+            VisibleLevel next = level.next();
+            level.releaseNodes();
+            level = next;
+        }
+        return levels;
+    }
+
+    /**
+     * Gibt die Zeilen aus. Zeile r enthält die Knoten der Tiefe r und die gespiegelten Knoten der Tiefe h + 1 - r.
+     *
+     * @param levels die sichtbaren Ebenen von oben nach unten
+     * @param height die Zeilenzahl h beider Kopien
+     */
+    private void print(List<VisibleLevel> levels, int height) {
+        char[] row = new char[columns];
+        for (int r = 1; r <= height; r++) {
+            Arrays.fill(row, SHADE);
+            if (r <= levels.size()) {
+                draw(levels.get(r - 1), row, false);
+            }
+            int mirrored = height + 1 - r;
+            if (mirrored >= 1 && mirrored <= levels.size()) {
+                draw(levels.get(mirrored - 1), row, true);
+            }
+            out.println(row);
+        }
+    }
+
+    /**
+     * Zeichnet die Knoten einer Ebene in eine Zeile.
+     *
+     * @param level    die Ebene
+     * @param row      die Zeile
+     * @param mirrored ob die Ebene horizontal gespiegelt gezeichnet wird
+     */
+    private void draw(VisibleLevel level, char[] row, boolean mirrored) {
+        for (int i = 0; i < level.size(); i++) {
+            int start = mirrored ? columns - level.getEnd(i) : level.getStart(i);
+            int end = mirrored ? columns - level.getStart(i) : level.getEnd(i);
+            drawNode(row, start, end, level.getDenominator(i));
+        }
+    }
+
+    /**
+     * Zeichnet einen Knoten als [....1/D....] in seine Spalten; ist der Anteil zu lang, nur mit Punkten.
+     * Ein Knoten mit einer Spalte wird als "|", einer mit zwei Spalten als "[]" gezeichnet.
+     *
+     * @param row         die Zeile
+     * @param start       die erste Spalte des Knotens
+     * @param end         die Spalte nach dem Knoten
+     * @param denominator der Pfadnenner des Knotens
+     */
+    private static void drawNode(char[] row, int start, int end, long denominator) {
+        int width = end - start;
+        if (width == 1) {
+            row[start] = '|';
+            return;
+        }
+        row[start] = '[';
+        row[end - 1] = ']';
+        Arrays.fill(row, start + 1, end - 1, '.');
+        String label = denominator == 1 ? "1" : "1/" + denominator;
+        if (label.length() <= width - 2) {
+            int labelStart = start + 1 + (width - 2 - label.length()) / 2;
+            label.getChars(0, label.length(), row, labelStart);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Auslagerungspuffer mit Datensätzen fester Länge in einer temporären Datei.
+ * Die Datei wird abschnittsweise eingeblendet, sodass die Daten außerhalb des Java-Heaps liegen und nur die
+ * gerade benutzten Seiten im Speicher gehalten werden. Beim Schließen wird die Datei gelöscht.
+ */
+class SpillBuffer implements Closeable {
+    /** Anzahl der Datensätze je eingeblendetem Abschnitt. */
+    private static final int RECORDS_PER_CHUNK = 1 << 20;
+
+    /** Länge eines Datensatzes in Bytes. */
+    private final int recordSize;
+    /** Der Kanal der temporären Datei. */
+    private final FileChannel channel;
+    /** Die bisher eingeblendeten Abschnitte. */
+    private final List<MappedByteBuffer> chunks;
+
+    /**
+     * Erstellt einen leeren Puffer in einer neuen temporären Datei.
+     * @param recordSize Länge eines Datensatzes in Bytes
+     * @throws IOException wenn die temporäre Datei nicht angelegt werden kann.
+     */
+    SpillBuffer(int recordSize) throws IOException {
+        this.recordSize = recordSize;
+        Path file = Files.createTempFile("drehfreudig", ".spill");
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+        this.chunks = new ArrayList<>();
+    }
+
+    /**
+     * Gibt den Abschnitt zurück, der einen Datensatz enthält, und blendet ihn bei Bedarf ein.
+     * @param record die Nummer des Datensatzes
+     * @return der Abschnitt
+     * @throws IOException wenn der Abschnitt nicht eingeblendet werden kann.
+     */
+    private MappedByteBuffer chunk(long record) throws IOException {
+        int index = (int) (record / RECORDS_PER_CHUNK);
+        while (chunks.size() <= index) {
+            long chunkBytes = (long) recordSize * RECORDS_PER_CHUNK;
+            chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, chunks.size() * chunkBytes, chunkBytes));
+        }
+        return chunks.get(index);
+    }
+
+    /**
+     * Berechnet die Byteposition eines Feldes innerhalb seines Abschnitts.
+     * @param record die Nummer des Datensatzes
+     * @param offset der Versatz des Feldes im Datensatz
+     * @return die Position im Abschnitt
+     */
+    private int position(long record, int offset) {
+        return (int) (record % RECORDS_PER_CHUNK) * recordSize + offset;
+    }
+
+    /**
+     * Schreibt einen int-Wert.
+     * @param record die Nummer des Datensatzes
+     * @param offset der Versatz des Feldes im Datensatz
+     * @param value  der Wert
+     * @throws IOException wenn der Abschnitt nicht eingeblendet werden kann.
+     */
+    void putInt(long record, int offset, int value) throws IOException {
+        chunk(record).putInt(position(record, offset), value);
+    }
+
+    /**
+     * Liest einen int-Wert.
+     * @param record die Nummer des Datensatzes
+     * @param offset der Versatz des Feldes im Datensatz
+     * @return der Wert
+     * @throws IOException wenn der Abschnitt nicht eingeblendet werden kann.
+     */
+    int getInt(long record, int offset) throws IOException {
+        return chunk(record).getInt(position(record, offset));
+    }
+
+    /**
+     * Schreibt einen long-Wert.
+     * @param record die Nummer des Datensatzes
+     * @param offset der Versatz des Feldes im Datensatz
+     * @param value  der Wert
+     * @throws IOException wenn der Abschnitt nicht eingeblendet werden kann.
+     */
+    void putLong(long record, int offset, long value) throws IOException {
+        chunk(record).putLong(position(record, offset), value);
+    }
+
+    /**
+     * Liest einen long-Wert.
+     * @param record die Nummer des Datensatzes
+     * @param offset der Versatz des Feldes im Datensatz
+     * @return der Wert
+     * @throws IOException wenn der Abschnitt nicht eingeblendet werden kann.
+     */
+    long getLong(long record, int offset) throws IOException {
+        return chunk(record).getLong(position(record, offset));
+    }
+
+    /**
+     * Schließt den Puffer und löscht die temporäre Datei.
+     * @throws IOException wenn der Kanal nicht geschlossen werden kann.
+     */
+    @Override
+    public void close() throws IOException {
+        chunks.clear();
+        channel.close();
+    }
+}
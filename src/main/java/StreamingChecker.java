@@ -0,0 +1,324 @@
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Prüft eine Baumdatei auf Drehfreudigkeit, ohne den Baum im Speicher aufzubauen.
+ * <p>
+ * Der Pfadnenner eines Blattes hängt von den Kinderzahlen seiner Vorfahren ab, die erst an deren schließender
+ * Klammer feststehen. Daher wird die Datei zweimal gelesen:
+ * 1. Der erste Durchlauf zählt die Kinder jedes Knotens und lagert sie in Präordnung in eine temporäre Datei aus.
+ * 2. Der zweite Durchlauf erzeugt daraus die Blätter mit Nenner und Tiefe in Links-nach-Rechts-Reihenfolge.
+ *    Die erste Hälfte der Blätter wird ausgelagert, jedes Blatt der zweiten Hälfte wird sofort mit seinem
+ *    symmetrischen Partner verglichen. Beim ersten ungleichen Paar wird abgebrochen.
+ * <p>
+ * Im Heap liegt nur der Pfad vom Wurzelknoten zum aktuellen Knoten; alles andere liegt in eingeblendeten Dateien.
+ */
+public class StreamingChecker {
+    /** Größe eines auf einmal eingeblendeten Dateiabschnitts. */
+    private static final int MAP_CHUNK_SIZE = 1 << 28;
+    /** Anfangskapazität der Pfad-Arrays. */
+    private static final int INITIAL_DEPTH = 64;
+    /** Länge eines ausgelagerten Blattes: long-Nenner und int-Tiefe. */
+    private static final int LEAF_RECORD_SIZE = Long.BYTES + Integer.BYTES;
+
+    /**
+     * Ergebnis einer Streaming-Prüfung.
+     */
+    public static class Result {
+        /** Die Anzahl aller Knoten. */
+        private final long nodeCount;
+        /** Die Anzahl der Blätter. */
+        private final long leafCount;
+        /** Die größte Knotentiefe. */
+        private final int maxDepth;
+        /** Die erste gefundene Abweichung. */
+        private final Mismatch mismatch;
+        /** Der Index des linken Blattes im abweichenden Paar, sonst -1. */
+        private final long mismatchPair;
+        /** Die Anzahl der im zweiten Durchlauf gelesenen Bytes. */
+        private final long bytesRead;
+        /** Die Dateigröße in Bytes. */
+        private final long fileSize;
+
+        /**
+         * Erstellt ein Ergebnis.
+         *
+         * @param nodeCount    Anzahl aller Knoten
+         * @param leafCount    Anzahl der Blätter
+         * @param maxDepth     größte Knotentiefe
+         * @param mismatch     erste gefundene Abweichung
+         * @param mismatchPair Index des linken Blattes im abweichenden Paar, sonst -1
+         * @param bytesRead    im zweiten Durchlauf gelesene Bytes
+         * @param fileSize     Dateigröße in Bytes
+         */
+        Result(long nodeCount, long leafCount, int maxDepth, Mismatch mismatch, long mismatchPair,
+               long bytesRead, long fileSize) {
+            this.nodeCount = nodeCount;
+            this.leafCount = leafCount;
+            this.maxDepth = maxDepth;
+            this.mismatch = mismatch;
+            this.mismatchPair = mismatchPair;
+            this.bytesRead = bytesRead;
+            this.fileSize = fileSize;
+        }
+
+        /**
+         * Gibt die Anzahl aller Knoten zurück.
+         * @return die Knotenzahl
+         */
+        public long getNodeCount() {
+            return nodeCount;
+        }
+
+        /**
+         * Gibt die Anzahl der Blätter zurück.
+         * @return die Blattzahl
+         */
+        public long getLeafCount() {
+            return leafCount;
+        }
+
+        /**
+         * Gibt die größte Knotentiefe zurück.
+         * @return die maximale Tiefe
+         */
+        public int getMaxDepth() {
+            return maxDepth;
+        }
+
+        /**
+         * Gibt die erste gefundene Abweichung zurück.
+         * @return die Abweichung, oder {@link Mismatch#NONE}
+         */
+        public Mismatch getMismatch() {
+            return mismatch;
+        }
+
+        /**
+         * Gibt den Index des linken Blattes im ersten abweichenden Paar zurück.
+         * @return der Blattindex, oder -1, wenn alle Paare übereinstimmen
+         */
+        public long getMismatchPair() {
+            return mismatchPair;
+        }
+
+        /**
+         * Gibt die Anzahl der im zweiten Durchlauf gelesenen Bytes zurück.
+         * @return die gelesenen Bytes
+         */
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        /**
+         * Gibt die Dateigröße zurück.
+         * @return die Dateigröße in Bytes
+         */
+        public long getFileSize() {
+            return fileSize;
+        }
+
+        /**
+         * Gibt zurück, ob der Baum drehfreudig ist.
+         * @return true, wenn keine Abweichung gefunden wurde
+         */
+        public boolean isDrehfreudig() {
+            return mismatch == Mismatch.NONE;
+        }
+    }
+
+    /**
+     * Erstellt eine neue Instanz des StreamingChecker.
+     */
+    public StreamingChecker() {}
+
+    /**
+     * Prüft eine Baumdatei im Streaming-Verfahren.
+     * Alle Bytes außer Klammern werden ignoriert.
+     *
+     * @param file die zu prüfende Datei
+     * @return das Prüfergebnis
+     * @throws IOException wenn die Datei oder die Auslagerungsdateien nicht gelesen werden können.
+     * @throws IllegalArgumentException wenn die Datei keinen oder keinen gültigen Baum enthält.
+     */
+    public Result check(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             SpillBuffer childCounts = new SpillBuffer(Integer.BYTES);
+             SpillBuffer firstHalf = new SpillBuffer(LEAF_RECORD_SIZE)) {
+            long size = channel.size();
+            CountPass counts = countChildren(channel, size, childCounts);
+            return compareHalves(channel, size, childCounts, firstHalf, counts);
+        }
+    }
+
+    /**
+     * Zähler des ersten Durchlaufs.
+     */
+    private static class CountPass {
+        /** Die Anzahl aller Knoten. */
+        private long nodeCount;
+        /** Die Anzahl der Blätter. */
+        private long leafCount;
+        /** Die größte Knotentiefe. */
+        private int maxDepth;
+    }
+
+    /**
+     * Erster Durchlauf: zählt die Kinder jedes Knotens und schreibt sie in Präordnung in die Auslagerungsdatei.
+     *
+     * @param channel     der Kanal der Baumdatei
+     * @param size        die Dateigröße
+     * @param childCounts Auslagerung der Kinderzahlen
+     * @return Knoten- und Blattzahl sowie maximale Tiefe
+     * @throws IOException wenn nicht gelesen oder ausgelagert werden kann.
+     */
+    private CountPass countChildren(FileChannel channel, long size, SpillBuffer childCounts) throws IOException {
+        CountPass counts = new CountPass();
+        long[] nodes = new long[INITIAL_DEPTH];
+        int[] children = new int[INITIAL_DEPTH];
+        int depth = 0;
+
+        for (long position = 0; position < size; position += MAP_CHUNK_SIZE) {
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(MAP_CHUNK_SIZE, size - position));
+            int limit = chunk.limit();
+            for (int i = 0; i < limit; i++) {
+                byte b = chunk.get(i);
+                if (b == '(') {
+                    if (depth == 0 && counts.nodeCount > 0) {
+                        throw new IllegalArgumentException("Ungültige Baumstruktur: Mehr als ein Wurzelknoten.");
+                    }
+                    if (depth == nodes.length) {
+                        nodes = Arrays.copyOf(nodes, depth * 2);
+                        children = Arrays.copyOf(children, depth * 2);
+                    }
+                    if (depth > 0) {
+                        children[depth - 1]++;
+                    }
+                    nodes[depth] = counts.nodeCount++;
+                    children[depth] = 0;
+                    depth++;
+                    counts.maxDepth = Math.max(counts.maxDepth, depth);
+                } else if (b == ')') {
+                    if (depth == 0) {
+                        throw new IllegalArgumentException("Ungültige Baumstruktur: Zu viele schließende Klammern.");
+                    }
+                    depth--;
+                    childCounts.putInt(nodes[depth], 0, children[depth]);
+                    if (children[depth] == 0) {
+                        counts.leafCount++;
+                    }
+                }
+            }
+        }
+
+        if (depth != 0) {
+            throw new IllegalArgumentException("Ungültige Baumstruktur: Zu viele öffnende Klammern.");
+        }
+        if (counts.nodeCount == 0) {
+            throw new IllegalArgumentException("Die Datei ist leer oder enthält keine Baumstruktur.");
+        }
+        return counts;
+    }
+
+    /**
+     * Zweiter Durchlauf: erzeugt die Blätter, lagert die erste Hälfte aus und vergleicht die zweite Hälfte
+     * rückwärts dagegen. Bricht beim ersten abweichenden Paar ab.
+     *
+     * @param channel     der Kanal der Baumdatei
+     * @param size        die Dateigröße
+     * @param childCounts die Kinderzahlen aus dem ersten Durchlauf
+     * @param firstHalf   Auslagerung der ersten Blatthälfte
+     * @param counts      die Zähler aus dem ersten Durchlauf
+     * @return das Prüfergebnis
+     * @throws IOException wenn nicht gelesen oder ausgelagert werden kann.
+     */
+    private Result compareHalves(FileChannel channel, long size, SpillBuffer childCounts, SpillBuffer firstHalf,
+                                 CountPass counts) throws IOException {
+        long leafCount = counts.leafCount;
+        long half = leafCount / 2;
+        long secondStart = leafCount - half;
+
+        // Pfadnenner der Kinder je offenem Knoten; übergelaufene Nenner liegen selten vor und bleiben im Heap
+        long[] childDenominators = new long[counts.maxDepth];
+        BigInteger[] bigChildDenominators = null;
+        Map<Long, BigInteger> bigFirstHalf = null;
+        int depth = 0;
+        long node = 0;
+        long leaf = 0;
+        int expectedDepthSum = -1;
+
+        for (long position = 0; position < size; position += MAP_CHUNK_SIZE) {
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(MAP_CHUNK_SIZE, size - position));
+            int limit = chunk.limit();
+            for (int i = 0; i < limit; i++) {
+                byte b = chunk.get(i);
+                if (b == ')') {
+                    depth--;
+                    continue;
+                }
+                if (b != '(') {
+                    continue;
+                }
+
+                int childCount = childCounts.getInt(node++, 0);
+                long denominator = depth == 0 ? 1 : childDenominators[depth - 1];
+                BigInteger bigDenominator = depth == 0 || bigChildDenominators == null
+                        ? null : bigChildDenominators[depth - 1];
+                depth++;
+
+                if (childCount > 0) {
+                    BigInteger bigChildDenominator = LeafGenerator.bigChildDenominator(denominator, bigDenominator,
+                            childCount);
+                    if (bigChildDenominator != null && bigChildDenominators == null) {
+                        bigChildDenominators = new BigInteger[childDenominators.length];
+                    }
+                    childDenominators[depth - 1] = bigChildDenominator == null ? denominator * childCount : 0;
+                    if (bigChildDenominators != null) {
+                        bigChildDenominators[depth - 1] = bigChildDenominator;
+                    }
+                    continue;
+                }
+
+                // Blatt: erste Hälfte auslagern, zweite Hälfte mit dem Partner vergleichen
+                long index = leaf++;
+                if (index < half) {
+                    firstHalf.putLong(index, 0, bigDenominator == null ? denominator : 0);
+                    firstHalf.putInt(index, Long.BYTES, depth);
+                    if (bigDenominator != null) {
+                        if (bigFirstHalf == null) {
+                            bigFirstHalf = new HashMap<>();
+                        }
+                        bigFirstHalf.put(index, bigDenominator);
+                    }
+                } else if (index >= secondStart) {
+                    long partner = leafCount - 1 - index;
+                    long partnerDenominator = firstHalf.getLong(partner, 0);
+                    boolean sameWidth = bigDenominator == null
+                            ? partnerDenominator == denominator
+                            : partnerDenominator == 0 && bigDenominator.equals(bigFirstHalf.get(partner));
+                    if (!sameWidth) {
+                        return new Result(counts.nodeCount, leafCount, counts.maxDepth, Mismatch.WIDTH, partner,
+                                position + i + 1, size);
+                    }
+                    int depthSum = depth + firstHalf.getInt(partner, Long.BYTES);
+                    if (expectedDepthSum < 0) {
+                        expectedDepthSum = depthSum;
+                    } else if (depthSum != expectedDepthSum) {
+                        return new Result(counts.nodeCount, leafCount, counts.maxDepth, Mismatch.DEPTH, partner,
+                                position + i + 1, size);
+                    }
+                }
+            }
+        }
+        return new Result(counts.nodeCount, leafCount, counts.maxDepth, Mismatch.NONE, -1, size, size);
+    }
+}
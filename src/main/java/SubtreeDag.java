@@ -0,0 +1,425 @@
+import java.util.Arrays;
+
+/**
+ * Ein Baum, in dem gleich aufgebaute Teilbäume nur einmal gespeichert werden (Hash-Consing).
+ * <p>
+ * Jeder verschiedene Teilbaum erhält eine kanonische Nummer; ein Knoten wird allein durch die Folge der Nummern
+ * seiner Kinder beschrieben. Die Nummern werden beim Schließen eines Knotens vergeben, Kinder haben also immer
+ * kleinere Nummern als ihre Eltern, und die Wurzel hat die größte.
+ * <p>
+ * Zu jedem verschiedenen Teilbaum wird beim ersten Auftreten eine Zusammenfassung relativ zu seiner Wurzel
+ * berechnet und danach wiederverwendet: die Blattzahl und Hashes der Blattfolge vorwärts und rückwärts. Ein Blatt,
+ * das im Kind eines Knotens mit k Kindern liegt, hat dort den k-fachen Pfadnenner und die um eins größere Tiefe.
+ * Damit sich das auf die Hashes übertragen lässt, werden die Nenner wie in {@link PolynomialHash} additiv über ihre
+ * Primfaktorzerlegung dargestellt und die Folge der Werte als Polynom in einer zufälligen Basis r gehasht. So setzt
+ * sich der Hash eines Teilbaums aus
+ * den Hashes seiner Kinder zusammen, und Zeit und Speicher hängen nur von der Zahl der verschiedenen Teilbäume und
+ * ihrer Kinder ab, nicht von der Knotenzahl. Bei Bäumen ohne Wiederholungen, etwa langen Ketten, braucht der DAG
+ * dagegen mehr Speicher als ein {@link CompactTree}.
+ * <p>
+ * Die Prüfungen sind damit probabilistisch: Ein nicht drehfreudiger Baum wird nur mit einer Wahrscheinlichkeit in
+ * der Größenordnung Blattzahl / 2^61 als drehfreudig erkannt; ein drehfreudiger Baum wird immer erkannt.
+ */
+public class SubtreeDag {
+    /** Erste Kindposition je Teilbaum in {@link #children}, mit einem Eintrag mehr für das Ende. */
+    private final int[] childStart;
+    /** Die Kindnummern aller Teilbäume hintereinander, in der Reihenfolge der Nummern. */
+    private final int[] children;
+    /** Blattzahl je Teilbaum. */
+    private final long[] leafCount;
+    /** Die Anzahl aller Knoten. */
+    private final long nodeCount;
+    /** Tiefe des ersten Blattes relativ zur Wurzel. */
+    private final int firstLeafDepth;
+    /** Tiefe des letzten Blattes relativ zur Wurzel. */
+    private final int lastLeafDepth;
+    /** Ob die Pfadnenner der Blätter ein Palindrom bilden. */
+    private final boolean denominatorPalindrome;
+    /** Ob die Tiefensumme gegenüberliegender Blätter konstant ist. */
+    private final boolean constantDepthSum;
+    /** Die Anzahl der verschiedenen Teilbäume. */
+    private final int size;
+
+    /**
+     * Erstellt einen DAG aus den Daten eines Builders.
+     *
+     * @param builder der abgeschlossene Builder
+     */
+    private SubtreeDag(Builder builder) {
+        int root = builder.size - 1;
+        this.size = builder.size;
+        this.childStart = builder.childStart;
+        this.children = builder.children;
+        this.nodeCount = builder.nodeCount;
+        this.leafCount = builder.leafCount;
+        this.firstLeafDepth = leafDepth(0);
+        this.lastLeafDepth = leafDepth(leafCount[root] - 1);
+        this.denominatorPalindrome = builder.denominatorForward[root] == builder.denominatorReverse[root];
+
+        long leaves = leafCount[root];
+        this.constantDepthSum = builder.hash.isConstantPairSum(builder.depthForward[root], builder.depthReverse[root],
+                leaves, firstLeafDepth + lastLeafDepth, leaves % 2 == 1 ? leafDepth(leaves / 2) : 0);
+    }
+
+    /**
+     * Gibt die Anzahl der verschiedenen Teilbäume zurück.
+     * @return die Anzahl der kanonischen Nummern
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gibt die Nummer des Wurzelknotens zurück.
+     * @return die Nummer der Wurzel
+     */
+    public int getRoot() {
+        return size - 1;
+    }
+
+    /**
+     * Gibt die Kinderzahl eines Teilbaums zurück.
+     * @param id die Nummer des Teilbaums
+     * @return die Anzahl der Kinder seiner Wurzel
+     */
+    public int getChildCount(int id) {
+        return childStart[id + 1] - childStart[id];
+    }
+
+    /**
+     * Gibt ein Kind eines Teilbaums zurück.
+     * @param id    die Nummer des Teilbaums
+     * @param index die Position des Kindes von links
+     * @return die Nummer des Kindes
+     */
+    public int getChild(int id, int index) {
+        return children[childStart[id] + index];
+    }
+
+    /**
+     * Gibt die Knotenzahl des ganzen Baumes zurück.
+     * @return die Anzahl aller Knoten, mehrfach vorkommende Teilbäume mehrfach gezählt
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Gibt die Blattzahl des ganzen Baumes zurück.
+     * @return die Anzahl aller Blätter
+     */
+    public long getLeafCount() {
+        return leafCount[getRoot()];
+    }
+
+    /**
+     * Gibt die Tiefe des ersten Blattes zurück, wobei der Wurzelknoten die Tiefe 1 hat.
+     * @return die Tiefe des ersten Blattes
+     */
+    public int getFirstLeafDepth() {
+        return firstLeafDepth + 1;
+    }
+
+    /**
+     * Gibt die Tiefe des letzten Blattes zurück, wobei der Wurzelknoten die Tiefe 1 hat.
+     * @return die Tiefe des letzten Blattes
+     */
+    public int getLastLeafDepth() {
+        return lastLeafDepth + 1;
+    }
+
+    /**
+     * Gibt zurück, ob die Pfadnenner der Blätter, und damit ihre Breiten, ein Palindrom bilden.
+     * @return true, wenn die Breitenprüfung bestanden ist
+     */
+    public boolean isDenominatorPalindrome() {
+        return denominatorPalindrome;
+    }
+
+    /**
+     * Gibt zurück, ob die Tiefensumme gegenüberliegender Blätter konstant ist.
+     * @return true, wenn die Tiefenprüfung bestanden ist
+     */
+    public boolean isConstantDepthSum() {
+        return constantDepthSum;
+    }
+
+    /**
+     * Gibt die Tiefe eines Blattes relativ zur Wurzel zurück. Abgestiegen wird anhand der Blattzahlen der Kinder.
+     * @param index die Position des Blattes von links
+     * @return die Tiefe des Blattes, 0 für den Wurzelknoten
+     */
+    private int leafDepth(long index) {
+        int id = getRoot();
+        int depth = 0;
+        while (getChildCount(id) > 0) {
+            int i = 0;
+            while (index >= leafCount[getChild(id, i)]) {
+                index -= leafCount[getChild(id, i)];
+                i++;
+            }
+            id = getChild(id, i);
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Baut einen SubtreeDag aus den Ereignissen "Klammer auf" und "Klammer zu" auf.
+     * Offen gehalten werden nur die Kindnummern der offenen Knoten; beim Schließen wird die Kindfolge in einer
+     * Hashtabelle nachgeschlagen und nur ein neuer Teilbaum angelegt und zusammengefasst, wenn sie unbekannt ist.
+     */
+    static class Builder implements TreeParser.Sink {
+        /** Anfangskapazität der Arrays. */
+        private static final int INITIAL_CAPACITY = 64;
+        /** Nicht belegter Platz in der Hashtabelle. */
+        private static final int EMPTY = -1;
+
+        /** Erste Kindposition je Teilbaum, mit einem Eintrag mehr für das Ende. */
+        private int[] childStart = new int[INITIAL_CAPACITY + 1];
+        /** Die Kindnummern aller Teilbäume hintereinander. */
+        private int[] children = new int[INITIAL_CAPACITY];
+        /** Blattzahl je Teilbaum. */
+        private long[] leafCount = new long[INITIAL_CAPACITY];
+        /** Hash der Nennerwerte der Blätter von links nach rechts. */
+        private long[] denominatorForward = new long[INITIAL_CAPACITY];
+        /** Hash der Nennerwerte der Blätter von rechts nach links. */
+        private long[] denominatorReverse = new long[INITIAL_CAPACITY];
+        /** Hash der Blatttiefen von links nach rechts. */
+        private long[] depthForward = new long[INITIAL_CAPACITY];
+        /** Hash der Blatttiefen von rechts nach links. */
+        private long[] depthReverse = new long[INITIAL_CAPACITY];
+        /** r hoch Blattzahl je Teilbaum. */
+        private long[] power = new long[INITIAL_CAPACITY];
+        /** Die Anzahl der verschiedenen Teilbäume. */
+        private int size;
+        /** Die Anzahl aller geöffneten Knoten. */
+        private long nodeCount;
+
+        /** Die Hashtabelle von Kindfolgen zu Nummern mit offener Adressierung. */
+        private int[] table = new int[INITIAL_CAPACITY * 2];
+        /** Die Kindnummern aller offenen Knoten hintereinander. */
+        private int[] pending = new int[INITIAL_CAPACITY];
+        /** Die Anzahl der belegten Einträge in pending. */
+        private int pendingSize;
+        /** Die erste Position in pending je offenem Knoten. */
+        private int[] levelStart = new int[INITIAL_CAPACITY];
+        /** Die Anzahl der offenen Knoten. */
+        private int depth;
+        /** Ob der Wurzelknoten schon geschlossen ist. */
+        private boolean closedRoot;
+
+        /** Der Hash mit zufälliger Basis für die Blattfolgen. */
+        private final PolynomialHash hash = new PolynomialHash();
+
+        /**
+         * Erstellt einen Builder mit zufälliger Hashbasis.
+         */
+        Builder() {
+            Arrays.fill(table, EMPTY);
+        }
+
+        /**
+         * Verarbeitet eine öffnende Klammer.
+         * @throws IllegalArgumentException wenn nach dem Wurzelknoten ein weiterer Baum beginnt.
+         */
+        @Override
+        public void open() {
+            if (closedRoot) {
+                throw new IllegalArgumentException("Ungültige Baumstruktur: Mehr als ein Wurzelknoten.");
+            }
+            if (depth == levelStart.length) {
+                levelStart = Arrays.copyOf(levelStart, depth * 2);
+            }
+            levelStart[depth++] = pendingSize;
+            nodeCount++;
+        }
+
+        /**
+         * Verarbeitet eine schließende Klammer: Der Knoten wird mit seinen Kindern eingetragen und als Kind seines
+         * Elternknotens vermerkt.
+         * @throws IllegalArgumentException wenn kein Knoten mehr offen ist.
+         */
+        @Override
+        public void close() {
+            if (depth == 0) {
+                throw new IllegalArgumentException("Ungültige Baumstruktur: Zu viele schließende Klammern.");
+            }
+            int start = levelStart[--depth];
+            int id = intern(start, pendingSize - start);
+            pendingSize = start;
+            if (depth == 0) {
+                closedRoot = true;
+            } else {
+                if (pendingSize == pending.length) {
+                    pending = Arrays.copyOf(pending, pendingSize * 2);
+                }
+                pending[pendingSize++] = id;
+            }
+        }
+
+        /**
+         * Schließt den Aufbau ab.
+         * @return der fertige DAG, oder null, wenn keine Klammer gelesen wurde
+         * @throws IllegalArgumentException wenn noch Knoten offen sind.
+         */
+        SubtreeDag build() {
+            if (depth != 0) {
+                throw new IllegalArgumentException("Ungültige Baumstruktur: Zu viele öffnende Klammern.");
+            }
+            if (!closedRoot) {
+                return null;
+            }
+            return new SubtreeDag(this);
+        }
+
+        /**
+         * Sucht die Kindfolge in der Hashtabelle und legt bei Bedarf einen neuen Teilbaum an.
+         * @param start die erste Position der Kindfolge in pending
+         * @param count die Anzahl der Kinder
+         * @return die Nummer des Teilbaums
+         */
+        private int intern(int start, int count) {
+            int mask = table.length - 1;
+            int slot = hash(pending, start, count) & mask;
+            while (table[slot] != EMPTY) {
+                int candidate = table[slot];
+                int candidateStart = childStart[candidate];
+                if (childStart[candidate + 1] - candidateStart == count
+                        && Arrays.equals(children, candidateStart, candidateStart + count,
+                                pending, start, start + count)) {
+                    return candidate;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            int id = add(start, count);
+            table[slot] = id;
+            if (size > table.length / 4 * 3) {
+                rehash();
+            }
+            return id;
+        }
+
+        /**
+         * Legt einen neuen Teilbaum an und berechnet seine Zusammenfassung aus denen seiner Kinder.
+         * @param start die erste Position der Kindfolge in pending
+         * @param count die Anzahl der Kinder
+         * @return die neue Nummer
+         */
+        private int add(int start, int count) {
+            if (size == leafCount.length) {
+                grow();
+            }
+            int offset = childStart[size];
+            if (offset + count > children.length) {
+                children = Arrays.copyOf(children, Math.max(offset + count, children.length + children.length / 2));
+            }
+            int id = size++;
+            System.arraycopy(pending, start, children, offset, count);
+            childStart[size] = offset + count;
+
+            if (count == 0) {
+                // Ein Blatt: Nenner 1 mit Wert 0, Tiefe 0 relativ zu sich selbst
+                leafCount[id] = 1;
+                denominatorForward[id] = 0;
+                denominatorReverse[id] = 0;
+                depthForward[id] = 0;
+                depthReverse[id] = 0;
+                power[id] = hash.getBase();
+                return id;
+            }
+
+            // Jedes Blatt eines Kindes erhält den k-fachen Nenner und die um eins größere Tiefe
+            long shift = hash.valueOf(count);
+            long leaves = 0;
+            long denForward = 0;
+            long depForward = 0;
+            long denReverse = 0;
+            long depReverse = 0;
+            long weight = 1;
+            long reverseWeight = 1;
+            for (int i = 0; i < count; i++) {
+                int child = pending[start + i];
+                long childSum = hash.geometric(power[child]);
+                leaves += leafCount[child];
+                denForward = append(denForward, weight, denominatorForward[child], shift, childSum);
+                depForward = append(depForward, weight, depthForward[child], 1, childSum);
+                weight = PolynomialHash.multiply(weight, power[child]);
+
+                int mirrored = pending[start + count - 1 - i];
+                long mirroredSum = hash.geometric(power[mirrored]);
+                denReverse = append(denReverse, reverseWeight, denominatorReverse[mirrored], shift, mirroredSum);
+                depReverse = append(depReverse, reverseWeight, depthReverse[mirrored], 1, mirroredSum);
+                reverseWeight = PolynomialHash.multiply(reverseWeight, power[mirrored]);
+            }
+            leafCount[id] = leaves;
+            denominatorForward[id] = denForward;
+            denominatorReverse[id] = denReverse;
+            depthForward[id] = depForward;
+            depthReverse[id] = depReverse;
+            power[id] = weight;
+            return id;
+        }
+
+        /**
+         * Hängt den Hash eines Kindes an den Hash seiner linken Geschwister an. Jedes Blatt des Kindes erhält dabei
+         * den um shift größeren Wert.
+         * @param hash      der Hash der linken Geschwister
+         * @param weight    r hoch Blattzahl der linken Geschwister
+         * @param childHash der Hash des Kindes relativ zu seiner Wurzel
+         * @param shift     der Wert, um den jedes Blatt des Kindes wächst
+         * @param childSum  1 + r + ... + r^(n-1) für die Blattzahl n des Kindes
+         * @return der Hash einschließlich des Kindes
+         */
+        private static long append(long hash, long weight, long childHash, long shift, long childSum) {
+            long shifted = PolynomialHash.add(childHash, PolynomialHash.multiply(shift, childSum));
+            return PolynomialHash.add(hash, PolynomialHash.multiply(weight, shifted));
+        }
+
+        /**
+         * Vergrößert die Arrays je Teilbaum um die Hälfte.
+         */
+        private void grow() {
+            int newCapacity = leafCount.length + leafCount.length / 2;
+            childStart = Arrays.copyOf(childStart, newCapacity + 1);
+            leafCount = Arrays.copyOf(leafCount, newCapacity);
+            denominatorForward = Arrays.copyOf(denominatorForward, newCapacity);
+            denominatorReverse = Arrays.copyOf(denominatorReverse, newCapacity);
+            depthForward = Arrays.copyOf(depthForward, newCapacity);
+            depthReverse = Arrays.copyOf(depthReverse, newCapacity);
+            power = Arrays.copyOf(power, newCapacity);
+        }
+
+        /**
+         * Verdoppelt die Hashtabelle und trägt alle Teilbäume neu ein.
+         */
+        private void rehash() {
+            table = new int[table.length * 2];
+            Arrays.fill(table, EMPTY);
+            int mask = table.length - 1;
+            for (int id = 0; id < size; id++) {
+                int slot = hash(children, childStart[id], childStart[id + 1] - childStart[id]) & mask;
+                while (table[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = id;
+            }
+        }
+
+        /**
+         * Berechnet den Tabellenhash einer Kindfolge.
+         * @param ids   das Array mit der Kindfolge
+         * @param start die erste Position der Kindfolge
+         * @param count die Anzahl der Kinder
+         * @return der Hash
+         */
+        private static int hash(int[] ids, int start, int count) {
+            int hash = count;
+            for (int i = start; i < start + count; i++) {
+                hash = hash * 31 + ids[i];
+            }
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Exportiert einen drehfreudigen Baum mit seiner um 180° gedrehten Kopie als SVG-Bild, wie in den Abbildungen
+ * der Aufgabe: jeder Knoten ein Rechteck, die Kinder eines Knotens gleich breit unter ihm, die gedrehte Kopie
+ * gespiegelt darunter, sodass sich die Blätter in der Mitte treffen.
+ * <p>
+ * Das Bild wird Ebene für Ebene direkt in den Ausgabestrom geschrieben, ohne ein Dokument im Speicher aufzubauen.
+ * Jedes Rechteck wird zusammen mit seinem gedrehten Gegenstück ausgegeben; gehalten wird nur eine Ebene.
+ * Aufeinanderfolgende Blätter gleicher Breite werden zu einem Rechteck zusammengefasst; ihre Trennlinien werden
+ * nur gezeichnet, solange sie mindestens {@value #MIN_DIVIDER_WIDTH} Pixel auseinanderliegen. Knoten schmaler als
+ * ein halbes Pixel werden nicht mehr besucht, ihr Bereich erscheint im Hintergrund als dunkle Fläche. So bleibt
+ * die Datei auch bei 10^6 Blättern wenige MB groß.
+ */
+public class SvgExporter {
+    /** Höhe einer Ebene in Pixeln. */
+    private static final int ROW_HEIGHT = 24;
+    /** Kleinster Abstand in Pixeln, ab dem Trennlinien zwischen zusammengefassten Blättern gezeichnet werden. */
+    private static final int MIN_DIVIDER_WIDTH = 3;
+    /** Auflösung der Knotenlage je Pixel; Knoten unter 1 / RESOLUTION Pixeln werden nicht besucht. */
+    private static final int RESOLUTION = 2;
+
+    /** Die Bildbreite in Pixeln. */
+    private final int width;
+
+    /**
+     * Erstellt einen Exporter für Bilder der angegebenen Breite.
+     *
+     * @param width die Bildbreite in Pixeln
+     * @throws IllegalArgumentException wenn die Breite nicht positiv ist.
+     */
+    public SvgExporter(int width) {
+        if (width < 1) {
+            throw new IllegalArgumentException("Die Bildbreite muss positiv sein: " + width);
+        }
+        this.width = width;
+    }
+
+    /**
+     * Schreibt das Bild eines Baumes in eine Datei.
+     *
+     * @param root     der Wurzelknoten des Baumes, oder null, wenn er kompakt vorliegt
+     * @param tree     der kompakte Baum, oder null, wenn er als Node-Objekte vorliegt
+     * @param analysis das Analyseergebnis des Baumes
+     * @param file     die Zieldatei
+     * @throws IOException wenn die Datei nicht geschrieben werden kann.
+     */
+    public void export(Node root, CompactTree tree, TreeAnalysis analysis, Path file) throws IOException {
+        LeafSequence leaves = analysis.getLeaves();
+        VisibleLevel first = root != null
+                ? VisibleLevel.of(root, width * RESOLUTION)
+                : VisibleLevel.of(tree, width * RESOLUTION);
+        export(first, leaves.getDepth(0) + leaves.getDepth(leaves.size() - 1), file);
+    }
+
+    /**
+     * Schreibt das Bild eines Baumes, der als DAG der Teilbäume vorliegt, in eine Datei.
+     *
+     * @param dag  der DAG der Teilbäume
+     * @param file die Zieldatei
+     * @throws IOException wenn die Datei nicht geschrieben werden kann.
+     */
+    public void export(SubtreeDag dag, Path file) throws IOException {
+        export(VisibleLevel.of(dag, width * RESOLUTION), dag.getFirstLeafDepth() + dag.getLastLeafDepth(), file);
+    }
+
+    /**
+     * Schreibt das Bild gepuffert in eine Datei.
+     *
+     * @param first die Ebene des Wurzelknotens
+     * @param rows  die Zeilenzahl des Bildes, also die konstante Tiefensumme
+     * @param file  die Zieldatei
+     * @throws IOException wenn die Datei nicht geschrieben werden kann.
+     */
+    private void export(VisibleLevel first, int rows, Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            write(first, rows, writer);
+        }
+    }
+
+    /**
+     * Schreibt das Bild in einen Strom.
+     *
+     * @param first  die Ebene des Wurzelknotens
+     * @param rows   die Zeilenzahl des Bildes, also die konstante Tiefensumme
+     * @param writer der Zielstrom
+     * @throws IOException wenn nicht geschrieben werden kann.
+     */
+    private void write(VisibleLevel first, int rows, Writer writer) throws IOException {
+        int height = rows * ROW_HEIGHT;
+
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        writer.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + width + "\" height=\"" + height
+                + "\" viewBox=\"0 0 " + width + " " + height + "\">\n");
+        writer.write("<style>rect{stroke:#333;stroke-width:0.5}path{stroke:#333;stroke-width:0.5;fill:none}"
+                + ".n{fill:#cfe0f5}.l{fill:#7fb2e5}.m{fill:#f5dccf}.k{fill:#e5a37f}.a{fill:#666}</style>\n");
+        // Hintergrund für Teilbäume unterhalb der Detailgrenze
+        writer.write("<rect class=\"a\" x=\"0\" y=\"0\" width=\"" + width + "\" height=\"" + height + "\"/>\n");
+
+        VisibleLevel level = first;
+        int depth = 1;
+        while (level.size() > 0) {
+            int i = 0;
+            while (i < level.size()) {
+                // Blätter gleicher Breite, die lückenlos aufeinanderfolgen, bilden einen Lauf
+                int runEnd = i + 1;
+                if (level.getChildCount(i) == 0) {
+                    while (runEnd < level.size() && level.getChildCount(runEnd) == 0
+                            && level.getDenominator(runEnd) == level.getDenominator(i)
+                            && level.getIndex(runEnd) == level.getIndex(i) + (runEnd - i)) {
+                        runEnd++;
+                    }
+                }
+                writeRun(level, i, runEnd, depth, rows, level.getChildCount(i) == 0, writer);
+                i = runEnd;
+            }
+            level = level.next();
+            depth++;
+        }
+        writer.write("</svg>\n");
+    }
+
+    /**
+     * Schreibt einen Knoten oder einen Lauf von Blättern samt gedrehtem Gegenstück.
+     *
+     * @param level  die Ebene
+     * @param from   die Position des ersten Knotens in der Ebene
+     * @param to     die Position nach dem letzten Knoten
+     * @param depth  die Tiefe der Ebene
+     * @param rows   die Zeilenzahl des Bildes, also die konstante Tiefensumme
+     * @param leaf   ob es sich um Blätter handelt
+     * @param writer der Zielstrom
+     * @throws IOException wenn nicht geschrieben werden kann.
+     */
+    private void writeRun(VisibleLevel level, int from, int to, int depth, int rows, boolean leaf, Writer writer)
+            throws IOException {
+        long denominator = level.getDenominator(from);
+        double x = (double) level.getIndex(from) * width / denominator;
+        double nodeWidth = (double) width / denominator;
+        double runWidth = nodeWidth * (to - from);
+        int y = (depth - 1) * ROW_HEIGHT;
+        int mirroredY = (rows - depth) * ROW_HEIGHT;
+        double mirroredX = width - x - runWidth;
+
+        writeRect(leaf ? "l" : "n", x, y, runWidth, writer);
+        writeRect(leaf ? "k" : "m", mirroredX, mirroredY, runWidth, writer);
+        if (to - from > 1 && nodeWidth >= MIN_DIVIDER_WIDTH) {
+            writeDividers(x, y, nodeWidth, to - from, writer);
+            writeDividers(mirroredX, mirroredY, nodeWidth, to - from, writer);
+        }
+    }
+
+    /**
+     * Schreibt ein Rechteck der Höhe einer Ebene.
+     *
+     * @param cssClass die Stilklasse
+     * @param x        die linke Kante
+     * @param y        die obere Kante
+     * @param w        die Breite
+     * @param writer   der Zielstrom
+     * @throws IOException wenn nicht geschrieben werden kann.
+     */
+    private static void writeRect(String cssClass, double x, int y, double w, Writer writer) throws IOException {
+        writer.write("<rect class=\"");
+        writer.write(cssClass);
+        writer.write("\" x=\"");
+        writer.write(format(x));
+        writer.write("\" y=\"");
+        writer.write(Integer.toString(y));
+        writer.write("\" width=\"");
+        writer.write(format(w));
+        writer.write("\" height=\"" + ROW_HEIGHT + "\"/>\n");
+    }
+
+    /**
+     * Schreibt die inneren Trennlinien eines Laufs von Blättern als einen Pfad.
+     *
+     * @param x         die linke Kante des Laufs
+     * @param y         die obere Kante
+     * @param nodeWidth die Breite eines Blattes
+     * @param count     die Anzahl der Blätter
+     * @param writer    der Zielstrom
+     * @throws IOException wenn nicht geschrieben werden kann.
+     */
+    private static void writeDividers(double x, int y, double nodeWidth, int count, Writer writer)
+            throws IOException {
+        writer.write("<path d=\"");
+        for (int i = 1; i < count; i++) {
+            writer.write('M');
+            writer.write(format(x + i * nodeWidth));
+            writer.write(' ');
+            writer.write(Integer.toString(y));
+            writer.write("v" + ROW_HEIGHT);
+        }
+        writer.write("\"/>\n");
+    }
+
+    /**
+     * Formatiert eine Koordinate mit höchstens zwei Nachkommastellen, ohne überflüssige Nullen.
+     *
+     * @param value die Koordinate
+     * @return der Text der Koordinate
+     */
+    static String format(double value) {
+        long hundredths = Math.round(value * 100);
+        long whole = hundredths / 100;
+        int fraction = (int) (hundredths % 100);
+        if (fraction == 0) {
+            return Long.toString(whole);
+        }
+        if (fraction % 10 == 0) {
+            return whole + "." + fraction / 10;
+        }
+        return whole + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
@@ -0,0 +1,191 @@
+import java.math.BigInteger;
+
+/**
+ * Ergebnis eines einzelnen Analysedurchlaufs über einen Baum.
+ * Enthält die Pfadnenner und Tiefen aller Blätter sowie Knotenzahl und maximale Tiefe.
+ * Die Primzahlexponenten der Gesamtbreite (kgV) sammelt ein {@link LcmAccumulator} im selben Durchlauf; die
+ * Gesamtbreite selbst wird erst bei Bedarf daraus gebildet, ohne den Baum erneut zu durchlaufen.
+ */
+public class TreeAnalysis {
+    /** Die Pfadnenner und Tiefen der Blätter. */
+    private final LeafSequence leaves;
+    /** Die Anzahl aller Knoten. */
+    private int nodeCount;
+    /** Die größte Knotentiefe, wobei der Wurzelknoten die Tiefe 1 hat. */
+    private int maxDepth;
+    /** Der Sammler für das kgV der Blattnenner. */
+    private final LcmAccumulator lcm;
+    /** Die Gesamtbreite, sobald sie einmal berechnet wurde, sonst null. */
+    private BigInteger totalWidth;
+
+    /**
+     * Erstellt ein leeres Analyseergebnis, das während des Durchlaufs gefüllt wird.
+     */
+    TreeAnalysis() {
+        this.leaves = new LeafSequence();
+        this.nodeCount = 0;
+        this.maxDepth = 0;
+        this.lcm = new LcmAccumulator();
+        this.totalWidth = null;
+    }
+
+    /**
+     * Zählt einen besuchten Knoten.
+     * @param depth die Tiefe des Knotens
+     */
+    void addNode(int depth) {
+        nodeCount++;
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+    }
+
+    /**
+     * Hängt ein Blatt an.
+     * @param denominator der Pfadnenner des Blattes
+     * @param depth       die Tiefe des Blattes
+     */
+    void addLeaf(long denominator, int depth) {
+        leaves.add(denominator, depth);
+    }
+
+    /**
+     * Hängt ein Blatt mit einem übergelaufenen Pfadnenner an.
+     * @param denominator der Pfadnenner des Blattes
+     * @param depth       die Tiefe des Blattes
+     */
+    void addLeaf(BigInteger denominator, int depth) {
+        leaves.add(denominator, depth);
+    }
+
+    /**
+     * Hängt das Ergebnis eines rechts anschließenden Teilbaums oder Waldes an.
+     * Knotenzahl, maximale Tiefe und kgV werden zusammengeführt, die Blätter angehängt.
+     * @param other das anzuhängende Teilergebnis
+     */
+    void append(TreeAnalysis other) {
+        nodeCount += other.nodeCount;
+        maxDepth = Math.max(maxDepth, other.maxDepth);
+        leaves.append(other.leaves);
+        lcm.merge(other.lcm);
+        totalWidth = null;
+    }
+
+    /**
+     * Gibt den Sammler für das kgV zurück, dem der Durchlauf die inneren Knoten meldet.
+     * @return der Sammler
+     */
+    LcmAccumulator getLcm() {
+        return lcm;
+    }
+
+    /**
+     * Kehrt die Reihenfolge der Blätter um.
+     */
+    void reverseLeaves() {
+        leaves.reverse();
+    }
+
+    /**
+     * Gibt die Folge der Blattnenner und -tiefen zurück.
+     * @return die Blattfolge
+     */
+    public LeafSequence getLeaves() {
+        return leaves;
+    }
+
+    /**
+     * Gibt die Anzahl der Blätter zurück.
+     * @return die Anzahl der Blätter
+     */
+    public int getLeafCount() {
+        return leaves.size();
+    }
+
+    /**
+     * Gibt die Anzahl aller Knoten zurück.
+     * @return die Knotenzahl
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Gibt die größte Knotentiefe zurück.
+     * @return die maximale Tiefe
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Übernimmt eine bereits bekannte Gesamtbreite, etwa aus dem Kopf einer Binärdatei, damit sie nicht erneut
+     * aus den Blattnennern berechnet wird.
+     * @param totalWidth das kgV aller Blattnenner
+     */
+    void setTotalWidth(BigInteger totalWidth) {
+        this.totalWidth = totalWidth;
+    }
+
+    /**
+     * Gibt die Gesamtbreite als kgV aller Blattnenner zurück.
+     * @return die Gesamtbreite
+     */
+    public BigInteger getTotalWidth() {
+        if (totalWidth == null) {
+            totalWidth = lcm.toBigInteger();
+        }
+        return totalWidth;
+    }
+
+    /**
+     * Gibt die Breite eines Blattes zurück.
+     * @param index die Position des Blattes
+     * @return die Blattbreite
+     */
+    public BigInteger getLeafWidth(int index) {
+        BigInteger width = getTotalWidth();
+        long denominator = leaves.getLongDenominator(index);
+        if (denominator != 0 && width.bitLength() < Long.SIZE) {
+            return BigInteger.valueOf(width.longValue() / denominator);
+        }
+        return width.divide(leaves.getDenominator(index));
+    }
+
+    /**
+     * Formatiert die Blattbreiten wie eine Liste, z.B. "[2, 2, 3]".
+     * @return die Blattbreiten als Text
+     */
+    public String leafWidthsToString() {
+        BigInteger width = getTotalWidth();
+        boolean primitive = width.bitLength() < Long.SIZE;
+        StringBuilder sb = new StringBuilder(leaves.size() * 4 + 2).append('[');
+        for (int i = 0; i < leaves.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            long denominator = leaves.getLongDenominator(i);
+            if (primitive && denominator != 0) {
+                sb.append(width.longValue() / denominator);
+            } else {
+                sb.append(width.divide(leaves.getDenominator(i)));
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Formatiert die Blatttiefen wie eine Liste, z.B. "[3, 3, 3]".
+     * @return die Blatttiefen als Text
+     */
+    public String leafDepthsToString() {
+        StringBuilder sb = new StringBuilder(leaves.size() * 3 + 2).append('[');
+        for (int i = 0; i < leaves.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(leaves.getDepth(i));
+        }
+        return sb.append(']').toString();
+    }
+}
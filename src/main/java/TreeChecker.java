@@ -0,0 +1,357 @@
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Wiederverwendbarer Prüfer für einzelne Bäume, der das Ergebnis als unveränderliches {@link Result} zurückgibt,
+ * statt es auszugeben. Er ist für Programme gedacht, die sehr viele Bäume prüfen und den DrehfreudigChecker
+ * einbetten, ohne seine Textausgabe zu lesen.
+ * <p>
+ * Beim Lesen werden die Kinderzahlen in Präordnung in Arrays geschrieben, daraus werden wie im
+ * {@link LineChecker} mit einem {@link LeafGenerator} die Blätter mit Pfadnenner und Tiefe erzeugt und geprüft; nebenbei wird die Gesamtbreite als
+ * kgV der Nenner gesammelt. Weil sehr große Nenner das kgV teuer machen und die Prüfung es nicht braucht, kann es
+ * wie im schnellen Modus entfallen. Alle Arrays wachsen nur, bis sie für den größten bisher geprüften Baum
+ * reichen, und werden danach wiederverwendet: Solange die Nenner in einen long passen, wird je Baum nur das
+ * Ergebnis allokiert. Die Ausgabe von Ergebnis und Visualisierung ist ein eigener, optionaler Schritt.
+ * <p>
+ * Ein Prüfer ist nicht threadsicher; jeder Thread braucht seinen eigenen.
+ */
+public class TreeChecker {
+    /** Anfangskapazität der Knoten-Arrays. */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Das unveränderliche Ergebnis der Prüfung eines Baumes.
+     */
+    public static class Result {
+        /** Die Anzahl aller Knoten. */
+        private final int nodeCount;
+        /** Die Anzahl der Blätter. */
+        private final int leafCount;
+        /** Die größte Knotentiefe, wobei der Wurzelknoten die Tiefe 1 hat. */
+        private final int maxDepth;
+        /** Die erste gefundene Abweichung. */
+        private final Mismatch mismatch;
+        /** Der Index des linken Blattes im abweichenden Paar, sonst -1. */
+        private final int mismatchPair;
+        /** Die Gesamtbreite, oder 0, wenn sie nicht in einen long passt oder nicht berechnet wurde. */
+        private final long totalWidth;
+        /** Die Gesamtbreite, wenn sie nicht in einen long passt, sonst null. */
+        private final BigInteger bigTotalWidth;
+
+        /**
+         * Erstellt ein Ergebnis.
+         *
+         * @param nodeCount     Anzahl aller Knoten
+         * @param leafCount     Anzahl der Blätter
+         * @param maxDepth      größte Knotentiefe
+         * @param mismatch      erste gefundene Abweichung
+         * @param mismatchPair  Index des linken Blattes im abweichenden Paar, sonst -1
+         * @param totalWidth    Gesamtbreite, oder 0, wenn sie nicht in einen long passt oder nicht berechnet wurde
+         * @param bigTotalWidth Gesamtbreite, wenn sie nicht in einen long passt, sonst null
+         */
+        Result(int nodeCount, int leafCount, int maxDepth, Mismatch mismatch, int mismatchPair,
+               long totalWidth, BigInteger bigTotalWidth) {
+            this.nodeCount = nodeCount;
+            this.leafCount = leafCount;
+            this.maxDepth = maxDepth;
+            this.mismatch = mismatch;
+            this.mismatchPair = mismatchPair;
+            this.totalWidth = totalWidth;
+            this.bigTotalWidth = bigTotalWidth;
+        }
+
+        /**
+         * Gibt die Anzahl aller Knoten zurück.
+         * @return die Knotenzahl
+         */
+        public int getNodeCount() {
+            return nodeCount;
+        }
+
+        /**
+         * Gibt die Anzahl der Blätter zurück.
+         * @return die Blattzahl
+         */
+        public int getLeafCount() {
+            return leafCount;
+        }
+
+        /**
+         * Gibt die größte Knotentiefe zurück.
+         * @return die maximale Tiefe
+         */
+        public int getMaxDepth() {
+            return maxDepth;
+        }
+
+        /**
+         * Gibt die erste gefundene Abweichung zurück.
+         * @return die Abweichung, oder {@link Mismatch#NONE} bei einem drehfreudigen Baum
+         */
+        public Mismatch getMismatch() {
+            return mismatch;
+        }
+
+        /**
+         * Gibt den Index des linken Blattes im ersten abweichenden Paar zurück; sein Partner hat den Index
+         * {@code getLeafCount() - 1 - getMismatchPair()}.
+         * @return der Blattindex, oder -1 bei einem drehfreudigen Baum
+         */
+        public int getMismatchPair() {
+            return mismatchPair;
+        }
+
+        /**
+         * Gibt zurück, ob der Baum drehfreudig ist.
+         * @return true, wenn beide Prüfungen bestanden sind
+         */
+        public boolean isDrehfreudig() {
+            return mismatch == Mismatch.NONE;
+        }
+
+        /**
+         * Gibt zurück, ob die Gesamtbreite berechnet wurde und in einen long passt.
+         * @return true, wenn {@link #getLongTotalWidth()} sie liefert
+         */
+        public boolean isTotalWidthLong() {
+            return totalWidth != 0;
+        }
+
+        /**
+         * Gibt die Gesamtbreite als long zurück.
+         * @return die Gesamtbreite, oder 0, wenn sie nicht berechnet wurde
+         * @throws ArithmeticException wenn die Gesamtbreite nicht in einen long passt
+         */
+        public long getLongTotalWidth() {
+            if (bigTotalWidth != null) {
+                throw new ArithmeticException("Die Gesamtbreite passt nicht in einen long: " + bigTotalWidth);
+            }
+            return totalWidth;
+        }
+
+        /**
+         * Gibt die exakte Gesamtbreite zurück, das kgV aller Pfadnenner.
+         * @return die Gesamtbreite, oder null, wenn sie nicht berechnet wurde
+         */
+        public BigInteger getTotalWidth() {
+            if (bigTotalWidth != null) {
+                return bigTotalWidth;
+            }
+            return totalWidth != 0 ? BigInteger.valueOf(totalWidth) : null;
+        }
+
+        /**
+         * Gibt das Ergebnis wie der DrehfreudigChecker im schnellen Modus aus, ergänzt um die Kennzahlen und das
+         * erste abweichende Blattpaar.
+         * @param out der Strom für die Ausgabe
+         */
+        public void print(PrintStream out) {
+            String pair = " (Blattpaar " + mismatchPair + " und " + (leafCount - 1 - mismatchPair) + ")";
+            BigInteger width = getTotalWidth();
+            out.println("Knoten: " + nodeCount + ", Blätter: " + leafCount + ", größte Tiefe: " + maxDepth
+                    + (width != null ? ", Gesamtbreite: " + width : ""));
+            switch (mismatch) {
+                case WIDTH:
+                    out.println("Breitenprüfung: nicht bestanden" + pair);
+                    break;
+                case DEPTH:
+                    out.println("Breitenprüfung: bestanden");
+                    out.println("Tiefenprüfung: nicht bestanden" + pair);
+                    break;
+                default:
+                    out.println("Breitenprüfung: bestanden");
+                    out.println("Tiefenprüfung: bestanden");
+            }
+            out.println("Ergebnis: " + (isDrehfreudig() ? "DREHFREUDIG" : "NICHT DREHFREUDIG"));
+        }
+    }
+
+    /** Ob die Gesamtbreite berechnet wird. */
+    private final boolean totalWidth;
+    /** Die Blätter des aktuellen Baumes. */
+    private final LeafSequence leaves;
+    /** Das kgV der Pfadnenner des aktuellen Baumes. */
+    private final LcmAccumulator lcm;
+    /** Erzeugt die Blätter aus den Kinderzahlen. */
+    private final LeafGenerator generator;
+    /** Die Kinderzahl je Knoten des aktuellen Baumes in Präordnung. */
+    private int[] childCounts;
+    /** Die Nummern der offenen Knoten beim Lesen, vom Wurzelknoten an. */
+    private int[] openNodes;
+    /** Die Knotenzahl des zuletzt gelesenen Baumes. */
+    private int nodes;
+    /** Die Tiefe beim Lesen. */
+    private int depth;
+    /** Die größte Tiefe des zuletzt gelesenen Baumes. */
+    private int maxDepth;
+
+    /**
+     * Erstellt einen Prüfer, der auch die Gesamtbreite berechnet.
+     */
+    public TreeChecker() {
+        this(true);
+    }
+
+    /**
+     * Erstellt einen Prüfer mit kleinen Arrays, die mit den geprüften Bäumen wachsen.
+     * @param totalWidth ob die Gesamtbreite berechnet wird; ohne sie wird wie im schnellen Modus nur anhand der
+     *                   Blattnenner entschieden
+     */
+    public TreeChecker(boolean totalWidth) {
+        this.totalWidth = totalWidth;
+        this.leaves = new LeafSequence();
+        this.lcm = new LcmAccumulator();
+        this.generator = new LeafGenerator();
+        this.childCounts = new int[INITIAL_CAPACITY];
+        this.openNodes = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Prüft einen Baum in Klammernotation. Zeichen außer Klammern werden wie beim {@link TreeParser} ignoriert.
+     *
+     * @param input die Klammerzeichenfolge
+     * @return das Ergebnis, oder null, wenn die Eingabe keine Klammern enthält
+     * @throws IllegalArgumentException wenn die Klammerstruktur ungültig ist oder mehr als einen Baum enthält.
+     */
+    public Result check(CharSequence input) {
+        start();
+        for (int i = 0, n = input.length(); i < n; i++) {
+            char c = input.charAt(i);
+            if (c == '(') {
+                open();
+            } else if (c == ')') {
+                close();
+            }
+        }
+        return finish();
+    }
+
+    /**
+     * Prüft einen Baum in Klammernotation aus den ASCII-Bytes zwischen Position und Limit des Puffers.
+     * Position und Limit werden nicht verändert. Bytes außer Klammern werden ignoriert.
+     *
+     * @param input der Puffer mit der Klammerfolge
+     * @return das Ergebnis, oder null, wenn der Puffer keine Klammern enthält
+     * @throws IllegalArgumentException wenn die Klammerstruktur ungültig ist oder mehr als einen Baum enthält.
+     */
+    public Result check(ByteBuffer input) {
+        start();
+        for (int i = input.position(), n = input.limit(); i < n; i++) {
+            byte b = input.get(i);
+            if (b == '(') {
+                open();
+            } else if (b == ')') {
+                close();
+            }
+        }
+        return finish();
+    }
+
+    /**
+     * Visualisiert einen Baum wie der DrehfreudigChecker, exakt oder auf die angegebene Spaltenzahl skaliert mit
+     * gedrehter Kopie. Dafür wird der Baum erneut geparst und analysiert; die Arrays des Prüfers werden nicht
+     * verwendet.
+     *
+     * @param input   die Klammerzeichenfolge
+     * @param columns die Spaltenzahl der skalierten Darstellung, 0 für die exakte Darstellung
+     * @param out     der Strom für die Ausgabe
+     * @throws IllegalArgumentException wenn die Eingabe keinen gültigen Baum enthält.
+     */
+    public void display(CharSequence input, int columns, PrintStream out) {
+        CompactTree tree = new TreeParser().parseCompact(input);
+        if (tree == null) {
+            throw new IllegalArgumentException("Die Eingabe ist leer oder enthält keine Baumstruktur.");
+        }
+        DrehfreudigChecker.display(null, tree, new WidthAndDepthCalculator().analyze(tree), columns, out);
+    }
+
+    /**
+     * Bereitet das Lesen eines neuen Baumes vor.
+     */
+    private void start() {
+        nodes = 0;
+        depth = 0;
+        maxDepth = 0;
+    }
+
+    /**
+     * Verarbeitet eine öffnende Klammer.
+     * @throws IllegalArgumentException wenn nach dem Wurzelknoten ein weiterer Baum beginnt.
+     */
+    private void open() {
+        if (depth == 0 && nodes > 0) {
+            throw new IllegalArgumentException("Ungültige Baumstruktur: Mehr als ein Wurzelknoten.");
+        }
+        if (nodes == childCounts.length) {
+            childCounts = Arrays.copyOf(childCounts, nodes * 2);
+        }
+        if (depth == openNodes.length) {
+            openNodes = Arrays.copyOf(openNodes, depth * 2);
+        }
+        childCounts[nodes] = 0;
+        if (depth > 0) {
+            childCounts[openNodes[depth - 1]]++;
+        }
+        openNodes[depth++] = nodes++;
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+    }
+
+    /**
+     * Verarbeitet eine schließende Klammer.
+     * @throws IllegalArgumentException wenn kein Knoten mehr offen ist.
+     */
+    private void close() {
+        if (depth == 0) {
+            throw new IllegalArgumentException("Ungültige Baumstruktur: Zu viele schließende Klammern.");
+        }
+        depth--;
+    }
+
+    /**
+     * Erzeugt die Blätter des gelesenen Baumes aus seinen Kinderzahlen, sammelt gegebenenfalls das kgV ihrer
+     * Pfadnenner und prüft den Baum.
+     * @return das Ergebnis, oder null, wenn keine Klammer gelesen wurde
+     * @throws IllegalArgumentException wenn noch Knoten offen sind.
+     */
+    private Result finish() {
+        if (depth != 0) {
+            throw new IllegalArgumentException("Ungültige Baumstruktur: Zu viele öffnende Klammern.");
+        }
+        if (nodes == 0) {
+            return null;
+        }
+
+        generator.generate(childCounts, nodes, leaves, totalWidth ? lcm : null);
+
+        int n = leaves.size();
+        Mismatch mismatch = Mismatch.NONE;
+        int pair = -1;
+        for (int i = 0; i < n / 2; i++) {
+            if (!leaves.denominatorEquals(i, n - 1 - i)) {
+                mismatch = Mismatch.WIDTH;
+                pair = i;
+                break;
+            }
+        }
+        if (pair < 0 && n > 1) {
+            int expectedSum = leaves.getDepth(0) + leaves.getDepth(n - 1);
+            for (int i = 1; i < n / 2; i++) {
+                if (leaves.getDepth(i) + leaves.getDepth(n - 1 - i) != expectedSum) {
+                    mismatch = Mismatch.DEPTH;
+                    pair = i;
+                    break;
+                }
+            }
+        }
+        if (!totalWidth) {
+            return new Result(nodes, n, maxDepth, mismatch, pair, 0, null);
+        }
+        return lcm.fitsInLong()
+                ? new Result(nodes, n, maxDepth, mismatch, pair, lcm.longValue(), null)
+                : new Result(nodes, n, maxDepth, mismatch, pair, 0, lcm.toBigInteger());
+    }
+}
@@ -1,16 +1,31 @@
-import java.util.ArrayList;
+import java.io.PrintStream;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Behandelt die Anzeige der Baumstruktur mit ASCII-Kunst.
  * Verwendet die berechneten Breiten, um eine proportionale Darstellung zu erstellen.
+ * Der Baum wird Ebene für Ebene durchlaufen und jede Zeile direkt ausgegeben.
  */
 public class TreeDisplay {
+    /** Der Strom, auf den die Anzeigezeilen geschrieben werden. */
+    private final PrintStream out;
 
     /**
-     * Erstellt eine neue Instanz des TreeDisplay.
+     * Erstellt eine neue Instanz des TreeDisplay, die auf die Standardausgabe schreibt.
      */
-    public TreeDisplay() {}
+    public TreeDisplay() {
+        this(System.out);
+    }
+
+    /**
+     * Erstellt eine neue Instanz des TreeDisplay, die auf den angegebenen Strom schreibt.
+     *
+     * @param out der Strom für die Anzeigezeilen
+     */
+    public TreeDisplay(PrintStream out) {
+        this.out = out;
+    }
 
     /**
      * Zeigt den Baum in einem visuellen Format an.
@@ -21,71 +36,148 @@ public class TreeDisplay {
         if (root == null)
             return;
 
-        List<String> lines = new ArrayList<>();
-        buildDisplay(root, 0, 0, lines);
+        print(root, Math.toIntExact(root.getWidth()));
+    }
 
-        for (String line : lines) {
-            System.out.println(line);
-        }
+    /**
+     * Zeigt den Baum anhand der Gesamtbreite aus einer Analyse an, ohne dass den Knoten Breiten zugewiesen sein müssen.
+     *
+     * @param root     der Wurzelknoten des Baumes
+     * @param analysis das Analyseergebnis des Baumes
+     */
+    public void display(Node root, TreeAnalysis analysis) {
+        if (root == null)
+            return;
+
+        print(root, analysis.getTotalWidth().intValueExact());
     }
 
     /**
-     * Baut rekursiv die Anzeigezeilen für den Baum auf.
-     * 
-     * @param node   aktueller Knoten
-     * @param level  aktuelle Tiefenebene
-     * @param offset horizontaler Versatz
-     * @param lines  Liste zum Sammeln der Anzeigezeilen
-     * @return die von diesem Teilbaum verwendete Breite
+     * Gibt den Baum Ebene für Ebene aus.
+     * Die Knoten einer Ebene liegen von links nach rechts in aufsteigendem Versatz und überlappen sich nicht.
+     * Jede Zeile wird daher einmal von links nach rechts in einen wiederverwendeten Puffer geschrieben und sofort
+     * ausgegeben; gehalten werden nur die Knoten der aktuellen und der nächsten Ebene. Die Laufzeit ist linear
+     * in der Größe der Ausgabe.
+     *
+     * @param root      der Wurzelknoten des Baumes
+     * @param rootWidth die Breite des Wurzelknotens
      */
-    private int buildDisplay(Node node, int level, int offset, List<String> lines) {
-        // Sicherstellen, dass wir genügend Zeilen haben
-        while (lines.size() <= level) {
-            lines.add("");
-        }
+    private void print(Node root, int rootWidth) {
+        StringBuilder row = new StringBuilder(rootWidth);
+        Level level = new Level();
+        Level next = new Level();
+        level.add(root, rootWidth, 0);
+        while (level.size > 0) {
+            row.setLength(0);
+            next.clear();
+            for (int i = 0; i < level.size; i++) {
+                Node node = level.nodes[i];
+                int nodeWidth = level.widths[i];
+                int offset = level.offsets[i];
+
+                // Lücken bis zum Knoten mit Leerzeichen füllen
+                while (row.length() < offset) {
+                    row.append(' ');
+                }
+                appendNode(row, nodeWidth);
 
-        int nodeWidth = node.getWidth();
-        String nodeStr;
+                // Alle Kinder eines Knotens sind gleich breit, ihr Versatz ergibt sich aus dem Kindindex
+                if (!node.isLeaf()) {
+                    List<Node> children = node.getChildren();
+                    int childWidth = nodeWidth / children.size();
+                    for (int c = 0; c < children.size(); c++) {
+                        next.add(children.get(c), childWidth, offset + c * childWidth);
+                    }
+                }
+            }
+            out.println(row);
 
+            Level done = level;
+            level = next;
+            next = done;
+        }
+    }
+
+    /**
+     * Schreibt einen Knoten in die Zeile, zentriert in seiner Breite.
+     * Breite 1 wird als "1" und Breite 2 als "[]" dargestellt, ab Breite 3 als [....Zahl....] mit Gesamtbreite
+     * an Zeichen.
+     *
+     * @param row       die Zeile, an die angehängt wird
+     * @param nodeWidth Breite des Knotens
+     */
+    private void appendNode(StringBuilder row, int nodeWidth) {
         // Spezielle Anzeige für alle Knoten basierend auf der Breite (gleiche Logik für Blätter und interne Knoten)
         if (nodeWidth == 1) {
-            nodeStr = "1";
+            row.append('1');
         } else if (nodeWidth == 2) {
-            nodeStr = "[]";
+            row.append("[]");
         } else {
-            // Für Breite >= 3: [....Zahl....] mit Gesamtbreite an Zeichen
-            String numStr = String.valueOf(nodeWidth);
-            int dotsNeeded = nodeWidth - numStr.length() - 2; // -2 für Klammern
+            int digits = Integer.toString(nodeWidth).length();
+            int dotsNeeded = nodeWidth - digits - 2; // -2 für Klammern
             int leftDots = dotsNeeded / 2;
-            int rightDots = dotsNeeded - leftDots;
-            nodeStr = "[" + ".".repeat(leftDots) + numStr + ".".repeat(rightDots) + "]";
+            row.append('[');
+            appendDots(row, leftDots);
+            row.append(nodeWidth);
+            appendDots(row, dotsNeeded - leftDots);
+            row.append(']');
         }
+    }
 
-        // Zentriert den Knoten in seiner zugewiesenen Breite
-        int padding = (nodeWidth - nodeStr.length()) / 2;
-        String paddedNode = " ".repeat(Math.max(0, padding)) + nodeStr +
-                " ".repeat(Math.max(0, nodeWidth - nodeStr.length() - padding));
-
-        // Zur aktuellen Zeile hinzufügen
-        if (lines.get(level).length() < offset) {
-            lines.set(level, lines.get(level) + " ".repeat(offset - lines.get(level).length()));
+    /**
+     * Hängt Punkte an die Zeile an.
+     *
+     * @param row   die Zeile
+     * @param count die Anzahl der Punkte
+     */
+    private static void appendDots(StringBuilder row, int count) {
+        for (int i = 0; i < count; i++) {
+            row.append('.');
         }
-        lines.set(level, lines.get(level).substring(0, offset) + paddedNode +
-                (lines.get(level).length() > offset + paddedNode.length()
-                        ? lines.get(level).substring(offset + paddedNode.length())
-                        : ""));
+    }
 
-        if (node.isLeaf()) {
-            return nodeWidth;
-        }
+    /**
+     * Die Knoten einer Ebene mit Breite und Versatz in Links-nach-Rechts-Reihenfolge, in primitiven Arrays.
+     */
+    private static class Level {
+        /** Anfangskapazität der Arrays. */
+        private static final int INITIAL_CAPACITY = 16;
+
+        /** Die Knoten der Ebene. */
+        private Node[] nodes = new Node[INITIAL_CAPACITY];
+        /** Die Breite je Knoten. */
+        private int[] widths = new int[INITIAL_CAPACITY];
+        /** Der horizontale Versatz je Knoten. */
+        private int[] offsets = new int[INITIAL_CAPACITY];
+        /** Die Anzahl der Knoten. */
+        private int size;
 
-        // Kinder behandeln
-        int childOffset = offset;
-        for (Node child : node.getChildren()) {
-            int childWidth = buildDisplay(child, level + 1, childOffset, lines);
-            childOffset += childWidth;
+        /**
+         * Hängt einen Knoten rechts an die Ebene an.
+         *
+         * @param node   der Knoten
+         * @param width  seine Breite
+         * @param offset sein horizontaler Versatz
+         */
+        void add(Node node, int width, int offset) {
+            if (size == nodes.length) {
+                int newCapacity = size * 2;
+                nodes = Arrays.copyOf(nodes, newCapacity);
+                widths = Arrays.copyOf(widths, newCapacity);
+                offsets = Arrays.copyOf(offsets, newCapacity);
+            }
+            nodes[size] = node;
+            widths[size] = width;
+            offsets[size] = offset;
+            size++;
         }
 
-        return nodeWidth;
+        /**
+         * Leert die Ebene, ohne ihre Arrays freizugeben.
+         */
+        void clear() {
+            Arrays.fill(nodes, 0, size, null);
+            size = 0;
+        }
     }
-}
\ No newline at end of file
+}
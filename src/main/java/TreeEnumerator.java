@@ -0,0 +1,722 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Zählt alle geordneten Bäume mit n Knoten auf und gibt die drehfreudigen in Klammerdarstellung aus, einen Baum je
+ * Zeile, etwa als Regressionskorpus.
+ * <p>
+ * Die Bäume werden in Präordnung Knoten für Knoten aufgebaut; jeder Knoten belegt wie in der Visualisierung ein
+ * Intervall [a / D, (a + 1) / D) der Gesamtbreite. In einem drehfreudigen Baum ist das Spiegelbild jedes Blattes
+ * an der Mitte wieder genau ein Blatt, mit gleicher Tiefensumme für alle Paare. Liegt das Spiegelbild eines neuen
+ * Knotens schon im aufgebauten Teil, schränken die Blätter dort den Knoten ein: Ist das Spiegelbild genau ein
+ * Blatt, muss der Knoten ein Blatt mit passender Tiefe sein; sonst muss seine Kinderzahl die Nenner der
+ * gespiegelten Blätter teilen. Außerdem braucht jedes Blatt, dessen Spiegelbild noch aussteht, einen eigenen
+ * Knoten im Rest des Baumes. So wird ein Präfix verworfen, sobald es keinen drehfreudigen Baum mehr zulässt.
+ * Vollständige Bäume werden zuletzt mit den Regeln des {@link WidthAndDepthCalculator} geprüft.
+ * <p>
+ * Die Suche wird bis zu einer Präfixlänge von {@value #FORK_NODES} Knoten in Fork/Join-Aufgaben zerlegt. Jede
+ * Aufgabe puffert ihre Funde und schreibt sie blockweise in die gemeinsame Ausgabe; bei mehr als einem Thread ist
+ * die Reihenfolge der Zeilen daher nicht festgelegt.
+ */
+public class TreeEnumerator {
+    /** Bis zu dieser Knotenzahl eines Präfixes werden die Möglichkeiten als eigene Aufgaben abgespalten. */
+    static final int FORK_NODES = 8;
+    /** Die größte unterstützte Knotenzahl; darüber könnten Produkte der Nenner einen long überlaufen. */
+    static final int MAX_NODES = 48;
+    /** Größe des Ausgabepuffers einer Aufgabe in Zeichen, ab der er geschrieben wird. */
+    private static final int FLUSH_CHARS = 1 << 16;
+
+    /** Der Pool, in dem die Aufgaben laufen. */
+    private final ForkJoinPool pool;
+
+    /**
+     * Erstellt einen Aufzähler, der im angegebenen Pool arbeitet.
+     * @param pool der Pool für die Aufgaben
+     */
+    public TreeEnumerator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Startet die Aufzählung über die Kommandozeile.
+     * @param args die Kommandozeilenargumente
+     */
+    public static void main(String[] args) {
+        int jobs = Runtime.getRuntime().availableProcessors();
+        String outputDirectory = null;
+        List<Integer> bounds = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--jobs":
+                        if (i + 1 == args.length) {
+                            throw new IllegalArgumentException("Option --jobs erwartet eine Anzahl.");
+                        }
+                        jobs = parseNodeCount("--jobs", args[++i], Integer.MAX_VALUE);
+                        break;
+                    case "--out":
+                        if (i + 1 == args.length) {
+                            throw new IllegalArgumentException("Option --out erwartet ein Verzeichnis.");
+                        }
+                        outputDirectory = args[++i];
+                        break;
+                    default:
+                        if (args[i].startsWith("--")) {
+                            throw new IllegalArgumentException("Unbekannte Option: " + args[i]);
+                        }
+                        bounds.add(parseNodeCount("die Knotenzahl", args[i], MAX_NODES));
+                }
+            }
+            if (bounds.isEmpty() || bounds.size() > 2) {
+                throw new IllegalArgumentException("Erwartet wird eine größte Knotenzahl oder eine kleinste und eine größte.");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(usage());
+            return;
+        }
+
+        int from = bounds.size() == 2 ? bounds.get(0) : 1;
+        int to = bounds.get(bounds.size() - 1);
+        ForkJoinPool pool = new ForkJoinPool(jobs);
+        try {
+            TreeEnumerator enumerator = new TreeEnumerator(pool);
+            for (int n = from; n <= to; n++) {
+                Result result;
+                if (outputDirectory == null) {
+                    result = enumerator.enumerate(n, null);
+                } else {
+                    Path file = Paths.get(outputDirectory, "drehfreudig-" + n + ".txt");
+                    Files.createDirectories(file.getParent());
+                    try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                        result = enumerator.enumerate(n, writer);
+                    }
+                }
+                System.out.println(result);
+            }
+        } catch (IOException e) {
+            System.err.println("Fehler beim Schreiben der Ausgabe: " + e.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Gibt eine Beschreibung der Kommandozeile zurück.
+     * @return der Hilfetext
+     */
+    public static String usage() {
+        return "Verwendung: java TreeEnumerator [Optionen] [kleinste Knotenzahl] <größte Knotenzahl>\n"
+                + "Optionen:\n"
+                + "  --jobs N   mit N Threads suchen (Standard: Anzahl der Prozessoren)\n"
+                + "  --out DIR  drehfreudige Bäume mit n Knoten zeilenweise in DIR/drehfreudig-<n>.txt schreiben";
+    }
+
+    /**
+     * Liest eine positive Anzahl aus der Kommandozeile.
+     * @param name  die Bezeichnung für die Fehlermeldung
+     * @param value der angegebene Wert
+     * @param max   der größte zulässige Wert
+     * @return die gelesene Anzahl
+     * @throws IllegalArgumentException wenn der Wert keine Zahl von 1 bis max ist.
+     */
+    private static int parseNodeCount(String name, String value, int max) {
+        int result;
+        try {
+            result = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            result = 0;
+        }
+        if (result < 1 || result > max) {
+            throw new IllegalArgumentException("Ungültiger Wert für " + name + ": " + value);
+        }
+        return result;
+    }
+
+    /**
+     * Zählt alle drehfreudigen Bäume mit n Knoten auf.
+     *
+     * @param n   die Knotenzahl, von 1 bis {@value #MAX_NODES}
+     * @param out der Strom für die gefundenen Bäume, oder null, wenn nur gezählt wird
+     * @return die Zählung mit Laufzeit
+     * @throws IOException wenn nicht in den Strom geschrieben werden kann.
+     * @throws IllegalArgumentException wenn die Knotenzahl außerhalb des unterstützten Bereichs liegt.
+     */
+    public Result enumerate(int n, Writer out) throws IOException {
+        if (n < 1 || n > MAX_NODES) {
+            throw new IllegalArgumentException("Die Knotenzahl muss zwischen 1 und " + MAX_NODES + " liegen: " + n);
+        }
+        long start = System.nanoTime();
+        Search search = new Search(n, out, pool.getParallelism() > 1);
+        try {
+            pool.invoke(ForkJoinTask.adapt(search::run));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (out != null) {
+            out.flush();
+        }
+        return new Result(n, search.found.sum(), search.steps.sum(), System.nanoTime() - start);
+    }
+
+    /**
+     * Der Zustand einer Suche: der Pfad der offenen Knoten, die bisherigen Blätter und die Kinderzahlen in
+     * Präordnung. Beim Abspalten einer Aufgabe wird er kopiert; Zähler und Ausgabe teilen sich alle Kopien.
+     */
+    private static final class Search {
+        /** Die Knotenzahl der gesuchten Bäume. */
+        private final int n;
+        /** Ob Möglichkeiten als eigene Aufgaben abgespalten werden. */
+        private final boolean parallel;
+        /** Die gemeinsame Ausgabe, oder null. */
+        private final Writer out;
+        /** Die Anzahl der gefundenen drehfreudigen Bäume über alle Kopien. */
+        private final LongAdder found;
+        /** Die Anzahl der besuchten Knoten über alle Kopien. */
+        private final LongAdder steps;
+        /** Der Rechner für die abschließende Prüfung. */
+        private final WidthAndDepthCalculator calculator;
+
+        /** Kinderzahl des offenen Knotens je Tiefe. */
+        private final int[] childCount;
+        /** Nummer des nächsten noch nicht angelegten Kindes je Tiefe. */
+        private final int[] nextChild;
+        /** Nenner der Kinder des offenen Knotens je Tiefe. */
+        private final long[] childDenominator;
+        /** Intervallnummer des ersten Kindes des offenen Knotens je Tiefe. */
+        private final long[] childBase;
+        /** Intervallnummer je Blatt, in Einheiten seiner eigenen Breite. */
+        private final long[] leafIndex;
+        /** Pfadnenner je Blatt. */
+        private final long[] leafDenominator;
+        /** Tiefe je Blatt. */
+        private final int[] leafDepth;
+        /** Die Kinderzahlen aller angelegten Knoten in Präordnung. */
+        private final int[] preorder;
+        /** Die Anzahl der Blätter. */
+        private int leaves;
+        /** Die Anzahl der angelegten Knoten. */
+        private int used;
+        /** Die Anzahl der angekündigten, aber noch nicht angelegten Kinder. */
+        private int reserved;
+        /** Die gemeinsame Tiefensumme der Blattpaare, 0 solange kein Paar vollständig ist. */
+        private int depthSum;
+        /** Die Zahl der in fitsMirrors zugeordneten Spiegelbilder. */
+        private int mirrorCount;
+        /** Die Zahl der Intervalle mit mindestens einem Spiegelbild. */
+        private int mirrorSlots;
+        /** Die Summe über diese Intervalle der kleinsten Summe aus Blatttiefe und Intervalltiefe. */
+        private int mirrorReach;
+        /** Die kleinste Tiefensumme, die alle zugeordneten Spiegelbilder zulassen. */
+        private int minimumSum;
+        /** Die Anzahl der besuchten Knoten seit dem letzten flush. */
+        private long visited;
+        /** Der Puffer für gefundene Bäume. */
+        private final StringBuilder buffer;
+
+        /**
+         * Erstellt eine leere Suche.
+         * @param n        die Knotenzahl der gesuchten Bäume
+         * @param out      die gemeinsame Ausgabe, oder null
+         * @param parallel ob Aufgaben abgespalten werden
+         */
+        Search(int n, Writer out, boolean parallel) {
+            this.n = n;
+            this.parallel = parallel;
+            this.out = out;
+            this.found = new LongAdder();
+            this.steps = new LongAdder();
+            this.calculator = new WidthAndDepthCalculator();
+            this.childCount = new int[n + 2];
+            this.nextChild = new int[n + 2];
+            this.childDenominator = new long[n + 2];
+            this.childBase = new long[n + 2];
+            this.leafIndex = new long[n];
+            this.leafDenominator = new long[n];
+            this.leafDepth = new int[n];
+            this.preorder = new int[n];
+            this.buffer = new StringBuilder();
+        }
+
+        /**
+         * Erstellt eine Kopie für eine abgespaltene Aufgabe.
+         * @param other die zu kopierende Suche
+         */
+        private Search(Search other) {
+            this.n = other.n;
+            this.parallel = other.parallel;
+            this.out = other.out;
+            this.found = other.found;
+            this.steps = other.steps;
+            this.calculator = other.calculator;
+            this.childCount = other.childCount.clone();
+            this.nextChild = other.nextChild.clone();
+            this.childDenominator = other.childDenominator.clone();
+            this.childBase = other.childBase.clone();
+            this.leafIndex = other.leafIndex.clone();
+            this.leafDenominator = other.leafDenominator.clone();
+            this.leafDepth = other.leafDepth.clone();
+            this.preorder = other.preorder.clone();
+            this.leaves = other.leaves;
+            this.used = other.used;
+            this.reserved = other.reserved;
+            this.depthSum = other.depthSum;
+            this.buffer = new StringBuilder();
+        }
+
+        /**
+         * Durchsucht alle Bäume ab dem Wurzelknoten.
+         */
+        void run() {
+            used = 1;
+            open(0, 1, 1);
+            flush();
+        }
+
+        /**
+         * Legt einen Knoten an und probiert alle mit den gespiegelten Blättern verträglichen Kinderzahlen.
+         * Der Knoten ist in used bereits gezählt.
+         * @param index       die Intervallnummer des Knotens
+         * @param denominator der Pfadnenner des Knotens
+         * @param depth       die Tiefe des Knotens
+         */
+        private void open(long index, long denominator, int depth) {
+            visited++;
+            if (!fitsMirrors(index, denominator, depth)) {
+                return;
+            }
+            long mirror = denominator - 1 - index;
+            int remaining = n - used;
+
+            // Blätter im Spiegelbild des Knotens; gleich breite Intervalle sind gleich oder disjunkt
+            boolean leafAllowed = true;
+            int mirrorDepth = 0;
+            long divisor = 0;
+            if (mirror < index) {
+                int i = firstLeafEndingAfter(mirror, denominator);
+                while (i < leaves && leafIndex[i] * denominator < (mirror + 1) * leafDenominator[i]) {
+                    if (leafDenominator[i] == denominator) {
+                        mirrorDepth = leafDepth[i];
+                        divisor = 1;
+                    } else if (leafDenominator[i] % denominator == 0) {
+                        divisor = LcmAccumulator.gcd(divisor, leafDenominator[i] / denominator);
+                    } else {
+                        return;
+                    }
+                    i++;
+                }
+                leafAllowed = mirrorDepth > 0 && (depthSum == 0 || depth + mirrorDepth == depthSum);
+            }
+
+            // Jedes Blatt, dessen Spiegelbild noch aussteht, braucht einen eigenen Knoten im Rest
+            int open = firstLeafEndingAfter(denominator - index, denominator);
+            List<Option> options = parallel && used <= FORK_NODES ? new ArrayList<>() : null;
+            if (leafAllowed && remaining >= reserved && remaining >= open - (mirrorDepth > 0 ? 1 : 0)) {
+                choose(index, denominator, depth, 0, mirrorDepth, options);
+            }
+            if (remaining >= open) {
+                for (int k = 1; k <= remaining - reserved; k++) {
+                    if (divisor == 0 || divisor % k == 0) {
+                        choose(index, denominator, depth, k, 0, options);
+                    }
+                }
+            }
+            if (options != null) {
+                ForkJoinTask.invokeAll(options);
+            }
+        }
+
+        /**
+         * Setzt die Suche mit einer Kinderzahl fort, oder spaltet sie als Aufgabe ab.
+         * @param index       die Intervallnummer des Knotens
+         * @param denominator der Pfadnenner des Knotens
+         * @param depth       die Tiefe des Knotens
+         * @param k           die Kinderzahl, 0 für ein Blatt
+         * @param mirrorDepth die Tiefe des gespiegelten Blattes, oder 0
+         * @param options     die Liste der abzuspaltenden Aufgaben, oder null
+         */
+        private void choose(long index, long denominator, int depth, int k, int mirrorDepth, List<Option> options) {
+            if (options != null) {
+                options.add(new Option(new Search(this), index, denominator, depth, k, mirrorDepth));
+            } else if (k == 0) {
+                addLeaf(index, denominator, depth, mirrorDepth);
+            } else {
+                addChildren(index, denominator, depth, k);
+            }
+        }
+
+        /**
+         * Macht den Knoten zum Blatt und setzt mit dem nächsten ausstehenden Kind fort.
+         * @param index       die Intervallnummer des Knotens
+         * @param denominator der Pfadnenner des Knotens
+         * @param depth       die Tiefe des Knotens
+         * @param mirrorDepth die Tiefe des gespiegelten Blattes, oder 0
+         */
+        private void addLeaf(long index, long denominator, int depth, int mirrorDepth) {
+            int previousSum = depthSum;
+            if (mirrorDepth > 0) {
+                depthSum = depth + mirrorDepth;
+            }
+            preorder[used - 1] = 0;
+            leafIndex[leaves] = index;
+            leafDenominator[leaves] = denominator;
+            leafDepth[leaves] = depth;
+            leaves++;
+
+            advance(depth);
+
+            leaves--;
+            depthSum = previousSum;
+        }
+
+        /**
+         * Gibt dem Knoten k Kinder und legt das erste an.
+         * @param index       die Intervallnummer des Knotens
+         * @param denominator der Pfadnenner des Knotens
+         * @param depth       die Tiefe des Knotens
+         * @param k           die Kinderzahl
+         */
+        private void addChildren(long index, long denominator, int depth, int k) {
+            int savedCount = childCount[depth];
+            int savedNext = nextChild[depth];
+            long savedDenominator = childDenominator[depth];
+            long savedBase = childBase[depth];
+            preorder[used - 1] = k;
+            childCount[depth] = k;
+            nextChild[depth] = 1;
+            childDenominator[depth] = denominator * k;
+            childBase[depth] = index * k;
+            reserved += k - 1;
+            used++;
+
+            open(index * k, denominator * k, depth + 1);
+
+            used--;
+            reserved -= k - 1;
+            childCount[depth] = savedCount;
+            nextChild[depth] = savedNext;
+            childDenominator[depth] = savedDenominator;
+            childBase[depth] = savedBase;
+        }
+
+        /**
+         * Legt nach einem Blatt das nächste ausstehende Kind eines Vorfahren an, oder meldet den fertigen Baum.
+         * @param depth die Tiefe des Blattes
+         */
+        private void advance(int depth) {
+            for (int level = depth - 1; level >= 1; level--) {
+                if (nextChild[level] < childCount[level]) {
+                    int child = nextChild[level]++;
+                    reserved--;
+                    used++;
+                    open(childBase[level] + child, childDenominator[level], level + 1);
+                    used--;
+                    reserved++;
+                    nextChild[level]--;
+                    return;
+                }
+            }
+            if (used == n) {
+                report();
+            }
+        }
+
+        /**
+         * Prüft einen fertigen Baum mit den Regeln des WidthAndDepthCalculator und gibt ihn aus.
+         */
+        private void report() {
+            LeafSequence sequence = new LeafSequence();
+            for (int i = 0; i < leaves; i++) {
+                sequence.add(leafDenominator[i], leafDepth[i]);
+            }
+            if (!calculator.isDenominatorPalindrome(sequence) || !calculator.isConstantDepthSum(sequence)) {
+                return;
+            }
+            found.increment();
+            if (out == null) {
+                return;
+            }
+
+            // Klammerdarstellung aus den Kinderzahlen in Präordnung
+            int[] pendingChildren = new int[n];
+            int top = 0;
+            for (int i = 0; i < n; i++) {
+                buffer.append('(');
+                if (top > 0) {
+                    pendingChildren[top - 1]--;
+                }
+                pendingChildren[top++] = preorder[i];
+                while (top > 0 && pendingChildren[top - 1] == 0) {
+                    buffer.append(')');
+                    top--;
+                }
+            }
+            buffer.append('\n');
+            if (buffer.length() >= FLUSH_CHARS) {
+                flush();
+            }
+        }
+
+        /**
+         * Überträgt die besuchten Knoten in den gemeinsamen Zähler und schreibt den Puffer in die gemeinsame Ausgabe.
+         * @throws UncheckedIOException wenn nicht geschrieben werden kann.
+         */
+        void flush() {
+            steps.add(visited);
+            visited = 0;
+            if (out == null || buffer.length() == 0) {
+                return;
+            }
+            try {
+                synchronized (out) {
+                    out.append(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buffer.setLength(0);
+        }
+
+        /**
+         * Prüft, ob sich die Spiegelbilder der Blätter links vom Knoten noch im Rest des Baumes unterbringen lassen.
+         * Der Rest besteht aus dem Knoten selbst und den angekündigten Geschwistern auf seinem Pfad, deren Intervalle
+         * schon feststehen. Jedes ausstehende Spiegelbild muss ganz in einem dieser Intervalle liegen, als Blatt in der
+         * Tiefe h - d, wenn d die Tiefe seines Blattes und h die Tiefensumme ist. Ein Intervall mit m Spiegelbildern
+         * braucht daher mindestens m Blätter und darüber die inneren Knoten bis zum tiefsten. Solange h offen ist,
+         * wird mit dem kleinsten h gerechnet, das alle Spiegelbilder zulassen.
+         *
+         * @param index       die Intervallnummer des Knotens
+         * @param denominator der Pfadnenner des Knotens
+         * @param depth       die Tiefe des Knotens
+         * @return false, wenn kein drehfreudiger Baum das bisherige Präfix fortsetzt
+         */
+        private boolean fitsMirrors(long index, long denominator, int depth) {
+            mirrorCount = 0;
+            mirrorSlots = 0;
+            mirrorReach = 0;
+            minimumSum = 0;
+
+            // Die Spiegelbilder liegen in umgekehrter Reihenfolge der Blätter, die Intervalle von links nach rechts
+            int leaf = firstLeafEndingAfter(denominator - index, denominator) - 1;
+            leaf = placeMirrors(leaf, index, denominator, depth);
+            for (int level = depth - 1; level >= 1 && leaf >= 0; level--) {
+                for (int child = nextChild[level]; child < childCount[level] && leaf >= 0; child++) {
+                    leaf = placeMirrors(leaf, childBase[level] + child, childDenominator[level], level + 1);
+                }
+            }
+            if (leaf != -1) {
+                return false;
+            }
+            int sum = depthSum > 0 ? depthSum : minimumSum;
+            if (sum < minimumSum) {
+                return false;
+            }
+
+            // Je Intervall ohne Spiegelbild ein Knoten, sonst die Blätter und die inneren Knoten bis zum tiefsten
+            int slots = reserved + 1;
+            int needed = slots - mirrorSlots + mirrorCount + mirrorSlots * sum - mirrorReach;
+            return needed <= n - used + 1;
+        }
+
+        /**
+         * Ordnet einem Intervall des Restbaumes die darin liegenden Spiegelbilder zu und sammelt dabei die Angaben
+         * für fitsMirrors.
+         *
+         * @param leaf        das Blatt mit dem nächsten noch nicht zugeordneten Spiegelbild, oder -1
+         * @param index       die Intervallnummer
+         * @param denominator der Nenner des Intervalls
+         * @param depth       die Tiefe des Knotens mit diesem Intervall
+         * @return das Blatt mit dem nächsten Spiegelbild, -1 wenn alle zugeordnet sind, oder -2, wenn eines nicht in
+         *         das Intervall passt
+         */
+        private int placeMirrors(int leaf, long index, long denominator, int depth) {
+            int shallowest = Integer.MAX_VALUE;
+            for (; leaf >= 0; leaf--) {
+                long mirror = leafDenominator[leaf] - 1 - leafIndex[leaf];
+                if (mirror * denominator >= (index + 1) * leafDenominator[leaf]) {
+                    break;
+                }
+                long ratio = leafDenominator[leaf] / denominator;
+                if (leafDenominator[leaf] % denominator != 0 || mirror / ratio != index) {
+                    return -2;
+                }
+                // Unterhalb des Knotens liegt ein kleineres Spiegelbild mindestens eine Ebene tiefer
+                int reach = leafDepth[leaf] + depth;
+                minimumSum = Math.max(minimumSum, ratio == 1 ? reach : reach + 1);
+                shallowest = Math.min(shallowest, reach);
+                mirrorCount++;
+            }
+            if (shallowest != Integer.MAX_VALUE) {
+                mirrorSlots++;
+                mirrorReach += shallowest;
+            }
+            return leaf;
+        }
+
+        /**
+         * Sucht das erste Blatt, das rechts von index / denominator endet. Die Blätter liegen lückenlos von
+         * links nach rechts, ihre Enden sind also aufsteigend.
+         * @param index       die Intervallnummer
+         * @param denominator der Nenner
+         * @return die Nummer des Blattes, oder die Blattzahl, wenn keines rechts davon endet
+         */
+        private int firstLeafEndingAfter(long index, long denominator) {
+            int low = 0;
+            int high = leaves;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if ((leafIndex[middle] + 1) * denominator > index * leafDenominator[middle]) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Eine abgespaltene Möglichkeit: eine Kopie der Suche mit der Kinderzahl des aktuellen Knotens.
+     */
+    private static final class Option extends RecursiveAction {
+        /** Versionskennung für die Serialisierung. */
+        private static final long serialVersionUID = 1L;
+
+        /** Die eigene Kopie der Suche. */
+        private final transient Search search;
+        /** Die Intervallnummer des Knotens. */
+        private final long index;
+        /** Der Pfadnenner des Knotens. */
+        private final long denominator;
+        /** Die Tiefe des Knotens. */
+        private final int depth;
+        /** Die Kinderzahl, 0 für ein Blatt. */
+        private final int k;
+        /** Die Tiefe des gespiegelten Blattes, oder 0. */
+        private final int mirrorDepth;
+
+        /**
+         * Erstellt eine Möglichkeit.
+         * @param search      die eigene Kopie der Suche
+         * @param index       die Intervallnummer des Knotens
+         * @param denominator der Pfadnenner des Knotens
+         * @param depth       die Tiefe des Knotens
+         * @param k           die Kinderzahl, 0 für ein Blatt
+         * @param mirrorDepth die Tiefe des gespiegelten Blattes, oder 0
+         */
+        Option(Search search, long index, long denominator, int depth, int k, int mirrorDepth) {
+            this.search = search;
+            this.index = index;
+            this.denominator = denominator;
+            this.depth = depth;
+            this.k = k;
+            this.mirrorDepth = mirrorDepth;
+        }
+
+        @Override
+        protected void compute() {
+            search.choose(index, denominator, depth, k, mirrorDepth, null);
+            search.flush();
+        }
+    }
+
+    /**
+     * Das Ergebnis der Aufzählung für eine Knotenzahl.
+     */
+    public static final class Result {
+        /** Die Knotenzahl. */
+        private final int nodeCount;
+        /** Die Anzahl der drehfreudigen Bäume. */
+        private final long drehfreudigCount;
+        /** Die Anzahl der besuchten Knoten. */
+        private final long steps;
+        /** Die Laufzeit in Nanosekunden. */
+        private final long nanos;
+
+        /**
+         * Erstellt ein Ergebnis.
+         * @param nodeCount        die Knotenzahl
+         * @param drehfreudigCount die Anzahl der drehfreudigen Bäume
+         * @param steps            die Anzahl der besuchten Knoten
+         * @param nanos            die Laufzeit in Nanosekunden
+         */
+        Result(int nodeCount, long drehfreudigCount, long steps, long nanos) {
+            this.nodeCount = nodeCount;
+            this.drehfreudigCount = drehfreudigCount;
+            this.steps = steps;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Gibt die Knotenzahl zurück.
+         * @return die Knotenzahl
+         */
+        public int getNodeCount() {
+            return nodeCount;
+        }
+
+        /**
+         * Gibt die Anzahl der drehfreudigen Bäume zurück.
+         * @return die Anzahl
+         */
+        public long getDrehfreudigCount() {
+            return drehfreudigCount;
+        }
+
+        /**
+         * Gibt die Anzahl der besuchten Knoten zurück.
+         * @return die Anzahl der Suchschritte
+         */
+        public long getSteps() {
+            return steps;
+        }
+
+        /**
+         * Gibt die Laufzeit zurück.
+         * @return die Laufzeit in Nanosekunden
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Gibt die Anzahl aller geordneten Bäume mit der Knotenzahl zurück, die Catalan-Zahl C(n - 1).
+         * @return die Anzahl aller Bäume
+         */
+        public BigInteger getTreeCount() {
+            int m = nodeCount - 1;
+            BigInteger result = BigInteger.ONE;
+            for (int i = 0; i < m; i++) {
+                result = result.multiply(BigInteger.valueOf(2L * m - i)).divide(BigInteger.valueOf(i + 1));
+            }
+            return result.divide(BigInteger.valueOf(m + 1));
+        }
+
+        /**
+         * Gibt das Ergebnis als Berichtszeile aus.
+         * @return Anzahl, Laufzeit und Durchsatz
+         */
+        @Override
+        public String toString() {
+            double seconds = Math.max(nanos, 1) / 1e9;
+            BigInteger trees = getTreeCount();
+            return String.format(Locale.ROOT,
+                    "n=%d: %d drehfreudig von %s Bäumen, %d Suchschritte in %d ms (%.0f Schritte/s, %.3g Bäume/s)",
+                    nodeCount, drehfreudigCount, trees, steps, nanos / 1_000_000, steps / seconds,
+                    trees.doubleValue() / seconds);
+        }
+    }
+}
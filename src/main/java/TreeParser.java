@@ -1,11 +1,102 @@
-import java.util.EmptyStackException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Stack;
 
 /**
  * Parst eine Klammerzeichenfolge in eine Baumstruktur.
  * Verwendet einen stack-basierten Ansatz, um den Baum rekursiv aufzubauen.
+ * Dateien im Binärformat des {@link BinaryTreeFile} werden an ihrer Kennung erkannt und wortweise gelesen.
  */
 public class TreeParser {
+    /** Größe eines auf einmal eingeblendeten Dateiabschnitts, ein Vielfaches von 8. */
+    static final int MAP_CHUNK_SIZE = 1 << 28;
+    /** Größe des Lesepuffers für Kanäle, die nicht eingeblendet werden können. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Empfänger der Klammerereignisse beim Parsen, etwa ein Builder für eine Baumdarstellung.
+     */
+    interface Sink {
+        /**
+         * Verarbeitet eine öffnende Klammer.
+         */
+        void open();
+
+        /**
+         * Verarbeitet eine schließende Klammer.
+         */
+        void close();
+
+        /**
+         * Verarbeitet bis zu 64 Klammern aus einem Wort der Bitfolge einer Binärdatei, beginnend beim
+         * niederwertigsten Bit; 1 steht für eine öffnende, 0 für eine schließende Klammer.
+         * @param word  das Wort
+         * @param count die Anzahl der gültigen Bits des Wortes
+         */
+        default void bits(long word, int count) {
+            for (int i = 0; i < count; i++) {
+                if ((word >>> i & 1) != 0) {
+                    open();
+                } else {
+                    close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Baut aus den Klammerereignissen einen Node-Baum auf. Der Stapel hält den Pfad vom Wurzelknoten zum
+     * aktuell offenen Knoten.
+     */
+    private static class NodeBuilder implements Sink {
+        /** Die offenen Knoten. */
+        private final Stack<Node> stack = new Stack<>();
+        /** Der Wurzelknoten, oder null, solange keine Klammer gelesen wurde. */
+        private Node root;
+
+        @Override
+        public void open() {
+            Node newNode = new Node();
+            if (!stack.isEmpty()) {
+                stack.peek().addChild(newNode);
+            } else if (root != null) {
+                throw new IllegalArgumentException("Ungültige Baumstruktur: Mehr als ein Wurzelknoten.");
+            } else {
+                root = newNode;
+            }
+            stack.push(newNode);
+        }
+
+        @Override
+        public void close() {
+            if (stack.isEmpty()) {
+                throw new IllegalArgumentException("Ungültige Baumstruktur: Zu viele schließende Klammern.");
+            }
+            stack.pop();
+        }
+
+        /**
+         * Schließt den Aufbau ab.
+         * @return der Wurzelknoten, oder null, wenn keine Klammer gelesen wurde
+         * @throws IllegalArgumentException wenn noch Knoten offen sind.
+         */
+        Node build() {
+            // Nach dem Parsen muss der Stack leer sein, sonst fehlen schließende Klammern.
+            if (!stack.isEmpty()) {
+                throw new IllegalArgumentException("Ungültige Baumstruktur: Zu viele öffnende Klammern.");
+            }
+            return root;
+        }
+    }
+
+    /** Wiederverwendbarer Lesepuffer für {@link #parseCompact(ReadableByteChannel)}, erst bei Bedarf angelegt. */
+    private ByteBuffer buffer;
 
     /**
      * Erstellt eine neue Instanz des TreeParser.
@@ -17,39 +108,298 @@ public class TreeParser {
      *
      * @param input die Klammerzeichenfolge, die den Baum darstellt.
      * @return der Wurzelknoten des geparsten Baumes.
-     * @throws IllegalArgumentException wenn die Eingabe null, leer oder die Klammerstruktur ungültig ist.
+     * @throws IllegalArgumentException wenn die Klammerstruktur ungültig ist oder mehr als einen Baum enthält.
      */
     public Node parse(String input) {
         if (input == null || input.isEmpty()) {
             return null;
         }
 
-        Stack<Node> stack = new Stack<>();
-        Node root = null;
-
-        try {
-            for (char c : input.toCharArray()) {
-                if (c == '(') {
-                    Node newNode = new Node();
-                    if (!stack.isEmpty()) {
-                        stack.peek().addChild(newNode);
-                    } else {
-                        root = newNode;
-                    }
-                    stack.push(newNode);
-                } else if (c == ')') {
-                    stack.pop();
+        NodeBuilder builder = new NodeBuilder();
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c == '(') {
+                builder.open();
+            } else if (c == ')') {
+                builder.close();
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Parst eine Datei in einen Node-Baum. Gelesen wird wie bei {@link #parseCompact(Path)}: alle Bytes außer
+     * Klammern, auch Zeilenumbrüche, werden ignoriert, und die ganze Datei muss genau einen Baum enthalten.
+     * Damit ergibt jede Datei unabhängig von Größe, Format und gewähltem Modus dieselbe Baumstruktur.
+     *
+     * @param file die zu lesende Datei
+     * @return der Wurzelknoten, oder null, wenn die Datei keine Klammern enthält.
+     * @throws IOException wenn die Datei nicht gelesen werden kann.
+     * @throws IllegalArgumentException wenn die Klammerstruktur ungültig ist oder mehr als einen Baum enthält.
+     */
+    public Node parse(Path file) throws IOException {
+        NodeBuilder builder = new NodeBuilder();
+        feed(file, builder);
+        return builder.build();
+    }
+
+    /**
+     * Parst die Eingabezeichenfolge in einen kompakten Baum, ohne Node-Objekte zu erzeugen.
+     * Zeichen außer Klammern werden wie bei {@link #parse(String)} ignoriert.
+     *
+     * @param input die Klammerzeichenfolge, die den Baum darstellt.
+     * @return der kompakte Baum, oder null, wenn die Eingabe null oder leer ist.
+     * @throws IllegalArgumentException wenn die Klammerstruktur ungültig ist oder mehr als einen Baum enthält.
+     */
+    public CompactTree parseCompact(CharSequence input) {
+        if (input == null || input.length() == 0) {
+            return null;
+        }
+
+        CompactTree.Builder builder = new CompactTree.Builder(input.length() / 2);
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c == '(') {
+                builder.open();
+            } else if (c == ')') {
+                builder.close();
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Parst eine Datei direkt in einen kompakten Baum, ohne ihren Inhalt als Text in den Speicher zu laden.
+     * Die Datei wird abschnittsweise per {@link FileChannel#map} eingeblendet und als ASCII-Bytes gelesen;
+     * alle Bytes außer Klammern, etwa Leerzeichen und Zeilenumbrüche, werden ignoriert. Der Speicherbedarf
+     * ist dadurch durch den Baum selbst begrenzt, nicht durch die Dateigröße.
+     * Eine Binärdatei wird mit den Angaben aus ihrem Kopf in genau passende Arrays gelesen, eine komprimierte
+     * Datei beim Lesen über den {@link CompressedInput} entpackt.
+     *
+     * @param file die zu lesende Datei
+     * @return der kompakte Baum, oder null, wenn die Datei keine Klammern enthält.
+     * @throws IOException wenn die Datei nicht gelesen werden kann.
+     * @throws IllegalArgumentException wenn die Klammerstruktur ungültig ist oder mehr als einen Baum enthält.
+     */
+    public CompactTree parseCompact(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            BinaryTreeFile.Header header = BinaryTreeFile.readHeader(channel);
+            if (header != null) {
+                CompactTree.Builder builder = new CompactTree.Builder(
+                        expectedNodes(header.getBitCount()), header.getMaxDepth());
+                feed(channel, header, builder);
+                return builder.build();
+            }
+            if (CompressedInput.detect(channel) != CompressedInput.Codec.NONE) {
+                // Die entpackte Größe ist nur ein Anhaltspunkt; der Builder wächst bei Bedarf weiter
+                long hint = CompressedInput.sizeHint(channel);
+                CompactTree.Builder builder = new CompactTree.Builder(
+                        hint > 0 ? expectedNodes(Math.min(hint, Integer.MAX_VALUE - 8)) : 0);
+                try (ReadableByteChannel input = CompressedInput.decompress(channel)) {
+                    feed(input, builder);
+                }
+                return builder.build();
+            }
+            CompactTree.Builder builder = new CompactTree.Builder(expectedNodes(channel.size()));
+            feed(channel, builder);
+            return builder.build();
+        }
+    }
+
+    /**
+     * Parst eine Datei in einen {@link SubtreeDag}, in dem gleich aufgebaute Teilbäume nur einmal gespeichert
+     * werden. Gelesen wird wie bei {@link #parseCompact(Path)}; der Speicherbedarf hängt aber nur von der Zahl
+     * der verschiedenen Teilbäume ab.
+     *
+     * @param file die zu lesende Datei
+     * @return der DAG, oder null, wenn die Datei keine Klammern enthält.
+     * @throws IOException wenn die Datei nicht gelesen werden kann.
+     * @throws IllegalArgumentException wenn die Klammerstruktur ungültig ist oder mehr als einen Baum enthält.
+     */
+    public SubtreeDag parseDag(Path file) throws IOException {
+        SubtreeDag.Builder builder = new SubtreeDag.Builder();
+        feed(file, builder);
+        return builder.build();
+    }
+
+    /**
+     * Liest eine Datei in einem Durchlauf in eine {@link HashPrecheck}, ohne den Baum zu speichern. Gelesen wird
+     * wie bei {@link #parseCompact(Path)}; der Speicherbedarf hängt nur von der Tiefe des Baumes ab.
+     *
+     * @param file die zu lesende Datei
+     * @return die abgeschlossene Vorprüfung, oder null, wenn die Datei keine Klammern enthält.
+     * @throws IOException wenn die Datei nicht gelesen werden kann.
+     * @throws IllegalArgumentException wenn die Klammerstruktur ungültig ist oder mehr als einen Baum enthält.
+     */
+    public HashPrecheck precheck(Path file) throws IOException {
+        HashPrecheck precheck = new HashPrecheck();
+        feed(file, precheck);
+        return precheck.finish() ? precheck : null;
+    }
+
+    /**
+     * Parst die Eingabezeichenfolge in einen {@link SubtreeDag}.
+     *
+     * @param input die Klammerzeichenfolge, die den Baum darstellt.
+     * @return der DAG, oder null, wenn die Eingabe null ist oder keine Klammern enthält.
+     * @throws IllegalArgumentException wenn die Klammerstruktur ungültig ist oder mehr als einen Baum enthält.
+     */
+    public SubtreeDag parseDag(CharSequence input) {
+        if (input == null) {
+            return null;
+        }
+
+        SubtreeDag.Builder builder = new SubtreeDag.Builder();
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c == '(') {
+                builder.open();
+            } else if (c == ')') {
+                builder.close();
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Parst einen beliebigen Bytekanal, etwa die Standardeingabe, in einen kompakten Baum.
+     * Gelesen wird über einen wiederverwendbaren direkten Puffer fester Größe.
+     *
+     * @param channel der zu lesende Kanal; er wird nicht geschlossen
+     * @return der kompakte Baum, oder null, wenn der Kanal keine Klammern liefert.
+     * @throws IOException wenn der Kanal nicht gelesen werden kann.
+     * @throws IllegalArgumentException wenn die Klammerstruktur ungültig ist oder mehr als einen Baum enthält.
+     */
+    public CompactTree parseCompact(ReadableByteChannel channel) throws IOException {
+        CompactTree.Builder builder = new CompactTree.Builder(0);
+        feed(channel, builder);
+        return builder.build();
+    }
+
+    /**
+     * Parst einen beliebigen Bytekanal, etwa eine entpackte Datei, in einen {@link SubtreeDag}.
+     *
+     * @param channel der zu lesende Kanal; er wird nicht geschlossen
+     * @return der DAG, oder null, wenn der Kanal keine Klammern liefert.
+     * @throws IOException wenn der Kanal nicht gelesen werden kann.
+     * @throws IllegalArgumentException wenn die Klammerstruktur ungültig ist oder mehr als einen Baum enthält.
+     */
+    public SubtreeDag parseDag(ReadableByteChannel channel) throws IOException {
+        SubtreeDag.Builder builder = new SubtreeDag.Builder();
+        feed(channel, builder);
+        return builder.build();
+    }
+
+    /**
+     * Liest eine Datei in ihrem Format, als Binärdatei, komprimiert oder als Text, und gibt alle Klammern als
+     * Ereignisse an den Empfänger weiter.
+     *
+     * @param file die zu lesende Datei
+     * @param sink der Empfänger der Ereignisse
+     * @throws IOException wenn die Datei nicht gelesen werden kann.
+     */
+    void feed(Path file, Sink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            BinaryTreeFile.Header header = BinaryTreeFile.readHeader(channel);
+            if (header != null) {
+                feed(channel, header, sink);
+            } else if (CompressedInput.detect(channel) != CompressedInput.Codec.NONE) {
+                try (ReadableByteChannel input = CompressedInput.decompress(channel)) {
+                    feed(input, sink);
                 }
+            } else {
+                feed(channel, sink);
             }
-        } catch (EmptyStackException e) {
-            throw new IllegalArgumentException("Ungültige Baumstruktur: Zu viele schließende Klammern.", e);
         }
+    }
+
+    /**
+     * Liest einen Bytekanal über den wiederverwendbaren Puffer und gibt alle Klammern als Ereignisse an den
+     * Empfänger weiter.
+     *
+     * @param channel der zu lesende Kanal
+     * @param sink    der Empfänger der Ereignisse
+     * @throws IOException wenn der Kanal nicht gelesen werden kann.
+     */
+    private void feed(ReadableByteChannel channel, Sink sink) throws IOException {
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        buffer.clear();
+        while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            feed(buffer, sink);
+            buffer.clear();
+        }
+    }
 
-        // Nach dem Parsen muss der Stack leer sein, sonst fehlen schließende Klammern.
-        if (!stack.isEmpty()) {
-            throw new IllegalArgumentException("Ungültige Baumstruktur: Zu viele öffnende Klammern.");
+    /**
+     * Schätzt die Knotenzahl einer Eingabe aus ihrer Länge, da jeder Knoten zwei Klammern belegt.
+     *
+     * @param length die Länge der Eingabe in Bytes
+     * @return die geschätzte Knotenzahl
+     * @throws IllegalArgumentException wenn die Eingabe mehr Knoten enthalten kann, als ein Array fasst.
+     */
+    private static int expectedNodes(long length) {
+        long nodes = length / 2;
+        if (nodes > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Die Eingabe ist zu groß: " + length + " Bytes.");
         }
+        return (int) nodes;
+    }
 
-        return root;
+    /**
+     * Blendet eine Datei abschnittsweise ein und gibt alle Klammern als Ereignisse an den Empfänger weiter.
+     *
+     * @param channel der Kanal der Datei
+     * @param sink    der Empfänger der Ereignisse
+     * @throws IOException wenn die Datei nicht gelesen werden kann.
+     */
+    static void feed(FileChannel channel, Sink sink) throws IOException {
+        long size = channel.size();
+        for (long position = 0; position < size; position += MAP_CHUNK_SIZE) {
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(MAP_CHUNK_SIZE, size - position));
+            feed(chunk, sink);
+        }
+    }
+
+    /**
+     * Blendet die Bitfolge einer Binärdatei abschnittsweise ein und gibt sie wortweise an den Empfänger weiter.
+     *
+     * @param channel der Kanal der Datei
+     * @param header  der Kopf der Datei
+     * @param sink    der Empfänger der Klammern
+     * @throws IOException wenn die Datei nicht gelesen werden kann.
+     */
+    static void feed(FileChannel channel, BinaryTreeFile.Header header, Sink sink) throws IOException {
+        long remaining = header.getBitCount();
+        for (long position = header.getDataOffset(); remaining > 0; position += MAP_CHUNK_SIZE) {
+            LongBuffer words = BinaryTreeFile.map(channel, header, position);
+            while (words.hasRemaining() && remaining > 0) {
+                int bits = (int) Math.min(Long.SIZE, remaining);
+                sink.bits(words.get(), bits);
+                remaining -= bits;
+            }
+        }
+    }
+
+    /**
+     * Gibt alle Klammern eines Puffers als Ereignisse an den Empfänger weiter und ignoriert alle anderen Bytes.
+     *
+     * @param bytes der Puffer, gelesen von seiner Position bis zu seinem Limit
+     * @param sink  der Empfänger der Ereignisse
+     */
+    private static void feed(ByteBuffer bytes, Sink sink) {
+        int limit = bytes.limit();
+        for (int i = bytes.position(); i < limit; i++) {
+            byte b = bytes.get(i);
+            if (b == '(') {
+                sink.open();
+            } else if (b == ')') {
+                sink.close();
+            }
+        }
+        bytes.position(limit);
     }
-}
\ No newline at end of file
+}
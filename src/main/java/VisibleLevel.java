@@ -0,0 +1,217 @@
+import java.util.Arrays;
+
+/**
+ * Die sichtbaren Knoten einer Ebene für skalierte Darstellungen, in Links-nach-Rechts-Reihenfolge und in
+ * primitiven Arrays.
+ * <p>
+ * Ein Knoten mit Pfadnenner D ist der index-te Knoten dieses Nenners von links und nimmt das Intervall
+ * [index/D, (index+1)/D) der Gesamtbreite ein. Bei einer Auflösung von C Spalten belegt er die Spalten von
+ * index·C/D bis (index+1)·C/D, jeweils abgerundet. Sichtbar sind nur Knoten mit D ≤ C, also mindestens eine Spalte
+ * breit; Kinder, die schmaler wären, werden nicht besucht. Dadurch reichen long-Werte, und der Aufwand hängt nur
+ * von der Auflösung und der Zahl der sichtbaren Knoten ab.
+ * Verwendet von {@link ScaledTreeDisplay} und {@link SvgExporter}.
+ */
+class VisibleLevel {
+    /** Anfangskapazität der Arrays. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Die Auflösung in Spalten. */
+    private final int columns;
+    /** Der kompakte Baum, oder null, wenn die Knoten nicht kompakt vorliegen. */
+    private final CompactTree tree;
+    /** Der DAG der Teilbäume, oder null, wenn die Knoten nicht als DAG vorliegen. */
+    private final SubtreeDag dag;
+    /** Die Node-Objekte je Knoten; null, sobald sie freigegeben sind. */
+    private Node[] nodes;
+    /** Die Knotennummern im kompakten Baum oder Teilbaumnummern im DAG; null, sobald sie freigegeben sind. */
+    private int[] ids;
+    /** Der Pfadnenner je Knoten. */
+    private long[] denominators;
+    /** Die Position je Knoten unter allen Knoten mit demselben Pfadnenner. */
+    private long[] indices;
+    /** Die erste Spalte je Knoten. */
+    private int[] starts;
+    /** Die Spalte nach dem Knoten. */
+    private int[] ends;
+    /** Die Anzahl der Knoten. */
+    private int size;
+
+    /**
+     * Erstellt eine leere Ebene.
+     *
+     * @param tree    der kompakte Baum, oder null
+     * @param dag     der DAG der Teilbäume, oder null
+     * @param columns die Auflösung in Spalten
+     */
+    private VisibleLevel(CompactTree tree, SubtreeDag dag, int columns) {
+        this.columns = columns;
+        this.tree = tree;
+        this.dag = dag;
+        this.nodes = new Node[INITIAL_CAPACITY];
+        this.ids = new int[INITIAL_CAPACITY];
+        this.denominators = new long[INITIAL_CAPACITY];
+        this.indices = new long[INITIAL_CAPACITY];
+        this.starts = new int[INITIAL_CAPACITY];
+        this.ends = new int[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Erstellt die Ebene des Wurzelknotens.
+     *
+     * @param root    der Wurzelknoten
+     * @param columns die Auflösung in Spalten
+     * @return die erste Ebene
+     */
+    static VisibleLevel of(Node root, int columns) {
+        VisibleLevel level = new VisibleLevel(null, null, columns);
+        level.add(root, -1, 1, 0);
+        return level;
+    }
+
+    /**
+     * Erstellt die Ebene des Wurzelknotens eines kompakten Baumes.
+     *
+     * @param tree    der kompakte Baum
+     * @param columns die Auflösung in Spalten
+     * @return die erste Ebene
+     */
+    static VisibleLevel of(CompactTree tree, int columns) {
+        VisibleLevel level = new VisibleLevel(tree, null, columns);
+        level.add(null, 0, 1, 0);
+        return level;
+    }
+
+    /**
+     * Erstellt die Ebene des Wurzelknotens eines DAG der Teilbäume.
+     *
+     * @param dag     der DAG
+     * @param columns die Auflösung in Spalten
+     * @return die erste Ebene
+     */
+    static VisibleLevel of(SubtreeDag dag, int columns) {
+        VisibleLevel level = new VisibleLevel(null, dag, columns);
+        level.add(null, dag.getRoot(), 1, 0);
+        return level;
+    }
+
+    /**
+     * Berechnet die nächste Ebene aus allen Kindern, die mindestens eine Spalte breit sind.
+     *
+     * @return die nächste Ebene, leer, wenn es keine sichtbaren Kinder gibt
+     */
+    VisibleLevel next() {
+        VisibleLevel next = new VisibleLevel(tree, dag, columns);
+        for (int i = 0; i < size; i++) {
+            int childCount = getChildCount(i);
+            long childDenominator = denominators[i] * childCount;
+            if (childCount == 0 || childDenominator > columns) {
+                continue;
+            }
+            long firstIndex = indices[i] * childCount;
+            int child = tree != null ? ids[i] + 1 : -1;
+            for (int c = 0; c < childCount; c++) {
+                if (dag != null) {
+                    next.add(null, dag.getChild(ids[i], c), childDenominator, firstIndex + c);
+                } else if (tree != null) {
+                    next.add(null, child, childDenominator, firstIndex + c);
+                    child = tree.getNextSibling(child);
+                } else {
+                    next.add(nodes[i].getChildren().get(c), -1, childDenominator, firstIndex + c);
+                }
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Gibt die Knotenreferenzen frei, wenn die nächste Ebene berechnet ist und nur noch die Lage gebraucht wird.
+     */
+    void releaseNodes() {
+        nodes = null;
+        ids = null;
+    }
+
+    /**
+     * Gibt die Anzahl der Knoten zurück.
+     * @return die Knotenzahl
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gibt die Kinderzahl eines Knotens zurück; nur bis zur Freigabe der Knotenreferenzen.
+     * @param i die Position in der Ebene
+     * @return die Kinderzahl
+     */
+    int getChildCount(int i) {
+        if (dag != null) {
+            return dag.getChildCount(ids[i]);
+        }
+        return tree != null ? tree.getChildCount(ids[i]) : nodes[i].getChildren().size();
+    }
+
+    /**
+     * Gibt den Pfadnenner eines Knotens zurück.
+     * @param i die Position in der Ebene
+     * @return der Pfadnenner
+     */
+    long getDenominator(int i) {
+        return denominators[i];
+    }
+
+    /**
+     * Gibt die Position eines Knotens unter allen Knoten mit demselben Pfadnenner zurück.
+     * @param i die Position in der Ebene
+     * @return die Position
+     */
+    long getIndex(int i) {
+        return indices[i];
+    }
+
+    /**
+     * Gibt die erste Spalte eines Knotens zurück.
+     * @param i die Position in der Ebene
+     * @return die erste Spalte
+     */
+    int getStart(int i) {
+        return starts[i];
+    }
+
+    /**
+     * Gibt die Spalte nach einem Knoten zurück.
+     * @param i die Position in der Ebene
+     * @return die Spalte nach dem Knoten
+     */
+    int getEnd(int i) {
+        return ends[i];
+    }
+
+    /**
+     * Hängt einen sichtbaren Knoten rechts an.
+     *
+     * @param node        der Knoten, oder null im kompakten Baum und im DAG
+     * @param id          die Knotennummer im kompakten Baum oder die Teilbaumnummer im DAG
+     * @param denominator der Pfadnenner, höchstens gleich der Spaltenzahl
+     * @param index       die Position unter den Knoten mit diesem Pfadnenner
+     */
+    private void add(Node node, int id, long denominator, long index) {
+        if (size == starts.length) {
+            int newCapacity = size * 2;
+            nodes = Arrays.copyOf(nodes, newCapacity);
+            ids = Arrays.copyOf(ids, newCapacity);
+            denominators = Arrays.copyOf(denominators, newCapacity);
+            indices = Arrays.copyOf(indices, newCapacity);
+            starts = Arrays.copyOf(starts, newCapacity);
+            ends = Arrays.copyOf(ends, newCapacity);
+        }
+        nodes[size] = node;
+        ids[size] = id;
+        denominators[size] = denominator;
+        indices[size] = index;
+        starts[size] = (int) (index * columns / denominator);
+        ends[size] = (int) ((index + 1) * columns / denominator);
+        size++;
+    }
+}
@@ -1,3 +1,4 @@
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -5,7 +6,10 @@ import java.util.List;
  * Behandelt Breitenberechnungen für den Baum.
  * Implementiert den Algorithmus zur Berechnung der Gesamtbreite mit kgV und
  * Zuweisung von
- * ganzzahligen Breiten.
+ * ganzzahligen Breiten. Das kgV wird exakt berechnet und läuft auch bei sehr großen Bäumen nicht über.
+ * Für die Prüfung genügt {@link #analyze(Node)}, das alle benötigten Blattdaten in einem Durchlauf sammelt.
+ * Alle Durchläufe arbeiten iterativ mit einem expliziten Stapel, sodass auch sehr tiefe Bäume keinen
+ * StackOverflowError auslösen.
  */
 public class WidthAndDepthCalculator {
 
@@ -15,78 +19,137 @@ public class WidthAndDepthCalculator {
     public WidthAndDepthCalculator() {}
 
     /**
-     * Berechnet die Gesamtbreite durch Finden der kgV aller Pfadnenner.
+     * Analysiert den Baum in einem einzigen Durchlauf.
+     * Dabei werden Pfadnenner und Tiefen aller Blätter in Links-nach-Rechts-Reihenfolge in primitive Puffer
+     * geschrieben sowie Knotenzahl und maximale Tiefe gezählt. Die Knoten selbst werden nicht verändert.
+     *
      * @param root der Wurzelknoten des Baumes
-     * @return die Gesamtbreite (kgV)
+     * @return das Analyseergebnis
      */
-    public int calculateTotalWidth(Node root) {
-        List<Integer> denominators = new ArrayList<>();
-        collectDenominators(root, 1, denominators);
-        return lcm(denominators);
+    public TreeAnalysis analyze(Node root) {
+        TreeAnalysis analysis = new TreeAnalysis();
+        NodeStack stack = new NodeStack();
+        visit(root, 1, null, 1, analysis, stack);
+        while (!stack.isEmpty()) {
+            Node child = stack.nextChild();
+            if (child == null) {
+                analysis.getLcm().leave((int) stack.peekExtra());
+                stack.pop();
+                continue;
+            }
+            visit(child, stack.peekValue(), stack.peekBigValue(), stack.size() + 1, analysis, stack);
+        }
+        return analysis;
     }
 
     /**
-     * Sammelt rekursiv die Nenner für jeden Blattpfad.
-     * 
-     * @param node               aktueller Knoten
-     * @param currentDenominator aktueller Pfadnenner
-     * @param denominators       Liste zum Sammeln der Nenner
+     * Analysiert einen kompakt gespeicherten Baum in einem einzigen Durchlauf, ohne Node-Objekte zu erzeugen.
+     * Die Knoten werden in ihrer Präordnung durchlaufen; ein Stapel hält nur die Vorfahren des aktuellen Knotens.
+     *
+     * @param tree der kompakte Baum
+     * @return das Analyseergebnis
      */
-    private void collectDenominators(Node node, int currentDenominator, List<Integer> denominators) {
-        if (node.isLeaf()) {
-            denominators.add(currentDenominator);
-            return;
-        }
-
-        int childCount = node.getChildren().size();
-        int newDenominator = currentDenominator * childCount;
-
-        for (Node child : node.getChildren()) {
-            collectDenominators(child, newDenominator, denominators);
-        }
+    public TreeAnalysis analyze(CompactTree tree) {
+        TreeAnalysis analysis = new TreeAnalysis();
+        analyzeRange(tree, 0, tree.size(), 1, null, 1, analysis, new PathStack(), analysis.getLcm());
+        return analysis;
     }
 
     /**
-     * Berechnet das kleinste gemeinsame Vielfache (kgV) einer Liste von ganzen Zahlen.
-     * 
-     * @param numbers Liste von Zahlen
-     * @return kgV aller Zahlen
+     * Analysiert einen Wald aufeinanderfolgender Geschwister eines kompakten Baumes, etwa für
+     * {@link ParallelTreeAnalyzer}. Die Knoten from bis to - 1 müssen dabei vollständige Teilbäume bilden,
+     * deren Wurzeln alle denselben Pfadnenner und dieselbe Tiefe haben. Die inneren Knoten werden dem Sammler
+     * für das kgV gemeldet, der dafür schon auf dem Pfad zu den Wurzeln stehen muss und am Ende wieder dort steht.
+     *
+     * @param tree            der kompakte Baum
+     * @param from            die erste Knotennummer des Waldes
+     * @param to              die Knotennummer nach dem Wald
+     * @param baseDenominator Pfadnenner der Wurzeln, solange er in einen long passt
+     * @param baseBig         Pfadnenner der Wurzeln nach einem Überlauf, sonst null
+     * @param baseDepth       Tiefe der Wurzeln
+     * @param analysis        das zu füllende Analyseergebnis
+     * @param path            ein leerer Stapel für die Vorfahren
+     * @param lcm             der Sammler für das kgV
      */
-    private int lcm(List<Integer> numbers) {
-        if (numbers.isEmpty())
-            return 1;
-        int result = numbers.get(0);
-        for (int i = 1; i < numbers.size(); i++) {
-            result = lcm(result, numbers.get(i));
-        }
-        return result;
+    void analyzeRange(CompactTree tree, int from, int to, long baseDenominator, BigInteger baseBig, int baseDepth,
+                      TreeAnalysis analysis, PathStack path, LcmAccumulator lcm) {
+        for (int node = from; node < to; node++) {
+            int parent = tree.getParent(node);
+            while (!path.isEmpty() && path.peekNode() != parent) {
+                lcm.leave(tree.getChildCount(path.peekNode()));
+                path.pop();
+            }
+            long denominator = path.isEmpty() ? baseDenominator : path.peekValue();
+            BigInteger bigDenominator = path.isEmpty() ? baseBig : path.peekBigValue();
+            int depth = path.size() + baseDepth;
+
+            analysis.addNode(depth);
+            int childCount = tree.getChildCount(node);
+            if (childCount == 0) {
+                if (bigDenominator == null) {
+                    analysis.addLeaf(denominator, depth);
+                } else {
+                    analysis.addLeaf(bigDenominator, depth);
+                }
+                continue;
+            }
+
+            lcm.enter(childCount);
+            BigInteger bigChildDenominator = LeafGenerator.bigChildDenominator(denominator, bigDenominator, childCount);
+            if (bigChildDenominator != null) {
+                path.push(node, bigChildDenominator);
+            } else {
+                path.push(node, denominator * childCount);
+            }
+        }
+        while (!path.isEmpty()) {
+            lcm.leave(tree.getChildCount(path.peekNode()));
+            path.pop();
+        }
     }
 
     /**
-     * Berechnet das kgV von zwei Zahlen mit Hilfe des ggT.
-     * 
-     * @param a erste Zahl
-     * @param b zweite Zahl
-     * @return kgV von a und b
+     * Besucht einen Knoten während der Analyse.
+     * Ein Blatt wird angehängt; ein innerer Knoten wird mit dem Pfadnenner seiner Kinder und seiner Kinderzahl auf
+     * den Stapel gelegt und dem Sammler für das kgV gemeldet.
+     *
+     * @param node           aktueller Knoten
+     * @param denominator    Pfadnenner des Knotens, solange er in einen long passt
+     * @param bigDenominator Pfadnenner des Knotens nach einem Überlauf, sonst null
+     * @param depth          Tiefe des Knotens
+     * @param analysis       das zu füllende Analyseergebnis
+     * @param stack          Stapel der Vorfahren
      */
-    private int lcm(int a, int b) {
-        return a * (b / gcd(a, b));
+    private void visit(Node node, long denominator, BigInteger bigDenominator, int depth,
+                       TreeAnalysis analysis, NodeStack stack) {
+        analysis.addNode(depth);
+        if (node.isLeaf()) {
+            if (bigDenominator == null) {
+                analysis.addLeaf(denominator, depth);
+            } else {
+                analysis.addLeaf(bigDenominator, depth);
+            }
+            return;
+        }
+
+        int childCount = node.getChildren().size();
+        analysis.getLcm().enter(childCount);
+        BigInteger bigChildDenominator = LeafGenerator.bigChildDenominator(denominator, bigDenominator, childCount);
+        if (bigChildDenominator != null) {
+            stack.push(node, bigChildDenominator, childCount);
+        } else {
+            stack.push(node, denominator * childCount, childCount);
+        }
     }
 
     /**
-     * Berechnet den größten gemeinsamen Teiler (ggT) mit dem Euklidischen Algorithmus.
-     * 
-     * @param a erste Zahl
-     * @param b zweite Zahl
-     * @return ggT von a und b
+     * Berechnet die Gesamtbreite durch Finden der kgV aller Pfadnenner.
+     * Gesammelt werden die Primzahlexponenten der Pfadnenner; das kgV wird daraus einmal am Ende gebildet.
+     * @param root der Wurzelknoten des Baumes
+     * @return die Gesamtbreite (kgV)
      */
-    private int gcd(int a, int b) {
-        while (b != 0) {
-            int temp = b;
-            b = a % b;
-            a = temp;
-        }
-        return a;
+    public BigInteger calculateTotalWidth(Node root) {
+        return analyze(root).getTotalWidth();
     }
 
     /**
@@ -95,87 +158,84 @@ public class WidthAndDepthCalculator {
      * @param root       der Wurzelknoten
      * @param totalWidth die zu verteilende Gesamtbreite
      */
-    public void assignWidthsAndDepths(Node root, int totalWidth) {
-        assignWidthsAndDepthsRecursive(root, totalWidth, 1);
+    public void assignWidthsAndDepths(Node root, BigInteger totalWidth) {
+        NodeStack stack = new NodeStack();
+        if (totalWidth.bitLength() < Long.SIZE) {
+            assign(root, totalWidth.longValue(), null, 1, stack);
+        } else {
+            assign(root, 0, totalWidth, 1, stack);
+        }
+        while (!stack.isEmpty()) {
+            Node child = stack.nextChild();
+            if (child == null) {
+                stack.pop();
+                continue;
+            }
+            assign(child, stack.peekValue(), stack.peekBigValue(), stack.size() + 1, stack);
+        }
     }
 
     /**
-     * Weist Knoten rekursiv Breiten und Tiefen zu.
+     * Weist einem Knoten Breite und Tiefe zu und legt ihn, falls er Kinder hat, mit deren Breite auf den Stapel.
+     * Sobald eine Breite in einen long passt, wird mit primitiven Werten weitergerechnet.
      *
-     * @param node  aktueller Knoten
-     * @param width diesem Knoten zuzuweisende Breite
-     * @param depth diesem Knoten zuzuweisende Tiefe
+     * @param node     aktueller Knoten
+     * @param width    diesem Knoten zuzuweisende Breite, solange sie in einen long passt
+     * @param bigWidth diesem Knoten zuzuweisende Breite, wenn sie nicht in einen long passt, sonst null
+     * @param depth    diesem Knoten zuzuweisende Tiefe
+     * @param stack    Stapel der Vorfahren
      */
-    private void assignWidthsAndDepthsRecursive(Node node, int width, int depth) {
-        node.setWidth(width);
+    private void assign(Node node, long width, BigInteger bigWidth, int depth, NodeStack stack) {
         node.setDepth(depth);
+        if (bigWidth == null) {
+            node.setWidth(width);
+        } else {
+            node.setExactWidth(bigWidth);
+        }
         if (node.isLeaf())
             return;
 
         int childCount = node.getChildren().size();
-        int childWidth = width / childCount;
-
-        for (Node child : node.getChildren()) {
-            assignWidthsAndDepthsRecursive(child, childWidth, depth + 1);
+        if (bigWidth == null) {
+            stack.push(node, width / childCount, 0);
+            return;
+        }
+        BigInteger childWidth = bigWidth.divide(BigInteger.valueOf(childCount));
+        if (childWidth.bitLength() < Long.SIZE) {
+            stack.push(node, childWidth.longValue(), 0);
+        } else {
+            stack.push(node, childWidth, 0);
         }
     }
 
     /**
-     * Sammelt die Breiten aller Blattknoten in Links-nach-Rechts-Reihenfolge.
+     * Gibt die Breiten aller Blattknoten in Links-nach-Rechts-Reihenfolge zurück.
      * 
      * @param root der Wurzelknoten
      * @return Liste der Blattbreiten
      */
-    public List<Integer> getLeafWidths(Node root) {
-        List<Integer> widths = new ArrayList<>();
-        collectLeafWidths(root, widths);
-        return widths;
-    }
-
-    /**
-     * Sammelt rekursiv die Blattbreiten.
-     * 
-     * @param node   aktueller Knoten
-     * @param widths Liste zum Sammeln der Breiten
-     */
-    private void collectLeafWidths(Node node, List<Integer> widths) {
-        if (node.isLeaf()) {
-            widths.add(node.getWidth());
-            return;
-        }
-
-        for (Node child : node.getChildren()) {
-            collectLeafWidths(child, widths);
+    public List<BigInteger> getLeafWidths(Node root) {
+        TreeAnalysis analysis = analyze(root);
+        List<BigInteger> widths = new ArrayList<>(analysis.getLeafCount());
+        for (int i = 0; i < analysis.getLeafCount(); i++) {
+            widths.add(analysis.getLeafWidth(i));
         }
+        return widths;
     }
 
     /**
-     * Sammelt die Tiefen aller Blattknoten in Links-nach-Rechts-Reihenfolge.
+     * Gibt die Tiefen aller Blattknoten in Links-nach-Rechts-Reihenfolge zurück.
      *
      * @param root der Wurzelknoten
      * @return Liste der Blatttiefen
      */
     public List<Integer> getLeafDepths(Node root) {
-        List<Integer> depths = new ArrayList<>();
-        collectLeafDepths(root, depths);
-        return depths;
-    }
-
-    /**
-     * Sammelt rekursiv die Blatttiefen.
-     *
-     * @param node   aktueller Knoten
-     * @param depths Liste zum Sammeln der Tiefen
-     */
-    private void collectLeafDepths(Node node, List<Integer> depths) {
-        if (node.isLeaf()) {
-            depths.add(node.getDepth());
-            return;
-        }
-
-        for (Node child : node.getChildren()) {
-            collectLeafDepths(child, depths);
+        LeafSequence leaves = analyze(root).getLeaves();
+        List<Integer> depths = new ArrayList<>(leaves.size());
+        for (int i = 0; i < leaves.size(); i++) {
+            depths.add(leaves.getDepth(i));
         }
+        return depths;
     }
 
     /**
@@ -184,7 +244,7 @@ public class WidthAndDepthCalculator {
      * @param widths Liste von ganzen Zahlen
      * @return true, wenn Palindrom, sonst false
      */
-    public boolean isWidthPalindrome(List<Integer> widths) {
+    public boolean isWidthPalindrome(List<BigInteger> widths) {
         int n = widths.size();
         for (int i = 0; i < n / 2; i++) {
             if (!widths.get(i).equals(widths.get(n - 1 - i))) {
@@ -214,4 +274,41 @@ public class WidthAndDepthCalculator {
         }
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Prüft, ob die Pfadnenner der Blätter ein Palindrom bilden.
+     * Das ist genau dann der Fall, wenn auch die Blattbreiten ein Palindrom bilden.
+     *
+     * @param leaves die Folge der Blätter
+     * @return true, wenn Palindrom, sonst false
+     */
+    public boolean isDenominatorPalindrome(LeafSequence leaves) {
+        int n = leaves.size();
+        for (int i = 0; i < n / 2; i++) {
+            if (!leaves.denominatorEquals(i, n - 1 - i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Prüft, ob die Summe der Tiefen von beiden Enden der Blattfolge konstant ist.
+     *
+     * @param leaves die Folge der Blätter
+     * @return true, wenn die Tiefensumme konstant ist, sonst false
+     */
+    public boolean isConstantDepthSum(LeafSequence leaves) {
+        int n = leaves.size();
+        if (n <= 1) // Ein einzelnes Blatt oder ein leerer Baum erfüllt die Bedingung trivialerweise.
+            return true;
+
+        int expectedSum = leaves.getDepth(0) + leaves.getDepth(n - 1);
+        for (int i = 1; i < n / 2; i++) {
+            if (leaves.getDepth(i) + leaves.getDepth(n - 1 - i) != expectedSum) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,60 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Prüft, dass eine Datei in jedem Modus und in jedem Format dasselbe Ergebnis hat, auch mit der Hash-Vorprüfung.
+ */
+class DrehfreudigCheckerTest {
+    /** Alle Modi für einzelne Dateien. */
+    private static final String[][] MODES = {
+            {}, {"--fast"}, {"--compact"}, {"--stream"}, {"--dag"}, {"--hash", "exact"}, {"--hash", "only"}
+    };
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void treeSpanningLinesIsOneTreeInEveryMode() throws IOException {
+        assertSameInEveryMode("ml.txt", "((()())\n(()()))", BatchProcessor.Outcome.DREHFREUDIG);
+    }
+
+    @Test
+    void secondRootIsRejectedInEveryMode() throws IOException {
+        assertSameInEveryMode("two.txt", "(()())\n(()())", BatchProcessor.Outcome.FEHLER);
+    }
+
+    @Test
+    void rejectedTreeIsRejectedInEveryMode() throws IOException {
+        assertSameInEveryMode("neg.txt", "((()())\n(()))", BatchProcessor.Outcome.NICHT_DREHFREUDIG);
+    }
+
+    private void assertSameInEveryMode(String name, String content, BatchProcessor.Outcome expected)
+            throws IOException {
+        Path text = Files.write(directory.resolve(name), content.getBytes(StandardCharsets.US_ASCII));
+        Path compressed = directory.resolve(name + ".gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+            out.write(content.getBytes(StandardCharsets.US_ASCII));
+        }
+        for (String[] mode : MODES) {
+            CheckerOptions options = CheckerOptions.parse(mode);
+            assertEquals(expected, process(text, options), name + " " + String.join(" ", mode));
+            assertEquals(expected, process(compressed, options), name + ".gz " + String.join(" ", mode));
+        }
+    }
+
+    private static BatchProcessor.Outcome process(Path file, CheckerOptions options) {
+        PrintStream sink = new PrintStream(new ByteArrayOutputStream(), true);
+        return DrehfreudigChecker.processFile(file.toString(), options, null, null, sink, sink);
+    }
+}
@@ -0,0 +1,104 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Prüft, dass die {@link HashPrecheck} dieselben Kennzahlen und dieselbe Abweichung liefert wie der exakte
+ * {@link TreeChecker}, insbesondere bei ungerader Blattzahl, wo die Tiefe des mittleren Blattes erst aus den
+ * Hashes zurückgewonnen wird.
+ */
+class HashPrecheckTest {
+
+    @Test
+    void allSmallTreesMatchExactCheck() {
+        HashPrecheck precheck = new HashPrecheck();
+        TreeChecker checker = new TreeChecker(false);
+        for (List<String> size : allTrees(11)) {
+            for (String tree : size) {
+                assertSameAsExactCheck(precheck, checker, tree);
+            }
+        }
+    }
+
+    @Test
+    void middleLeafOfOddLeafCountMayHaveAnyDepth() {
+        HashPrecheck precheck = new HashPrecheck();
+        TreeChecker checker = new TreeChecker(false);
+        // Alle Breiten gleich; das mittlere Blatt bildet kein Paar, auch nicht als tiefster Knoten
+        assertEquals(Mismatch.NONE, assertSameAsExactCheck(precheck, checker, "(()()())"));
+        assertEquals(Mismatch.NONE, assertSameAsExactCheck(precheck, checker, "(()(())())"));
+        assertEquals(Mismatch.NONE, assertSameAsExactCheck(precheck, checker, "((())()(()))"));
+        assertEquals(Mismatch.NONE, assertSameAsExactCheck(precheck, checker, "(()()(((())))()())"));
+        // Die äußeren Paare zählen weiterhin
+        assertEquals(Mismatch.DEPTH, assertSameAsExactCheck(precheck, checker, "(()(())()()())"));
+        assertEquals(Mismatch.DEPTH, assertSameAsExactCheck(precheck, checker, "(()(())(((())))()())"));
+    }
+
+    @Test
+    void enumeratedDrehfreudigTreesPass() throws IOException {
+        StringWriter out = new StringWriter();
+        new TreeEnumerator(new ForkJoinPool(1)).enumerate(16, out);
+        HashPrecheck precheck = new HashPrecheck();
+        for (String tree : out.toString().split("\n")) {
+            feed(precheck, tree);
+            assertTrue(precheck.isDrehfreudig(), tree);
+        }
+    }
+
+    private static Mismatch assertSameAsExactCheck(HashPrecheck precheck, TreeChecker checker, String tree) {
+        feed(precheck, tree);
+        TreeChecker.Result result = checker.check(tree);
+        assertEquals(result.getNodeCount(), precheck.getNodeCount(), tree);
+        assertEquals(result.getLeafCount(), precheck.getLeafCount(), tree);
+        assertEquals(result.getMaxDepth(), precheck.getMaxDepth(), tree);
+        assertEquals(result.getMismatch(), precheck.getMismatch(), tree);
+        return precheck.getMismatch();
+    }
+
+    private static void feed(HashPrecheck precheck, String tree) {
+        precheck.reset();
+        for (int i = 0; i < tree.length(); i++) {
+            if (tree.charAt(i) == '(') {
+                precheck.open();
+            } else {
+                precheck.close();
+            }
+        }
+        assertTrue(precheck.finish(), tree);
+    }
+
+    private static List<List<String>> allTrees(int maxNodes) {
+        // trees.get(n): alle Bäume mit n Knoten; forests.get(m): alle Folgen von Bäumen mit zusammen m Knoten
+        List<List<String>> trees = new ArrayList<>();
+        List<List<String>> forests = new ArrayList<>();
+        trees.add(new ArrayList<>());
+        forests.add(List.of(""));
+        for (int n = 1; n <= maxNodes; n++) {
+            List<String> sizeTrees = new ArrayList<>();
+            for (String forest : forests.get(n - 1)) {
+                sizeTrees.add("(" + forest + ")");
+            }
+            trees.add(sizeTrees);
+            if (n == maxNodes) {
+                break;
+            }
+            List<String> sizeForests = new ArrayList<>();
+            for (int first = 1; first <= n; first++) {
+                for (String tree : trees.get(first)) {
+                    for (String rest : forests.get(n - first)) {
+                        sizeForests.add(tree + rest);
+                    }
+                }
+            }
+            forests.add(sizeForests);
+        }
+        return trees;
+    }
+}
@@ -0,0 +1,107 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Prüft, dass der {@link IncrementalChecker} nach jedem {@link IncrementalChecker#addChild(Node, Node)} dasselbe
+ * Ergebnis liefert wie ein vollständiger Durchlauf mit dem {@link WidthAndDepthCalculator}, unabhängig davon, in
+ * welcher Reihenfolge der Baum wächst.
+ */
+class IncrementalCheckerTest {
+
+    @Test
+    void randomGrowthMatchesCalculatorAfterEveryStep() {
+        for (long seed = 0; seed < 40; seed++) {
+            Random random = new Random(seed);
+            Node root = new Node();
+            IncrementalChecker checker = new IncrementalChecker(root);
+            List<Node> nodes = new ArrayList<>();
+            nodes.add(root);
+            for (int step = 0; step < 150; step++) {
+                Node child = new Node();
+                checker.addChild(nodes.get(random.nextInt(nodes.size())), child);
+                nodes.add(child);
+                assertSameAsCalculator(root, checker, "Startwert " + seed + ", Schritt " + step);
+            }
+        }
+    }
+
+    @Test
+    void completeTreesGrownInRandomOrderMatchCalculatorAfterEveryStep() {
+        for (int k = 2; k <= 4; k++) {
+            for (long seed = 0; seed < 5; seed++) {
+                Random random = new Random(seed);
+                Node root = new Node();
+                IncrementalChecker checker = new IncrementalChecker(root);
+                // Knoten, die noch Kinder erhalten, mit ihrer Tiefe
+                List<Node> open = new ArrayList<>();
+                List<Integer> depths = new ArrayList<>();
+                open.add(root);
+                depths.add(1);
+                int height = k == 2 ? 6 : 4;
+                int step = 0;
+                while (!open.isEmpty()) {
+                    int index = random.nextInt(open.size());
+                    Node parent = open.get(index);
+                    int depth = depths.get(index);
+                    Node child = new Node();
+                    checker.addChild(parent, child);
+                    if (parent.getChildren().size() == k) {
+                        open.set(index, open.get(open.size() - 1));
+                        depths.set(index, depths.get(depths.size() - 1));
+                        open.remove(open.size() - 1);
+                        depths.remove(depths.size() - 1);
+                    }
+                    if (depth + 1 < height) {
+                        open.add(child);
+                        depths.add(depth + 1);
+                    }
+                    assertSameAsCalculator(root, checker, "k = " + k + ", Startwert " + seed + ", Schritt " + step++);
+                }
+                assertTrue(checker.isDrehfreudig(), "vollständiger Baum mit k = " + k);
+            }
+        }
+    }
+
+    @Test
+    void addedSubtreesMatchCalculator() {
+        Random random = new Random(7);
+        Node root = new Node();
+        IncrementalChecker checker = new IncrementalChecker(root);
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(root);
+        for (int step = 0; step < 40; step++) {
+            // Ein kleiner Teilbaum, der mit allen Kindern auf einmal angehängt wird
+            Node subtree = new Node();
+            List<Node> subtreeNodes = new ArrayList<>();
+            subtreeNodes.add(subtree);
+            int size = random.nextInt(6);
+            for (int i = 0; i < size; i++) {
+                Node child = new Node();
+                subtreeNodes.get(random.nextInt(subtreeNodes.size())).addChild(child);
+                subtreeNodes.add(child);
+            }
+            checker.addChild(nodes.get(random.nextInt(nodes.size())), subtree);
+            nodes.addAll(subtreeNodes);
+            assertSameAsCalculator(root, checker, "Schritt " + step);
+        }
+    }
+
+    private static void assertSameAsCalculator(Node root, IncrementalChecker checker, String message) {
+        WidthAndDepthCalculator calculator = new WidthAndDepthCalculator();
+        TreeAnalysis analysis = calculator.analyze(root);
+        LeafSequence leaves = analysis.getLeaves();
+        assertEquals(analysis.getNodeCount(), checker.getNodeCount(), message);
+        assertEquals(analysis.getLeafCount(), checker.getLeafCount(), message);
+        assertEquals(calculator.isDenominatorPalindrome(leaves), checker.isWidthPalindrome(), message);
+        assertEquals(calculator.isConstantDepthSum(leaves), checker.isConstantDepthSum(), message);
+        assertEquals(calculator.isDenominatorPalindrome(leaves) && calculator.isConstantDepthSum(leaves),
+                checker.isDrehfreudig(), message);
+        assertEquals(analysis.getTotalWidth(), checker.getTotalWidth(), message);
+    }
+}
@@ -0,0 +1,115 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Prüft, dass der Schlüssel des {@link ResultCache} genau die Klammern abdeckt, die beim Prüfen geparst werden,
+ * und ein Treffer daher nie ein anderes Ergebnis liefert als die Prüfung ohne Cache.
+ */
+class ResultCacheTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void cacheHitMatchesUncachedResultForMultiLineFile() throws IOException {
+        Path first = write("a.txt", "(()(()()))");
+        Path second = write("b.txt", "(()\n(()()))");
+        ResultCache cache = new ResultCache(directory.resolve("cache"));
+        CheckerOptions options = new CheckerOptions();
+
+        BatchProcessor.Outcome expected = process(second, options, null);
+        assertEquals(process(first, options, null), process(first, options, cache));
+        assertEquals(expected, process(second, options, cache));
+        assertEquals(expected, process(second, CheckerOptions.parse(new String[] {"--compact"}), null));
+    }
+
+    @Test
+    void secondRootIsRejectedWithAndWithoutCache() throws IOException {
+        Path single = write("single.txt", "(()())");
+        Path twoRoots = write("two.txt", "(()())\n(()())");
+        ResultCache cache = new ResultCache(directory.resolve("cache"));
+        CheckerOptions options = new CheckerOptions();
+
+        process(single, options, cache);
+        assertNotEquals(cache.key(single).toString(), cache.key(twoRoots).toString());
+        assertEquals(BatchProcessor.Outcome.FEHLER, process(twoRoots, options, null));
+        assertEquals(BatchProcessor.Outcome.FEHLER, process(twoRoots, options, cache));
+    }
+
+    @Test
+    void keyIsIndependentOfFileFormat() throws IOException {
+        Path text = write("tree.txt", "((()())\n(()()))\n");
+        Path binary = directory.resolve("tree.bin");
+        BinaryTreeFile.toBinary(text, binary, false);
+        Path compressed = directory.resolve("tree.txt.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+            out.write(Files.readAllBytes(text));
+        }
+        ResultCache cache = new ResultCache(directory.resolve("cache"));
+
+        String expected = cache.key(text).toString();
+        assertEquals(expected, cache.key(binary).toString());
+        assertEquals(expected, cache.key(compressed).toString());
+    }
+
+    @Test
+    void dagResultIsNotReusedAsExactResult() throws IOException {
+        Path file = write("tree.txt", "((()())(()()))");
+        ResultCache cache = new ResultCache(directory.resolve("cache"));
+        CheckerOptions dag = CheckerOptions.parse(new String[] {"--dag"});
+        CheckerOptions fast = CheckerOptions.parse(new String[] {"--fast"});
+
+        String expected = output(file, fast, null);
+        assertTrue(output(file, dag, cache).contains("Breitenprüfung: bestanden (Hash)"));
+        assertTrue(output(file, dag, cache).contains("Breitenprüfung: bestanden (Hash)"));
+        assertEquals(expected, output(file, fast, cache));
+    }
+
+    @Test
+    void cacheHitIsCountedInStats() throws IOException {
+        // Nicht drehfreudig, damit der zweite Aufruf ohne Anzeige ganz aus dem Cache beantwortet wird
+        Path file = write("tree.txt", "((()())(()))");
+        ResultCache cache = new ResultCache(directory.resolve("cache"));
+        CheckerOptions options = new CheckerOptions();
+        PhaseStats stats = new PhaseStats();
+        PrintStream sink = new PrintStream(new ByteArrayOutputStream(), true);
+        DrehfreudigChecker.processFile(file.toString(), options, cache, stats, sink, sink);
+        DrehfreudigChecker.processFile(file.toString(), options, cache, stats, sink, sink);
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        stats.print(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+        String printed = buffer.toString(StandardCharsets.UTF_8);
+        assertTrue(printed.contains("=== Phasenstatistik: 2 Bäume ==="), printed);
+        assertTrue(Pattern.compile("(?m)^Cache +2 ").matcher(printed).find(), printed);
+        assertTrue(Pattern.compile("(?m)^Parsen +1 ").matcher(printed).find(), printed);
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.write(directory.resolve(name), content.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static BatchProcessor.Outcome process(Path file, CheckerOptions options, ResultCache cache) {
+        PrintStream sink = new PrintStream(new ByteArrayOutputStream(), true);
+        return DrehfreudigChecker.processFile(file.toString(), options, cache, null, sink, sink);
+    }
+
+    private static String output(Path file, CheckerOptions options, ResultCache cache) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+        DrehfreudigChecker.processFile(file.toString(), options, cache, null, out, out);
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+}
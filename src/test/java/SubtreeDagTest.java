@@ -0,0 +1,112 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Prüft, dass ein mit dem {@link SubtreeDag.Builder} aufgebauter DAG dieselben Kennzahlen und dasselbe Ergebnis
+ * liefert wie die exakte Prüfung mit dem {@link WidthAndDepthCalculator}, auch wenn viele Teilbäume gleich sind.
+ */
+class SubtreeDagTest {
+
+    @Test
+    void allSmallTreesMatchExactCheck() {
+        List<List<String>> trees = allTrees(11);
+        for (List<String> size : trees) {
+            for (String tree : size) {
+                assertSameAsCalculator(tree);
+            }
+        }
+    }
+
+    @Test
+    void enumeratedDrehfreudigTreesPass() throws IOException {
+        StringWriter out = new StringWriter();
+        new TreeEnumerator(new ForkJoinPool(1)).enumerate(16, out);
+        for (String tree : out.toString().split("\n")) {
+            SubtreeDag dag = build(tree);
+            assertTrue(dag.isDenominatorPalindrome() && dag.isConstantDepthSum(), tree);
+        }
+    }
+
+    @Test
+    void treesWithRepeatedSubtreesMatchExactCheck() {
+        Random random = new Random(3);
+        for (int round = 0; round < 200; round++) {
+            // Jeder neue Teilbaum setzt sich aus bereits erzeugten zusammen, sodass viele Teilbäume gleich sind
+            List<String> pool = new ArrayList<>();
+            pool.add("()");
+            for (int i = 0; i < 30; i++) {
+                StringBuilder sb = new StringBuilder("(");
+                int children = 1 + random.nextInt(4);
+                for (int c = 0; c < children && sb.length() < 100_000; c++) {
+                    sb.append(pool.get(random.nextInt(pool.size())));
+                }
+                pool.add(sb.append(')').toString());
+            }
+            String tree = pool.get(pool.size() - 1);
+            assertSameAsCalculator(tree);
+            assertSameAsCalculator("(" + tree + tree + ")");
+        }
+    }
+
+    private static void assertSameAsCalculator(String tree) {
+        SubtreeDag dag = build(tree);
+        WidthAndDepthCalculator calculator = new WidthAndDepthCalculator();
+        TreeAnalysis analysis = calculator.analyze(new TreeParser().parseCompact(tree));
+        LeafSequence leaves = analysis.getLeaves();
+        assertEquals(analysis.getNodeCount(), dag.getNodeCount(), tree);
+        assertEquals(analysis.getLeafCount(), dag.getLeafCount(), tree);
+        assertEquals(leaves.getDepth(0), dag.getFirstLeafDepth(), tree);
+        assertEquals(leaves.getDepth(leaves.size() - 1), dag.getLastLeafDepth(), tree);
+        assertEquals(calculator.isDenominatorPalindrome(leaves), dag.isDenominatorPalindrome(), tree);
+        assertEquals(calculator.isConstantDepthSum(leaves), dag.isConstantDepthSum(), tree);
+    }
+
+    private static SubtreeDag build(String tree) {
+        SubtreeDag.Builder builder = new SubtreeDag.Builder();
+        for (int i = 0; i < tree.length(); i++) {
+            if (tree.charAt(i) == '(') {
+                builder.open();
+            } else {
+                builder.close();
+            }
+        }
+        return builder.build();
+    }
+
+    private static List<List<String>> allTrees(int maxNodes) {
+        // trees.get(n): alle Bäume mit n Knoten; forests.get(m): alle Folgen von Bäumen mit zusammen m Knoten
+        List<List<String>> trees = new ArrayList<>();
+        List<List<String>> forests = new ArrayList<>();
+        trees.add(new ArrayList<>());
+        forests.add(List.of(""));
+        for (int n = 1; n <= maxNodes; n++) {
+            List<String> sizeTrees = new ArrayList<>();
+            for (String forest : forests.get(n - 1)) {
+                sizeTrees.add("(" + forest + ")");
+            }
+            trees.add(sizeTrees);
+            if (n == maxNodes) {
+                break;
+            }
+            List<String> sizeForests = new ArrayList<>();
+            for (int first = 1; first <= n; first++) {
+                for (String tree : trees.get(first)) {
+                    for (String rest : forests.get(n - first)) {
+                        sizeForests.add(tree + rest);
+                    }
+                }
+            }
+            forests.add(sizeForests);
+        }
+        return trees;
+    }
+}